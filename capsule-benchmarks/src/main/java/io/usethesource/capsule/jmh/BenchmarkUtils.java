@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.jmh;
+
+import java.util.Random;
+
+/**
+ * Shared data generation for the JMH suites. Elements are drawn from a seeded random source, such
+ * that repeated runs (and runs against different library versions) operate on identical data.
+ */
+final class BenchmarkUtils {
+
+  /**
+   * Number of elements that are looked up, inserted or removed per benchmark invocation.
+   */
+  static final int CACHED_NUMBERS_SIZE = 8;
+
+  private BenchmarkUtils() {
+  }
+
+  /**
+   * Generates {@code size} distinct elements that are all non-negative.
+   */
+  static Integer[] generateElements(final int size, final long seed) {
+    final Random random = new Random(seed);
+    final java.util.Set<Integer> seen = new java.util.HashSet<>(size * 2);
+    final Integer[] elements = new Integer[size];
+
+    int i = 0;
+    while (i < size) {
+      final int candidate = random.nextInt() & Integer.MAX_VALUE;
+      if (seen.add(candidate)) {
+        elements[i++] = candidate;
+      }
+    }
+    return elements;
+  }
+
+  /**
+   * Samples {@link #CACHED_NUMBERS_SIZE} elements (with repetition) from {@code elements}.
+   */
+  static Integer[] sampleContained(final Integer[] elements, final long seed) {
+    final Random random = new Random(seed + 13);
+    final Integer[] sample = new Integer[CACHED_NUMBERS_SIZE];
+
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      sample[i] = elements[random.nextInt(elements.length)];
+    }
+    return sample;
+  }
+
+  /**
+   * Generates {@link #CACHED_NUMBERS_SIZE} elements that are guaranteed not to be contained in
+   * {@code elements}, since all generated elements are non-negative.
+   */
+  static Integer[] sampleNotContained(final long seed) {
+    final Random random = new Random(seed + 17);
+    final Integer[] sample = new Integer[CACHED_NUMBERS_SIZE];
+
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      sample[i] = random.nextInt() | Integer.MIN_VALUE;
+    }
+    return sample;
+  }
+
+}
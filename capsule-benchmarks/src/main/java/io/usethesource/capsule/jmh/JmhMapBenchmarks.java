@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.jmh;
+
+import static io.usethesource.capsule.jmh.BenchmarkUtils.CACHED_NUMBERS_SIZE;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import io.usethesource.capsule.Map;
+import io.usethesource.capsule.core.PersistentTrieMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link PersistentTrieMap} against {@link HashMap} as baseline. Methods suffixed with
+ * {@code Baseline} operate on the {@link HashMap}; insertion and removal on the baseline copy the
+ * collection first to mirror the cost of obtaining a new immutable version.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JmhMapBenchmarks {
+
+  @Param({"10", "100", "1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  @Param({"0"})
+  public long seed;
+
+  private Integer[] elements;
+  private Integer[] cachedNumbers;
+  private Integer[] cachedNumbersNotContained;
+
+  private Map.Immutable<Integer, Integer> testMap;
+  private Map.Immutable<Integer, Integer> testMapRealDuplicate;
+  private Map.Immutable<Integer, Integer> testMapDeltaDuplicate;
+  private Map.Transient<Integer, Integer> testMapTransient;
+
+  private HashMap<Integer, Integer> testMapBaseline;
+  private HashMap<Integer, Integer> testMapBaselineRealDuplicate;
+
+  @Setup
+  public void setUp() {
+    elements = BenchmarkUtils.generateElements(size, seed);
+    cachedNumbers = BenchmarkUtils.sampleContained(elements, seed);
+    cachedNumbersNotContained = BenchmarkUtils.sampleNotContained(seed);
+
+    testMap = buildPersistent(elements);
+    testMapRealDuplicate = buildPersistent(elements);
+    testMapDeltaDuplicate = testMap.__put(cachedNumbersNotContained[0], 0)
+        .__remove(cachedNumbersNotContained[0]);
+    testMapTransient = testMap.asTransient();
+
+    testMapBaseline = buildBaseline(elements);
+    testMapBaselineRealDuplicate = buildBaseline(elements);
+  }
+
+  private static Map.Immutable<Integer, Integer> buildPersistent(final Integer[] elements) {
+    final Map.Transient<Integer, Integer> tmp = Map.Transient.of();
+    for (Integer element : elements) {
+      tmp.__put(element, element);
+    }
+    return tmp.freeze();
+  }
+
+  private static HashMap<Integer, Integer> buildBaseline(final Integer[] elements) {
+    final HashMap<Integer, Integer> tmp = new HashMap<>();
+    for (Integer element : elements) {
+      tmp.put(element, element);
+    }
+    return tmp;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKey(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.containsKey(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKeyBaseline(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMapBaseline.containsKey(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKeyNotContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.containsKey(cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKeyNotContainedBaseline(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMapBaseline.containsKey(cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeGet(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.get(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeGetBaseline(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMapBaseline.get(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeGetNotContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.get(cachedNumbersNotContained[i]));
+    }
+  }
+
+  /**
+   * Replaces values of a transient; after the first invocation all updates happen in-place.
+   * Run with {@code -prof gc} to check that the update path does not allocate.
+   */
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeTransientPutContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMapTransient.__put(cachedNumbers[i], cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeInsert(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.__put(cachedNumbersNotContained[i], cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeInsertContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.__put(cachedNumbers[i], cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeRemoveKey(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.__remove(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeRemoveKeyNotContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.__remove(cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  public void timeInsertBaseline(Blackhole bh) {
+    final HashMap<Integer, Integer> copy = new HashMap<>(testMapBaseline);
+    copy.put(cachedNumbersNotContained[0], cachedNumbersNotContained[0]);
+    bh.consume(copy);
+  }
+
+  @Benchmark
+  public void timeRemoveKeyBaseline(Blackhole bh) {
+    final HashMap<Integer, Integer> copy = new HashMap<>(testMapBaseline);
+    copy.remove(cachedNumbers[0]);
+    bh.consume(copy);
+  }
+
+  @Benchmark
+  public void timeIterationKey(Blackhole bh) {
+    for (Iterator<Integer> iterator = testMap.keyIterator(); iterator.hasNext(); ) {
+      bh.consume(iterator.next());
+    }
+  }
+
+  @Benchmark
+  public void timeIterationKeyBaseline(Blackhole bh) {
+    for (Integer key : testMapBaseline.keySet()) {
+      bh.consume(key);
+    }
+  }
+
+  @Benchmark
+  public void timeIterationEntry(Blackhole bh) {
+    for (Iterator<java.util.Map.Entry<Integer, Integer>> iterator = testMap.entryIterator();
+        iterator.hasNext(); ) {
+      bh.consume(iterator.next());
+    }
+  }
+
+  @Benchmark
+  public void timeIterationEntryBaseline(Blackhole bh) {
+    for (java.util.Map.Entry<Integer, Integer> entry : testMapBaseline.entrySet()) {
+      bh.consume(entry);
+    }
+  }
+
+  @Benchmark
+  public boolean timeEqualsRealDuplicate() {
+    return testMap.equals(testMapRealDuplicate);
+  }
+
+  @Benchmark
+  public boolean timeEqualsRealDuplicateBaseline() {
+    return testMapBaseline.equals(testMapBaselineRealDuplicate);
+  }
+
+  @Benchmark
+  public boolean timeEqualsDeltaDuplicate() {
+    return testMap.equals(testMapDeltaDuplicate);
+  }
+
+  @Benchmark
+  public Map.Immutable<Integer, Integer> timeTransientBatchInsert() {
+    return buildPersistent(elements);
+  }
+
+  @Benchmark
+  public HashMap<Integer, Integer> timeTransientBatchInsertBaseline() {
+    return buildBaseline(elements);
+  }
+
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.jmh;
+
+import static io.usethesource.capsule.jmh.BenchmarkUtils.CACHED_NUMBERS_SIZE;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import io.usethesource.capsule.Set;
+import io.usethesource.capsule.core.PersistentTrieSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link PersistentTrieSet} against {@link HashSet} as baseline. Methods suffixed with
+ * {@code Baseline} operate on the {@link HashSet}; insertion and removal on the baseline copy the
+ * collection first to mirror the cost of obtaining a new immutable version.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JmhSetBenchmarks {
+
+  @Param({"10", "100", "1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  @Param({"0"})
+  public long seed;
+
+  private Integer[] elements;
+  private Integer[] cachedNumbers;
+  private Integer[] cachedNumbersNotContained;
+
+  private Set.Immutable<Integer> testSet;
+  private Set.Immutable<Integer> testSetRealDuplicate;
+  private Set.Immutable<Integer> testSetDeltaDuplicate;
+  private Set.Transient<Integer> testSetTransient;
+
+  private HashSet<Integer> testSetBaseline;
+  private HashSet<Integer> testSetBaselineRealDuplicate;
+
+  @Setup
+  public void setUp() {
+    elements = BenchmarkUtils.generateElements(size, seed);
+    cachedNumbers = BenchmarkUtils.sampleContained(elements, seed);
+    cachedNumbersNotContained = BenchmarkUtils.sampleNotContained(seed);
+
+    testSet = buildPersistent(elements);
+    testSetRealDuplicate = buildPersistent(elements);
+    testSetDeltaDuplicate =
+        testSet.__insert(cachedNumbersNotContained[0]).__remove(cachedNumbersNotContained[0]);
+    testSetTransient = testSet.asTransient();
+
+    testSetBaseline = buildBaseline(elements);
+    testSetBaselineRealDuplicate = buildBaseline(elements);
+  }
+
+  private static Set.Immutable<Integer> buildPersistent(final Integer[] elements) {
+    final Set.Transient<Integer> tmp = Set.Transient.of();
+    for (Integer element : elements) {
+      tmp.__insert(element);
+    }
+    return tmp.freeze();
+  }
+
+  private static HashSet<Integer> buildBaseline(final Integer[] elements) {
+    final HashSet<Integer> tmp = new HashSet<>();
+    for (Integer element : elements) {
+      tmp.add(element);
+    }
+    return tmp;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKey(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testSet.contains(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKeyBaseline(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testSetBaseline.contains(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKeyNotContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testSet.contains(cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKeyNotContainedBaseline(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testSetBaseline.contains(cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeInsert(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testSet.__insert(cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeInsertContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testSet.__insert(cachedNumbers[i]));
+    }
+  }
+
+  /**
+   * Inserts contained elements into a transient. Run with {@code -prof gc} to check that the
+   * update path does not allocate.
+   */
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeTransientInsertContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testSetTransient.__insert(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeRemoveKey(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testSet.__remove(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeRemoveKeyNotContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testSet.__remove(cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  public void timeInsertBaseline(Blackhole bh) {
+    final HashSet<Integer> copy = new HashSet<>(testSetBaseline);
+    copy.add(cachedNumbersNotContained[0]);
+    bh.consume(copy);
+  }
+
+  @Benchmark
+  public void timeRemoveKeyBaseline(Blackhole bh) {
+    final HashSet<Integer> copy = new HashSet<>(testSetBaseline);
+    copy.remove(cachedNumbers[0]);
+    bh.consume(copy);
+  }
+
+  @Benchmark
+  public void timeIteration(Blackhole bh) {
+    for (Integer element : testSet) {
+      bh.consume(element);
+    }
+  }
+
+  @Benchmark
+  public void timeIterationBaseline(Blackhole bh) {
+    for (Integer element : testSetBaseline) {
+      bh.consume(element);
+    }
+  }
+
+  @Benchmark
+  public boolean timeEqualsRealDuplicate() {
+    return testSet.equals(testSetRealDuplicate);
+  }
+
+  @Benchmark
+  public boolean timeEqualsRealDuplicateBaseline() {
+    return testSetBaseline.equals(testSetBaselineRealDuplicate);
+  }
+
+  @Benchmark
+  public boolean timeEqualsDeltaDuplicate() {
+    return testSet.equals(testSetDeltaDuplicate);
+  }
+
+  @Benchmark
+  public Set.Immutable<Integer> timeTransientBatchInsert() {
+    return buildPersistent(elements);
+  }
+
+  @Benchmark
+  public HashSet<Integer> timeTransientBatchInsertBaseline() {
+    return buildBaseline(elements);
+  }
+
+}
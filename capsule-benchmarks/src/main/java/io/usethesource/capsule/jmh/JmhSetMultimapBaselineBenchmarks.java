@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.jmh;
+
+import static io.usethesource.capsule.jmh.BenchmarkUtils.CACHED_NUMBERS_SIZE;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Baseline of {@link JmhSetMultimapBenchmarks}: a {@link HashMap} of {@link HashSet}s, populated
+ * with the same keys and values. Kept separate, such that it is measured once rather than once per
+ * multi-map implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JmhSetMultimapBaselineBenchmarks {
+
+  @Param({"10", "100", "1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  @Param({"1", "2"})
+  public int multiplicity;
+
+  @Param({"0"})
+  public long seed;
+
+  private Integer[] elements;
+  private Integer[] cachedNumbers;
+  private Integer[] cachedNumbersNotContained;
+
+  private HashMap<Integer, HashSet<Integer>> testMap;
+  private HashMap<Integer, HashSet<Integer>> testMapRealDuplicate;
+
+  @Setup
+  public void setUp() {
+    elements = BenchmarkUtils.generateElements(size, seed);
+    cachedNumbers = BenchmarkUtils.sampleContained(elements, seed);
+    cachedNumbersNotContained = BenchmarkUtils.sampleNotContained(seed);
+
+    testMap = buildBaseline(elements, multiplicity);
+    testMapRealDuplicate = buildBaseline(elements, multiplicity);
+  }
+
+  private static HashMap<Integer, HashSet<Integer>> buildBaseline(final Integer[] elements,
+      final int multiplicity) {
+    final HashMap<Integer, HashSet<Integer>> tmp = new HashMap<>();
+    for (int i = 0; i < elements.length; i++) {
+      for (int j = 0; j < multiplicity; j++) {
+        tmp.computeIfAbsent(elements[i], key -> new HashSet<>())
+            .add(JmhSetMultimapBenchmarks.valueOf(elements, i, j));
+      }
+    }
+    return tmp;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKey(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.containsKey(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKeyNotContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.containsKey(cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsTuple(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      final HashSet<Integer> values = testMap.get(cachedNumbers[i]);
+      bh.consume(values != null && values.contains(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  public void timeIterationKey(Blackhole bh) {
+    for (Integer key : testMap.keySet()) {
+      bh.consume(key);
+    }
+  }
+
+  @Benchmark
+  public void timeIterationFlattenedEntry(Blackhole bh) {
+    for (java.util.Map.Entry<Integer, HashSet<Integer>> entry : testMap.entrySet()) {
+      for (Integer value : entry.getValue()) {
+        bh.consume(entry.getKey());
+        bh.consume(value);
+      }
+    }
+  }
+
+  @Benchmark
+  public boolean timeEqualsRealDuplicate() {
+    return testMap.equals(testMapRealDuplicate);
+  }
+
+  @Benchmark
+  public HashMap<Integer, HashSet<Integer>> timeTransientBatchInsert() {
+    return buildBaseline(elements, multiplicity);
+  }
+
+}
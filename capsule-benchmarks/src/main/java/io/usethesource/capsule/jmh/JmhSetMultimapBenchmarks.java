@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.jmh;
+
+import static io.usethesource.capsule.jmh.BenchmarkUtils.CACHED_NUMBERS_SIZE;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import io.usethesource.capsule.BinaryRelation;
+import io.usethesource.capsule.SetMultimap;
+import io.usethesource.capsule.core.PersistentBidirectionalTrieSetMultimap;
+import io.usethesource.capsule.core.PersistentTrieSetMultimap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link PersistentTrieSetMultimap} and {@link PersistentBidirectionalTrieSetMultimap}.
+ * Each key is associated with {@code multiplicity} values. The {@link java.util.HashMap} of
+ * {@link java.util.HashSet}s baseline is measured by {@link JmhSetMultimapBaselineBenchmarks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JmhSetMultimapBenchmarks {
+
+  public enum Implementation {
+    PERSISTENT_TRIE_SET_MULTIMAP {
+      @Override
+      SetMultimap.Transient<Integer, Integer> transientOf() {
+        return SetMultimap.Transient.of();
+      }
+    },
+    PERSISTENT_BIDIRECTIONAL_TRIE_SET_MULTIMAP {
+      @Override
+      SetMultimap.Transient<Integer, Integer> transientOf() {
+        return BinaryRelation.Transient.of();
+      }
+    };
+
+    abstract SetMultimap.Transient<Integer, Integer> transientOf();
+  }
+
+  @Param({"PERSISTENT_TRIE_SET_MULTIMAP", "PERSISTENT_BIDIRECTIONAL_TRIE_SET_MULTIMAP"})
+  public Implementation implementation;
+
+  @Param({"10", "100", "1000", "10000", "100000", "1000000", "10000000"})
+  public int size;
+
+  @Param({"1", "2"})
+  public int multiplicity;
+
+  @Param({"0"})
+  public long seed;
+
+  private Integer[] elements;
+  private Integer[] cachedNumbers;
+  private Integer[] cachedNumbersNotContained;
+
+  private SetMultimap.Immutable<Integer, Integer> testMap;
+  private SetMultimap.Immutable<Integer, Integer> testMapRealDuplicate;
+  private SetMultimap.Immutable<Integer, Integer> testMapDeltaDuplicate;
+
+  @Setup
+  public void setUp() {
+    elements = BenchmarkUtils.generateElements(size, seed);
+    cachedNumbers = BenchmarkUtils.sampleContained(elements, seed);
+    cachedNumbersNotContained = BenchmarkUtils.sampleNotContained(seed);
+
+    testMap = buildPersistent(implementation, elements, multiplicity);
+    testMapRealDuplicate = buildPersistent(implementation, elements, multiplicity);
+    testMapDeltaDuplicate = testMap.__insert(cachedNumbersNotContained[0], 0)
+        .__remove(cachedNumbersNotContained[0], 0);
+  }
+
+  /**
+   * Value number {@code j} of the key stored at {@code elements[i]}.
+   */
+  static Integer valueOf(final Integer[] elements, final int i, final int j) {
+    return elements[(i + j) % elements.length];
+  }
+
+  private static SetMultimap.Immutable<Integer, Integer> buildPersistent(
+      final Implementation implementation, final Integer[] elements, final int multiplicity) {
+    final SetMultimap.Transient<Integer, Integer> tmp = implementation.transientOf();
+    for (int i = 0; i < elements.length; i++) {
+      for (int j = 0; j < multiplicity; j++) {
+        tmp.__insert(elements[i], valueOf(elements, i, j));
+      }
+    }
+    return tmp.freeze();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKey(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.containsKey(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsKeyNotContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.containsKey(cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeContainsTuple(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.containsEntry(cachedNumbers[i], cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeGet(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.get(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeValueCount(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.valueCount(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeFindFirstValue(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.findFirstValue(cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeForEachValue(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      testMap.forEachValue(cachedNumbers[i], bh::consume);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeInsert(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.__insert(cachedNumbersNotContained[i], cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeInsertValueToExistingKey(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.__insert(cachedNumbers[i], cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timePut(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.__put(cachedNumbers[i], cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeRemoveTuple(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.__remove(cachedNumbers[i], cachedNumbers[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CACHED_NUMBERS_SIZE)
+  public void timeRemoveTupleNotContained(Blackhole bh) {
+    for (int i = 0; i < CACHED_NUMBERS_SIZE; i++) {
+      bh.consume(testMap.__remove(cachedNumbersNotContained[i], cachedNumbersNotContained[i]));
+    }
+  }
+
+  @Benchmark
+  public void timeIterationKey(Blackhole bh) {
+    for (Iterator<Integer> iterator = testMap.keyIterator(); iterator.hasNext(); ) {
+      bh.consume(iterator.next());
+    }
+  }
+
+  @Benchmark
+  public void timeIterationNativeEntry(Blackhole bh) {
+    for (Iterator<java.util.Map.Entry<Integer, Object>> iterator = testMap.nativeEntryIterator();
+        iterator.hasNext(); ) {
+      bh.consume(iterator.next());
+    }
+  }
+
+  @Benchmark
+  public void timeIterationFlattenedEntry(Blackhole bh) {
+    for (Iterator<java.util.Map.Entry<Integer, Integer>> iterator = testMap.entryIterator();
+        iterator.hasNext(); ) {
+      bh.consume(iterator.next());
+    }
+  }
+
+  @Benchmark
+  public boolean timeEqualsRealDuplicate() {
+    return testMap.equals(testMapRealDuplicate);
+  }
+
+  @Benchmark
+  public boolean timeEqualsDeltaDuplicate() {
+    return testMap.equals(testMapDeltaDuplicate);
+  }
+
+  @Benchmark
+  public SetMultimap.Immutable<Integer, Integer> timeTransientBatchInsert() {
+    return buildPersistent(implementation, elements, multiplicity);
+  }
+
+}
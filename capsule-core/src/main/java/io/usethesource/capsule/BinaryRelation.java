@@ -7,6 +7,10 @@
  */
 package io.usethesource.capsule;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import io.usethesource.capsule.core.PersistentBidirectionalTrieSetMultimap;
 
 public interface BinaryRelation<T, U> extends SetMultimap<T, U> {
@@ -15,6 +19,64 @@ public interface BinaryRelation<T, U> extends SetMultimap<T, U> {
 
   SetMultimap<T, U> toSetMultimap();
 
+  /**
+   * Returns all elements that are reachable from {@code seeds} via one or more tuples of
+   * {@code relation}. Seeds are only contained in the result if they lie on a cycle or are
+   * reachable from another seed.
+   */
+  static <T> Set.Immutable<T> reachableFrom(final BinaryRelation<T, T> relation,
+      final Set.Immutable<T> seeds) {
+    return reachableFrom(relation, seeds, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns all elements that are reachable from {@code seeds} via at least one and at most
+   * {@code maxDepth} tuples of {@code relation}.
+   *
+   * The search proceeds breadth-first over the forward index, one frontier per depth; only
+   * elements that were not visited before are expanded in the next round.
+   */
+  static <T> Set.Immutable<T> reachableFrom(final BinaryRelation<T, T> relation,
+      final Set.Immutable<T> seeds, final int maxDepth) {
+    final Set.Transient<T> visited = Set.Transient.of();
+
+    List<T> frontier = new ArrayList<>(seeds);
+
+    for (int depth = 0; depth < maxDepth && !frontier.isEmpty(); depth++) {
+      final List<T> nextFrontier = new ArrayList<>();
+
+      for (T element : frontier) {
+        relation.forEachValue(element, successor -> {
+          if (visited.__insert(successor)) {
+            nextFrontier.add(successor);
+          }
+        });
+      }
+
+      frontier = nextFrontier;
+    }
+
+    return visited.freeze();
+  }
+
+  /**
+   * Returns all elements that reach one of {@code targets} via one or more tuples of
+   * {@code relation}, searching breadth-first over the inverse index.
+   */
+  static <T> Set.Immutable<T> reaching(final BinaryRelation<T, T> relation,
+      final Set.Immutable<T> targets) {
+    return reachableFrom(relation.inverse(), targets, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns all elements that reach one of {@code targets} via at least one and at most
+   * {@code maxDepth} tuples of {@code relation}, searching breadth-first over the inverse index.
+   */
+  static <T> Set.Immutable<T> reaching(final BinaryRelation<T, T> relation,
+      final Set.Immutable<T> targets, final int maxDepth) {
+    return reachableFrom(relation.inverse(), targets, maxDepth);
+  }
+
   interface Immutable<K, V> extends BinaryRelation<K, V>, SetMultimap.Immutable<K, V> {
 
     @Override
@@ -26,6 +88,102 @@ public interface BinaryRelation<T, U> extends SetMultimap<T, U> {
     @Override
     BinaryRelation.Transient<K, V> asTransient();
 
+    /**
+     * Returns the relational composition of this relation R with {@code other} S, i.e., all pairs
+     * (k, w) for which there exists a v such that (k, v) is contained in R and (v, w) is contained
+     * in S.
+     *
+     * @param other relation whose keys are joined with the values of this relation
+     * @return the composition of this relation and {@code other}
+     */
+    default <W> BinaryRelation.Immutable<K, W> compose(final BinaryRelation<V, W> other) {
+      final BinaryRelation.Transient<K, W> builder = BinaryRelation.Transient.of();
+
+      entryIterator().forEachRemaining(tuple -> other.forEachValue(tuple.getValue(),
+          value -> builder.__insert(tuple.getKey(), value)));
+
+      return builder.freeze();
+    }
+
+    /**
+     * Returns the union of the values associated with {@code keys}. The nested value collections
+     * are unioned as a whole, rather than value by value.
+     */
+    default Set.Immutable<V> image(final Set.Immutable<K> keys) {
+      Set.Immutable<V> result = Set.Immutable.of();
+
+      for (K key : keys) {
+        if (containsKey(key)) {
+          result = result.isEmpty() ? get(key) : result.union(get(key));
+        }
+      }
+
+      return result;
+    }
+
+    /**
+     * Returns the union of the keys associated with {@code values}, i.e., the image of
+     * {@code values} under the inverse of this relation.
+     */
+    default Set.Immutable<K> preimage(final Set.Immutable<V> values) {
+      return inverse().image(values);
+    }
+
+    /**
+     * Returns the subset of tuples of this relation whose keys are contained in {@code keys}.
+     */
+    default BinaryRelation.Immutable<K, V> restrictDomain(final Set.Immutable<K> keys) {
+      final BinaryRelation.Transient<K, V> builder = BinaryRelation.Transient.of();
+
+      for (K key : keys) {
+        forEachValue(key, value -> builder.__insert(key, value));
+      }
+
+      return builder.freeze();
+    }
+
+    /**
+     * Returns the subset of tuples of this relation whose values are contained in {@code values}.
+     */
+    default BinaryRelation.Immutable<K, V> restrictRange(final Set.Immutable<V> values) {
+      return inverse().restrictDomain(values).inverse();
+    }
+
+    /**
+     * Returns the transitive closure of {@code relation}, computed with semi-naive evaluation.
+     */
+    static <T> BinaryRelation.Immutable<T, T> closure(
+        final BinaryRelation.Immutable<T, T> relation) {
+      return PersistentBidirectionalTrieSetMultimap.closure(relation);
+    }
+
+    /**
+     * Returns the transitive closure of {@code relation}, joining the tuples derived in each round
+     * in parallel on {@code pool}.
+     */
+    static <T> BinaryRelation.Immutable<T, T> parallelClosure(final ForkJoinPool pool,
+        final BinaryRelation.Immutable<T, T> relation) {
+      return PersistentBidirectionalTrieSetMultimap.parallelClosure(pool, relation);
+    }
+
+    /**
+     * Returns the reflexive transitive closure of {@code relation}, computed with semi-naive
+     * evaluation.
+     */
+    static <T> BinaryRelation.Immutable<T, T> reflexiveClosure(
+        final BinaryRelation.Immutable<T, T> relation) {
+      return PersistentBidirectionalTrieSetMultimap.reflexiveClosure(relation);
+    }
+
+    /**
+     * Returns the reflexive transitive closure of {@code relation}, joining the tuples derived in
+     * each round in parallel on {@code pool}.
+     */
+    static <T> BinaryRelation.Immutable<T, T> parallelReflexiveClosure(final ForkJoinPool pool,
+        final BinaryRelation.Immutable<T, T> relation) {
+      return PersistentBidirectionalTrieSetMultimap.parallelReflexiveClosure(pool, relation);
+    }
+
     static <K, V> BinaryRelation.Immutable<K, V> of() {
       return PersistentBidirectionalTrieSetMultimap.of();
     }
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule;
+
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+import io.usethesource.capsule.core.PersistentTrieIntIntMap;
+import io.usethesource.capsule.util.function.IntIntConsumer;
+
+/**
+ * Map from primitive {@code int} keys to primitive {@code int} values that are stored unboxed.
+ * The hash code of an {@code IntIntMap} equals the hash code of a {@link java.util.Map} of the
+ * corresponding {@link Integer} keys and values.
+ */
+public interface IntIntMap {
+
+  int size();
+
+  boolean isEmpty();
+
+  boolean containsKey(final int key);
+
+  /**
+   * @return the value mapped to {@code key}, or {@code defaultValue} if {@code key} is not present
+   */
+  int get(final int key, final int defaultValue);
+
+  void forEach(final IntIntConsumer action);
+
+  PrimitiveIterator.OfInt keyIterator();
+
+  PrimitiveIterator.OfInt valueIterator();
+
+  IntStream keyStream();
+
+  IntStream valueStream();
+
+  @Override
+  boolean equals(Object o);
+
+  @Override
+  int hashCode();
+
+  interface Immutable extends IntIntMap {
+
+    IntIntMap.Immutable __put(final int key, final int val);
+
+    IntIntMap.Immutable __remove(final int key);
+
+    boolean isTransientSupported();
+
+    IntIntMap.Transient asTransient();
+
+    static IntIntMap.Immutable of() {
+      return PersistentTrieIntIntMap.of();
+    }
+
+    static IntIntMap.Immutable of(int... keyValuePairs) {
+      return PersistentTrieIntIntMap.of(keyValuePairs);
+    }
+
+  }
+
+  interface Transient extends IntIntMap {
+
+    /**
+     * @return {@code true} if the key was not present or was mapped to a different value
+     */
+    boolean __put(final int key, final int val);
+
+    /**
+     * @return {@code true} if the key was present
+     */
+    boolean __remove(final int key);
+
+    IntIntMap.Immutable freeze();
+
+    static IntIntMap.Transient of() {
+      return PersistentTrieIntIntMap.transientOf();
+    }
+
+    static IntIntMap.Transient of(int... keyValuePairs) {
+      return PersistentTrieIntIntMap.transientOf(keyValuePairs);
+    }
+
+  }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule;
+
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+import io.usethesource.capsule.core.PersistentTrieIntSet;
+
+/**
+ * Set of primitive {@code int} values that are stored unboxed. The hash code of an {@code IntSet}
+ * equals the hash code of a {@link java.util.Set} of the corresponding {@link Integer} values.
+ */
+public interface IntSet {
+
+  int size();
+
+  boolean isEmpty();
+
+  boolean contains(final int key);
+
+  PrimitiveIterator.OfInt keyIterator();
+
+  IntStream stream();
+
+  @Override
+  boolean equals(Object o);
+
+  @Override
+  int hashCode();
+
+  interface Immutable extends IntSet {
+
+    IntSet.Immutable __insert(final int key);
+
+    IntSet.Immutable __remove(final int key);
+
+    boolean isTransientSupported();
+
+    IntSet.Transient asTransient();
+
+    static IntSet.Immutable of() {
+      return PersistentTrieIntSet.of();
+    }
+
+    static IntSet.Immutable of(int... keys) {
+      return PersistentTrieIntSet.of(keys);
+    }
+
+  }
+
+  interface Transient extends IntSet {
+
+    boolean __insert(final int key);
+
+    boolean __remove(final int key);
+
+    IntSet.Immutable freeze();
+
+    static IntSet.Transient of() {
+      return PersistentTrieIntSet.transientOf();
+    }
+
+    static IntSet.Transient of(int... keys) {
+      return PersistentTrieIntSet.transientOf(keys);
+    }
+
+  }
+
+}
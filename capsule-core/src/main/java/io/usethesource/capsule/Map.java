@@ -8,6 +8,7 @@
 package io.usethesource.capsule;
 
 import java.util.Iterator;
+import java.util.function.BiFunction;
 
 import io.usethesource.capsule.core.PersistentTrieMap;
 
@@ -48,6 +49,54 @@ public interface Map<K, V> extends java.util.Map<K, V>, MapEq<K, V> {
 
     Map.Immutable<K, V> __putAll(final java.util.Map<? extends K, ? extends V> map);
 
+    /**
+     * Merges the mappings of {@code other} into this map. The {@code resolver} is only consulted
+     * for keys that are present in both maps but are mapped to different values; it receives the
+     * value of this map as first and the value of {@code other} as second argument.
+     */
+    default Map.Immutable<K, V> merge(final Map.Immutable<K, V> other,
+        final BiFunction<V, V, V> resolver) {
+      final Map.Transient<K, V> tmp = this.asTransient();
+
+      if (tmp.merge(other, resolver)) {
+        return tmp.freeze();
+      } else {
+        return this;
+      }
+    }
+
+    /**
+     * Computes the differences between this map and {@code other}, i.e., the changes that turn
+     * this map into {@code other}.
+     */
+    default Map.Diff<K, V> diff(final Map.Immutable<K, V> other) {
+      final Map.Transient<K, V> added = Map.Transient.of();
+      final Map.Transient<K, V> removed = Map.Transient.of();
+      final Map.Transient<K, V> changed = Map.Transient.of();
+
+      for (java.util.Map.Entry<K, V> entry : this.entrySet()) {
+        final K key = entry.getKey();
+        final V thisVal = entry.getValue();
+
+        // NOTE: does only work when map does not support `null` values
+        final V thatVal = other.get(key);
+
+        if (thatVal == null) {
+          removed.__put(key, thisVal);
+        } else if (!thisVal.equals(thatVal)) {
+          changed.__put(key, thatVal);
+        }
+      }
+
+      for (java.util.Map.Entry<K, V> entry : other.entrySet()) {
+        if (!this.containsKey(entry.getKey())) {
+          added.__put(entry.getKey(), entry.getValue());
+        }
+      }
+
+      return Map.Diff.of(added.freeze(), removed.freeze(), changed.freeze());
+    }
+
     boolean isTransientSupported();
 
     Map.Transient<K, V> asTransient();
@@ -74,6 +123,40 @@ public interface Map<K, V> extends java.util.Map<K, V>, MapEq<K, V> {
 
     boolean __putAll(final java.util.Map<? extends K, ? extends V> map);
 
+    /**
+     * Merges the mappings of {@code map} into this map. The {@code resolver} is only consulted
+     * for keys that are present in both maps but are mapped to different values; it receives the
+     * value of this map as first and the value of {@code map} as second argument.
+     *
+     * @return {@code true} if this map was modified
+     */
+    default boolean merge(final java.util.Map<? extends K, ? extends V> map,
+        final BiFunction<V, V, V> resolver) {
+      boolean modified = false;
+
+      for (java.util.Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+        final K key = entry.getKey();
+        final V thatVal = entry.getValue();
+
+        // NOTE: does only work when map does not support `null` values
+        final V thisVal = this.get(key);
+
+        if (thisVal == null) {
+          this.__put(key, thatVal);
+          modified = true;
+        } else if (!thisVal.equals(thatVal)) {
+          final V newVal = resolver.apply(thisVal, thatVal);
+
+          if (!thisVal.equals(newVal)) {
+            this.__put(key, newVal);
+            modified = true;
+          }
+        }
+      }
+
+      return modified;
+    }
+
 //    default boolean union(final Map<? extends K, ? extends V> map) {
 //      boolean modified = false;
 //
@@ -170,4 +253,57 @@ public interface Map<K, V> extends java.util.Map<K, V>, MapEq<K, V> {
 
   }
 
+  /**
+   * Differences between two maps, as computed by {@link Map.Immutable#diff(Map.Immutable)}.
+   */
+  interface Diff<K, V> {
+
+    /**
+     * @return mappings whose keys are only present in the other map
+     */
+    Map.Immutable<K, V> added();
+
+    /**
+     * @return mappings whose keys are only present in this map
+     */
+    Map.Immutable<K, V> removed();
+
+    /**
+     * @return mappings whose keys are present in both maps but are mapped to different values,
+     *         carrying the values of the other map
+     */
+    Map.Immutable<K, V> changed();
+
+    default boolean isEmpty() {
+      return added().isEmpty() && removed().isEmpty() && changed().isEmpty();
+    }
+
+    static <K, V> Map.Diff<K, V> of(final Map.Immutable<K, V> added,
+        final Map.Immutable<K, V> removed, final Map.Immutable<K, V> changed) {
+      return new Map.Diff<K, V>() {
+        @Override
+        public Map.Immutable<K, V> added() {
+          return added;
+        }
+
+        @Override
+        public Map.Immutable<K, V> removed() {
+          return removed;
+        }
+
+        @Override
+        public Map.Immutable<K, V> changed() {
+          return changed;
+        }
+
+        @Override
+        public String toString() {
+          return String.format("Diff(added = %s, removed = %s, changed = %s)", added, removed,
+              changed);
+        }
+      };
+    }
+
+  }
+
 }
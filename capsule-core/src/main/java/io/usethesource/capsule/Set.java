@@ -69,6 +69,29 @@ public interface Set<K> extends java.util.Set<K>, SetEq<K> {
       return intersect(this, other);
     }
 
+    /**
+     * Computes the differences between this set and {@code other}, i.e., the changes that turn
+     * this set into {@code other}.
+     */
+    default Set.Diff<K> diff(final Set.Immutable<K> other) {
+      final Set.Transient<K> added = Set.Transient.of();
+      final Set.Transient<K> removed = Set.Transient.of();
+
+      for (K key : this) {
+        if (!other.contains(key)) {
+          removed.__insert(key);
+        }
+      }
+
+      for (K key : other) {
+        if (!this.contains(key)) {
+          added.__insert(key);
+        }
+      }
+
+      return Set.Diff.of(added.freeze(), removed.freeze());
+    }
+
     boolean isTransientSupported();
 
     Set.Transient<K> asTransient();
@@ -298,4 +321,44 @@ public interface Set<K> extends java.util.Set<K>, SetEq<K> {
 
   }
 
+  /**
+   * Differences between two sets, as computed by {@link Set.Immutable#diff(Set.Immutable)}.
+   */
+  interface Diff<K> {
+
+    /**
+     * @return keys that are only present in the other set
+     */
+    Set.Immutable<K> added();
+
+    /**
+     * @return keys that are only present in this set
+     */
+    Set.Immutable<K> removed();
+
+    default boolean isEmpty() {
+      return added().isEmpty() && removed().isEmpty();
+    }
+
+    static <K> Set.Diff<K> of(final Set.Immutable<K> added, final Set.Immutable<K> removed) {
+      return new Set.Diff<K>() {
+        @Override
+        public Set.Immutable<K> added() {
+          return added;
+        }
+
+        @Override
+        public Set.Immutable<K> removed() {
+          return removed;
+        }
+
+        @Override
+        public String toString() {
+          return String.format("Diff(added = %s, removed = %s)", added, removed);
+        }
+      };
+    }
+
+  }
+
 }
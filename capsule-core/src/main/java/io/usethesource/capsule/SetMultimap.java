@@ -7,12 +7,17 @@
  */
 package io.usethesource.capsule;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -45,6 +50,29 @@ public interface SetMultimap<K, V> {
 
   Set.Immutable<V> get(final java.lang.Object o);
 
+  /**
+   * Returns the number of values associated with {@code key}, or {@code 0} if {@code key} is not
+   * contained in this multimap.
+   */
+  default int valueCount(final K key) {
+    return get(key).size();
+  }
+
+  /**
+   * Returns the first value associated with {@code key}, if any. Useful when {@code key} is known
+   * to be associated with a single value.
+   */
+  default Optional<V> findFirstValue(final K key) {
+    return get(key).findFirst();
+  }
+
+  /**
+   * Performs {@code action} for each value associated with {@code key}.
+   */
+  default void forEachValue(final K key, final Consumer<? super V> action) {
+    get(key).forEach(action);
+  }
+
   java.util.Set<K> keySet();
 
   java.util.Collection<V> values();
@@ -112,7 +140,9 @@ public interface SetMultimap<K, V> {
     SetMultimap.Immutable<K, V> __put(final K key, final V value);
 
     default SetMultimap.Immutable<K, V> __put(final K key, final Set.Immutable<V> values) {
-      throw new UnsupportedOperationException("Not yet implemented @ Multi-Map.");
+      final SetMultimap.Transient<K, V> builder = this.asTransient();
+      builder.__put(key, values);
+      return builder.freeze();
     }
 
     SetMultimap.Immutable<K, V> __insert(final K key, final V value);
@@ -131,19 +161,25 @@ public interface SetMultimap<K, V> {
 
     // removes all mappings with 'key'
     default SetMultimap.Immutable<K, V> __remove(final K key) {
-      throw new UnsupportedOperationException("Not yet implemented @ Multi-Map.");
+      final SetMultimap.Transient<K, V> builder = this.asTransient();
+      builder.__remove(key);
+      return builder.freeze();
     }
 
     SetMultimap.Immutable<K, V> __remove(final K key, final V val);
 
     default SetMultimap.Immutable<K, V> union(
         final SetMultimap<? extends K, ? extends V> setMultimap) {
-      throw new UnsupportedOperationException("Not yet implemented @ Multi-Map.");
+      final SetMultimap.Transient<K, V> builder = this.asTransient();
+      builder.union(setMultimap);
+      return builder.freeze();
     }
 
     default SetMultimap.Immutable<K, V> intersect(
         final SetMultimap<? extends K, ? extends V> setMultimap) {
-      throw new UnsupportedOperationException("Not yet implemented @ Multi-Map.");
+      final SetMultimap.Transient<K, V> builder = this.asTransient();
+      builder.intersect(setMultimap);
+      return builder.freeze();
     }
 
     default SetMultimap.Immutable<K, V> complement(
@@ -162,7 +198,9 @@ public interface SetMultimap<K, V> {
      * TODO: resolve name clash with BinaryRelation
      */
     default SetMultimap.Immutable<V, K> inverseMap() {
-      throw new UnsupportedOperationException("Not yet implemented @ Multi-Map.");
+      final SetMultimap.Transient<V, K> builder = SetMultimap.Transient.of();
+      entryIterator().forEachRemaining(tuple -> builder.__insert(tuple.getValue(), tuple.getKey()));
+      return builder.freeze();
     }
 
     boolean isTransientSupported();
@@ -194,7 +232,7 @@ public interface SetMultimap<K, V> {
   interface Transient<K, V> extends SetMultimap<K, V>, SetMultimapEq.Transient<K, V> {
 
     default boolean __put(final K key, final V value) {
-      throw new UnsupportedOperationException("Not yet implemented @ Multi-Map.");
+      return __put(key, Set.Immutable.of(value));
     }
 
     default boolean __put(final K key, final Set.Immutable<V> values) {
@@ -238,15 +276,45 @@ public interface SetMultimap<K, V> {
     boolean __remove(final K key, final V val);
 
     default boolean union(final SetMultimap<? extends K, ? extends V> setMultimap) {
-      throw new UnsupportedOperationException("Not yet implemented @ Multi-Map.");
+      boolean modified = false;
+
+      for (Map.Entry<? extends K, ? extends V> entry : setMultimap.entrySet()) {
+        modified |= this.__insert(entry.getKey(), entry.getValue());
+      }
+
+      return modified;
     }
 
     default boolean intersect(final SetMultimap<? extends K, ? extends V> setMultimap) {
-      throw new UnsupportedOperationException("Not yet implemented @ Multi-Map.");
+      final List<Map.Entry<K, V>> tuplesToRemove = this.entrySet().stream()
+          .filter(entry -> !setMultimap.containsEntry(entry.getKey(), entry.getValue()))
+          .collect(Collectors.toList());
+
+      boolean modified = false;
+
+      for (Map.Entry<K, V> entry : tuplesToRemove) {
+        modified |= this.__remove(entry.getKey(), entry.getValue());
+      }
+
+      return modified;
     }
 
+    /*
+     * Replaces the content of this multi-map with the tuples of 'setMultimap' that are not
+     * contained in it (cf. immutable complement).
+     */
     default boolean complement(final SetMultimap<? extends K, ? extends V> setMultimap) {
-      throw new UnsupportedOperationException("Not yet implemented @ Multi-Map.");
+      final List<Map.Entry<? extends K, ? extends V>> tuplesToKeep = setMultimap.entrySet()
+          .stream().filter(entry -> !this.containsEntry(entry.getKey(), entry.getValue()))
+          .collect(Collectors.toList());
+
+      final List<K> keysToRemove = new ArrayList<>(this.keySet());
+      final boolean modified = !keysToRemove.isEmpty() || !tuplesToKeep.isEmpty();
+
+      keysToRemove.forEach(this::__remove);
+      tuplesToKeep.forEach(entry -> this.__insert(entry.getKey(), entry.getValue()));
+
+      return modified;
     }
 
     SetMultimap.Immutable<K, V> freeze();
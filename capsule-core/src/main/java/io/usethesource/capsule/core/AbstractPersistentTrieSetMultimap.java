@@ -28,25 +28,26 @@ public abstract class AbstractPersistentTrieSetMultimap<K, V, C extends Iterable
   protected static final boolean DEBUG = false;
 
   protected final R rootNode;
-  //  protected final int cachedHashCode;
+  protected final int cachedHashCode;
   protected final int cachedSize;
 
   protected final int cachedKeySetSize;
   protected final int cachedKeySetHashCode;
 
   protected AbstractPersistentTrieSetMultimap(final EqualityComparator<Object> cmp,
-      final R rootNode, int cachedSize, int keySetHashCode, int keySetSize) {
+      final R rootNode, int cachedHashCode, int cachedSize, int keySetHashCode, int keySetSize) {
     super(cmp);
 
     this.rootNode = rootNode;
 
-    // this.cachedHashCode = cachedHashCode;
+    this.cachedHashCode = cachedHashCode;
     this.cachedSize = cachedSize;
 
     this.cachedKeySetHashCode = keySetHashCode;
     this.cachedKeySetSize = keySetSize;
 
     if (DEBUG) {
+      assert cachedHashCode == hashCode(rootNode);
       assert cachedSize == size(rootNode);
       assert keySetHashCode == keySetHashCode(rootNode);
       assert keySetSize == keySetSize(rootNode);
@@ -58,6 +59,11 @@ public abstract class AbstractPersistentTrieSetMultimap<K, V, C extends Iterable
     return rootNode;
   }
 
+  @Override
+  final int getCachedHashCode() {
+    return cachedHashCode;
+  }
+
   @Override
   final int getCachedSize() {
     return cachedSize;
@@ -74,11 +80,17 @@ public abstract class AbstractPersistentTrieSetMultimap<K, V, C extends Iterable
   }
 
   protected abstract SetMultimap.Immutable<K, V> wrap(EqualityComparator<Object> cmp, R rootNode,
-      int cachedSize, int cachedKeySetHashCode, int cachedKeySetSize);
+      int cachedHashCode, int cachedSize, int cachedKeySetHashCode, int cachedKeySetSize);
 
   @Override
   public final SetMultimap.Immutable<K, V> __insert(final K key, final V value) {
-    return __insert(key, valueToTemporaryBox(value));
+    final int keyHash = key.hashCode();
+    final MultimapResult<K, V, C> details = MultimapResult.unchanged();
+
+    final R newRootNode =
+        rootNode.insertedSingle(null, key, value, transformHashCode(keyHash), 0, details, cmp);
+
+    return wireInserted(newRootNode, keyHash, tupleHash(keyHash, value), details);
   }
 
   @Override
@@ -87,22 +99,29 @@ public abstract class AbstractPersistentTrieSetMultimap<K, V, C extends Iterable
       return this;
     }
 
+    if (valueCollection.size() == 1) {
+      return __insert(key, valueCollection.findFirst().get());
+    }
+
     final int keyHash = key.hashCode();
     final MultimapResult<K, V, C> details = MultimapResult.unchanged();
 
     final C values = collectionToInternalFormat(valueCollection);
     final R newRootNode =
-        rootNode.inserted(null, key, values, transformHashCode(keyHash), 0, details, cmp);
+        rootNode.insertedMultiple(null, key, values, transformHashCode(keyHash), 0, details, cmp);
+
+    return wireInserted(newRootNode, keyHash, details.hashCodeDelta(), details);
+  }
 
+  private SetMultimap.Immutable<K, V> wireInserted(final R newRootNode, final int keyHash,
+      final int hashCodeDeltaNew, final MultimapResult<K, V, C> details) {
     switch (details.getModificationEffect()) {
       case NOTHING: {
         return this;
       }
 
       case INSERTED_PAYLOAD: {
-        // int hashCodeDeltaNew = tupleHash(keyHash, values);
-        // int propertyHashCode = cachedHashCode + hashCodeDeltaNew;
-
+        int propertyHashCode = cachedHashCode + hashCodeDeltaNew;
         int propertySize = cachedSize + details.sizeDelta().get();
         int propertyKeySetHashCode = cachedKeySetHashCode;
         int propertyKeySetSize = cachedKeySetSize;
@@ -112,7 +131,8 @@ public abstract class AbstractPersistentTrieSetMultimap<K, V, C extends Iterable
           propertyKeySetSize += 1;
         }
 
-        return wrap(cmp, newRootNode, propertySize, propertyKeySetHashCode, propertyKeySetSize);
+        return wrap(cmp, newRootNode, propertyHashCode, propertySize, propertyKeySetHashCode,
+            propertyKeySetSize);
       }
 
       default: {
@@ -145,31 +165,33 @@ public abstract class AbstractPersistentTrieSetMultimap<K, V, C extends Iterable
       }
 
       case REPLACED_PAYLOAD: {
-        // int hashCodeDeltaOld = tupleHash(keyHash, details.getEvictedPayload());
-        // int hashCodeDeltaNew = tupleHash(keyHash, values);
-        // int propertyHashCode = cachedHashCode + hashCodeDeltaNew - hashCodeDeltaOld;
-
         Set.Immutable<V> evictedValueCollection =
             internalFormatToCollection(details.getEvictedPayload().get());
 
+        int hashCodeDeltaOld = tupleHash(keyHash, evictedValueCollection);
+        int hashCodeDeltaNew = tupleHash(keyHash, valueCollection);
+        int propertyHashCode = cachedHashCode + hashCodeDeltaNew - hashCodeDeltaOld;
+
         int propertySize = cachedSize - evictedValueCollection.size() + valueCollection.size();
         int propertyKeySetHashCode = cachedKeySetHashCode;
         int propertyKeySetSize = cachedKeySetSize;
 
-        return wrap(cmp, newRootNode, propertySize, propertyKeySetHashCode, propertyKeySetSize);
+        return wrap(cmp, newRootNode, propertyHashCode, propertySize, propertyKeySetHashCode,
+            propertyKeySetSize);
       }
 
       case INSERTED_PAYLOAD: {
         assert details.containsModification(INSERTED_KEY);
 
-        // int hashCodeDeltaNew = tupleHash(keyHash, values);
-        // int propertyHashCode = cachedHashCode + hashCodeDeltaNew;
+        int hashCodeDeltaNew = tupleHash(keyHash, valueCollection);
+        int propertyHashCode = cachedHashCode + hashCodeDeltaNew;
 
         int propertySize = cachedSize + valueCollection.size();
         int propertyKeySetHashCode = cachedKeySetHashCode + keyHash;
         int propertyKeySetSize = cachedKeySetSize + 1;
 
-        return wrap(cmp, newRootNode, propertySize, propertyKeySetHashCode, propertyKeySetSize);
+        return wrap(cmp, newRootNode, propertyHashCode, propertySize, propertyKeySetHashCode,
+            propertyKeySetSize);
       }
 
       default: {
@@ -192,8 +214,8 @@ public abstract class AbstractPersistentTrieSetMultimap<K, V, C extends Iterable
       }
 
       case REMOVED_PAYLOAD: {
-        // int hashCodeDeltaOld = tupleHash(keyHash, value); // TODO: support collection
-        // int propertyHashCode = cachedHashCode - hashCodeDeltaOld;
+        int hashCodeDeltaOld = tupleHash(keyHash, value);
+        int propertyHashCode = cachedHashCode - hashCodeDeltaOld;
 
         int propertySize = cachedSize - 1; // TODO: support collection
         int propertyKeySetHashCode = cachedKeySetHashCode;
@@ -204,7 +226,8 @@ public abstract class AbstractPersistentTrieSetMultimap<K, V, C extends Iterable
           propertyKeySetSize -= 1;
         }
 
-        return wrap(cmp, newRootNode, propertySize, propertyKeySetHashCode, propertyKeySetSize);
+        return wrap(cmp, newRootNode, propertyHashCode, propertySize, propertyKeySetHashCode,
+            propertyKeySetSize);
       }
 
       default: {
@@ -229,17 +252,18 @@ public abstract class AbstractPersistentTrieSetMultimap<K, V, C extends Iterable
       case REMOVED_PAYLOAD: {
         assert details.containsModification(REMOVED_KEY);
 
-        // int hashCodeDeltaOld = tupleHash(keyHash, details.getEvictedPayload());
-        // int propertyHashCode = cachedHashCode - hashCodeDeltaOld;
-
         Set.Immutable<V> evictedValueCollection =
             internalFormatToCollection(details.getEvictedPayload().get());
 
+        int hashCodeDeltaOld = tupleHash(keyHash, evictedValueCollection);
+        int propertyHashCode = cachedHashCode - hashCodeDeltaOld;
+
         int propertySize = cachedSize - evictedValueCollection.size();
         int propertyKeySetHashCode = cachedKeySetHashCode - keyHash;
         int propertyKeySetSize = cachedKeySetSize - 1;
 
-        return wrap(cmp, newRootNode, propertySize, propertyKeySetHashCode, propertyKeySetSize);
+        return wrap(cmp, newRootNode, propertyHashCode, propertySize, propertyKeySetHashCode,
+            propertyKeySetSize);
       }
 
       default: {
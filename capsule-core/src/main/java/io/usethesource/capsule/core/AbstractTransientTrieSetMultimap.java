@@ -30,7 +30,7 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
   protected final AtomicReference<Thread> mutator;
 
   protected R rootNode;
-  // private int cachedHashCode;
+  protected int cachedHashCode;
   protected int cachedSize;
 
   protected int cachedKeySetHashCode;
@@ -43,7 +43,7 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
 
     this.mutator = new AtomicReference<Thread>(Thread.currentThread());
     this.rootNode = trieSetMultimap.rootNode;
-    // // this.cachedHashCode = trieSetMultimap.cachedHashCode;
+    this.cachedHashCode = trieSetMultimap.cachedHashCode;
     this.cachedSize = trieSetMultimap.cachedSize;
     this.cachedKeySetHashCode = trieSetMultimap.cachedKeySetHashCode;
     this.cachedKeySetSize = trieSetMultimap.cachedKeySetSize;
@@ -53,6 +53,7 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
 
   private void assertPropertiesCorrectness() {
     if (DEBUG) {
+      assert cachedHashCode == hashCode(rootNode);
       assert cachedSize == size(rootNode);
       assert cachedKeySetHashCode == keySetHashCode(rootNode);
       assert cachedKeySetSize == keySetSize(rootNode);
@@ -64,6 +65,11 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
     return rootNode;
   }
 
+  @Override
+  final int getCachedHashCode() {
+    return cachedHashCode;
+  }
+
   @Override
   final int getCachedSize() {
     return cachedSize;
@@ -81,7 +87,17 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
 
   @Override
   public final boolean __insert(final K key, final V value) {
-    return __insert(key, valueToTemporaryBox(value));
+    if (mutator.get() == null) {
+      throw new IllegalStateException("Transient already frozen.");
+    }
+
+    final int keyHash = key.hashCode();
+    final MultimapResult<K, V, C> details = MultimapResult.unchanged();
+
+    final R newRootNode = rootNode
+        .insertedSingle(mutator, key, value, transformHashCode(keyHash), 0, details, cmp);
+
+    return wireInserted(newRootNode, keyHash, tupleHash(keyHash, value), details);
   }
 
   @Override
@@ -94,22 +110,29 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
       return false;
     }
 
+    if (valueCollection.size() == 1) {
+      return __insert(key, valueCollection.findFirst().get());
+    }
+
     final int keyHash = key.hashCode();
     final MultimapResult<K, V, C> details = MultimapResult.unchanged();
 
     final C values = collectionToInternalFormat(valueCollection);
     final R newRootNode = rootNode
-        .inserted(mutator, key, values, transformHashCode(keyHash), 0, details, cmp);
+        .insertedMultiple(mutator, key, values, transformHashCode(keyHash), 0, details, cmp);
+
+    return wireInserted(newRootNode, keyHash, details.hashCodeDelta(), details);
+  }
 
+  private boolean wireInserted(final R newRootNode, final int keyHash,
+      final int hashCodeDeltaNew, final MultimapResult<K, V, C> details) {
     switch (details.getModificationEffect()) {
       case NOTHING: {
         return false;
       }
 
       case INSERTED_PAYLOAD: {
-        // int hashCodeDeltaNew = tupleHash(keyHash, values);
-        // this.cachedHashCode = cachedHashCode + hashCodeDeltaNew;
-
+        this.cachedHashCode = cachedHashCode + hashCodeDeltaNew;
         this.cachedSize += details.sizeDelta().get();
         this.cachedKeySetHashCode = cachedKeySetHashCode;
         this.cachedKeySetSize = cachedKeySetSize;
@@ -158,13 +181,13 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
       }
 
       case REPLACED_PAYLOAD: {
-        // int hashCodeDeltaOld = tupleHash(keyHash, details.getEvictedPayload());
-        // int hashCodeDeltaNew = tupleHash(keyHash, values);
-        // this.cachedHashCode = cachedHashCode + hashCodeDeltaNew - hashCodeDeltaOld;
-
         Set.Immutable<V> evictedValueCollection =
             internalFormatToCollection(details.getEvictedPayload().get());
 
+        int hashCodeDeltaOld = tupleHash(keyHash, evictedValueCollection);
+        int hashCodeDeltaNew = tupleHash(keyHash, valueCollection);
+        this.cachedHashCode = cachedHashCode + hashCodeDeltaNew - hashCodeDeltaOld;
+
         this.cachedSize = cachedSize - evictedValueCollection.size() + valueCollection.size();
         this.cachedKeySetHashCode = cachedKeySetHashCode;
         this.cachedKeySetSize = cachedKeySetSize;
@@ -177,8 +200,8 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
       case INSERTED_PAYLOAD: {
         assert details.containsModification(INSERTED_KEY);
 
-        // int hashCodeDeltaNew = tupleHash(keyHash, values);
-        // this.cachedHashCode = cachedHashCode + hashCodeDeltaNew;
+        int hashCodeDeltaNew = tupleHash(keyHash, valueCollection);
+        this.cachedHashCode = cachedHashCode + hashCodeDeltaNew;
 
         this.cachedSize = cachedSize + valueCollection.size();
         this.cachedKeySetHashCode = cachedKeySetHashCode + keyHash;
@@ -213,8 +236,8 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
       }
 
       case REMOVED_PAYLOAD: {
-        // int hashCodeDeltaOld = tupleHash(keyHash, value); // TODO: support collection
-        // this.cachedHashCode = cachedHashCode - hashCodeDeltaOld;
+        int hashCodeDeltaOld = tupleHash(keyHash, value);
+        this.cachedHashCode = cachedHashCode - hashCodeDeltaOld;
 
         this.cachedSize = cachedSize - 1; // TODO: support collection
         this.cachedKeySetHashCode = cachedKeySetHashCode;
@@ -256,12 +279,12 @@ public abstract class AbstractTransientTrieSetMultimap<K, V, C extends Iterable<
       case REMOVED_PAYLOAD: {
         assert details.containsModification(REMOVED_KEY);
 
-        // int hashCodeDeltaOld = tupleHash(keyHash, details.getEvictedPayload());
-        // this.cachedHashCode = cachedHashCode - hashCodeDeltaOld;
-
         Set.Immutable<V> evictedValueCollection =
             internalFormatToCollection(details.getEvictedPayload().get());
 
+        int hashCodeDeltaOld = tupleHash(keyHash, evictedValueCollection);
+        this.cachedHashCode = cachedHashCode - hashCodeDeltaOld;
+
         this.cachedSize = cachedSize - evictedValueCollection.size();
         this.cachedKeySetHashCode = cachedKeySetHashCode - keyHash;
         this.cachedKeySetSize = cachedKeySetSize - 1;
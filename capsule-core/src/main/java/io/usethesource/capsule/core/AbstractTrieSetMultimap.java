@@ -19,8 +19,8 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -51,6 +51,8 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
 
   abstract R getRootNode();
 
+  abstract int getCachedHashCode();
+
   abstract int getCachedSize();
 
   abstract int getCachedKeySetHashCode();
@@ -63,25 +65,46 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
 
   protected abstract Set.Immutable<V> internalFormatToCollection(C values);
 
-  private static final <K, V> int tupleHash(final int keyHash, final int valueHash) {
+  protected static final <K, V> int tupleHash(final int keyHash, final int valueHash) {
     return keyHash ^ valueHash;
   }
 
-  private static final <K, V> int tupleHash(final int keyHash, final V value) {
+  protected static final <K, V> int tupleHash(final int keyHash, final V value) {
     return tupleHash(keyHash, Objects.hashCode(value));
   }
 
-  private static final <K, V> int tupleHash(final K key, final V value) {
+  protected static final <K, V> int tupleHash(final K key, final V value) {
     return tupleHash(Objects.hashCode(key), Objects.hashCode(value));
   }
 
-  private static final <K, V, C extends java.util.Collection<V>> int tupleHash(final int keyHash,
-      final C values) {
-    return values.stream().mapToInt(Objects::hashCode)
-        .map(valueHash -> tupleHash(keyHash, valueHash)).sum();
+  protected static final <K, V, C extends java.util.Collection<V>> int tupleHash(
+      final int keyHash, final C values) {
+    int hash = 0;
+
+    for (V value : values) {
+      hash += tupleHash(keyHash, Objects.hashCode(value));
+    }
+
+    return hash;
+  }
+
+  /*
+   * Returns the tuple hashes of those 'values' that are not contained in 'currentValues'.
+   */
+  protected static final <V> int insertedTupleHash(final int keyHash,
+      final Set.Immutable<V> values, final Set.Immutable<V> currentValues) {
+    int hash = 0;
+
+    for (V value : values) {
+      if (!currentValues.contains(value)) {
+        hash += tupleHash(keyHash, Objects.hashCode(value));
+      }
+    }
+
+    return hash;
   }
 
-  private static final <K, V, C extends java.util.Collection<V>> int tupleHash(final K key,
+  protected static final <K, V, C extends java.util.Collection<V>> int tupleHash(final K key,
       final C values) {
     return tupleHash(Objects.hashCode(key), values);
   }
@@ -254,17 +277,30 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
     }
   }
 
+  @Override
+  public final int valueCount(final K key) {
+    return getRootNode().valueCount(key, transformHashCode(key.hashCode()), 0, cmp);
+  }
+
+  @Override
+  public final Optional<V> findFirstValue(final K key) {
+    return Optional
+        .ofNullable(getRootNode().findFirstValue(key, transformHashCode(key.hashCode()), 0, cmp));
+  }
+
+  @Override
+  public final void forEachValue(final K key, final Consumer<? super V> action) {
+    getRootNode().forEachValue(key, transformHashCode(key.hashCode()), 0, action, cmp);
+  }
+
   @Override
   public Iterator<K> keyIterator() {
     return new SetMultimapKeyIterator<>(getRootNode());
   }
 
   @Override
-  public abstract Iterator<V> valueIterator();
-
-  protected Iterator<V> valueIterator(final Function<V, C> converter) {
-    return valueCollectionsStream(converter)
-        .flatMap(values -> StreamSupport.stream(values.spliterator(), false)).iterator();
+  public Iterator<V> valueIterator() {
+    return new SetMultimapFlattenedValueIterator<>(getRootNode());
   }
 
   @Override
@@ -282,19 +318,22 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
     return new SetMultimapTupleIterator<>(getRootNode(), tupleOf);
   }
 
-  private Spliterator<C> valueCollectionsSpliterator(
-      final Function<V, C> converter) {
-    /*
-     * TODO: specialize between mutable / SetMultimap.Immutable<K, V> ({@see Spliterator.IMMUTABLE})
-     */
-    int characteristics = Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
-    return Spliterators.spliterator(new SetMultimapValueIterator<>(getRootNode(),
-        converter), size(), characteristics);
+  private <T> Spliterator<T> tupleSpliterator(final BiFunction<K, V, T> tupleOf,
+      final int characteristics) {
+    return new SetMultimapTupleSpliterator<>(getRootNode(), size(),
+        characteristics | immutableCharacteristic(), tupleOf);
   }
 
-  private Stream<C> valueCollectionsStream(final Function<V, C> converter) {
-    boolean isParallel = false;
-    return StreamSupport.stream(valueCollectionsSpliterator(converter), isParallel);
+  /*
+   * Only persistent multimaps are guaranteed to not change structurally while being traversed.
+   */
+  private int immutableCharacteristic() {
+    return this instanceof SetMultimap.Immutable ? Spliterator.IMMUTABLE : 0;
+  }
+
+  @Override
+  public <T> Stream<T> tupleStream(final BiFunction<K, V, T> tupleOf) {
+    return StreamSupport.stream(tupleSpliterator(tupleOf, Spliterator.DISTINCT), false);
   }
 
   @Override
@@ -360,6 +399,11 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
           return AbstractTrieSetMultimap.this.valueIterator();
         }
 
+        @Override
+        public Spliterator<V> spliterator() {
+          return tupleSpliterator((key, value) -> value, Spliterator.NONNULL);
+        }
+
         @Override
         public int size() {
           return AbstractTrieSetMultimap.this.size();
@@ -413,6 +457,12 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
           };
         }
 
+        @Override
+        public Spliterator<java.util.Map.Entry<K, V>> spliterator() {
+          return tupleSpliterator(AbstractSpecialisedImmutableMap::entryOf,
+              Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+
         @Override
         public int size() {
           return AbstractTrieSetMultimap.this.size();
@@ -440,7 +490,7 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
 
   @Override
   public int hashCode() {
-    return hashCode(getRootNode());
+    return getCachedHashCode();
   }
 
   @Override
@@ -459,6 +509,10 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
         return false;
       }
 
+      if (this.getCachedHashCode() != that.getCachedHashCode()) {
+        return false;
+      }
+
       if (this.getCachedKeySetSize() != that.getCachedKeySetSize()) {
         return false;
       }
@@ -663,6 +717,56 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
 
   }
 
+  /**
+   * Iterator over all values that returns inline singleton values directly and only descends into
+   * nested value collections, i.e., without boxing singletons or streaming over collections.
+   */
+  protected static class SetMultimapFlattenedValueIterator<K, V, C extends Iterable<V>, R extends MultimapNode<K, V, C, R>>
+      extends AbstractSetMultimapIterator<K, V, C, R> implements Iterator<V> {
+
+    private Node currentPayloadNode = null;
+    private ArrayView<?> currentSingletonValues = ArrayView.empty();
+    private ArrayView<?> currentCollectionValues = ArrayView.empty();
+
+    private Iterator<V> currentSetIterator = Collections.emptyIterator();
+
+    protected SetMultimapFlattenedValueIterator(final R rootNode) {
+      super(rootNode);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return currentSetIterator.hasNext() || super.hasNext();
+    }
+
+    @Override
+    public V next() {
+      if (currentSetIterator.hasNext()) {
+        return currentSetIterator.next();
+      }
+
+      if (!super.hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      if (currentPayloadNode != currentValueNode) {
+        currentPayloadNode = currentValueNode;
+        currentSingletonValues = currentValueNode.dataArray(0, 1);
+        currentCollectionValues = currentValueNode.dataArray(1, 1);
+      }
+
+      if (currentValueSingletonCursor < currentValueSingletonLength) {
+        return (V) currentSingletonValues.get(currentValueSingletonCursor++);
+      } else {
+        // nested value collections are never empty
+        currentSetIterator =
+            ((C) currentCollectionValues.get(currentValueCollectionCursor++)).iterator();
+        return currentSetIterator.next();
+      }
+    }
+
+  }
+
   protected static class SetMultimapNativeTupleIterator<K, V, C, R extends MultimapNode<K, V, C, R>>
       extends AbstractSetMultimapIterator<K, V, C, R>
       implements Iterator<java.util.Map.Entry<K, Object>> {
@@ -775,6 +879,140 @@ public abstract class AbstractTrieSetMultimap<K, V, C extends Iterable<V>, R ext
 
   }
 
+  /**
+   * Spliterator over all tuples that splits at node boundaries. Sub-nodes that were not visited yet
+   * are kept in a deque, of which {@link #trySplit()} hands over half to a new spliterator. Only a
+   * spliterator that covers a whole trie knows its exact size; split off parts report estimates.
+   */
+  protected static class SetMultimapTupleSpliterator<K, V, C extends Iterable<V>, T>
+      implements Spliterator<T> {
+
+    private final Deque<Node> pendingNodes;
+    private final BiFunction<K, V, T> tupleOf;
+
+    private ArrayView<?> currentSingletonKeys = ArrayView.empty();
+    private ArrayView<?> currentSingletonValues = ArrayView.empty();
+    private ArrayView<?> currentCollectionKeys = ArrayView.empty();
+    private ArrayView<?> currentCollectionValues = ArrayView.empty();
+
+    private int currentValueSingletonCursor;
+    private int currentValueCollectionCursor;
+
+    private K currentKey = null;
+    private Iterator<V> currentSetIterator = Collections.emptyIterator();
+
+    private long estimatedSize;
+    private int characteristics;
+
+    SetMultimapTupleSpliterator(final Node rootNode, final int size, final int characteristics,
+        final BiFunction<K, V, T> tupleOf) {
+      this(new ArrayDeque<>(), size, characteristics | Spliterator.SIZED, tupleOf);
+      pendingNodes.push(rootNode);
+    }
+
+    private SetMultimapTupleSpliterator(final Deque<Node> pendingNodes, final long estimatedSize,
+        final int characteristics, final BiFunction<K, V, T> tupleOf) {
+      this.pendingNodes = pendingNodes;
+      this.estimatedSize = estimatedSize;
+      this.characteristics = characteristics;
+      this.tupleOf = tupleOf;
+    }
+
+    private boolean hasPayload() {
+      return currentValueSingletonCursor < currentSingletonKeys.size()
+          || currentValueCollectionCursor < currentCollectionKeys.size();
+    }
+
+    /*
+     * visits the next pending node, pushing its sub-nodes for depth-first traversal
+     */
+    private void visitNextNode() {
+      final Node nextNode = pendingNodes.pop();
+      final ArrayView<? extends Node> subNodes = nextNode.nodeArray();
+
+      for (int i = subNodes.size() - 1; i >= 0; i--) {
+        pendingNodes.push(subNodes.get(i));
+      }
+
+      // TODO: introduce dataArray(category) without specifying component
+      currentSingletonKeys = nextNode.dataArray(0, 0);
+      currentSingletonValues = nextNode.dataArray(0, 1);
+      currentCollectionKeys = nextNode.dataArray(1, 0);
+      currentCollectionValues = nextNode.dataArray(1, 1);
+
+      currentValueSingletonCursor = 0;
+      currentValueCollectionCursor = 0;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+      while (true) {
+        if (currentSetIterator.hasNext()) {
+          action.accept(tupleOf.apply(currentKey, currentSetIterator.next()));
+        } else if (currentValueSingletonCursor < currentSingletonKeys.size()) {
+          final int index = currentValueSingletonCursor++;
+          action.accept(tupleOf.apply((K) currentSingletonKeys.get(index),
+              (V) currentSingletonValues.get(index)));
+        } else if (currentValueCollectionCursor < currentCollectionKeys.size()) {
+          final int index = currentValueCollectionCursor++;
+          currentKey = (K) currentCollectionKeys.get(index);
+          currentSetIterator = ((C) currentCollectionValues.get(index)).iterator();
+          continue;
+        } else if (!pendingNodes.isEmpty()) {
+          visitNextNode();
+          continue;
+        } else {
+          return false;
+        }
+
+        if (estimatedSize > 0) {
+          estimatedSize--;
+        }
+        return true;
+      }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      /*
+       * descend into a single remaining sub-node, until there is something to hand over
+       */
+      while (pendingNodes.size() == 1 && !currentSetIterator.hasNext() && !hasPayload()) {
+        visitNextNode();
+      }
+
+      if (pendingNodes.isEmpty()) {
+        return null;
+      }
+
+      final int splitNodeCount = (pendingNodes.size() + 1) / 2;
+      final Deque<Node> splitNodes = new ArrayDeque<>(splitNodeCount);
+
+      for (int i = 0; i < splitNodeCount; i++) {
+        splitNodes.addFirst(pendingNodes.pollLast());
+      }
+
+      final long splitEstimatedSize = estimatedSize >>> 1;
+
+      estimatedSize -= splitEstimatedSize;
+      characteristics &= ~Spliterator.SIZED;
+
+      return new SetMultimapTupleSpliterator<K, V, C, T>(splitNodes, splitEstimatedSize,
+          characteristics, tupleOf);
+    }
+
+    @Override
+    public long estimateSize() {
+      return estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+      return characteristics;
+    }
+
+  }
+
   /**
    * Iterator that first iterates over inlined-values and then continues depth first recursively.
    */
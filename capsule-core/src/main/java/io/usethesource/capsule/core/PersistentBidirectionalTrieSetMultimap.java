@@ -7,24 +7,69 @@
  */
 package io.usethesource.capsule.core;
 
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 import io.usethesource.capsule.BinaryRelation;
 import io.usethesource.capsule.Set;
 import io.usethesource.capsule.SetMultimap;
+import io.usethesource.capsule.util.ForkJoinUtils;
+import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
 
 public class PersistentBidirectionalTrieSetMultimap<K, V> implements
     BinaryRelation.Immutable<K, V>, java.io.Serializable {
 
   private static final long serialVersionUID = 42L;
 
+  /**
+   * Minimal number of join values per task when joining the delta of a closure round in parallel.
+   */
+  private static final int MIN_JOIN_VALUES_PER_TASK = 1 << 10;
+
+  /**
+   * Maintenance strategies of the backward index, see
+   * {@link PersistentBidirectionalTrieSetMultimap#of(InverseIndex)}.
+   */
+  public enum InverseIndex {
+    /**
+     * The backward index is updated together with the forward index.
+     */
+    EAGER,
+
+    /**
+     * The backward index is built on first use and maintained incrementally afterwards. It is only
+     * softly referenced, hence dropped under memory pressure and rebuilt on next use.
+     */
+    LAZY
+  }
+
   private final SetMultimap.Immutable<K, V> fwd;
+
+  /*
+   * NOTE: 'null' if the backward index is maintained lazily, cf. 'lazyBwd'
+   */
   private final SetMultimap.Immutable<V, K> bwd;
 
+  /*
+   * NOTE: lazily maintained backward index; cleared while not yet built or after it was dropped by
+   * the garbage collector, and cached on (re)build (a racy but idempotent initialization)
+   */
+  private transient volatile SoftReference<SetMultimap.Immutable<V, K>> lazyBwd;
+
+  /**
+   * @param bwd backward index, or {@code null} to build it on first use
+   */
   public PersistentBidirectionalTrieSetMultimap(final SetMultimap.Immutable<K, V> fwd,
       final SetMultimap.Immutable<V, K> bwd) {
     this.fwd = fwd;
@@ -48,28 +93,103 @@ public class PersistentBidirectionalTrieSetMultimap<K, V> implements
      * TODO: make classes of nested multi-maps configurable.
      */
     return new TransientBidirectionalTrieSetMultimap<K, V>(SetMultimap.Transient.of(),
-        SetMultimap.Transient.of());
+        SetMultimap.Transient.of(), false);
+  }
+
+  /**
+   * Creates an empty relation whose backward index is maintained according to
+   * {@code inverseIndex}. The strategy is retained by all relations derived from it.
+   */
+  public static final <K, V> BinaryRelation.Immutable<K, V> of(final InverseIndex inverseIndex) {
+    return inverseIndex == InverseIndex.LAZY
+        ? new PersistentBidirectionalTrieSetMultimap<K, V>(SetMultimap.Immutable.of(), null)
+        : of();
+  }
+
+  /**
+   * Creates an empty transient relation whose backward index is maintained according to
+   * {@code inverseIndex}.
+   */
+  public static final <K, V> BinaryRelation.Transient<K, V> transientOf(
+      final InverseIndex inverseIndex) {
+    return inverseIndex == InverseIndex.LAZY
+        ? new TransientBidirectionalTrieSetMultimap<K, V>(SetMultimap.Transient.of(), null, true)
+        : transientOf();
+  }
+
+  /*
+   * Creates a relation that maintains its backward index lazily if 'lazyInverse' holds; 'bwd' may
+   * then be 'null' if the backward index is not built.
+   */
+  static final <K, V> PersistentBidirectionalTrieSetMultimap<K, V> withIndices(
+      final boolean lazyInverse, final SetMultimap.Immutable<K, V> fwd,
+      final SetMultimap.Immutable<V, K> bwd) {
+    if (!lazyInverse) {
+      return new PersistentBidirectionalTrieSetMultimap<>(fwd, bwd);
+    }
+
+    final PersistentBidirectionalTrieSetMultimap<K, V> result =
+        new PersistentBidirectionalTrieSetMultimap<>(fwd, null);
+
+    if (bwd != null) {
+      result.lazyBwd = new SoftReference<>(bwd);
+    }
+
+    return result;
+  }
+
+  static final <K, V> SetMultimap.Transient<V, K> invert(final SetMultimap<K, V> fwd) {
+    final SetMultimap.Transient<V, K> builder = SetMultimap.Transient.of();
+    fwd.entryIterator()
+        .forEachRemaining(tuple -> builder.__insert(tuple.getValue(), tuple.getKey()));
+    return builder;
+  }
+
+  private boolean isInverseLazy() {
+    return bwd == null;
   }
 
-  private static <K, V> BinaryRelation.Immutable<K, V> wireTuple(K key, V value,
-      final BiFunction<K, V, ? extends SetMultimap.Immutable<K, V>> fwdMerger,
-      final BiFunction<V, K, ? extends SetMultimap.Immutable<V, K>> bwdMerger) {
+  /*
+   * Returns the backward index, building it first if it is maintained lazily and not present.
+   */
+  private SetMultimap.Immutable<V, K> bwd() {
+    SetMultimap.Immutable<V, K> result = bwdIfPresent();
+
+    if (result == null) {
+      result = invert(fwd).freeze();
+      lazyBwd = new SoftReference<>(result);
+    }
 
-    return new PersistentBidirectionalTrieSetMultimap(fwdMerger.apply(key, value),
-        bwdMerger.apply(value, key));
+    return result;
   }
 
-  private static <K, V> BinaryRelation.Immutable<K, V> batchWireTuple(K key,
-      Set.Immutable<V> values,
-      final BiFunction<K, Set.Immutable<V>, ? extends SetMultimap.Immutable<K, V>> fwdMerger,
-      final BiFunction<Set.Immutable<V>, K, ? extends SetMultimap.Immutable<V, K>> bwdMerger) {
+  /*
+   * Returns the backward index if it is maintained eagerly or currently built, otherwise 'null'.
+   */
+  private SetMultimap.Immutable<V, K> bwdIfPresent() {
+    if (bwd != null) {
+      return bwd;
+    }
 
-    return new PersistentBidirectionalTrieSetMultimap(fwdMerger.apply(key, values),
-        bwdMerger.apply(values, key));
+    final SoftReference<SetMultimap.Immutable<V, K>> reference = lazyBwd;
+    return reference == null ? null : reference.get();
+  }
+
+  /*
+   * NOTE: a lazily maintained backward index is only updated if it is present
+   */
+  private BinaryRelation.Immutable<K, V> wireTuple(final SetMultimap.Immutable<K, V> fwdNew,
+      final UnaryOperator<SetMultimap.Immutable<V, K>> bwdMerger) {
+    final SetMultimap.Immutable<V, K> bwdOld = bwdIfPresent();
+    return withIndices(isInverseLazy(), fwdNew, bwdOld == null ? null : bwdMerger.apply(bwdOld));
   }
 
   @Override
   public BinaryRelation.Immutable<V, K> inverse() {
+    if (isInverseLazy()) {
+      return withIndices(true, bwd(), fwd);
+    }
+
     return new PersistentBidirectionalTrieSetMultimap<>(bwd, fwd);
   }
 
@@ -103,7 +223,7 @@ public class PersistentBidirectionalTrieSetMultimap<K, V> implements
     /*
      * hash lookup on inverse
      */
-    return bwd.containsKey(o);
+    return bwd().containsKey(o);
   }
 
   @Override
@@ -116,6 +236,21 @@ public class PersistentBidirectionalTrieSetMultimap<K, V> implements
     return fwd.get(o);
   }
 
+  @Override
+  public int valueCount(K key) {
+    return fwd.valueCount(key);
+  }
+
+  @Override
+  public Optional<V> findFirstValue(K key) {
+    return fwd.findFirstValue(key);
+  }
+
+  @Override
+  public void forEachValue(K key, Consumer<? super V> action) {
+    fwd.forEachValue(key, action);
+  }
+
   @Override
   public java.util.Set<K> keySet() {
     return fwd.keySet();
@@ -163,12 +298,12 @@ public class PersistentBidirectionalTrieSetMultimap<K, V> implements
 
   @Override
   public SetMultimap.Immutable<K, V> __put(K key, V value) {
-    return wireTuple(key, value, fwd::__put, bwd::__put);
+    return __put(key, Set.Immutable.of(value));
   }
 
   @Override
   public SetMultimap.Immutable<K, V> __insert(K key, V value) {
-    return wireTuple(key, value, fwd::__insert, bwd::__insert);
+    return wireTuple(fwd.__insert(key, value), index -> index.__insert(value, key));
   }
 
   /*
@@ -176,12 +311,294 @@ public class PersistentBidirectionalTrieSetMultimap<K, V> implements
    */
   @Override
   public SetMultimap.Immutable<K, V> __insert(K key, Set.Immutable<V> values) {
-    return batchWireTuple(key, values, fwd::__insert, bwd::__insert);
+    return wireTuple(fwd.__insert(key, values), index -> index.__insert(values, key));
+  }
+
+  /*
+   * NOTE: replaces the value collection of 'key' with a single update of the forward index; the
+   * backward index is only rewired for values that are added or dropped
+   */
+  @Override
+  public SetMultimap.Immutable<K, V> __put(K key, Set.Immutable<V> values) {
+    final SetMultimap.Immutable<K, V> fwdNew = fwd.__put(key, values);
+
+    if (fwdNew == fwd) {
+      return this;
+    }
+
+    return wireTuple(fwdNew, index -> {
+      final Set.Immutable<V> oldValues = fwd.get(key);
+      final SetMultimap.Transient<V, K> bwdNew = index.asTransient();
+
+      oldValues.subtract(values).forEach(value -> bwdNew.__remove(value, key));
+      values.subtract(oldValues).forEach(value -> bwdNew.__insert(value, key));
+
+      return bwdNew.freeze();
+    });
   }
 
   @Override
   public SetMultimap.Immutable<K, V> __remove(K key, V value) {
-    return wireTuple(key, value, fwd::__remove, bwd::__remove);
+    return wireTuple(fwd.__remove(key, value), index -> index.__remove(value, key));
+  }
+
+  @Override
+  public SetMultimap.Immutable<K, V> __remove(K key) {
+    final Set.Immutable<V> values = fwd.get(key);
+
+    if (values.isEmpty()) {
+      return this;
+    }
+
+    return wireTuple(fwd.__remove(key), index -> {
+      final SetMultimap.Transient<V, K> bwdNew = index.asTransient();
+      values.forEach(value -> bwdNew.__remove(value, key));
+      return bwdNew.freeze();
+    });
+  }
+
+  @Override
+  public SetMultimap.Immutable<K, V> union(
+      final SetMultimap<? extends K, ? extends V> setMultimap) {
+    final SetMultimap.Transient<K, V> tmpTransient = this.asTransient();
+    tmpTransient.union(setMultimap);
+    return tmpTransient.freeze();
+  }
+
+  /*
+   * NOTE: joins the backward index of this relation with the forward index of 'other' on the shared
+   * column; iterates the keys of the side with fewer distinct join values in hash order and probes
+   * the other side, wiring both result indices as transients (the backward index of the result only
+   * if it is maintained eagerly)
+   */
+  @Override
+  public <W> BinaryRelation.Immutable<K, W> compose(final BinaryRelation<V, W> other) {
+    final SetMultimap<V, W> rhs = other.toSetMultimap();
+
+    if (fwd.isEmpty() || rhs.isEmpty()) {
+      return withIndices(isInverseLazy(), SetMultimap.Immutable.of(),
+          isInverseLazy() ? null : SetMultimap.Immutable.of());
+    }
+
+    final SetMultimap.Immutable<V, K> bwd = bwd();
+
+    final SetMultimap.Transient<K, W> fwdNew = SetMultimap.Transient.of();
+    final SetMultimap.Transient<W, K> bwdNew = isInverseLazy() ? null : SetMultimap.Transient.of();
+
+    final Iterator<V> joinIterator =
+        bwd.sizeDistinct() <= rhs.sizeDistinct() ? bwd.keyIterator() : rhs.keyIterator();
+
+    while (joinIterator.hasNext()) {
+      final V joinValue = joinIterator.next();
+
+      if (bwd.valueCount(joinValue) != 0 && rhs.valueCount(joinValue) != 0) {
+        bwd.forEachValue(joinValue, key -> rhs.forEachValue(joinValue, value -> {
+          fwdNew.__insert(key, value);
+          if (bwdNew != null) {
+            bwdNew.__insert(value, key);
+          }
+        }));
+      }
+    }
+
+    return withIndices(isInverseLazy(), fwdNew.freeze(), bwdNew == null ? null : bwdNew.freeze());
+  }
+
+  /*
+   * NOTE: prunes each index in a single pass; the forward index drops whole keys, while the
+   * backward index (if present) intersects the nested key collection of every value with 'keys'
+   */
+  @Override
+  public BinaryRelation.Immutable<K, V> restrictDomain(final Set.Immutable<K> keys) {
+    if (keys.isEmpty()) {
+      return withIndices(isInverseLazy(), SetMultimap.Immutable.of(),
+          isInverseLazy() ? null : SetMultimap.Immutable.of());
+    }
+
+    final SetMultimap.Transient<K, V> fwdNew = fwd.asTransient();
+
+    fwd.keyIterator().forEachRemaining(key -> {
+      if (!keys.contains(key)) {
+        fwdNew.__remove(key);
+      }
+    });
+
+    if (fwdNew.size() == fwd.size()) {
+      return this;
+    }
+
+    final SetMultimap.Immutable<V, K> bwd = bwdIfPresent();
+
+    if (bwd == null) {
+      return withIndices(true, fwdNew.freeze(), null);
+    }
+
+    final SetMultimap.Transient<V, K> bwdNew = bwd.asTransient();
+
+    bwd.keyIterator().forEachRemaining(value -> {
+      if (bwd.valueCount(value) == 1) {
+        if (!keys.contains(bwd.findFirstValue(value).get())) {
+          bwdNew.__remove(value);
+        }
+      } else {
+        final Set.Immutable<K> valueKeys = bwd.get(value);
+        final Set.Immutable<K> retainedKeys = valueKeys.intersect(keys);
+
+        if (retainedKeys.isEmpty()) {
+          bwdNew.__remove(value);
+        } else if (retainedKeys.size() != valueKeys.size()) {
+          bwdNew.__put(value, retainedKeys);
+        }
+      }
+    });
+
+    return withIndices(isInverseLazy(), fwdNew.freeze(), bwdNew.freeze());
+  }
+
+  /**
+   * Computes the transitive closure of {@code relation} with semi-naive evaluation: every round
+   * only joins the tuples derived in the previous round with {@code relation}. The accumulated
+   * closure and the per-round deltas are kept as transients, maintaining forward and backward
+   * indices throughout.
+   */
+  public static final <T> BinaryRelation.Immutable<T, T> closure(
+      final BinaryRelation.Immutable<T, T> relation) {
+    final BinaryRelation.Transient<T, T> accumulator = relation.asTransient();
+    closeTransitively(relation, accumulator, null);
+    return accumulator.freeze();
+  }
+
+  /**
+   * Computes the transitive closure of {@code relation} as {@link #closure(BinaryRelation.Immutable)}
+   * does, but evaluates the delta join of each round in parallel on {@code pool}. The join values
+   * of a delta are partitioned into contiguous hash ranges, each range is joined by a separate
+   * task, and the newly derived tuples are finally wired into the accumulated closure.
+   */
+  public static final <T> BinaryRelation.Immutable<T, T> parallelClosure(final ForkJoinPool pool,
+      final BinaryRelation.Immutable<T, T> relation) {
+    final BinaryRelation.Transient<T, T> accumulator = relation.asTransient();
+    closeTransitively(relation, accumulator, pool);
+    return accumulator.freeze();
+  }
+
+  /**
+   * Computes the reflexive transitive closure of {@code relation}, i.e., its transitive closure
+   * extended with the identity on all elements of its domain and range.
+   */
+  public static final <T> BinaryRelation.Immutable<T, T> reflexiveClosure(
+      final BinaryRelation.Immutable<T, T> relation) {
+    final BinaryRelation.Transient<T, T> accumulator = relation.asTransient();
+    closeTransitively(relation, accumulator, null);
+    closeReflexively(relation, accumulator);
+    return accumulator.freeze();
+  }
+
+  /**
+   * Computes the reflexive transitive closure of {@code relation}, evaluating the delta joins in
+   * parallel on {@code pool} (cf. {@link #parallelClosure(ForkJoinPool, BinaryRelation.Immutable)}).
+   */
+  public static final <T> BinaryRelation.Immutable<T, T> parallelReflexiveClosure(
+      final ForkJoinPool pool, final BinaryRelation.Immutable<T, T> relation) {
+    final BinaryRelation.Transient<T, T> accumulator = relation.asTransient();
+    closeTransitively(relation, accumulator, pool);
+    closeReflexively(relation, accumulator);
+    return accumulator.freeze();
+  }
+
+  /*
+   * Semi-naive fixpoint: the tuples of 'delta' are grouped by their values (i.e., the keys of the
+   * inverse index) and joined with the forward index of 'relation'. Only tuples that are not yet
+   * contained in 'accumulator' make it into the delta of the next round. The evaluation is
+   * sequential if 'pool' is null.
+   */
+  private static final <T> void closeTransitively(final BinaryRelation.Immutable<T, T> relation,
+      final BinaryRelation.Transient<T, T> accumulator, final ForkJoinPool pool) {
+    BinaryRelation<T, T> delta = relation;
+
+    while (!delta.isEmpty()) {
+      final SetMultimap<T, T> deltaByValue = delta.inverse().toSetMultimap();
+      final BinaryRelation.Transient<T, T> nextDelta = BinaryRelation.Transient.of();
+
+      if (pool == null) {
+        joinDelta(relation, accumulator, deltaByValue, nextDelta);
+      } else {
+        parallelJoinDelta(pool, relation, accumulator, deltaByValue, nextDelta);
+      }
+
+      delta = nextDelta;
+    }
+  }
+
+  private static final <T> void joinDelta(final BinaryRelation.Immutable<T, T> relation,
+      final BinaryRelation.Transient<T, T> accumulator, final SetMultimap<T, T> deltaByValue,
+      final BinaryRelation.Transient<T, T> nextDelta) {
+    final Iterator<T> joinIterator = deltaByValue.keyIterator();
+
+    while (joinIterator.hasNext()) {
+      final T joinValue = joinIterator.next();
+
+      if (relation.valueCount(joinValue) != 0) {
+        deltaByValue.forEachValue(joinValue, key -> relation.forEachValue(joinValue, value -> {
+          if (accumulator.__insert(key, value)) {
+            nextDelta.__insert(key, value);
+          }
+        }));
+      }
+    }
+  }
+
+  /*
+   * Tasks only read 'accumulator' and collect their candidate tuples locally; the candidates are
+   * wired sequentially afterwards, since transients do not support concurrent updates. Duplicates
+   * derived by different tasks are filtered out by the insertion into 'accumulator'.
+   */
+  private static final <T> void parallelJoinDelta(final ForkJoinPool pool,
+      final BinaryRelation.Immutable<T, T> relation,
+      final BinaryRelation.Transient<T, T> accumulator, final SetMultimap<T, T> deltaByValue,
+      final BinaryRelation.Transient<T, T> nextDelta) {
+    // join values are iterated in hash order, hence contiguous chunks form hash ranges
+    final List<T> joinValues = new ArrayList<>(deltaByValue.keySet());
+
+    final int chunkCount = Math.max(1,
+        Math.min(pool.getParallelism(), joinValues.size() / MIN_JOIN_VALUES_PER_TASK));
+    final int chunkSize = (joinValues.size() + chunkCount - 1) / chunkCount;
+
+    final List<List<Map.Entry<T, T>>> candidates =
+        new ArrayList<>(Collections.nCopies(chunkCount, null));
+
+    ForkJoinUtils.invokeAll(pool, chunkCount, chunk -> {
+      final List<Map.Entry<T, T>> derived = new ArrayList<>();
+      final int to = Math.min(joinValues.size(), (chunk + 1) * chunkSize);
+
+      for (int i = chunk * chunkSize; i < to; i++) {
+        final T joinValue = joinValues.get(i);
+
+        if (relation.valueCount(joinValue) != 0) {
+          deltaByValue.forEachValue(joinValue, key -> relation.forEachValue(joinValue, value -> {
+            if (!accumulator.containsEntry(key, value)) {
+              derived.add(AbstractSpecialisedImmutableMap.entryOf(key, value));
+            }
+          }));
+        }
+      }
+
+      // distinct slots of a pre-sized list, published by joining the tasks
+      candidates.set(chunk, derived);
+    });
+
+    for (List<Map.Entry<T, T>> derived : candidates) {
+      for (Map.Entry<T, T> tuple : derived) {
+        if (accumulator.__insert(tuple.getKey(), tuple.getValue())) {
+          nextDelta.__insert(tuple.getKey(), tuple.getValue());
+        }
+      }
+    }
+  }
+
+  private static final <T> void closeReflexively(final BinaryRelation.Immutable<T, T> relation,
+      final BinaryRelation.Transient<T, T> accumulator) {
+    relation.keyIterator().forEachRemaining(key -> accumulator.__insert(key, key));
+    relation.inverse().keyIterator().forEachRemaining(value -> accumulator.__insert(value, value));
   }
 
   @Override
@@ -191,6 +608,11 @@ public class PersistentBidirectionalTrieSetMultimap<K, V> implements
 
   @Override
   public boolean equals(Object other) {
+    if (other instanceof PersistentBidirectionalTrieSetMultimap) {
+      // compare the forward tries directly, enabling their size and hash code pre-checks
+      return fwd.equals(((PersistentBidirectionalTrieSetMultimap<?, ?>) other).fwd);
+    }
+
     return fwd.equals(other);
   }
 
@@ -206,7 +628,9 @@ public class PersistentBidirectionalTrieSetMultimap<K, V> implements
 
   @Override
   public BinaryRelation.Transient<K, V> asTransient() {
-    return new TransientBidirectionalTrieSetMultimap<K, V>(fwd.asTransient(), bwd.asTransient());
+    final SetMultimap.Immutable<V, K> bwd = bwdIfPresent();
+    return new TransientBidirectionalTrieSetMultimap<K, V>(fwd.asTransient(),
+        bwd == null ? null : bwd.asTransient(), isInverseLazy());
   }
 }
 
@@ -214,24 +638,36 @@ public class PersistentBidirectionalTrieSetMultimap<K, V> implements
 class TransientBidirectionalTrieSetMultimap<K, V> implements BinaryRelation.Transient<K, V> {
 
   private final SetMultimap.Transient<K, V> fwd;
-  private transient final SetMultimap.Transient<V, K> bwd;
+
+  /*
+   * NOTE: 'null' while a lazily maintained backward index is not yet built
+   */
+  private SetMultimap.Transient<V, K> bwd;
+
+  private final boolean lazyInverse;
 
   public TransientBidirectionalTrieSetMultimap(final SetMultimap.Transient<K, V> fwd,
-      final SetMultimap.Transient<V, K> bwd) {
+      final SetMultimap.Transient<V, K> bwd, final boolean lazyInverse) {
     this.fwd = fwd;
     this.bwd = bwd;
+    this.lazyInverse = lazyInverse;
   }
 
-  private static <K, V> boolean wireTransientTuple(K key, V value,
-      final BiFunction<K, V, Boolean> fwdMerger, final BiFunction<V, K, Boolean> bwdMerger) {
-    boolean fwdResult = fwdMerger.apply(key, value);
-    boolean bwdResult = bwdMerger.apply(value, key);
-    return fwdResult || bwdResult;
+  private SetMultimap.Transient<V, K> bwd() {
+    if (bwd == null) {
+      bwd = PersistentBidirectionalTrieSetMultimap.invert(fwd);
+    }
+
+    return bwd;
   }
 
+  /*
+   * NOTE: the inverse shares both indices with this relation, hence the backward index is built
+   * and maintained from here on
+   */
   @Override
   public BinaryRelation.Transient<V, K> inverse() {
-    return new TransientBidirectionalTrieSetMultimap<>(bwd, fwd);
+    return new TransientBidirectionalTrieSetMultimap<>(bwd(), fwd, lazyInverse);
   }
 
   @Override
@@ -264,7 +700,7 @@ class TransientBidirectionalTrieSetMultimap<K, V> implements BinaryRelation.Tran
     /*
      * hash lookup on inverse
      */
-    return bwd.containsKey(o);
+    return bwd().containsKey(o);
   }
 
   @Override
@@ -277,6 +713,21 @@ class TransientBidirectionalTrieSetMultimap<K, V> implements BinaryRelation.Tran
     return fwd.get(o);
   }
 
+  @Override
+  public int valueCount(K key) {
+    return fwd.valueCount(key);
+  }
+
+  @Override
+  public Optional<V> findFirstValue(K key) {
+    return fwd.findFirstValue(key);
+  }
+
+  @Override
+  public void forEachValue(K key, Consumer<? super V> action) {
+    fwd.forEachValue(key, action);
+  }
+
   @Override
   public java.util.Set<K> keySet() {
     return fwd.keySet();
@@ -324,17 +775,78 @@ class TransientBidirectionalTrieSetMultimap<K, V> implements BinaryRelation.Tran
 
   @Override
   public boolean __put(K key, V value) {
-    return wireTransientTuple(key, value, fwd::__put, bwd::__put);
+    return __put(key, Set.Immutable.of(value));
   }
 
   @Override
   public boolean __insert(K key, V value) {
-    return wireTransientTuple(key, value, fwd::__insert, bwd::__insert);
+    final boolean modified = fwd.__insert(key, value);
+
+    if (modified && bwd != null) {
+      bwd.__insert(value, key);
+    }
+
+    return modified;
+  }
+
+  @Override
+  public boolean __put(K key, Set.Immutable<V> values) {
+    if (bwd != null) {
+      final Set.Immutable<V> oldValues = fwd.get(key);
+
+      oldValues.subtract(values).forEach(value -> bwd.__remove(value, key));
+      values.subtract(oldValues).forEach(value -> bwd.__insert(value, key));
+    }
+
+    return fwd.__put(key, values);
   }
 
   @Override
   public boolean __remove(K key, V value) {
-    return wireTransientTuple(key, value, fwd::__remove, bwd::__remove);
+    final boolean modified = fwd.__remove(key, value);
+
+    if (modified && bwd != null) {
+      bwd.__remove(value, key);
+    }
+
+    return modified;
+  }
+
+  @Override
+  public boolean __remove(K key) {
+    if (bwd != null) {
+      final Set.Immutable<V> values = fwd.get(key);
+      values.forEach(value -> bwd.__remove(value, key));
+    }
+
+    return fwd.__remove(key);
+  }
+
+  @Override
+  public boolean union(final SetMultimap<? extends K, ? extends V> setMultimap) {
+    if (setMultimap instanceof BinaryRelation) {
+      /*
+       * union both indices separately, instead of wiring each tuple
+       */
+      final BinaryRelation<? extends K, ? extends V> relation =
+          (BinaryRelation<? extends K, ? extends V>) setMultimap;
+
+      boolean modified = fwd.union(relation.toSetMultimap());
+
+      if (bwd != null) {
+        modified |= bwd.union(relation.inverse().toSetMultimap());
+      }
+
+      return modified;
+    }
+
+    boolean modified = false;
+
+    for (Map.Entry<? extends K, ? extends V> entry : setMultimap.entrySet()) {
+      modified |= this.__insert(entry.getKey(), entry.getValue());
+    }
+
+    return modified;
   }
 
   @Override
@@ -354,6 +866,7 @@ class TransientBidirectionalTrieSetMultimap<K, V> implements BinaryRelation.Tran
 
   @Override
   public BinaryRelation.Immutable<K, V> freeze() {
-    return new PersistentBidirectionalTrieSetMultimap<>(fwd.freeze(), bwd.freeze());
+    return PersistentBidirectionalTrieSetMultimap.withIndices(lazyInverse, fwd.freeze(),
+        bwd == null ? null : bwd.freeze());
   }
 }
@@ -0,0 +1,1046 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.core;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import io.usethesource.capsule.IntIntMap;
+import io.usethesource.capsule.core.trie.MapNodeResult;
+import io.usethesource.capsule.util.function.IntIntConsumer;
+
+/**
+ * CHAMP based map from primitive {@code int} keys to primitive {@code int} values. Key/value pairs
+ * are stored unboxed in an {@code int[]} payload array per node, sub-nodes in a separate array. A
+ * key is its own hash code, hence there are no hash collisions and the trie has a maximal depth of
+ * seven levels.
+ */
+public class PersistentTrieIntIntMap implements IntIntMap.Immutable, java.io.Serializable {
+
+  private static final long serialVersionUID = 42L;
+
+  private static final IntIntMapNode EMPTY_NODE =
+      new IntIntMapNode(null, 0, 0, IntIntMapNode.EMPTY_PAYLOAD, IntIntMapNode.EMPTY_NODES);
+
+  private static final PersistentTrieIntIntMap EMPTY_MAP =
+      new PersistentTrieIntIntMap(EMPTY_NODE, 0, 0);
+
+  private final IntIntMapNode rootNode;
+  private final int cachedHashCode;
+  private final int cachedSize;
+
+  PersistentTrieIntIntMap(IntIntMapNode rootNode, int cachedHashCode, int cachedSize) {
+    this.rootNode = rootNode;
+    this.cachedHashCode = cachedHashCode;
+    this.cachedSize = cachedSize;
+  }
+
+  public static final IntIntMap.Immutable of() {
+    return PersistentTrieIntIntMap.EMPTY_MAP;
+  }
+
+  public static final IntIntMap.Immutable of(int... keyValuePairs) {
+    return transientOf(keyValuePairs).freeze();
+  }
+
+  public static final IntIntMap.Transient transientOf() {
+    return PersistentTrieIntIntMap.EMPTY_MAP.asTransient();
+  }
+
+  public static final IntIntMap.Transient transientOf(int... keyValuePairs) {
+    if (keyValuePairs.length % 2 != 0) {
+      throw new IllegalArgumentException("Length of argument list is uneven: no key/value pairs.");
+    }
+
+    final IntIntMap.Transient result = PersistentTrieIntIntMap.EMPTY_MAP.asTransient();
+
+    for (int i = 0; i < keyValuePairs.length; i += 2) {
+      result.__put(keyValuePairs[i], keyValuePairs[i + 1]);
+    }
+
+    return result;
+  }
+
+  @Override
+  public boolean containsKey(final int key) {
+    return rootNode.containsKey(key, 0);
+  }
+
+  @Override
+  public int get(final int key, final int defaultValue) {
+    return rootNode.get(key, 0, defaultValue);
+  }
+
+  @Override
+  public IntIntMap.Immutable __put(final int key, final int val) {
+    final MapNodeResult<Integer, Integer> details = MapNodeResult.unchanged();
+
+    final IntIntMapNode newRootNode = rootNode.updated(null, key, val, 0, details);
+
+    if (details.isModified()) {
+      return new PersistentTrieIntIntMap(newRootNode,
+          cachedHashCode + details.getDeltaHashCode(), cachedSize + details.getDeltaSize());
+    }
+
+    return this;
+  }
+
+  @Override
+  public IntIntMap.Immutable __remove(final int key) {
+    final MapNodeResult<Integer, Integer> details = MapNodeResult.unchanged();
+
+    final IntIntMapNode newRootNode = rootNode.removed(null, key, 0, details);
+
+    if (details.isModified()) {
+      return new PersistentTrieIntIntMap(newRootNode,
+          cachedHashCode + details.getDeltaHashCode(), cachedSize + details.getDeltaSize());
+    }
+
+    return this;
+  }
+
+  @Override
+  public int size() {
+    return cachedSize;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return cachedSize == 0;
+  }
+
+  @Override
+  public void forEach(final IntIntConsumer action) {
+    rootNode.forEach(action);
+  }
+
+  @Override
+  public PrimitiveIterator.OfInt keyIterator() {
+    return new IntIntMapKeyIterator(rootNode);
+  }
+
+  @Override
+  public PrimitiveIterator.OfInt valueIterator() {
+    return new IntIntMapValueIterator(rootNode);
+  }
+
+  @Override
+  public IntStream keyStream() {
+    return StreamSupport.intStream(new IntIntMapSpliterator(rootNode, cachedSize, false,
+        Spliterator.DISTINCT | Spliterator.IMMUTABLE), false);
+  }
+
+  @Override
+  public IntStream valueStream() {
+    return StreamSupport.intStream(
+        new IntIntMapSpliterator(rootNode, cachedSize, true, Spliterator.IMMUTABLE), false);
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (other == this) {
+      return true;
+    }
+    if (other == null) {
+      return false;
+    }
+
+    if (other instanceof PersistentTrieIntIntMap) {
+      PersistentTrieIntIntMap that = (PersistentTrieIntIntMap) other;
+
+      if (this.cachedSize != that.cachedSize) {
+        return false;
+      }
+
+      if (this.cachedHashCode != that.cachedHashCode) {
+        return false;
+      }
+
+      return rootNode.equals(that.rootNode);
+    } else if (other instanceof IntIntMap) {
+      return equals(this, (IntIntMap) other);
+    }
+
+    return false;
+  }
+
+  static boolean equals(final IntIntMap one, final IntIntMap two) {
+    if (one.size() != two.size()) {
+      return false;
+    }
+
+    for (PrimitiveIterator.OfInt it = two.keyIterator(); it.hasNext(); ) {
+      final int key = it.nextInt();
+
+      if (!one.containsKey(key) || one.get(key, 0) != two.get(key, 0)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return cachedHashCode;
+  }
+
+  @Override
+  public String toString() {
+    return toString(this);
+  }
+
+  static String toString(final IntIntMap map) {
+    final StringBuilder bldr = new StringBuilder("{");
+
+    map.forEach((key, val) -> {
+      if (bldr.length() > 1) {
+        bldr.append(", ");
+      }
+      bldr.append(key).append('=').append(val);
+    });
+
+    return bldr.append('}').toString();
+  }
+
+  @Override
+  public boolean isTransientSupported() {
+    return true;
+  }
+
+  @Override
+  public IntIntMap.Transient asTransient() {
+    return new TransientTrieIntIntMap(this);
+  }
+
+  protected static final class IntIntMapNode implements java.io.Serializable {
+
+    private static final long serialVersionUID = 42L;
+
+    static final int TUPLE_LENGTH = 2;
+
+    static final int BIT_PARTITION_SIZE = 5;
+    static final int BIT_PARTITION_MASK = 0b11111;
+
+    static final int[] EMPTY_PAYLOAD = new int[0];
+    static final IntIntMapNode[] EMPTY_NODES = new IntIntMapNode[0];
+
+    private transient final AtomicReference<Thread> mutator;
+
+    private final int nodeMap;
+    private final int dataMap;
+
+    /*
+     * payload (alternating keys and values) and sub-nodes are both ordered by their mask; values
+     * and sub-nodes may be edited in-place by the owning mutator
+     */
+    private final int[] payload;
+    private final IntIntMapNode[] nodes;
+
+    IntIntMapNode(final AtomicReference<Thread> mutator, final int nodeMap, final int dataMap,
+        final int[] payload, final IntIntMapNode[] nodes) {
+      this.mutator = mutator;
+      this.nodeMap = nodeMap;
+      this.dataMap = dataMap;
+      this.payload = payload;
+      this.nodes = nodes;
+
+      assert TUPLE_LENGTH * Integer.bitCount(dataMap) == payload.length;
+      assert Integer.bitCount(nodeMap) == nodes.length;
+      assert (nodeMap & dataMap) == 0;
+    }
+
+    static final int mask(final int keyHash, final int shift) {
+      return (keyHash >>> shift) & BIT_PARTITION_MASK;
+    }
+
+    static final int bitpos(final int mask) {
+      return 1 << mask;
+    }
+
+    static final int index(final int bitmap, final int bitpos) {
+      return Integer.bitCount(bitmap & (bitpos - 1));
+    }
+
+    static final boolean isAllowedToEdit(AtomicReference<?> x, AtomicReference<?> y) {
+      return x != null && y != null && (x == y || x.get() == y.get());
+    }
+
+    boolean hasPayload() {
+      return payload.length != 0;
+    }
+
+    int payloadArity() {
+      return payload.length / TUPLE_LENGTH;
+    }
+
+    int getKey(final int index) {
+      return payload[TUPLE_LENGTH * index];
+    }
+
+    int getValue(final int index) {
+      return payload[TUPLE_LENGTH * index + 1];
+    }
+
+    boolean hasNodes() {
+      return nodes.length != 0;
+    }
+
+    int nodeArity() {
+      return nodes.length;
+    }
+
+    IntIntMapNode getNode(final int index) {
+      return nodes[index];
+    }
+
+    boolean containsKey(final int key, final int shift) {
+      IntIntMapNode node = this;
+
+      for (int currentShift = shift; ; currentShift += BIT_PARTITION_SIZE) {
+        final int bitpos = bitpos(mask(key, currentShift));
+
+        if ((node.dataMap & bitpos) != 0) {
+          return node.getKey(index(node.dataMap, bitpos)) == key;
+        }
+
+        if ((node.nodeMap & bitpos) == 0) {
+          return false;
+        }
+
+        node = node.nodes[index(node.nodeMap, bitpos)];
+      }
+    }
+
+    int get(final int key, final int shift, final int defaultValue) {
+      IntIntMapNode node = this;
+
+      for (int currentShift = shift; ; currentShift += BIT_PARTITION_SIZE) {
+        final int bitpos = bitpos(mask(key, currentShift));
+
+        if ((node.dataMap & bitpos) != 0) {
+          final int dataIndex = index(node.dataMap, bitpos);
+          return node.getKey(dataIndex) == key ? node.getValue(dataIndex) : defaultValue;
+        }
+
+        if ((node.nodeMap & bitpos) == 0) {
+          return defaultValue;
+        }
+
+        node = node.nodes[index(node.nodeMap, bitpos)];
+      }
+    }
+
+    void forEach(final IntIntConsumer action) {
+      for (int i = 0; i < payload.length; i += TUPLE_LENGTH) {
+        action.accept(payload[i], payload[i + 1]);
+      }
+
+      for (IntIntMapNode node : nodes) {
+        node.forEach(action);
+      }
+    }
+
+    IntIntMapNode updated(final AtomicReference<Thread> mutator, final int key, final int val,
+        final int shift, final MapNodeResult<Integer, Integer> details) {
+      final int bitpos = bitpos(mask(key, shift));
+
+      if ((dataMap & bitpos) != 0) { // inplace value
+        final int dataIndex = index(dataMap, bitpos);
+        final int currentKey = getKey(dataIndex);
+
+        if (currentKey == key) {
+          final int currentVal = getValue(dataIndex);
+
+          if (currentVal == val) {
+            return this;
+          }
+
+          // update mapping
+          details.modified();
+          details.updateDeltaHashCode((key ^ val) - (key ^ currentVal));
+          return copyAndSetValue(mutator, dataIndex, val);
+        }
+
+        final IntIntMapNode subNodeNew = mergeTwoKeyValPairs(mutator, currentKey,
+            getValue(dataIndex), key, val, shift + BIT_PARTITION_SIZE);
+
+        details.modified();
+        details.updateDeltaSize(1);
+        details.updateDeltaHashCode(key ^ val);
+        return copyAndMigrateFromInlineToNode(mutator, bitpos, subNodeNew);
+      } else if ((nodeMap & bitpos) != 0) { // node (not value)
+        final int nodeIndex = index(nodeMap, bitpos);
+        final IntIntMapNode subNode = nodes[nodeIndex];
+        final IntIntMapNode subNodeNew =
+            subNode.updated(mutator, key, val, shift + BIT_PARTITION_SIZE, details);
+
+        if (details.isModified() && subNodeNew != subNode) {
+          return copyAndSetNode(mutator, nodeIndex, subNodeNew);
+        }
+
+        return this;
+      } else {
+        // no value
+        details.modified();
+        details.updateDeltaSize(1);
+        details.updateDeltaHashCode(key ^ val);
+        return copyAndInsertValue(mutator, bitpos, key, val);
+      }
+    }
+
+    IntIntMapNode removed(final AtomicReference<Thread> mutator, final int key, final int shift,
+        final MapNodeResult<Integer, Integer> details) {
+      final int bitpos = bitpos(mask(key, shift));
+
+      if ((dataMap & bitpos) != 0) { // inplace value
+        final int dataIndex = index(dataMap, bitpos);
+
+        if (getKey(dataIndex) != key) {
+          return this;
+        }
+
+        details.modified();
+        details.updateDeltaSize(-1);
+        details.updateDeltaHashCode(-(key ^ getValue(dataIndex)));
+
+        if (payloadArity() == 2 && nodes.length == 0) {
+          /*
+           * Create new node with remaining pair. The new node will a) either become the new root
+           * returned, or b) unwrapped and inlined during returning.
+           */
+          final int remainingIndex = 1 - dataIndex;
+          final int remainingKey = getKey(remainingIndex);
+          final int newDataMap =
+              (shift == 0) ? (dataMap ^ bitpos) : bitpos(mask(remainingKey, 0));
+
+          return new IntIntMapNode(mutator, 0, newDataMap,
+              new int[]{remainingKey, getValue(remainingIndex)}, EMPTY_NODES);
+        }
+
+        return copyAndRemoveValue(mutator, bitpos, dataIndex);
+      } else if ((nodeMap & bitpos) != 0) { // node (not value)
+        final int nodeIndex = index(nodeMap, bitpos);
+        final IntIntMapNode subNode = nodes[nodeIndex];
+        final IntIntMapNode subNodeNew =
+            subNode.removed(mutator, key, shift + BIT_PARTITION_SIZE, details);
+
+        if (!details.isModified()) {
+          return this;
+        }
+
+        if (subNodeNew.nodes.length == 0 && subNodeNew.payloadArity() == 1) {
+          if (payload.length == 0 && nodes.length == 1) {
+            // escalate singleton result (the collapsed node is the only content)
+            return subNodeNew;
+          } else {
+            // inline value
+            return copyAndMigrateFromNodeToInline(mutator, bitpos, nodeIndex,
+                subNodeNew.getKey(0), subNodeNew.getValue(0));
+          }
+        }
+
+        if (subNodeNew != subNode) {
+          return copyAndSetNode(mutator, nodeIndex, subNodeNew);
+        }
+
+        return this;
+      }
+
+      return this;
+    }
+
+    static IntIntMapNode mergeTwoKeyValPairs(final AtomicReference<Thread> mutator,
+        final int key0, final int val0, final int key1, final int val1, final int shift) {
+      assert key0 != key1;
+
+      final int mask0 = mask(key0, shift);
+      final int mask1 = mask(key1, shift);
+
+      if (mask0 != mask1) {
+        // both nodes fit on same level
+        final int dataMap = bitpos(mask0) | bitpos(mask1);
+
+        if (mask0 < mask1) {
+          return new IntIntMapNode(mutator, 0, dataMap, new int[]{key0, val0, key1, val1},
+              EMPTY_NODES);
+        } else {
+          return new IntIntMapNode(mutator, 0, dataMap, new int[]{key1, val1, key0, val0},
+              EMPTY_NODES);
+        }
+      } else {
+        final IntIntMapNode node =
+            mergeTwoKeyValPairs(mutator, key0, val0, key1, val1, shift + BIT_PARTITION_SIZE);
+        return new IntIntMapNode(mutator, bitpos(mask0), 0, EMPTY_PAYLOAD,
+            new IntIntMapNode[]{node});
+      }
+    }
+
+    IntIntMapNode copyAndSetValue(final AtomicReference<Thread> mutator, final int dataIndex,
+        final int val) {
+      final int idx = TUPLE_LENGTH * dataIndex + 1;
+
+      if (isAllowedToEdit(this.mutator, mutator)) {
+        // no copying if already editable
+        payload[idx] = val;
+        return this;
+      } else {
+        final int[] dst = payload.clone();
+        dst[idx] = val;
+
+        return new IntIntMapNode(mutator, nodeMap, dataMap, dst, nodes.clone());
+      }
+    }
+
+    IntIntMapNode copyAndSetNode(final AtomicReference<Thread> mutator, final int nodeIndex,
+        final IntIntMapNode node) {
+      if (isAllowedToEdit(this.mutator, mutator)) {
+        // no copying if already editable
+        nodes[nodeIndex] = node;
+        return this;
+      } else {
+        final IntIntMapNode[] dst = nodes.clone();
+        dst[nodeIndex] = node;
+
+        return new IntIntMapNode(mutator, nodeMap, dataMap, payload.clone(), dst);
+      }
+    }
+
+    IntIntMapNode copyAndInsertValue(final AtomicReference<Thread> mutator, final int bitpos,
+        final int key, final int val) {
+      final int idx = TUPLE_LENGTH * index(dataMap, bitpos);
+
+      final int[] dst = new int[payload.length + TUPLE_LENGTH];
+
+      // copy 'src' and insert 2 element(s) at position 'idx'
+      System.arraycopy(payload, 0, dst, 0, idx);
+      dst[idx + 0] = key;
+      dst[idx + 1] = val;
+      System.arraycopy(payload, idx, dst, idx + TUPLE_LENGTH, payload.length - idx);
+
+      return new IntIntMapNode(mutator, nodeMap, dataMap | bitpos, dst, nodes.clone());
+    }
+
+    IntIntMapNode copyAndRemoveValue(final AtomicReference<Thread> mutator, final int bitpos,
+        final int dataIndex) {
+      return new IntIntMapNode(mutator, nodeMap, dataMap ^ bitpos,
+          arraycopyAndRemovePair(payload, TUPLE_LENGTH * dataIndex), nodes.clone());
+    }
+
+    IntIntMapNode copyAndMigrateFromInlineToNode(final AtomicReference<Thread> mutator,
+        final int bitpos, final IntIntMapNode node) {
+      final int[] payloadNew =
+          arraycopyAndRemovePair(payload, TUPLE_LENGTH * index(dataMap, bitpos));
+      final IntIntMapNode[] nodesNew =
+          arraycopyAndInsertNode(nodes, index(nodeMap, bitpos), node);
+
+      return new IntIntMapNode(mutator, nodeMap | bitpos, dataMap ^ bitpos, payloadNew, nodesNew);
+    }
+
+    IntIntMapNode copyAndMigrateFromNodeToInline(final AtomicReference<Thread> mutator,
+        final int bitpos, final int nodeIndex, final int key, final int val) {
+      final int idx = TUPLE_LENGTH * index(dataMap, bitpos);
+
+      final int[] payloadNew = new int[payload.length + TUPLE_LENGTH];
+
+      // copy 'src' and insert 2 element(s) at position 'idx'
+      System.arraycopy(payload, 0, payloadNew, 0, idx);
+      payloadNew[idx + 0] = key;
+      payloadNew[idx + 1] = val;
+      System.arraycopy(payload, idx, payloadNew, idx + TUPLE_LENGTH, payload.length - idx);
+
+      final IntIntMapNode[] nodesNew = arraycopyAndRemoveNode(nodes, nodeIndex);
+
+      return new IntIntMapNode(mutator, nodeMap ^ bitpos, dataMap | bitpos, payloadNew, nodesNew);
+    }
+
+    private static int[] arraycopyAndRemovePair(final int[] src, final int idx) {
+      final int[] dst = new int[src.length - TUPLE_LENGTH];
+
+      // copy 'src' and remove 2 element(s) at position 'idx'
+      System.arraycopy(src, 0, dst, 0, idx);
+      System.arraycopy(src, idx + TUPLE_LENGTH, dst, idx, src.length - idx - TUPLE_LENGTH);
+
+      return dst;
+    }
+
+    private static IntIntMapNode[] arraycopyAndInsertNode(final IntIntMapNode[] src,
+        final int idx, final IntIntMapNode node) {
+      final IntIntMapNode[] dst = new IntIntMapNode[src.length + 1];
+
+      // copy 'src' and insert 1 element(s) at position 'idx'
+      System.arraycopy(src, 0, dst, 0, idx);
+      dst[idx] = node;
+      System.arraycopy(src, idx, dst, idx + 1, src.length - idx);
+
+      return dst;
+    }
+
+    private static IntIntMapNode[] arraycopyAndRemoveNode(final IntIntMapNode[] src,
+        final int idx) {
+      final IntIntMapNode[] dst = new IntIntMapNode[src.length - 1];
+
+      // copy 'src' and remove 1 element(s) at position 'idx'
+      System.arraycopy(src, 0, dst, 0, idx);
+      System.arraycopy(src, idx + 1, dst, idx, src.length - idx - 1);
+
+      return dst;
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = 0;
+      result = prime * result + nodeMap;
+      result = prime * result + dataMap;
+      result = prime * result + Arrays.hashCode(payload);
+      result = prime * result + Arrays.hashCode(nodes);
+      return result;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (null == other) {
+        return false;
+      }
+      if (this == other) {
+        return true;
+      }
+      if (getClass() != other.getClass()) {
+        return false;
+      }
+      IntIntMapNode that = (IntIntMapNode) other;
+
+      if (nodeMap != that.nodeMap) {
+        return false;
+      }
+      if (dataMap != that.dataMap) {
+        return false;
+      }
+      if (!Arrays.equals(payload, that.payload)) {
+        return false;
+      }
+      if (!Arrays.equals(nodes, that.nodes)) {
+        return false;
+      }
+
+      return true;
+    }
+
+  }
+
+  /**
+   * Iterator skeleton that uses a fixed stack in depth.
+   */
+  private static abstract class AbstractIntIntMapIterator {
+
+    private static final int MAX_DEPTH = 7;
+
+    protected int currentValueCursor;
+    protected int currentValueLength;
+    protected IntIntMapNode currentValueNode;
+
+    private int currentStackLevel = -1;
+    private final int[] nodeCursorsAndLengths = new int[MAX_DEPTH * 2];
+
+    private final IntIntMapNode[] nodes = new IntIntMapNode[MAX_DEPTH];
+
+    AbstractIntIntMapIterator(IntIntMapNode rootNode) {
+      if (rootNode.hasNodes()) {
+        currentStackLevel = 0;
+
+        nodes[0] = rootNode;
+        nodeCursorsAndLengths[0] = 0;
+        nodeCursorsAndLengths[1] = rootNode.nodeArity();
+      }
+
+      if (rootNode.hasPayload()) {
+        currentValueNode = rootNode;
+        currentValueCursor = 0;
+        currentValueLength = rootNode.payloadArity();
+      }
+    }
+
+    /*
+     * search for next node that contains values
+     */
+    private boolean searchNextValueNode() {
+      while (currentStackLevel >= 0) {
+        final int currentCursorIndex = currentStackLevel * 2;
+        final int currentLengthIndex = currentCursorIndex + 1;
+
+        final int nodeCursor = nodeCursorsAndLengths[currentCursorIndex];
+        final int nodeLength = nodeCursorsAndLengths[currentLengthIndex];
+
+        if (nodeCursor < nodeLength) {
+          final IntIntMapNode nextNode = nodes[currentStackLevel].getNode(nodeCursor);
+          nodeCursorsAndLengths[currentCursorIndex]++;
+
+          if (nextNode.hasNodes()) {
+            /*
+             * put node on next stack level for depth-first traversal
+             */
+            final int nextStackLevel = ++currentStackLevel;
+            final int nextCursorIndex = nextStackLevel * 2;
+            final int nextLengthIndex = nextCursorIndex + 1;
+
+            nodes[nextStackLevel] = nextNode;
+            nodeCursorsAndLengths[nextCursorIndex] = 0;
+            nodeCursorsAndLengths[nextLengthIndex] = nextNode.nodeArity();
+          }
+
+          if (nextNode.hasPayload()) {
+            /*
+             * found next node that contains values
+             */
+            currentValueNode = nextNode;
+            currentValueCursor = 0;
+            currentValueLength = nextNode.payloadArity();
+            return true;
+          }
+        } else {
+          currentStackLevel--;
+        }
+      }
+
+      return false;
+    }
+
+    public boolean hasNext() {
+      if (currentValueCursor < currentValueLength) {
+        return true;
+      } else {
+        return searchNextValueNode();
+      }
+    }
+
+  }
+
+  private static final class IntIntMapKeyIterator extends AbstractIntIntMapIterator
+      implements PrimitiveIterator.OfInt {
+
+    IntIntMapKeyIterator(IntIntMapNode rootNode) {
+      super(rootNode);
+    }
+
+    @Override
+    public int nextInt() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      } else {
+        return currentValueNode.getKey(currentValueCursor++);
+      }
+    }
+
+  }
+
+  private static final class IntIntMapValueIterator extends AbstractIntIntMapIterator
+      implements PrimitiveIterator.OfInt {
+
+    IntIntMapValueIterator(IntIntMapNode rootNode) {
+      super(rootNode);
+    }
+
+    @Override
+    public int nextInt() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      } else {
+        return currentValueNode.getValue(currentValueCursor++);
+      }
+    }
+
+  }
+
+  /**
+   * Spliterator over either the keys or the values of a trie that splits at node boundaries,
+   * analogous to {@link PersistentTrieMap.MapSpliterator}. Only a spliterator that covers a whole
+   * trie knows its exact size; split off parts report estimates.
+   */
+  private static class IntIntMapSpliterator implements Spliterator.OfInt {
+
+    private final Deque<IntIntMapNode> pendingNodes;
+    private final boolean isValueSpliterator;
+
+    private IntIntMapNode currentValueNode;
+    private int currentValueCursor;
+    private int currentValueLength;
+
+    private long estimatedSize;
+    private int characteristics;
+
+    IntIntMapSpliterator(final IntIntMapNode rootNode, final int size,
+        final boolean isValueSpliterator, final int characteristics) {
+      this(new ArrayDeque<>(), isValueSpliterator, size, characteristics | Spliterator.SIZED);
+      pendingNodes.push(rootNode);
+    }
+
+    private IntIntMapSpliterator(final Deque<IntIntMapNode> pendingNodes,
+        final boolean isValueSpliterator, final long estimatedSize, final int characteristics) {
+      this.pendingNodes = pendingNodes;
+      this.isValueSpliterator = isValueSpliterator;
+      this.estimatedSize = estimatedSize;
+      this.characteristics = characteristics;
+    }
+
+    private int next() {
+      final int index = currentValueCursor++;
+      return isValueSpliterator ? currentValueNode.getValue(index)
+          : currentValueNode.getKey(index);
+    }
+
+    /*
+     * pop the next pending node, push its sub-nodes and make its payload current
+     */
+    private boolean visitNextNode() {
+      final IntIntMapNode nextNode = pendingNodes.pop();
+
+      for (int i = nextNode.nodeArity() - 1; i >= 0; i--) {
+        pendingNodes.push(nextNode.getNode(i));
+      }
+
+      if (nextNode.hasPayload()) {
+        currentValueNode = nextNode;
+        currentValueCursor = 0;
+        currentValueLength = nextNode.payloadArity();
+        return true;
+      }
+
+      return false;
+    }
+
+    /*
+     * search for next node that contains payload, visiting sub-nodes depth-first
+     */
+    private boolean searchNextValueNode() {
+      while (!pendingNodes.isEmpty()) {
+        if (visitNextNode()) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean tryAdvance(final IntConsumer action) {
+      if (currentValueCursor < currentValueLength || searchNextValueNode()) {
+        if (estimatedSize > 0) {
+          estimatedSize--;
+        }
+
+        action.accept(next());
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(final IntConsumer action) {
+      do {
+        while (currentValueCursor < currentValueLength) {
+          action.accept(next());
+        }
+      } while (searchNextValueNode());
+
+      estimatedSize = 0;
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+      /*
+       * descend into a single remaining sub-node, until there is something to hand over
+       */
+      while (pendingNodes.size() == 1 && currentValueCursor == currentValueLength) {
+        visitNextNode();
+      }
+
+      if (pendingNodes.isEmpty()) {
+        return null;
+      }
+
+      final int splitNodeCount = (pendingNodes.size() + 1) / 2;
+      final Deque<IntIntMapNode> splitNodes = new ArrayDeque<>(splitNodeCount);
+
+      for (int i = 0; i < splitNodeCount; i++) {
+        splitNodes.addFirst(pendingNodes.pollLast());
+      }
+
+      final long splitEstimatedSize = estimatedSize >>> 1;
+
+      estimatedSize -= splitEstimatedSize;
+      characteristics &= ~Spliterator.SIZED;
+
+      return new IntIntMapSpliterator(splitNodes, isValueSpliterator, splitEstimatedSize,
+          characteristics);
+    }
+
+    @Override
+    public long estimateSize() {
+      return estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+      return characteristics;
+    }
+
+  }
+
+  static final class TransientTrieIntIntMap implements IntIntMap.Transient {
+
+    final private AtomicReference<Thread> mutator;
+    private IntIntMapNode rootNode;
+    private int cachedHashCode;
+    private int cachedSize;
+
+    /**
+     * Result object that is reused by single-element updates (which are confined to the mutator
+     * thread), such that in-place updates do not allocate.
+     */
+    final private MapNodeResult<Integer, Integer> updateDetails = MapNodeResult.unchanged();
+
+    TransientTrieIntIntMap(PersistentTrieIntIntMap trieMap) {
+      this.mutator = new AtomicReference<Thread>(Thread.currentThread());
+      this.rootNode = trieMap.rootNode;
+      this.cachedHashCode = trieMap.cachedHashCode;
+      this.cachedSize = trieMap.cachedSize;
+    }
+
+    @Override
+    public boolean containsKey(final int key) {
+      return rootNode.containsKey(key, 0);
+    }
+
+    @Override
+    public int get(final int key, final int defaultValue) {
+      return rootNode.get(key, 0, defaultValue);
+    }
+
+    @Override
+    public boolean __put(final int key, final int val) {
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      final MapNodeResult<Integer, Integer> details = updateDetails;
+      details.reset();
+
+      final IntIntMapNode newRootNode = rootNode.updated(mutator, key, val, 0, details);
+
+      if (details.isModified()) {
+        rootNode = newRootNode;
+        cachedHashCode += details.getDeltaHashCode();
+        cachedSize += details.getDeltaSize();
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean __remove(final int key) {
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      final MapNodeResult<Integer, Integer> details = updateDetails;
+      details.reset();
+
+      final IntIntMapNode newRootNode = rootNode.removed(mutator, key, 0, details);
+
+      if (details.isModified()) {
+        rootNode = newRootNode;
+        cachedHashCode += details.getDeltaHashCode();
+        cachedSize += details.getDeltaSize();
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return cachedSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return cachedSize == 0;
+    }
+
+    @Override
+    public void forEach(final IntIntConsumer action) {
+      rootNode.forEach(action);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt keyIterator() {
+      return new IntIntMapKeyIterator(rootNode);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt valueIterator() {
+      return new IntIntMapValueIterator(rootNode);
+    }
+
+    @Override
+    public IntStream keyStream() {
+      return StreamSupport.intStream(
+          new IntIntMapSpliterator(rootNode, cachedSize, false, Spliterator.DISTINCT), false);
+    }
+
+    @Override
+    public IntStream valueStream() {
+      return StreamSupport.intStream(new IntIntMapSpliterator(rootNode, cachedSize, true, 0),
+          false);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      }
+      if (other instanceof IntIntMap) {
+        return PersistentTrieIntIntMap.equals(this, (IntIntMap) other);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return cachedHashCode;
+    }
+
+    @Override
+    public String toString() {
+      return PersistentTrieIntIntMap.toString(this);
+    }
+
+    @Override
+    public IntIntMap.Immutable freeze() {
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      mutator.set(null);
+      return new PersistentTrieIntIntMap(rootNode, cachedHashCode, cachedSize);
+    }
+
+  }
+
+}
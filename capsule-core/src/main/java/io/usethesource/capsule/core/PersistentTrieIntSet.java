@@ -0,0 +1,847 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.core;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import io.usethesource.capsule.IntSet;
+import io.usethesource.capsule.core.trie.SetNodeResult;
+import io.usethesource.capsule.util.ArrayUtilsInt;
+
+/**
+ * CHAMP based set of primitive {@code int} values. Elements are stored unboxed in an {@code int[]}
+ * payload array per node, sub-nodes in a separate array. An element is its own hash code, hence
+ * there are no hash collisions and the trie has a maximal depth of seven levels.
+ */
+public class PersistentTrieIntSet implements IntSet.Immutable, java.io.Serializable {
+
+  private static final long serialVersionUID = 42L;
+
+  private static final IntSetNode EMPTY_NODE =
+      new IntSetNode(null, 0, 0, IntSetNode.EMPTY_KEYS, IntSetNode.EMPTY_NODES);
+
+  private static final PersistentTrieIntSet EMPTY_SET = new PersistentTrieIntSet(EMPTY_NODE, 0, 0);
+
+  private final IntSetNode rootNode;
+  private final int cachedHashCode;
+  private final int cachedSize;
+
+  PersistentTrieIntSet(IntSetNode rootNode, int cachedHashCode, int cachedSize) {
+    this.rootNode = rootNode;
+    this.cachedHashCode = cachedHashCode;
+    this.cachedSize = cachedSize;
+  }
+
+  public static final IntSet.Immutable of() {
+    return PersistentTrieIntSet.EMPTY_SET;
+  }
+
+  public static final IntSet.Immutable of(int... keys) {
+    return transientOf(keys).freeze();
+  }
+
+  public static final IntSet.Transient transientOf() {
+    return PersistentTrieIntSet.EMPTY_SET.asTransient();
+  }
+
+  public static final IntSet.Transient transientOf(int... keys) {
+    final IntSet.Transient result = PersistentTrieIntSet.EMPTY_SET.asTransient();
+
+    for (final int key : keys) {
+      result.__insert(key);
+    }
+
+    return result;
+  }
+
+  @Override
+  public boolean contains(final int key) {
+    return rootNode.contains(key, 0);
+  }
+
+  @Override
+  public IntSet.Immutable __insert(final int key) {
+    final SetNodeResult<Integer> details = SetNodeResult.unchanged();
+
+    final IntSetNode newRootNode = rootNode.updated(null, key, 0, details);
+
+    if (details.isModified()) {
+      return new PersistentTrieIntSet(newRootNode, cachedHashCode + key, cachedSize + 1);
+    }
+
+    return this;
+  }
+
+  @Override
+  public IntSet.Immutable __remove(final int key) {
+    final SetNodeResult<Integer> details = SetNodeResult.unchanged();
+
+    final IntSetNode newRootNode = rootNode.removed(null, key, 0, details);
+
+    if (details.isModified()) {
+      return new PersistentTrieIntSet(newRootNode, cachedHashCode - key, cachedSize - 1);
+    }
+
+    return this;
+  }
+
+  @Override
+  public int size() {
+    return cachedSize;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return cachedSize == 0;
+  }
+
+  @Override
+  public PrimitiveIterator.OfInt keyIterator() {
+    return new IntSetKeyIterator(rootNode);
+  }
+
+  @Override
+  public IntStream stream() {
+    return StreamSupport.intStream(new IntSetKeySpliterator(rootNode, cachedSize,
+        Spliterator.DISTINCT | Spliterator.IMMUTABLE), false);
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (other == this) {
+      return true;
+    }
+    if (other == null) {
+      return false;
+    }
+
+    if (other instanceof PersistentTrieIntSet) {
+      PersistentTrieIntSet that = (PersistentTrieIntSet) other;
+
+      if (this.cachedSize != that.cachedSize) {
+        return false;
+      }
+
+      if (this.cachedHashCode != that.cachedHashCode) {
+        return false;
+      }
+
+      return rootNode.equals(that.rootNode);
+    } else if (other instanceof IntSet) {
+      return equals(this, (IntSet) other);
+    }
+
+    return false;
+  }
+
+  static boolean equals(final IntSet one, final IntSet two) {
+    if (one.size() != two.size()) {
+      return false;
+    }
+
+    for (PrimitiveIterator.OfInt it = two.keyIterator(); it.hasNext(); ) {
+      if (!one.contains(it.nextInt())) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return cachedHashCode;
+  }
+
+  @Override
+  public String toString() {
+    return toString(this);
+  }
+
+  static String toString(final IntSet set) {
+    return String.format("{%s}",
+        set.stream().mapToObj(Integer::toString).collect(Collectors.joining(", ")));
+  }
+
+  @Override
+  public boolean isTransientSupported() {
+    return true;
+  }
+
+  @Override
+  public IntSet.Transient asTransient() {
+    return new TransientTrieIntSet(this);
+  }
+
+  protected static final class IntSetNode implements java.io.Serializable {
+
+    private static final long serialVersionUID = 42L;
+
+    static final int BIT_PARTITION_SIZE = 5;
+    static final int BIT_PARTITION_MASK = 0b11111;
+
+    static final int[] EMPTY_KEYS = new int[0];
+    static final IntSetNode[] EMPTY_NODES = new IntSetNode[0];
+
+    private transient final AtomicReference<Thread> mutator;
+
+    private final int nodeMap;
+    private final int dataMap;
+
+    /*
+     * payload and sub-nodes are both ordered by their mask; the {@code nodes} array may be edited
+     * in-place by the owning mutator, the {@code keys} array is never edited in-place
+     */
+    private final int[] keys;
+    private final IntSetNode[] nodes;
+
+    IntSetNode(final AtomicReference<Thread> mutator, final int nodeMap, final int dataMap,
+        final int[] keys, final IntSetNode[] nodes) {
+      this.mutator = mutator;
+      this.nodeMap = nodeMap;
+      this.dataMap = dataMap;
+      this.keys = keys;
+      this.nodes = nodes;
+
+      assert Integer.bitCount(dataMap) == keys.length;
+      assert Integer.bitCount(nodeMap) == nodes.length;
+      assert (nodeMap & dataMap) == 0;
+    }
+
+    static final int mask(final int keyHash, final int shift) {
+      return (keyHash >>> shift) & BIT_PARTITION_MASK;
+    }
+
+    static final int bitpos(final int mask) {
+      return 1 << mask;
+    }
+
+    static final int index(final int bitmap, final int bitpos) {
+      return Integer.bitCount(bitmap & (bitpos - 1));
+    }
+
+    static final boolean isAllowedToEdit(AtomicReference<?> x, AtomicReference<?> y) {
+      return x != null && y != null && (x == y || x.get() == y.get());
+    }
+
+    boolean hasPayload() {
+      return keys.length != 0;
+    }
+
+    int payloadArity() {
+      return keys.length;
+    }
+
+    int getKey(final int index) {
+      return keys[index];
+    }
+
+    boolean hasNodes() {
+      return nodes.length != 0;
+    }
+
+    int nodeArity() {
+      return nodes.length;
+    }
+
+    IntSetNode getNode(final int index) {
+      return nodes[index];
+    }
+
+    boolean contains(final int key, final int shift) {
+      IntSetNode node = this;
+
+      for (int currentShift = shift; ; currentShift += BIT_PARTITION_SIZE) {
+        final int bitpos = bitpos(mask(key, currentShift));
+
+        if ((node.dataMap & bitpos) != 0) {
+          return node.keys[index(node.dataMap, bitpos)] == key;
+        }
+
+        if ((node.nodeMap & bitpos) == 0) {
+          return false;
+        }
+
+        node = node.nodes[index(node.nodeMap, bitpos)];
+      }
+    }
+
+    IntSetNode updated(final AtomicReference<Thread> mutator, final int key, final int shift,
+        final SetNodeResult<Integer> details) {
+      final int bitpos = bitpos(mask(key, shift));
+
+      if ((dataMap & bitpos) != 0) { // inplace value
+        final int currentKey = keys[index(dataMap, bitpos)];
+
+        if (currentKey == key) {
+          return this;
+        }
+
+        final IntSetNode subNodeNew =
+            mergeTwoKeys(mutator, currentKey, key, shift + BIT_PARTITION_SIZE);
+
+        details.modified();
+        return copyAndMigrateFromInlineToNode(mutator, bitpos, subNodeNew);
+      } else if ((nodeMap & bitpos) != 0) { // node (not value)
+        final int nodeIndex = index(nodeMap, bitpos);
+        final IntSetNode subNode = nodes[nodeIndex];
+        final IntSetNode subNodeNew =
+            subNode.updated(mutator, key, shift + BIT_PARTITION_SIZE, details);
+
+        if (details.isModified() && subNodeNew != subNode) {
+          return copyAndSetNode(mutator, nodeIndex, subNodeNew);
+        }
+
+        return this;
+      } else {
+        // no value
+        details.modified();
+        return copyAndInsertValue(mutator, bitpos, key);
+      }
+    }
+
+    IntSetNode removed(final AtomicReference<Thread> mutator, final int key, final int shift,
+        final SetNodeResult<Integer> details) {
+      final int bitpos = bitpos(mask(key, shift));
+
+      if ((dataMap & bitpos) != 0) { // inplace value
+        final int dataIndex = index(dataMap, bitpos);
+
+        if (keys[dataIndex] != key) {
+          return this;
+        }
+
+        details.modified();
+
+        if (keys.length == 2 && nodes.length == 0) {
+          /*
+           * Create new node with remaining key. The new node will a) either become the new root
+           * returned, or b) unwrapped and inlined during returning.
+           */
+          final int remainingKey = keys[1 - dataIndex];
+          final int newDataMap =
+              (shift == 0) ? (dataMap ^ bitpos) : bitpos(mask(remainingKey, 0));
+
+          return new IntSetNode(mutator, 0, newDataMap, new int[]{remainingKey}, EMPTY_NODES);
+        }
+
+        return copyAndRemoveValue(mutator, bitpos, dataIndex);
+      } else if ((nodeMap & bitpos) != 0) { // node (not value)
+        final int nodeIndex = index(nodeMap, bitpos);
+        final IntSetNode subNode = nodes[nodeIndex];
+        final IntSetNode subNodeNew =
+            subNode.removed(mutator, key, shift + BIT_PARTITION_SIZE, details);
+
+        if (!details.isModified()) {
+          return this;
+        }
+
+        if (subNodeNew.nodes.length == 0 && subNodeNew.keys.length == 1) {
+          if (keys.length == 0 && nodes.length == 1) {
+            // escalate singleton result (the collapsed node is the only content)
+            return subNodeNew;
+          } else {
+            // inline value
+            return copyAndMigrateFromNodeToInline(mutator, bitpos, nodeIndex, subNodeNew.keys[0]);
+          }
+        }
+
+        if (subNodeNew != subNode) {
+          return copyAndSetNode(mutator, nodeIndex, subNodeNew);
+        }
+
+        return this;
+      }
+
+      return this;
+    }
+
+    static IntSetNode mergeTwoKeys(final AtomicReference<Thread> mutator, final int key0,
+        final int key1, final int shift) {
+      assert key0 != key1;
+
+      final int mask0 = mask(key0, shift);
+      final int mask1 = mask(key1, shift);
+
+      if (mask0 != mask1) {
+        // both nodes fit on same level
+        final int dataMap = bitpos(mask0) | bitpos(mask1);
+
+        if (mask0 < mask1) {
+          return new IntSetNode(mutator, 0, dataMap, new int[]{key0, key1}, EMPTY_NODES);
+        } else {
+          return new IntSetNode(mutator, 0, dataMap, new int[]{key1, key0}, EMPTY_NODES);
+        }
+      } else {
+        final IntSetNode node = mergeTwoKeys(mutator, key0, key1, shift + BIT_PARTITION_SIZE);
+        return new IntSetNode(mutator, bitpos(mask0), 0, EMPTY_KEYS, new IntSetNode[]{node});
+      }
+    }
+
+    IntSetNode copyAndSetNode(final AtomicReference<Thread> mutator, final int nodeIndex,
+        final IntSetNode node) {
+      if (isAllowedToEdit(this.mutator, mutator)) {
+        // no copying if already editable
+        nodes[nodeIndex] = node;
+        return this;
+      } else {
+        final IntSetNode[] dst = nodes.clone();
+        dst[nodeIndex] = node;
+
+        return new IntSetNode(mutator, nodeMap, dataMap, keys, dst);
+      }
+    }
+
+    IntSetNode copyAndInsertValue(final AtomicReference<Thread> mutator, final int bitpos,
+        final int key) {
+      final int[] dst = ArrayUtilsInt.arraycopyAndInsertInt(keys, index(dataMap, bitpos), key);
+      return new IntSetNode(mutator, nodeMap, dataMap | bitpos, dst, nodes.clone());
+    }
+
+    IntSetNode copyAndRemoveValue(final AtomicReference<Thread> mutator, final int bitpos,
+        final int dataIndex) {
+      final int[] dst = ArrayUtilsInt.arraycopyAndRemoveInt(keys, dataIndex);
+      return new IntSetNode(mutator, nodeMap, dataMap ^ bitpos, dst, nodes.clone());
+    }
+
+    IntSetNode copyAndMigrateFromInlineToNode(final AtomicReference<Thread> mutator,
+        final int bitpos, final IntSetNode node) {
+      final int[] keysNew = ArrayUtilsInt.arraycopyAndRemoveInt(keys, index(dataMap, bitpos));
+      final IntSetNode[] nodesNew = arraycopyAndInsertNode(nodes, index(nodeMap, bitpos), node);
+
+      return new IntSetNode(mutator, nodeMap | bitpos, dataMap ^ bitpos, keysNew, nodesNew);
+    }
+
+    IntSetNode copyAndMigrateFromNodeToInline(final AtomicReference<Thread> mutator,
+        final int bitpos, final int nodeIndex, final int key) {
+      final int[] keysNew =
+          ArrayUtilsInt.arraycopyAndInsertInt(keys, index(dataMap, bitpos), key);
+      final IntSetNode[] nodesNew = arraycopyAndRemoveNode(nodes, nodeIndex);
+
+      return new IntSetNode(mutator, nodeMap ^ bitpos, dataMap | bitpos, keysNew, nodesNew);
+    }
+
+    private static IntSetNode[] arraycopyAndInsertNode(final IntSetNode[] src, final int idx,
+        final IntSetNode node) {
+      final IntSetNode[] dst = new IntSetNode[src.length + 1];
+
+      // copy 'src' and insert 1 element(s) at position 'idx'
+      System.arraycopy(src, 0, dst, 0, idx);
+      dst[idx] = node;
+      System.arraycopy(src, idx, dst, idx + 1, src.length - idx);
+
+      return dst;
+    }
+
+    private static IntSetNode[] arraycopyAndRemoveNode(final IntSetNode[] src, final int idx) {
+      final IntSetNode[] dst = new IntSetNode[src.length - 1];
+
+      // copy 'src' and remove 1 element(s) at position 'idx'
+      System.arraycopy(src, 0, dst, 0, idx);
+      System.arraycopy(src, idx + 1, dst, idx, src.length - idx - 1);
+
+      return dst;
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = 0;
+      result = prime * result + nodeMap;
+      result = prime * result + dataMap;
+      result = prime * result + Arrays.hashCode(keys);
+      result = prime * result + Arrays.hashCode(nodes);
+      return result;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (null == other) {
+        return false;
+      }
+      if (this == other) {
+        return true;
+      }
+      if (getClass() != other.getClass()) {
+        return false;
+      }
+      IntSetNode that = (IntSetNode) other;
+
+      if (nodeMap != that.nodeMap) {
+        return false;
+      }
+      if (dataMap != that.dataMap) {
+        return false;
+      }
+      if (!Arrays.equals(keys, that.keys)) {
+        return false;
+      }
+      if (!Arrays.equals(nodes, that.nodes)) {
+        return false;
+      }
+
+      return true;
+    }
+
+  }
+
+  /**
+   * Iterator skeleton that uses a fixed stack in depth.
+   */
+  private static class IntSetKeyIterator implements PrimitiveIterator.OfInt {
+
+    private static final int MAX_DEPTH = 7;
+
+    private int currentValueCursor;
+    private int currentValueLength;
+    private IntSetNode currentValueNode;
+
+    private int currentStackLevel = -1;
+    private final int[] nodeCursorsAndLengths = new int[MAX_DEPTH * 2];
+
+    private final IntSetNode[] nodes = new IntSetNode[MAX_DEPTH];
+
+    IntSetKeyIterator(IntSetNode rootNode) {
+      if (rootNode.hasNodes()) {
+        currentStackLevel = 0;
+
+        nodes[0] = rootNode;
+        nodeCursorsAndLengths[0] = 0;
+        nodeCursorsAndLengths[1] = rootNode.nodeArity();
+      }
+
+      if (rootNode.hasPayload()) {
+        currentValueNode = rootNode;
+        currentValueCursor = 0;
+        currentValueLength = rootNode.payloadArity();
+      }
+    }
+
+    /*
+     * search for next node that contains values
+     */
+    private boolean searchNextValueNode() {
+      while (currentStackLevel >= 0) {
+        final int currentCursorIndex = currentStackLevel * 2;
+        final int currentLengthIndex = currentCursorIndex + 1;
+
+        final int nodeCursor = nodeCursorsAndLengths[currentCursorIndex];
+        final int nodeLength = nodeCursorsAndLengths[currentLengthIndex];
+
+        if (nodeCursor < nodeLength) {
+          final IntSetNode nextNode = nodes[currentStackLevel].getNode(nodeCursor);
+          nodeCursorsAndLengths[currentCursorIndex]++;
+
+          if (nextNode.hasNodes()) {
+            /*
+             * put node on next stack level for depth-first traversal
+             */
+            final int nextStackLevel = ++currentStackLevel;
+            final int nextCursorIndex = nextStackLevel * 2;
+            final int nextLengthIndex = nextCursorIndex + 1;
+
+            nodes[nextStackLevel] = nextNode;
+            nodeCursorsAndLengths[nextCursorIndex] = 0;
+            nodeCursorsAndLengths[nextLengthIndex] = nextNode.nodeArity();
+          }
+
+          if (nextNode.hasPayload()) {
+            /*
+             * found next node that contains values
+             */
+            currentValueNode = nextNode;
+            currentValueCursor = 0;
+            currentValueLength = nextNode.payloadArity();
+            return true;
+          }
+        } else {
+          currentStackLevel--;
+        }
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (currentValueCursor < currentValueLength) {
+        return true;
+      } else {
+        return searchNextValueNode();
+      }
+    }
+
+    @Override
+    public int nextInt() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      } else {
+        return currentValueNode.getKey(currentValueCursor++);
+      }
+    }
+
+  }
+
+  /**
+   * Spliterator that splits at node boundaries, analogous to
+   * {@link PersistentTrieSet.SetKeySpliterator}. Only a spliterator that covers a whole trie knows
+   * its exact size; split off parts report estimates.
+   */
+  private static class IntSetKeySpliterator implements Spliterator.OfInt {
+
+    private final Deque<IntSetNode> pendingNodes;
+
+    private IntSetNode currentValueNode;
+    private int currentValueCursor;
+    private int currentValueLength;
+
+    private long estimatedSize;
+    private int characteristics;
+
+    IntSetKeySpliterator(final IntSetNode rootNode, final int size, final int characteristics) {
+      this(new ArrayDeque<>(), size, characteristics | Spliterator.SIZED);
+      pendingNodes.push(rootNode);
+    }
+
+    private IntSetKeySpliterator(final Deque<IntSetNode> pendingNodes, final long estimatedSize,
+        final int characteristics) {
+      this.pendingNodes = pendingNodes;
+      this.estimatedSize = estimatedSize;
+      this.characteristics = characteristics;
+    }
+
+    /*
+     * pop the next pending node, push its sub-nodes and make its values current
+     */
+    private boolean visitNextNode() {
+      final IntSetNode nextNode = pendingNodes.pop();
+
+      for (int i = nextNode.nodeArity() - 1; i >= 0; i--) {
+        pendingNodes.push(nextNode.getNode(i));
+      }
+
+      if (nextNode.hasPayload()) {
+        currentValueNode = nextNode;
+        currentValueCursor = 0;
+        currentValueLength = nextNode.payloadArity();
+        return true;
+      }
+
+      return false;
+    }
+
+    /*
+     * search for next node that contains values, visiting sub-nodes depth-first
+     */
+    private boolean searchNextValueNode() {
+      while (!pendingNodes.isEmpty()) {
+        if (visitNextNode()) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean tryAdvance(final IntConsumer action) {
+      if (currentValueCursor < currentValueLength || searchNextValueNode()) {
+        if (estimatedSize > 0) {
+          estimatedSize--;
+        }
+
+        action.accept(currentValueNode.getKey(currentValueCursor++));
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(final IntConsumer action) {
+      do {
+        while (currentValueCursor < currentValueLength) {
+          action.accept(currentValueNode.getKey(currentValueCursor++));
+        }
+      } while (searchNextValueNode());
+
+      estimatedSize = 0;
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+      /*
+       * descend into a single remaining sub-node, until there is something to hand over
+       */
+      while (pendingNodes.size() == 1 && currentValueCursor == currentValueLength) {
+        visitNextNode();
+      }
+
+      if (pendingNodes.isEmpty()) {
+        return null;
+      }
+
+      final int splitNodeCount = (pendingNodes.size() + 1) / 2;
+      final Deque<IntSetNode> splitNodes = new ArrayDeque<>(splitNodeCount);
+
+      for (int i = 0; i < splitNodeCount; i++) {
+        splitNodes.addFirst(pendingNodes.pollLast());
+      }
+
+      final long splitEstimatedSize = estimatedSize >>> 1;
+
+      estimatedSize -= splitEstimatedSize;
+      characteristics &= ~Spliterator.SIZED;
+
+      return new IntSetKeySpliterator(splitNodes, splitEstimatedSize, characteristics);
+    }
+
+    @Override
+    public long estimateSize() {
+      return estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+      return characteristics;
+    }
+
+  }
+
+  static final class TransientTrieIntSet implements IntSet.Transient {
+
+    final private AtomicReference<Thread> mutator;
+    private IntSetNode rootNode;
+    private int cachedHashCode;
+    private int cachedSize;
+
+    /**
+     * Result object that is reused by single-element updates (which are confined to the mutator
+     * thread), such that in-place updates do not allocate.
+     */
+    final private SetNodeResult<Integer> updateDetails = SetNodeResult.unchanged();
+
+    TransientTrieIntSet(PersistentTrieIntSet trieSet) {
+      this.mutator = new AtomicReference<Thread>(Thread.currentThread());
+      this.rootNode = trieSet.rootNode;
+      this.cachedHashCode = trieSet.cachedHashCode;
+      this.cachedSize = trieSet.cachedSize;
+    }
+
+    @Override
+    public boolean contains(final int key) {
+      return rootNode.contains(key, 0);
+    }
+
+    @Override
+    public boolean __insert(final int key) {
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      final SetNodeResult<Integer> details = updateDetails;
+      details.reset();
+
+      final IntSetNode newRootNode = rootNode.updated(mutator, key, 0, details);
+
+      if (details.isModified()) {
+        rootNode = newRootNode;
+        cachedHashCode += key;
+        cachedSize += 1;
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean __remove(final int key) {
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      final SetNodeResult<Integer> details = updateDetails;
+      details.reset();
+
+      final IntSetNode newRootNode = rootNode.removed(mutator, key, 0, details);
+
+      if (details.isModified()) {
+        rootNode = newRootNode;
+        cachedHashCode -= key;
+        cachedSize -= 1;
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return cachedSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return cachedSize == 0;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt keyIterator() {
+      return new IntSetKeyIterator(rootNode);
+    }
+
+    @Override
+    public IntStream stream() {
+      return StreamSupport.intStream(
+          new IntSetKeySpliterator(rootNode, cachedSize, Spliterator.DISTINCT), false);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (other == this) {
+        return true;
+      }
+      if (other instanceof IntSet) {
+        return PersistentTrieIntSet.equals(this, (IntSet) other);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return cachedHashCode;
+    }
+
+    @Override
+    public String toString() {
+      return PersistentTrieIntSet.toString(this);
+    }
+
+    @Override
+    public IntSet.Immutable freeze() {
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      mutator.set(null);
+      return new PersistentTrieIntSet(rootNode, cachedHashCode, cachedSize);
+    }
+
+  }
+
+}
@@ -11,24 +11,31 @@ import java.text.DecimalFormat;
 import java.util.AbstractCollection;
 import java.util.AbstractSet;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import io.usethesource.capsule.core.trie.ArrayView;
 import io.usethesource.capsule.core.trie.MapNode;
 import io.usethesource.capsule.core.trie.MapNodeResult;
 import io.usethesource.capsule.util.EqualityComparator;
+import io.usethesource.capsule.util.ForkJoinUtils;
+import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
 
 import static io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap.entryOf;
 
@@ -38,10 +45,16 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
   private static final long serialVersionUID = 42L;
 
   private static final CompactMapNode EMPTY_NODE = new BitmapIndexedMapNode<>(null, (0), (0),
-      new Object[]{});
+      new Object[]{}, null);
+
+  private static final CompactMapNode EMPTY_MEMOIZED_NODE = new BitmapIndexedMapNode<>(null, (0),
+      (0), new Object[]{}, CompactMapNode.EMPTY_KEY_HASHES);
 
   private static final PersistentTrieMap EMPTY_MAP = new PersistentTrieMap(EMPTY_NODE, 0, 0);
 
+  private static final PersistentTrieMap EMPTY_MEMOIZED_MAP =
+      new PersistentTrieMap(EMPTY_MEMOIZED_NODE, 0, 0);
+
   private static final boolean DEBUG = false;
 
   private final AbstractMapNode<K, V> rootNode;
@@ -83,6 +96,25 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
     return PersistentTrieMap.EMPTY_MAP.asTransient();
   }
 
+  /**
+   * Returns an empty map whose nodes store the hash code of each key next to its mapping. Maps
+   * derived from it by insertion keep this layout, such that splitting slots, handling collisions
+   * and comparing nodes never invoke {@link Object#hashCode()} on contained keys again. Trades four
+   * bytes per mapping for fewer hash code computations, which pays off for keys with expensive
+   * {@link Object#hashCode()} implementations.
+   */
+  public static final <K, V> io.usethesource.capsule.Map.Immutable<K, V> ofMemoizedKeyHashes() {
+    return PersistentTrieMap.EMPTY_MEMOIZED_MAP;
+  }
+
+  /**
+   * Transient variant of {@link #ofMemoizedKeyHashes()}.
+   */
+  public static final <K, V> io.usethesource.capsule.Map.Transient<K, V>
+      transientOfMemoizedKeyHashes() {
+    return PersistentTrieMap.EMPTY_MEMOIZED_MAP.asTransient();
+  }
+
   public static final <K, V> io.usethesource.capsule.Map.Transient<K, V> transientOf(
       Object... keyValuePairs) {
     if (keyValuePairs.length % 2 != 0) {
@@ -102,6 +134,83 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
     return result;
   }
 
+  /**
+   * Builds a map of the mappings in {@code map} in parallel on {@code pool}. The mappings are
+   * partitioned by the hash bits of their keys that index the root node, each partition is built
+   * into a sub-trie by a separate task, and the disjoint sub-tries are finally assembled under a
+   * common root node.
+   */
+  public static final <K, V> io.usethesource.capsule.Map.Immutable<K, V> parallelOf(
+      final ForkJoinPool pool, final Map<? extends K, ? extends V> map) {
+    final int partitionCount = 1 << CompactMapNode.BIT_PARTITION_SIZE;
+
+    final List<List<Map.Entry<? extends K, ? extends V>>> partitions =
+        ForkJoinUtils.partition(pool, new ArrayList<>(map.entrySet()), partitionCount,
+            entry -> CompactMapNode.mask(transformHashCode(entry.getKey().hashCode()), 0));
+
+    final List<PersistentTrieMap<K, V>> subTries =
+        new ArrayList<>(Collections.nCopies(partitionCount, null));
+
+    ForkJoinUtils.invokeAll(pool, partitionCount, mask -> {
+      final io.usethesource.capsule.Map.Transient<K, V> tmp = PersistentTrieMap.transientOf();
+
+      for (Map.Entry<? extends K, ? extends V> entry : partitions.get(mask)) {
+        tmp.__put(entry.getKey(), entry.getValue());
+      }
+
+      subTries.set(mask, (PersistentTrieMap<K, V>) tmp.freeze());
+    });
+
+    int dataMap = 0;
+    int nodeMap = 0;
+    int cachedHashCode = 0;
+    int cachedSize = 0;
+
+    for (int mask = 0; mask < partitionCount; mask++) {
+      final PersistentTrieMap<K, V> subTrie = subTries.get(mask);
+
+      if (subTrie.cachedSize == 1) {
+        dataMap |= CompactMapNode.bitpos(mask);
+      } else if (subTrie.cachedSize > 1) {
+        nodeMap |= CompactMapNode.bitpos(mask);
+      }
+
+      cachedHashCode += subTrie.cachedHashCode;
+      cachedSize += subTrie.cachedSize;
+    }
+
+    if (cachedSize == 0) {
+      return PersistentTrieMap.EMPTY_MAP;
+    }
+
+    final int payloadArity = Integer.bitCount(dataMap);
+    final Object[] nodes =
+        new Object[AbstractMapNode.TUPLE_LENGTH * payloadArity + Integer.bitCount(nodeMap)];
+
+    int dataIndex = 0;
+    int nodeIndex = nodes.length - 1;
+
+    for (int mask = 0; mask < partitionCount; mask++) {
+      final PersistentTrieMap<K, V> subTrie = subTries.get(mask);
+
+      if (subTrie.cachedSize == 1) {
+        nodes[dataIndex++] = subTrie.rootNode.getKey(0);
+        nodes[dataIndex++] = subTrie.rootNode.getValue(0);
+      } else if (subTrie.cachedSize > 1) {
+        // all keys share the same root mask, i.e., the sub-trie's root has a single sub-node
+        nodes[nodeIndex--] = subTrie.rootNode.getNode(0);
+      }
+    }
+
+    return new PersistentTrieMap<K, V>(CompactMapNode.nodeOf(null, nodeMap, dataMap, nodes),
+        cachedHashCode, cachedSize);
+  }
+
+  public static final <K, V> io.usethesource.capsule.Map.Immutable<K, V> parallelOf(
+      final Map<? extends K, ? extends V> map) {
+    return parallelOf(ForkJoinPool.commonPool(), map);
+  }
+
   private boolean checkHashCodeAndSize(final int targetHash, final int targetSize) {
     int hash = 0;
     int size = 0;
@@ -124,7 +233,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
   @Override
   public boolean containsKey(final Object o) {
-    return containsKeyEquivalent(o, Object::equals);
+    return rootNode.containsKey(o, transformHashCode(o.hashCode()), 0);
   }
 
   @Override
@@ -154,7 +263,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
   @Override
   public V get(final Object o) {
-    return getEquivalent(o, Object::equals);
+    return rootNode.findByKeyOrNull(o, transformHashCode(o.hashCode()), 0);
   }
 
   @Override
@@ -219,6 +328,70 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
     return tmpTransient.freeze();
   }
 
+  @Override
+  public io.usethesource.capsule.Map.Immutable<K, V> merge(
+      final io.usethesource.capsule.Map.Immutable<K, V> other,
+      final BiFunction<V, V, V> resolver) {
+    if (!(other instanceof PersistentTrieMap)) {
+      return io.usethesource.capsule.Map.Immutable.super.merge(other, resolver);
+    }
+
+    final PersistentTrieMap<K, V> that = (PersistentTrieMap<K, V>) other;
+
+    /*
+     * Subtrees that only exist in the argument are shared, but have to be traversed for calculating
+     * size and hash code deltas. Hence the smaller map is merged into the bigger one, unless that
+     * would change the node layout of this map.
+     */
+    final PersistentTrieMap<K, V> bigger;
+    final PersistentTrieMap<K, V> smaller;
+    final BiFunction<V, V, V> biggerResolver;
+
+    final boolean isSameLayout = ((CompactMapNode<K, V>) this.rootNode)
+        .hasMemoizedKeyHashes() == ((CompactMapNode<K, V>) that.rootNode).hasMemoizedKeyHashes();
+
+    if (this.cachedSize >= that.cachedSize || !isSameLayout) {
+      bigger = this;
+      smaller = that;
+      biggerResolver = resolver;
+    } else {
+      bigger = that;
+      smaller = this;
+      biggerResolver = (thatVal, thisVal) -> resolver.apply(thisVal, thatVal);
+    }
+
+    final MapNodeResult<K, V> details = MapNodeResult.unchanged();
+
+    final AbstractMapNode<K, V> newRootNode =
+        bigger.rootNode.merge(null, smaller.rootNode, 0, details, biggerResolver, Object::equals);
+
+    if (details.isModified()) {
+      return new PersistentTrieMap<K, V>(newRootNode,
+          bigger.cachedHashCode + details.getDeltaHashCode(),
+          bigger.cachedSize + details.getDeltaSize());
+    }
+
+    return bigger;
+  }
+
+  @Override
+  public io.usethesource.capsule.Map.Diff<K, V> diff(
+      final io.usethesource.capsule.Map.Immutable<K, V> other) {
+    if (!(other instanceof PersistentTrieMap)) {
+      return io.usethesource.capsule.Map.Immutable.super.diff(other);
+    }
+
+    final PersistentTrieMap<K, V> that = (PersistentTrieMap<K, V>) other;
+
+    final io.usethesource.capsule.Map.Transient<K, V> added = transientOf();
+    final io.usethesource.capsule.Map.Transient<K, V> removed = transientOf();
+    final io.usethesource.capsule.Map.Transient<K, V> changed = transientOf();
+
+    rootNode.diff(that.rootNode, 0, added, removed, changed, Object::equals);
+
+    return io.usethesource.capsule.Map.Diff.of(added.freeze(), removed.freeze(), changed.freeze());
+  }
+
   @Override
   public io.usethesource.capsule.Map.Immutable<K, V> __remove(final K key) {
     return __removeEquivalent(key, Object::equals);
@@ -299,6 +472,13 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
           return PersistentTrieMap.this.keyIterator();
         }
 
+        @Override
+        public Spliterator<K> spliterator() {
+          return new MapSpliterator<>(rootNode, cachedSize,
+              Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL,
+              (key, val) -> key);
+        }
+
         @Override
         public int size() {
           return PersistentTrieMap.this.size();
@@ -335,6 +515,12 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
           return PersistentTrieMap.this.valueIterator();
         }
 
+        @Override
+        public Spliterator<V> spliterator() {
+          return new MapSpliterator<>(rootNode, cachedSize,
+              Spliterator.IMMUTABLE | Spliterator.NONNULL, (key, val) -> val);
+        }
+
         @Override
         public int size() {
           return PersistentTrieMap.this.size();
@@ -388,6 +574,13 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
           };
         }
 
+        @Override
+        public Spliterator<java.util.Map.Entry<K, V>> spliterator() {
+          return new MapSpliterator<>(rootNode, cachedSize,
+              Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL,
+              AbstractSpecialisedImmutableMap::entryOf);
+        }
+
         @Override
         public int size() {
           return PersistentTrieMap.this.size();
@@ -700,6 +893,8 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
     abstract V getValue(final int index);
 
+    abstract int getKeyHash(final int index);
+
     abstract Map.Entry<K, V> getKeyValueEntry(final int index);
 
     @Deprecated
@@ -730,6 +925,48 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
       return size;
     }
+
+    int recursivePayloadHashCode() {
+      int hashCode = 0;
+
+      for (int i = 0; i < payloadArity(); i++) {
+        hashCode += getKeyHash(i) ^ getValue(i).hashCode();
+      }
+
+      for (int i = 0; i < nodeArity(); i++) {
+        hashCode += getNode(i).recursivePayloadHashCode();
+      }
+
+      return hashCode;
+    }
+
+    /**
+     * Collects the differences between this node and {@code other}. Sub-nodes that are reference
+     * equal on both sides are skipped without being traversed.
+     *
+     * @param added collects mappings whose keys are only present in {@code other}
+     * @param removed collects mappings whose keys are only present in this node
+     * @param changed collects mappings (of {@code other}) whose keys are present in both nodes, but
+     *        are mapped to different values
+     */
+    abstract void diff(final AbstractMapNode<K, V> other, final int shift,
+        final io.usethesource.capsule.Map.Transient<K, V> added,
+        final io.usethesource.capsule.Map.Transient<K, V> removed,
+        final io.usethesource.capsule.Map.Transient<K, V> changed,
+        final EqualityComparator<Object> cmp);
+
+    void putAllRecursively(final io.usethesource.capsule.Map.Transient<K, V> target) {
+      final ArrayView<K> keys = dataArray(0, 0);
+      final ArrayView<V> vals = dataArray(0, 1);
+
+      for (int i = 0; i < keys.size(); i++) {
+        target.__put(keys.get(i), vals.get(i));
+      }
+
+      for (AbstractMapNode<K, V> node : nodeArray()) {
+        node.putAllRecursively(target);
+      }
+    }
   }
 
   protected static abstract class CompactMapNode<K, V> extends AbstractMapNode<K, V> {
@@ -739,6 +976,8 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
     static final int BIT_PARTITION_SIZE = 5;
     static final int BIT_PARTITION_MASK = 0b11111;
 
+    static final int[] EMPTY_KEY_HASHES = new int[0];
+
     static final int mask(final int keyHash, final int shift) {
       return (keyHash >>> shift) & BIT_PARTITION_MASK;
     }
@@ -751,6 +990,40 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
     abstract int dataMap();
 
+    /**
+     * @return {@code true} if this node stores the hash codes of its keys, in which case
+     *         {@link #getKeyHash(int)} does not invoke {@link Object#hashCode()}
+     */
+    boolean hasMemoizedKeyHashes() {
+      return false;
+    }
+
+    /**
+     * Cheap pre-check before comparing the key at {@code index} for equality.
+     *
+     * @return {@code false} only if the key at {@code index} has a memoized hash code that differs
+     *         from {@code keyHash}
+     */
+    boolean mayEqualKeyHash(final int index, final int keyHash) {
+      return true;
+    }
+
+    /**
+     * @return the memoized hash code of the key at {@code index} as singleton array, or
+     *         {@code null} if this node does not memoize key hashes
+     */
+    int[] memoizedKeyHashOf(final int index) {
+      return hasMemoizedKeyHashes() ? new int[]{getKeyHash(index)} : null;
+    }
+
+    /**
+     * Converts a sub-trie that is adopted from another trie into the layout of the adopting trie.
+     *
+     * @return this node if it already has the requested layout, otherwise a copy of the sub-trie
+     *         that does ({@code memoizeKeyHashes}) or does not store the hash codes of its keys
+     */
+    abstract CompactMapNode<K, V> withKeyHashLayout(final boolean memoizeKeyHashes);
+
     @Override
     abstract CompactMapNode<K, V> getNode(final int index);
 
@@ -771,7 +1044,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
         final int bitpos, final V val);
 
     abstract CompactMapNode<K, V> copyAndInsertValue(final AtomicReference<Thread> mutator,
-        final int bitpos, final K key, final V val);
+        final int bitpos, final K key, final V val, final int keyHash);
 
     abstract CompactMapNode<K, V> copyAndRemoveValue(final AtomicReference<Thread> mutator,
         final int bitpos);
@@ -786,14 +1059,15 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
         final AtomicReference<Thread> mutator, final int bitpos, final AbstractMapNode<K, V> node);
 
     static final <K, V> CompactMapNode<K, V> mergeTwoKeyValPairs(final K key0, final V val0,
-        final int keyHash0, final K key1, final V val1, final int keyHash1, final int shift) {
+        final int keyHash0, final K key1, final V val1, final int keyHash1, final int shift,
+        final boolean memoizeKeyHashes) {
       assert !(key0.equals(key1));
 
       if (shift >= HASH_CODE_LENGTH) {
         // throw new
         // IllegalStateException("Hash collision not yet fixed.");
         return new HashCollisionMapNode<>(keyHash0, (K[]) new Object[]{key0, key1},
-            (V[]) new Object[]{val0, val1});
+            (V[]) new Object[]{val0, val1}, memoizeKeyHashes);
       }
 
       final int mask0 = mask(keyHash0, shift);
@@ -804,23 +1078,31 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
         final int dataMap = bitpos(mask0) | bitpos(mask1);
 
         if (mask0 < mask1) {
-          return nodeOf(null, (0), dataMap, new Object[]{key0, val0, key1, val1});
+          return nodeOf(null, (0), dataMap, new Object[]{key0, val0, key1, val1},
+              memoizeKeyHashes ? new int[]{keyHash0, keyHash1} : null);
         } else {
-          return nodeOf(null, (0), dataMap, new Object[]{key1, val1, key0, val0});
+          return nodeOf(null, (0), dataMap, new Object[]{key1, val1, key0, val0},
+              memoizeKeyHashes ? new int[]{keyHash1, keyHash0} : null);
         }
       } else {
         final CompactMapNode<K, V> node = mergeTwoKeyValPairs(key0, val0, keyHash0, key1, val1,
-            keyHash1, shift + BIT_PARTITION_SIZE);
+            keyHash1, shift + BIT_PARTITION_SIZE, memoizeKeyHashes);
         // values fit on next level
 
         final int nodeMap = bitpos(mask0);
-        return nodeOf(null, nodeMap, (0), new Object[]{node});
+        return nodeOf(null, nodeMap, (0), new Object[]{node},
+            memoizeKeyHashes ? EMPTY_KEY_HASHES : null);
       }
     }
 
     static final <K, V> CompactMapNode<K, V> nodeOf(final AtomicReference<Thread> mutator,
         final int nodeMap, final int dataMap, final Object[] nodes) {
-      return new BitmapIndexedMapNode<>(mutator, nodeMap, dataMap, nodes);
+      return new BitmapIndexedMapNode<>(mutator, nodeMap, dataMap, nodes, null);
+    }
+
+    static final <K, V> CompactMapNode<K, V> nodeOf(final AtomicReference<Thread> mutator,
+        final int nodeMap, final int dataMap, final Object[] nodes, final int[] keyHashes) {
+      return new BitmapIndexedMapNode<>(mutator, nodeMap, dataMap, nodes, keyHashes);
     }
 
     static final <K, V> CompactMapNode<K, V> nodeOf(AtomicReference<Thread> mutator) {
@@ -833,6 +1115,12 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       return nodeOf(mutator, (0), dataMap, new Object[]{key, val});
     }
 
+    static final <K, V> CompactMapNode<K, V> nodeOf(AtomicReference<Thread> mutator,
+        final int nodeMap, final int dataMap, final K key, final V val, final int[] keyHashes) {
+      assert nodeMap == 0;
+      return nodeOf(mutator, (0), dataMap, new Object[]{key, val}, keyHashes);
+    }
+
     static final int index(final int bitmap, final int bitpos) {
       return java.lang.Integer.bitCount(bitmap & (bitpos - 1));
     }
@@ -862,7 +1150,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       final int dataMap = dataMap();
       if ((dataMap & bitpos) != 0) {
         final int index = index(dataMap, mask, bitpos);
-        return cmp.equals(getKey(index), key);
+        return mayEqualKeyHash(index, keyHash) && cmp.equals(getKey(index), key);
       }
 
       final int nodeMap = nodeMap();
@@ -882,7 +1170,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
       if ((dataMap() & bitpos) != 0) { // inplace value
         final int index = dataIndex(bitpos);
-        if (cmp.equals(getKey(index), key)) {
+        if (mayEqualKeyHash(index, keyHash) && cmp.equals(getKey(index), key)) {
           final V result = getValue(index);
 
           return Optional.of(result);
@@ -900,6 +1188,46 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       return Optional.empty();
     }
 
+    @Override
+    public boolean containsKey(final Object key, final int keyHash, final int shift) {
+      final int mask = mask(keyHash, shift);
+      final int bitpos = bitpos(mask);
+
+      final int dataMap = dataMap();
+      if ((dataMap & bitpos) != 0) {
+        final int index = index(dataMap, mask, bitpos);
+        final K currentKey = getKey(index);
+        return currentKey == key || mayEqualKeyHash(index, keyHash) && currentKey.equals(key);
+      }
+
+      final int nodeMap = nodeMap();
+      if ((nodeMap & bitpos) != 0) {
+        final int index = index(nodeMap, mask, bitpos);
+        return getNode(index).containsKey(key, keyHash, shift + BIT_PARTITION_SIZE);
+      }
+
+      return false;
+    }
+
+    @Override
+    public V findByKeyOrNull(final Object key, final int keyHash, final int shift) {
+      final int mask = mask(keyHash, shift);
+      final int bitpos = bitpos(mask);
+
+      if ((dataMap() & bitpos) != 0) { // inplace value
+        final int index = dataIndex(bitpos);
+        final K currentKey = getKey(index);
+        return currentKey == key || mayEqualKeyHash(index, keyHash) && currentKey.equals(key)
+            ? getValue(index) : null;
+      }
+
+      if ((nodeMap() & bitpos) != 0) { // node (not value)
+        return nodeAt(bitpos).findByKeyOrNull(key, keyHash, shift + BIT_PARTITION_SIZE);
+      }
+
+      return null;
+    }
+
     @Override
     public AbstractMapNode<K, V> updated(final AtomicReference<Thread> mutator, final K key, final V val,
         final int keyHash, final int shift, final MapNodeResult<K, V> details,
@@ -911,7 +1239,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
         final int dataIndex = dataIndex(bitpos);
         final K currentKey = getKey(dataIndex);
 
-        if (cmp.equals(currentKey, key)) {
+        if (mayEqualKeyHash(dataIndex, keyHash) && cmp.equals(currentKey, key)) {
           final V currentVal = getValue(dataIndex);
 
           // update mapping
@@ -920,8 +1248,8 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
         } else {
           final V currentVal = getValue(dataIndex);
           final AbstractMapNode<K, V> subNodeNew =
-              mergeTwoKeyValPairs(currentKey, currentVal, transformHashCode(currentKey.hashCode()),
-                  key, val, keyHash, shift + BIT_PARTITION_SIZE);
+              mergeTwoKeyValPairs(currentKey, currentVal, transformHashCode(getKeyHash(dataIndex)),
+                  key, val, keyHash, shift + BIT_PARTITION_SIZE, hasMemoizedKeyHashes());
 
           details.modified();
           return copyAndMigrateFromInlineToNode(mutator, bitpos, subNodeNew);
@@ -939,7 +1267,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       } else {
         // no value
         details.modified();
-        return copyAndInsertValue(mutator, bitpos, key, val);
+        return copyAndInsertValue(mutator, bitpos, key, val, keyHash);
       }
     }
 
@@ -953,7 +1281,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       if ((dataMap() & bitpos) != 0) { // inplace value
         final int dataIndex = dataIndex(bitpos);
 
-        if (cmp.equals(getKey(dataIndex), key)) {
+        if (mayEqualKeyHash(dataIndex, keyHash) && cmp.equals(getKey(dataIndex), key)) {
           final V currentVal = getValue(dataIndex);
           details.updated(currentVal);
 
@@ -966,9 +1294,11 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
                 (shift == 0) ? (int) (dataMap() ^ bitpos) : bitpos(mask(keyHash, 0));
 
             if (dataIndex == 0) {
-              return CompactMapNode.<K, V>nodeOf(mutator, 0, newDataMap, getKey(1), getValue(1));
+              return CompactMapNode.<K, V>nodeOf(mutator, 0, newDataMap, getKey(1), getValue(1),
+                  memoizedKeyHashOf(1));
             } else {
-              return CompactMapNode.<K, V>nodeOf(mutator, 0, newDataMap, getKey(0), getValue(0));
+              return CompactMapNode.<K, V>nodeOf(mutator, 0, newDataMap, getKey(0), getValue(0),
+                  memoizedKeyHashOf(0));
             }
           } else {
             return copyAndRemoveValue(mutator, bitpos);
@@ -1008,6 +1338,347 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       return this;
     }
 
+    @Override
+    public AbstractMapNode<K, V> merge(final AtomicReference<Thread> mutator,
+        final AbstractMapNode<K, V> other, final int shift, final MapNodeResult<K, V> details,
+        final BiFunction<V, V, V> resolver, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return this;
+      }
+
+      final CompactMapNode<K, V> that = (CompactMapNode<K, V>) other;
+
+      final int thisDataMap = this.dataMap();
+      final int thisNodeMap = this.nodeMap();
+      final int thatDataMap = that.dataMap();
+      final int thatNodeMap = that.nodeMap();
+
+      final int bitmap = thisDataMap | thisNodeMap | thatDataMap | thatNodeMap;
+
+      /*
+       * Every bit position of the merged node holds either a key/value pair or a sub-node.
+       * Key/value pairs are filled in from the front and sub-nodes from the back (in reverse order),
+       * mirroring the layout of BitmapIndexedMapNode; unused slots are compacted in the end.
+       */
+      final Object[] dst = new Object[TUPLE_LENGTH * java.lang.Integer.bitCount(bitmap)];
+      final int[] dstKeyHashes =
+          hasMemoizedKeyHashes() ? new int[java.lang.Integer.bitCount(bitmap)] : null;
+
+      int newDataMap = 0;
+      int newNodeMap = 0;
+      int newDataIndex = 0;
+      int newNodeIndex = 0;
+
+      int thisDataIndex = 0;
+      int thisNodeIndex = 0;
+      int thatDataIndex = 0;
+      int thatNodeIndex = 0;
+
+      boolean isModified = false;
+
+      for (int remaining = bitmap; remaining != 0; remaining &= remaining - 1) {
+        final int bitpos = remaining & -remaining;
+
+        if ((thisDataMap & bitpos) != 0) { // inplace value (this)
+          final K thisKey = this.getKey(thisDataIndex);
+          final int thisKeyHash = this.getKeyHash(thisDataIndex);
+          final V thisVal = this.getValue(thisDataIndex++);
+
+          if ((thatDataMap & bitpos) != 0) {
+            final K thatKey = that.getKey(thatDataIndex);
+            final V thatVal = that.getValue(thatDataIndex);
+
+            if (that.mayEqualKeyHash(thatDataIndex++, thisKeyHash)
+                && cmp.equals(thisKey, thatKey)) {
+              final V newVal = resolved(thisVal, thatVal, resolver, cmp);
+
+              if (newVal != thisVal) {
+                details.modified();
+                details.updateDeltaHashCode(
+                    (thisKeyHash ^ newVal.hashCode()) - (thisKeyHash ^ thisVal.hashCode()));
+                isModified = true;
+              }
+
+              newDataMap |= bitpos;
+              if (dstKeyHashes != null) {
+                dstKeyHashes[newDataIndex] = thisKeyHash;
+              }
+              dst[TUPLE_LENGTH * newDataIndex] = thisKey;
+              dst[TUPLE_LENGTH * newDataIndex++ + 1] = newVal;
+            } else {
+              final int thatKeyHash = that.getKeyHash(thatDataIndex - 1);
+              final AbstractMapNode<K, V> subNodeNew = mergeTwoKeyValPairs(thisKey, thisVal,
+                  transformHashCode(thisKeyHash), thatKey, thatVal, transformHashCode(thatKeyHash),
+                  shift + BIT_PARTITION_SIZE, hasMemoizedKeyHashes());
+
+              details.modified();
+              details.updateDeltaSize(1);
+              details.updateDeltaHashCode(thatKeyHash ^ thatVal.hashCode());
+
+              newNodeMap |= bitpos;
+              dst[dst.length - 1 - newNodeIndex++] = subNodeNew;
+              isModified = true;
+            }
+          } else if ((thatNodeMap & bitpos) != 0) {
+            final AbstractMapNode<K, V> thatNode =
+                that.getNode(thatNodeIndex++).withKeyHashLayout(hasMemoizedKeyHashes());
+            final Optional<V> thatVal = thatNode.findByKey(thisKey, transformHashCode(thisKeyHash),
+                shift + BIT_PARTITION_SIZE, cmp);
+
+            final V newVal =
+                thatVal.isPresent() ? resolved(thisVal, thatVal.get(), resolver, cmp) : thisVal;
+
+            final AbstractMapNode<K, V> subNodeNew;
+
+            if (thatVal.isPresent() && cmp.equals(newVal, thatVal.get())) {
+              subNodeNew = thatNode;
+            } else {
+              subNodeNew = thatNode.updated(null, thisKey, newVal, transformHashCode(thisKeyHash),
+                  shift + BIT_PARTITION_SIZE, MapNodeResult.unchanged(), cmp);
+            }
+
+            /*
+             * All mappings of the merged sub-node, except for the one that supersedes the inlined
+             * mapping of this node, are new.
+             */
+            details.modified();
+            details.updateDeltaSize(subNodeNew.size() - 1);
+            details.updateDeltaHashCode(
+                subNodeNew.recursivePayloadHashCode() - (thisKeyHash ^ thisVal.hashCode()));
+
+            newNodeMap |= bitpos;
+            dst[dst.length - 1 - newNodeIndex++] = subNodeNew;
+            isModified = true;
+          } else {
+            newDataMap |= bitpos;
+            if (dstKeyHashes != null) {
+              dstKeyHashes[newDataIndex] = thisKeyHash;
+            }
+            dst[TUPLE_LENGTH * newDataIndex] = thisKey;
+            dst[TUPLE_LENGTH * newDataIndex++ + 1] = thisVal;
+          }
+        } else if ((thisNodeMap & bitpos) != 0) { // node (this)
+          final AbstractMapNode<K, V> thisNode = this.getNode(thisNodeIndex++);
+          final AbstractMapNode<K, V> subNodeNew;
+
+          if ((thatDataMap & bitpos) != 0) {
+            final K thatKey = that.getKey(thatDataIndex);
+            final int thatKeyHash = that.getKeyHash(thatDataIndex);
+            final V thatVal = that.getValue(thatDataIndex++);
+
+            final Optional<V> thisVal = thisNode.findByKey(thatKey, transformHashCode(thatKeyHash),
+                shift + BIT_PARTITION_SIZE, cmp);
+
+            if (thisVal.isPresent()) {
+              final V newVal = resolved(thisVal.get(), thatVal, resolver, cmp);
+
+              if (newVal == thisVal.get()) {
+                subNodeNew = thisNode;
+              } else {
+                subNodeNew = thisNode.updated(mutator, thatKey, newVal,
+                    transformHashCode(thatKeyHash), shift + BIT_PARTITION_SIZE,
+                    MapNodeResult.unchanged(), cmp);
+
+                details.modified();
+                details.updateDeltaHashCode(
+                    (thatKeyHash ^ newVal.hashCode()) - (thatKeyHash ^ thisVal.get().hashCode()));
+              }
+            } else {
+              subNodeNew = thisNode.updated(mutator, thatKey, thatVal,
+                  transformHashCode(thatKeyHash), shift + BIT_PARTITION_SIZE,
+                  MapNodeResult.unchanged(), cmp);
+
+              details.modified();
+              details.updateDeltaSize(1);
+              details.updateDeltaHashCode(thatKeyHash ^ thatVal.hashCode());
+            }
+          } else if ((thatNodeMap & bitpos) != 0) {
+            final AbstractMapNode<K, V> thatNode = that.getNode(thatNodeIndex++);
+            subNodeNew = thisNode.merge(mutator, thatNode, shift + BIT_PARTITION_SIZE, details,
+                resolver, cmp);
+          } else {
+            subNodeNew = thisNode;
+          }
+
+          newNodeMap |= bitpos;
+          dst[dst.length - 1 - newNodeIndex++] = subNodeNew;
+          isModified |= subNodeNew != thisNode;
+        } else if ((thatDataMap & bitpos) != 0) { // inplace value (only that)
+          final K thatKey = that.getKey(thatDataIndex);
+          final int thatKeyHash = that.getKeyHash(thatDataIndex);
+          final V thatVal = that.getValue(thatDataIndex++);
+
+          details.modified();
+          details.updateDeltaSize(1);
+          details.updateDeltaHashCode(thatKeyHash ^ thatVal.hashCode());
+
+          newDataMap |= bitpos;
+          if (dstKeyHashes != null) {
+            dstKeyHashes[newDataIndex] = thatKeyHash;
+          }
+          dst[TUPLE_LENGTH * newDataIndex] = thatKey;
+          dst[TUPLE_LENGTH * newDataIndex++ + 1] = thatVal;
+          isModified = true;
+        } else { // node (only that)
+          final AbstractMapNode<K, V> thatNode =
+              that.getNode(thatNodeIndex++).withKeyHashLayout(hasMemoizedKeyHashes());
+
+          details.modified();
+          details.updateDeltaSize(thatNode.size());
+          details.updateDeltaHashCode(thatNode.recursivePayloadHashCode());
+
+          newNodeMap |= bitpos;
+          dst[dst.length - 1 - newNodeIndex++] = thatNode;
+          isModified = true;
+        }
+      }
+
+      if (!isModified) {
+        return this;
+      }
+
+      final int payloadLength = TUPLE_LENGTH * newDataIndex;
+      final Object[] nodes = new Object[payloadLength + newNodeIndex];
+
+      System.arraycopy(dst, 0, nodes, 0, payloadLength);
+      System.arraycopy(dst, dst.length - newNodeIndex, nodes, payloadLength, newNodeIndex);
+
+      final int[] keyHashes = dstKeyHashes == null || dstKeyHashes.length == newDataIndex
+          ? dstKeyHashes : Arrays.copyOf(dstKeyHashes, newDataIndex);
+
+      return nodeOf(mutator, newNodeMap, newDataMap, nodes, keyHashes);
+    }
+
+    @Override
+    void diff(final AbstractMapNode<K, V> other, final int shift,
+        final io.usethesource.capsule.Map.Transient<K, V> added,
+        final io.usethesource.capsule.Map.Transient<K, V> removed,
+        final io.usethesource.capsule.Map.Transient<K, V> changed,
+        final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return;
+      }
+
+      final CompactMapNode<K, V> that = (CompactMapNode<K, V>) other;
+
+      final int thisDataMap = this.dataMap();
+      final int thisNodeMap = this.nodeMap();
+      final int thatDataMap = that.dataMap();
+      final int thatNodeMap = that.nodeMap();
+
+      final int bitmap = thisDataMap | thisNodeMap | thatDataMap | thatNodeMap;
+
+      int thisDataIndex = 0;
+      int thisNodeIndex = 0;
+      int thatDataIndex = 0;
+      int thatNodeIndex = 0;
+
+      for (int remaining = bitmap; remaining != 0; remaining &= remaining - 1) {
+        final int bitpos = remaining & -remaining;
+
+        if ((thisDataMap & bitpos) != 0) { // inplace value (this)
+          final K thisKey = this.getKey(thisDataIndex);
+          final V thisVal = this.getValue(thisDataIndex++);
+
+          if ((thatDataMap & bitpos) != 0) {
+            final K thatKey = that.getKey(thatDataIndex);
+            final V thatVal = that.getValue(thatDataIndex++);
+
+            if (mayEqualKeyHashes(this, thisDataIndex - 1, that, thatDataIndex - 1)
+                && cmp.equals(thisKey, thatKey)) {
+              if (!cmp.equals(thisVal, thatVal)) {
+                changed.__put(thatKey, thatVal);
+              }
+            } else {
+              removed.__put(thisKey, thisVal);
+              added.__put(thatKey, thatVal);
+            }
+          } else if ((thatNodeMap & bitpos) != 0) {
+            final AbstractMapNode<K, V> thatNode = that.getNode(thatNodeIndex++);
+            final Optional<V> thatVal = thatNode.findByKey(thisKey,
+                transformHashCode(this.getKeyHash(thisDataIndex - 1)), shift + BIT_PARTITION_SIZE,
+                cmp);
+
+            thatNode.putAllRecursively(added);
+
+            if (thatVal.isPresent()) {
+              added.__remove(thisKey);
+
+              if (!cmp.equals(thisVal, thatVal.get())) {
+                changed.__put(thisKey, thatVal.get());
+              }
+            } else {
+              removed.__put(thisKey, thisVal);
+            }
+          } else {
+            removed.__put(thisKey, thisVal);
+          }
+        } else if ((thisNodeMap & bitpos) != 0) { // node (this)
+          final CompactMapNode<K, V> thisNode = this.getNode(thisNodeIndex++);
+
+          if ((thatDataMap & bitpos) != 0) {
+            final K thatKey = that.getKey(thatDataIndex);
+            final int thatKeyHash = that.getKeyHash(thatDataIndex);
+            final V thatVal = that.getValue(thatDataIndex++);
+            final Optional<V> thisVal = thisNode.findByKey(thatKey,
+                transformHashCode(thatKeyHash), shift + BIT_PARTITION_SIZE, cmp);
+
+            thisNode.putAllRecursively(removed);
+
+            if (thisVal.isPresent()) {
+              removed.__remove(thatKey);
+
+              if (!cmp.equals(thisVal.get(), thatVal)) {
+                changed.__put(thatKey, thatVal);
+              }
+            } else {
+              added.__put(thatKey, thatVal);
+            }
+          } else if ((thatNodeMap & bitpos) != 0) {
+            final AbstractMapNode<K, V> thatNode = that.getNode(thatNodeIndex++);
+            thisNode.diff(thatNode, shift + BIT_PARTITION_SIZE, added, removed, changed, cmp);
+          } else {
+            thisNode.putAllRecursively(removed);
+          }
+        } else if ((thatDataMap & bitpos) != 0) { // inplace value (only that)
+          added.__put(that.getKey(thatDataIndex), that.getValue(thatDataIndex++));
+        } else { // node (only that)
+          that.getNode(thatNodeIndex++).putAllRecursively(added);
+        }
+      }
+    }
+
+    /**
+     * Cheap pre-check before comparing keys of two nodes for equality.
+     *
+     * @return {@code false} only if both keys have memoized hash codes that differ
+     */
+    static final boolean mayEqualKeyHashes(final CompactMapNode<?, ?> node0, final int index0,
+        final CompactMapNode<?, ?> node1, final int index1) {
+      return !node0.hasMemoizedKeyHashes() || !node1.hasMemoizedKeyHashes()
+          || node0.getKeyHash(index0) == node1.getKeyHash(index1);
+    }
+
+    /**
+     * Resolves the values of a key that is present in two maps. Equal values are retained without
+     * consulting the {@code resolver}; if the resolved value is equal to {@code thisVal}, then
+     * {@code thisVal} is returned, which allows callers to detect unchanged mappings by reference.
+     */
+    static final <V> V resolved(final V thisVal, final V thatVal,
+        final BiFunction<V, V, V> resolver, final EqualityComparator<Object> cmp) {
+      if (cmp.equals(thisVal, thatVal)) {
+        return thisVal;
+      }
+
+      final V newVal = resolver.apply(thisVal, thatVal);
+
+      if (cmp.equals(thisVal, newVal)) {
+        return thisVal;
+      } else {
+        return newVal;
+      }
+    }
+
     /**
      * @return 0 <= mask <= 2^BIT_PARTITION_SIZE - 1
      */
@@ -1096,16 +1767,24 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
     transient final AtomicReference<Thread> mutator;
     final Object[] nodes;
 
+    /**
+     * Hash codes of the keys in {@code nodes}, or {@code null} if this node does not memoize key
+     * hashes. Never modified in-place and therefore shared between copies.
+     */
+    final int[] keyHashes;
+
     private BitmapIndexedMapNode(final AtomicReference<Thread> mutator, final int nodeMap,
-        final int dataMap, final Object[] nodes) {
+        final int dataMap, final Object[] nodes, final int[] keyHashes) {
       super(mutator, nodeMap, dataMap);
 
       this.mutator = mutator;
       this.nodes = nodes;
+      this.keyHashes = keyHashes;
 
       if (DEBUG) {
         assert (TUPLE_LENGTH * java.lang.Integer.bitCount(dataMap)
             + java.lang.Integer.bitCount(nodeMap) == nodes.length);
+        assert keyHashes == null || keyHashes.length == java.lang.Integer.bitCount(dataMap);
 
         for (int i = 0; i < TUPLE_LENGTH * payloadArity(); i++) {
           assert ((nodes[i] instanceof CompactMapNode) == false);
@@ -1165,6 +1844,47 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       return (V) nodes[TUPLE_LENGTH * index + 1];
     }
 
+    @Override
+    int getKeyHash(final int index) {
+      return keyHashes != null ? keyHashes[index] : getKey(index).hashCode();
+    }
+
+    @Override
+    boolean hasMemoizedKeyHashes() {
+      return keyHashes != null;
+    }
+
+    @Override
+    CompactMapNode<K, V> withKeyHashLayout(final boolean memoizeKeyHashes) {
+      if (hasMemoizedKeyHashes() == memoizeKeyHashes) {
+        return this;
+      }
+
+      final int payloadArity = payloadArity();
+      final int payloadLength = TUPLE_LENGTH * payloadArity;
+      final Object[] dst = new Object[nodes.length];
+      final int[] dstKeyHashes = memoizeKeyHashes ? new int[payloadArity] : null;
+
+      System.arraycopy(nodes, 0, dst, 0, payloadLength);
+
+      if (dstKeyHashes != null) {
+        for (int i = 0; i < payloadArity; i++) {
+          dstKeyHashes[i] = getKeyHash(i);
+        }
+      }
+
+      for (int i = payloadLength; i < nodes.length; i++) {
+        dst[i] = ((CompactMapNode<K, V>) nodes[i]).withKeyHashLayout(memoizeKeyHashes);
+      }
+
+      return nodeOf(null, nodeMap(), dataMap(), dst, dstKeyHashes);
+    }
+
+    @Override
+    boolean mayEqualKeyHash(final int index, final int keyHash) {
+      return keyHashes == null || keyHashes[index] == keyHash;
+    }
+
     @Override
     Map.Entry<K, V> getKeyValueEntry(final int index) {
       return entryOf((K) nodes[TUPLE_LENGTH * index], (V) nodes[TUPLE_LENGTH * index + 1]);
@@ -1243,6 +1963,10 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       if (dataMap() != that.dataMap()) {
         return false;
       }
+      if (keyHashes != null && that.keyHashes != null
+          && !Arrays.equals(keyHashes, that.keyHashes)) {
+        return false;
+      }
       if (!deepContentEquality(nodes, that.nodes, 2 * payloadArity(), slotArity(), cmp)) {
         return false;
       }
@@ -1316,7 +2040,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
         System.arraycopy(src, 0, dst, 0, src.length);
         dst[idx + 0] = val;
 
-        return nodeOf(mutator, nodeMap(), dataMap(), dst);
+        return nodeOf(mutator, nodeMap(), dataMap(), dst, keyHashes);
       }
     }
 
@@ -1338,13 +2062,13 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
         System.arraycopy(src, 0, dst, 0, src.length);
         dst[idx + 0] = node;
 
-        return nodeOf(mutator, nodeMap(), dataMap(), dst);
+        return nodeOf(mutator, nodeMap(), dataMap(), dst, keyHashes);
       }
     }
 
     @Override
     CompactMapNode<K, V> copyAndInsertValue(final AtomicReference<Thread> mutator, final int bitpos,
-        final K key, final V val) {
+        final K key, final V val, final int keyHash) {
       final int idx = TUPLE_LENGTH * dataIndex(bitpos);
 
       final Object[] src = this.nodes;
@@ -1356,7 +2080,8 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       dst[idx + 1] = val;
       System.arraycopy(src, idx, dst, idx + 2, src.length - idx);
 
-      return nodeOf(mutator, nodeMap(), dataMap() | bitpos, dst);
+      return nodeOf(mutator, nodeMap(), dataMap() | bitpos, dst,
+          arraycopyAndInsertKeyHash(keyHashes, dataIndex(bitpos), keyHash));
     }
 
     @Override
@@ -1371,7 +2096,8 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       System.arraycopy(src, 0, dst, 0, idx);
       System.arraycopy(src, idx + 2, dst, idx, src.length - idx - 2);
 
-      return nodeOf(mutator, nodeMap(), dataMap() ^ bitpos, dst);
+      return nodeOf(mutator, nodeMap(), dataMap() ^ bitpos, dst,
+          arraycopyAndRemoveKeyHash(keyHashes, dataIndex(bitpos)));
     }
 
     @Override
@@ -1392,7 +2118,8 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       dst[idxNew + 0] = node;
       System.arraycopy(src, idxNew + 2, dst, idxNew + 1, src.length - idxNew - 2);
 
-      return nodeOf(mutator, nodeMap() | bitpos, dataMap() ^ bitpos, dst);
+      return nodeOf(mutator, nodeMap() | bitpos, dataMap() ^ bitpos, dst,
+          arraycopyAndRemoveKeyHash(keyHashes, dataIndex(bitpos)));
     }
 
     @Override
@@ -1414,7 +2141,39 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       System.arraycopy(src, idxNew, dst, idxNew + 2, idxOld - idxNew);
       System.arraycopy(src, idxOld + 1, dst, idxOld + 2, src.length - idxOld - 1);
 
-      return nodeOf(mutator, nodeMap() ^ bitpos, dataMap() | bitpos, dst);
+      return nodeOf(mutator, nodeMap() ^ bitpos, dataMap() | bitpos, dst,
+          keyHashes == null ? null : arraycopyAndInsertKeyHash(keyHashes, dataIndex(bitpos),
+              node.getKeyHash(0)));
+    }
+
+    private static int[] arraycopyAndInsertKeyHash(final int[] src, final int idx,
+        final int keyHash) {
+      if (src == null) {
+        return null;
+      }
+
+      final int[] dst = new int[src.length + 1];
+
+      // copy 'src' and insert 1 element(s) at position 'idx'
+      System.arraycopy(src, 0, dst, 0, idx);
+      dst[idx] = keyHash;
+      System.arraycopy(src, idx, dst, idx + 1, src.length - idx);
+
+      return dst;
+    }
+
+    private static int[] arraycopyAndRemoveKeyHash(final int[] src, final int idx) {
+      if (src == null) {
+        return null;
+      }
+
+      final int[] dst = new int[src.length - 1];
+
+      // copy 'src' and remove 1 element(s) at position 'idx'
+      System.arraycopy(src, 0, dst, 0, idx);
+      System.arraycopy(src, idx + 1, dst, idx, src.length - idx - 1);
+
+      return dst;
     }
 
   }
@@ -1425,14 +2184,33 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
     private final V[] vals;
     private final int hash;
 
-    HashCollisionMapNode(final int hash, final K[] keys, final V[] vals) {
+    /*
+     * NOTE: layout of the trie this node belongs to, passed on to the single-entry node that
+     * replaces it when it shrinks
+     */
+    private final boolean memoizeKeyHashes;
+
+    HashCollisionMapNode(final int hash, final K[] keys, final V[] vals,
+        final boolean memoizeKeyHashes) {
       this.keys = keys;
       this.vals = vals;
       this.hash = hash;
+      this.memoizeKeyHashes = memoizeKeyHashes;
 
       assert payloadArity() >= 2;
     }
 
+    @Override
+    boolean hasMemoizedKeyHashes() {
+      return memoizeKeyHashes;
+    }
+
+    @Override
+    CompactMapNode<K, V> withKeyHashLayout(final boolean memoizeKeyHashes) {
+      return this.memoizeKeyHashes == memoizeKeyHashes ? this
+          : new HashCollisionMapNode<>(hash, keys, vals, memoizeKeyHashes);
+    }
+
     @Override
     public ArrayView<AbstractMapNode<K, V>> nodeArray() {
       return ArrayView.empty();
@@ -1464,6 +2242,30 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       return Optional.empty();
     }
 
+    @Override
+    public boolean containsKey(final Object key, final int keyHash, final int shift) {
+      if (this.hash == keyHash) {
+        for (K k : keys) {
+          if (k.equals(key)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public V findByKeyOrNull(final Object key, final int keyHash, final int shift) {
+      if (this.hash == keyHash) {
+        for (int i = 0; i < keys.length; i++) {
+          if (keys[i].equals(key)) {
+            return vals[i];
+          }
+        }
+      }
+      return null;
+    }
+
     @Override
     public AbstractMapNode<K, V> updated(final AtomicReference<Thread> mutator, final K key, final V val,
         final int keyHash, final int shift, final MapNodeResult<K, V> details,
@@ -1486,7 +2288,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
             dst[idx + 0] = val;
 
             final CompactMapNode<K, V> thisNew =
-                new HashCollisionMapNode<>(this.hash, this.keys, dst);
+                new HashCollisionMapNode<>(this.hash, this.keys, dst, memoizeKeyHashes);
 
             details.updated(currentVal);
             return thisNew;
@@ -1513,7 +2315,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
           this.vals.length - vals.length);
 
       details.modified();
-      return new HashCollisionMapNode<>(keyHash, keysNew, valsNew);
+      return new HashCollisionMapNode<>(keyHash, keysNew, valsNew, memoizeKeyHashes);
     }
 
     @Override
@@ -1534,8 +2336,8 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
              */
             final K theOtherKey = (idx == 0) ? keys[1] : keys[0];
             final V theOtherVal = (idx == 0) ? vals[1] : vals[0];
-            return CompactMapNode.<K, V>nodeOf(mutator).updated(mutator, theOtherKey, theOtherVal,
-                keyHash, 0, details, cmp);
+            return CompactMapNode.<K, V>nodeOf(mutator, 0, bitpos(mask(hash, 0)), theOtherKey,
+                theOtherVal, memoizeKeyHashes ? new int[]{hash} : null);
           } else {
             final K[] keysNew = (K[]) new Object[this.keys.length - 1];
 
@@ -1551,13 +2353,81 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
             System.arraycopy(this.vals, 0, valsNew, 0, idx);
             System.arraycopy(this.vals, idx + 1, valsNew, idx, this.vals.length - idx - 1);
 
-            return new HashCollisionMapNode<>(keyHash, keysNew, valsNew);
+            return new HashCollisionMapNode<>(keyHash, keysNew, valsNew, memoizeKeyHashes);
           }
         }
       }
       return this;
     }
 
+    @Override
+    public AbstractMapNode<K, V> merge(final AtomicReference<Thread> mutator,
+        final AbstractMapNode<K, V> other, final int shift, final MapNodeResult<K, V> details,
+        final BiFunction<V, V, V> resolver, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return this;
+      }
+
+      AbstractMapNode<K, V> result = this;
+
+      for (int i = 0; i < other.payloadArity(); i++) {
+        final K key = other.getKey(i);
+        final V thatVal = other.getValue(i);
+        final Optional<V> thisVal = this.findByKey(key, hash, shift, cmp);
+
+        if (thisVal.isPresent()) {
+          final V newVal = resolved(thisVal.get(), thatVal, resolver, cmp);
+
+          if (newVal != thisVal.get()) {
+            result = result.updated(mutator, key, newVal, hash, shift, MapNodeResult.unchanged(),
+                cmp);
+
+            details.modified();
+            details.updateDeltaHashCode(
+                (hash ^ newVal.hashCode()) - (hash ^ thisVal.get().hashCode()));
+          }
+        } else {
+          result = result.updated(mutator, key, thatVal, hash, shift, MapNodeResult.unchanged(),
+              cmp);
+
+          details.modified();
+          details.updateDeltaSize(1);
+          details.updateDeltaHashCode(hash ^ thatVal.hashCode());
+        }
+      }
+
+      return result;
+    }
+
+    @Override
+    void diff(final AbstractMapNode<K, V> other, final int shift,
+        final io.usethesource.capsule.Map.Transient<K, V> added,
+        final io.usethesource.capsule.Map.Transient<K, V> removed,
+        final io.usethesource.capsule.Map.Transient<K, V> changed,
+        final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return;
+      }
+
+      for (int i = 0; i < keys.length; i++) {
+        final Optional<V> thatVal = other.findByKey(keys[i], hash, shift, cmp);
+
+        if (!thatVal.isPresent()) {
+          removed.__put(keys[i], vals[i]);
+        } else if (!cmp.equals(vals[i], thatVal.get())) {
+          changed.__put(keys[i], thatVal.get());
+        }
+      }
+
+      for (int i = 0; i < other.payloadArity(); i++) {
+        final K thatKey = other.getKey(i);
+
+        if (!this.containsKey(thatKey, hash, shift, cmp)) {
+          added.__put(thatKey, other.getValue(i));
+        }
+      }
+    }
+
     @Override
     boolean hasPayload() {
       return true;
@@ -1598,6 +2468,11 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       return vals[index];
     }
 
+    @Override
+    int getKeyHash(final int index) {
+      return hash;
+    }
+
     @Override
     Map.Entry<K, V> getKeyValueEntry(final int index) {
       return entryOf(keys[index], vals[index]);
@@ -1690,7 +2565,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
     @Override
     CompactMapNode<K, V> copyAndInsertValue(final AtomicReference<Thread> mutator, final int bitpos,
-        final K key, final V val) {
+        final K key, final V val, final int keyHash) {
       throw new UnsupportedOperationException();
     }
 
@@ -1874,6 +2749,138 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
   }
 
+  /**
+   * Spliterator that splits at node boundaries. Sub-nodes that were not visited yet are kept in a
+   * deque, of which {@link #trySplit()} hands over half to a new spliterator. Only a spliterator
+   * that covers a whole trie knows its exact size; split off parts report estimates.
+   */
+  protected static class MapSpliterator<K, V, T> implements Spliterator<T> {
+
+    private final Deque<AbstractMapNode<K, V>> pendingNodes;
+    private final BiFunction<K, V, T> tupleOf;
+
+    private AbstractMapNode<K, V> currentValueNode;
+    private int currentValueCursor;
+    private int currentValueLength;
+
+    private long estimatedSize;
+    private int characteristics;
+
+    MapSpliterator(final AbstractMapNode<K, V> rootNode, final int size,
+        final int characteristics, final BiFunction<K, V, T> tupleOf) {
+      this(new ArrayDeque<>(), size, characteristics | Spliterator.SIZED, tupleOf);
+      pendingNodes.push(rootNode);
+    }
+
+    private MapSpliterator(final Deque<AbstractMapNode<K, V>> pendingNodes,
+        final long estimatedSize, final int characteristics, final BiFunction<K, V, T> tupleOf) {
+      this.pendingNodes = pendingNodes;
+      this.estimatedSize = estimatedSize;
+      this.characteristics = characteristics;
+      this.tupleOf = tupleOf;
+    }
+
+    /*
+     * search for next node that contains values, visiting sub-nodes depth-first
+     */
+    private boolean searchNextValueNode() {
+      while (!pendingNodes.isEmpty()) {
+        final AbstractMapNode<K, V> nextNode = pendingNodes.pop();
+
+        for (int i = nextNode.nodeArity() - 1; i >= 0; i--) {
+          pendingNodes.push(nextNode.getNode(i));
+        }
+
+        if (nextNode.hasPayload()) {
+          currentValueNode = nextNode;
+          currentValueCursor = 0;
+          currentValueLength = nextNode.payloadArity();
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+      if (currentValueCursor < currentValueLength || searchNextValueNode()) {
+        if (estimatedSize > 0) {
+          estimatedSize--;
+        }
+
+        final int index = currentValueCursor++;
+        action.accept(
+            tupleOf.apply(currentValueNode.getKey(index), currentValueNode.getValue(index)));
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super T> action) {
+      do {
+        while (currentValueCursor < currentValueLength) {
+          final int index = currentValueCursor++;
+          action.accept(
+              tupleOf.apply(currentValueNode.getKey(index), currentValueNode.getValue(index)));
+        }
+      } while (searchNextValueNode());
+
+      estimatedSize = 0;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      /*
+       * descend into a single remaining sub-node, until there is something to hand over
+       */
+      while (pendingNodes.size() == 1 && currentValueCursor == currentValueLength) {
+        final AbstractMapNode<K, V> nextNode = pendingNodes.pop();
+
+        for (int i = nextNode.nodeArity() - 1; i >= 0; i--) {
+          pendingNodes.push(nextNode.getNode(i));
+        }
+
+        if (nextNode.hasPayload()) {
+          currentValueNode = nextNode;
+          currentValueCursor = 0;
+          currentValueLength = nextNode.payloadArity();
+        }
+      }
+
+      if (pendingNodes.isEmpty()) {
+        return null;
+      }
+
+      final int splitNodeCount = (pendingNodes.size() + 1) / 2;
+      final Deque<AbstractMapNode<K, V>> splitNodes = new ArrayDeque<>(splitNodeCount);
+
+      for (int i = 0; i < splitNodeCount; i++) {
+        splitNodes.addFirst(pendingNodes.pollLast());
+      }
+
+      final long splitEstimatedSize = estimatedSize >>> 1;
+
+      estimatedSize -= splitEstimatedSize;
+      characteristics &= ~Spliterator.SIZED;
+
+      return new MapSpliterator<>(splitNodes, splitEstimatedSize, characteristics, tupleOf);
+    }
+
+    @Override
+    public long estimateSize() {
+      return estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+      return characteristics;
+    }
+
+  }
+
   /**
    * Iterator that first iterates over inlined-values and then continues depth first recursively.
    */
@@ -1931,6 +2938,12 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
     private int cachedHashCode;
     private int cachedSize;
 
+    /**
+     * Result object that is reused by single-element updates (which are confined to the mutator
+     * thread), such that in-place updates do not allocate.
+     */
+    final private MapNodeResult<K, V> updateDetails = MapNodeResult.unchanged();
+
     TransientTrieMap(PersistentTrieMap<K, V> trieMap) {
       this.mutator = new AtomicReference<Thread>(Thread.currentThread());
       this.rootNode = trieMap.rootNode;
@@ -1984,7 +2997,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
     @Override
     public boolean containsKey(final Object o) {
-      return containsKeyEquivalent(o, Object::equals);
+      return rootNode.containsKey(o, transformHashCode(o.hashCode()), 0);
     }
 
     @Override
@@ -2014,7 +3027,7 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
 
     @Override
     public V get(final Object o) {
-      return getEquivalent(o, Object::equals);
+      return rootNode.findByKeyOrNull(o, transformHashCode(o.hashCode()), 0);
     }
 
     @Override
@@ -2046,7 +3059,8 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       }
 
       final int keyHash = key.hashCode();
-      final MapNodeResult<K, V> details = MapNodeResult.unchanged();
+      final MapNodeResult<K, V> details = updateDetails;
+      details.reset();
 
       final AbstractMapNode<K, V> newRootNode =
           rootNode.updated(mutator, key, val, transformHashCode(keyHash), 0, details, cmp);
@@ -2106,6 +3120,40 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       return modified;
     }
 
+    @Override
+    public boolean merge(final Map<? extends K, ? extends V> map,
+        final BiFunction<V, V, V> resolver) {
+      if (!(map instanceof PersistentTrieMap)) {
+        return io.usethesource.capsule.Map.Transient.super.merge(map, resolver);
+      }
+
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      final PersistentTrieMap<K, V> that = (PersistentTrieMap<K, V>) map;
+      final MapNodeResult<K, V> details = MapNodeResult.unchanged();
+
+      final AbstractMapNode<K, V> newRootNode =
+          rootNode.merge(mutator, that.rootNode, 0, details, resolver, Object::equals);
+
+      if (details.isModified()) {
+        rootNode = newRootNode;
+        cachedHashCode = cachedHashCode + details.getDeltaHashCode();
+        cachedSize = cachedSize + details.getDeltaSize();
+
+        if (DEBUG) {
+          assert checkHashCodeAndSize(cachedHashCode, cachedSize);
+        }
+        return true;
+      }
+
+      if (DEBUG) {
+        assert checkHashCodeAndSize(cachedHashCode, cachedSize);
+      }
+      return false;
+    }
+
     @Override
     public V __remove(final K key) {
       return __removeEquivalent(key, Object::equals);
@@ -2118,7 +3166,8 @@ public class PersistentTrieMap<K, V> implements io.usethesource.capsule.Map.Immu
       }
 
       final int keyHash = key.hashCode();
-      final MapNodeResult<K, V> details = MapNodeResult.unchanged();
+      final MapNodeResult<K, V> details = updateDetails;
+      details.reset();
 
       final AbstractMapNode<K, V> newRootNode = rootNode.removed(mutator, key,
           transformHashCode(keyHash), 0, details, cmp);
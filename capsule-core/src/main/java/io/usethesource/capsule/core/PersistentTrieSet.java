@@ -20,8 +20,10 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -30,16 +32,23 @@ import io.usethesource.capsule.core.trie.ArrayView;
 import io.usethesource.capsule.core.trie.SetNode;
 import io.usethesource.capsule.core.trie.SetNodeResult;
 import io.usethesource.capsule.util.EqualityComparator;
+import io.usethesource.capsule.util.ForkJoinUtils;
 
 public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializable {
 
   private static final long serialVersionUID = 42L;
 
   private static final CompactSetNode EMPTY_NODE = new BitmapIndexedSetNode<>(null,
-      0, 0, new Object[]{});
+      0, 0, new Object[]{}, null);
+
+  private static final CompactSetNode EMPTY_MEMOIZED_NODE = new BitmapIndexedSetNode<>(null,
+      0, 0, new Object[]{}, CompactSetNode.EMPTY_KEY_HASHES);
 
   private static final PersistentTrieSet EMPTY_SET = new PersistentTrieSet(EMPTY_NODE, 0, 0);
 
+  private static final PersistentTrieSet EMPTY_MEMOIZED_SET =
+      new PersistentTrieSet(EMPTY_MEMOIZED_NODE, 0, 0);
+
   private static final boolean DEBUG = false;
 
   private final AbstractSetNode<K> rootNode;
@@ -64,7 +73,8 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     final int dataMap = CompactSetNode.bitpos(CompactSetNode.mask(keyHash0, 0));
 
-    final CompactSetNode<K> newRootNode = CompactSetNode.nodeOf(null, dataMap, key0, keyHash0);
+    final CompactSetNode<K> newRootNode =
+        CompactSetNode.nodeOf(null, dataMap, key0, keyHash0, false);
 
     return new PersistentTrieSet<K>(newRootNode, keyHash0, 1);
   }
@@ -76,7 +86,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
     final int keyHash1 = key1.hashCode();
 
     CompactSetNode<K> newRootNode =
-        CompactSetNode.mergeTwoKeyValPairs(key0, keyHash0, key1, keyHash1, 0);
+        CompactSetNode.mergeTwoKeyValPairs(key0, keyHash0, key1, keyHash1, 0, false);
 
     return new PersistentTrieSet<K>(newRootNode, keyHash0 + keyHash1, 2);
   }
@@ -105,6 +115,96 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
     return result;
   }
 
+  /**
+   * Returns an empty set whose nodes store the hash code of each element next to it. Sets derived
+   * from it by insertion keep this layout, such that splitting slots, handling collisions and
+   * comparing nodes never invoke {@link Object#hashCode()} on contained elements again. Trades
+   * four bytes per element for fewer hash code computations, which pays off for elements with
+   * expensive {@link Object#hashCode()} implementations.
+   */
+  public static final <K> Set.Immutable<K> ofMemoizedKeyHashes() {
+    return PersistentTrieSet.EMPTY_MEMOIZED_SET;
+  }
+
+  /**
+   * Transient variant of {@link #ofMemoizedKeyHashes()}.
+   */
+  public static final <K> Set.Transient<K> transientOfMemoizedKeyHashes() {
+    return PersistentTrieSet.EMPTY_MEMOIZED_SET.asTransient();
+  }
+
+  /**
+   * Builds a set of {@code keys} in parallel on {@code pool}. The keys are partitioned by the hash
+   * bits that index the root node, each partition is built into a sub-trie by a separate task, and
+   * the disjoint sub-tries are finally assembled under a common root node.
+   */
+  public static final <K> Set.Immutable<K> parallelOf(final ForkJoinPool pool,
+      final Collection<? extends K> keys) {
+    final int partitionCount = 1 << CompactSetNode.BIT_PARTITION_SIZE;
+
+    final List<List<K>> partitions = ForkJoinUtils.partition(pool, new ArrayList<K>(keys),
+        partitionCount, key -> CompactSetNode.mask(transformHashCode(key.hashCode()), 0));
+
+    final List<PersistentTrieSet<K>> subTries =
+        new ArrayList<>(Collections.nCopies(partitionCount, null));
+
+    ForkJoinUtils.invokeAll(pool, partitionCount, mask -> {
+      final Set.Transient<K> tmp = PersistentTrieSet.transientOf();
+
+      for (K key : partitions.get(mask)) {
+        tmp.__insert(key);
+      }
+
+      subTries.set(mask, (PersistentTrieSet<K>) tmp.freeze());
+    });
+
+    int dataMap = 0;
+    int nodeMap = 0;
+    int cachedHashCode = 0;
+    int cachedSize = 0;
+
+    for (int mask = 0; mask < partitionCount; mask++) {
+      final PersistentTrieSet<K> subTrie = subTries.get(mask);
+
+      if (subTrie.cachedSize == 1) {
+        dataMap |= CompactSetNode.bitpos(mask);
+      } else if (subTrie.cachedSize > 1) {
+        nodeMap |= CompactSetNode.bitpos(mask);
+      }
+
+      cachedHashCode += subTrie.cachedHashCode;
+      cachedSize += subTrie.cachedSize;
+    }
+
+    if (cachedSize == 0) {
+      return PersistentTrieSet.EMPTY_SET;
+    }
+
+    final int payloadArity = Integer.bitCount(dataMap);
+    final Object[] nodes = new Object[payloadArity + Integer.bitCount(nodeMap)];
+
+    int dataIndex = 0;
+    int nodeIndex = nodes.length - 1;
+
+    for (int mask = 0; mask < partitionCount; mask++) {
+      final PersistentTrieSet<K> subTrie = subTries.get(mask);
+
+      if (subTrie.cachedSize == 1) {
+        nodes[dataIndex++] = subTrie.rootNode.getKey(0);
+      } else if (subTrie.cachedSize > 1) {
+        // all keys share the same root mask, i.e., the sub-trie's root has a single sub-node
+        nodes[nodeIndex--] = subTrie.rootNode.getNode(0);
+      }
+    }
+
+    return new PersistentTrieSet<K>(CompactSetNode.nodeOf(null, nodeMap, dataMap, nodes),
+        cachedHashCode, cachedSize);
+  }
+
+  public static final <K> Set.Immutable<K> parallelOf(final Collection<? extends K> keys) {
+    return parallelOf(ForkJoinPool.commonPool(), keys);
+  }
+
   private static <K> int hashCode(AbstractSetNode<K> rootNode) {
     int hash = 0;
 
@@ -145,7 +245,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
   @Override
   public boolean contains(final Object o) {
-    return containsEquivalent(o, Object::equals);
+    return rootNode.contains(o, transformHashCode(o.hashCode()), 0);
   }
 
   @Override
@@ -160,7 +260,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
   @Override
   public K get(final Object o) {
-    return getEquivalent(o, Object::equals);
+    return rootNode.findByKeyOrNull(o, transformHashCode(o.hashCode()), 0);
   }
 
   @Override
@@ -246,6 +346,126 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
     return tmpTransient.freeze();
   }
 
+  @Override
+  public Set.Immutable<K> union(final Set.Immutable<K> other) {
+    if (other == this) {
+      return this;
+    }
+    if (!(other instanceof PersistentTrieSet)) {
+      return Set.Immutable.union(this, other);
+    }
+
+    final PersistentTrieSet<K> that = (PersistentTrieSet<K>) other;
+
+    final PersistentTrieSet<K> bigger;
+    final PersistentTrieSet<K> smaller;
+
+    // union smaller into bigger, unless that would change the node layout of this set
+    final boolean isSameLayout = ((CompactSetNode<K>) this.rootNode)
+        .hasMemoizedKeyHashes() == ((CompactSetNode<K>) that.rootNode).hasMemoizedKeyHashes();
+
+    if (that.cachedSize > this.cachedSize && isSameLayout) {
+      bigger = that;
+      smaller = this;
+    } else {
+      bigger = this;
+      smaller = that;
+    }
+
+    final SetNodeResult<K> details = SetNodeResult.unchanged();
+
+    final AbstractSetNode<K> newRootNode =
+        bigger.rootNode.union(null, smaller.rootNode, 0, details, Object::equals);
+
+    if (details.isModified()) {
+      return new PersistentTrieSet<K>(newRootNode,
+          bigger.cachedHashCode + details.getDeltaHashCode(),
+          bigger.cachedSize + details.getDeltaSize());
+    }
+
+    return bigger;
+  }
+
+  @Override
+  public Set.Immutable<K> intersect(final Set.Immutable<K> other) {
+    if (other == this) {
+      return this;
+    }
+    if (!(other instanceof PersistentTrieSet)) {
+      return Set.Immutable.intersect(this, other);
+    }
+
+    final PersistentTrieSet<K> that = (PersistentTrieSet<K>) other;
+
+    final PersistentTrieSet<K> bigger;
+    final PersistentTrieSet<K> smaller;
+
+    if (that.cachedSize >= this.cachedSize) {
+      bigger = that;
+      smaller = this;
+    } else {
+      bigger = this;
+      smaller = that;
+    }
+
+    final SetNodeResult<K> details = SetNodeResult.unchanged();
+
+    final AbstractSetNode<K> newRootNode =
+        smaller.rootNode.intersect(null, bigger.rootNode, 0, details, Object::equals);
+
+    if (newRootNode == smaller.rootNode) {
+      return smaller;
+    }
+    if (details.getDeltaSize() == 0) {
+      return PersistentTrieSet.EMPTY_SET;
+    }
+
+    return new PersistentTrieSet<K>(newRootNode, details.getDeltaHashCode(),
+        details.getDeltaSize());
+  }
+
+  @Override
+  public Set.Immutable<K> subtract(final Set.Immutable<K> other) {
+    if (other == this) {
+      return PersistentTrieSet.EMPTY_SET;
+    }
+    if (!(other instanceof PersistentTrieSet)) {
+      return Set.Immutable.subtract(this, other);
+    }
+
+    final PersistentTrieSet<K> that = (PersistentTrieSet<K>) other;
+    final SetNodeResult<K> details = SetNodeResult.unchanged();
+
+    final AbstractSetNode<K> newRootNode =
+        rootNode.subtract(null, that.rootNode, 0, details, Object::equals);
+
+    if (!details.isModified()) {
+      return this;
+    }
+    if (cachedSize + details.getDeltaSize() == 0) {
+      return PersistentTrieSet.EMPTY_SET;
+    }
+
+    return new PersistentTrieSet<K>(newRootNode, cachedHashCode + details.getDeltaHashCode(),
+        cachedSize + details.getDeltaSize());
+  }
+
+  @Override
+  public Set.Diff<K> diff(final Set.Immutable<K> other) {
+    if (!(other instanceof PersistentTrieSet)) {
+      return Set.Immutable.super.diff(other);
+    }
+
+    final PersistentTrieSet<K> that = (PersistentTrieSet<K>) other;
+
+    final Set.Transient<K> added = transientOf();
+    final Set.Transient<K> removed = transientOf();
+
+    rootNode.diff(that.rootNode, 0, added, removed, Object::equals);
+
+    return Set.Diff.of(added.freeze(), removed.freeze());
+  }
+
   @Override
   public Set.Immutable<K> __retainAll(final java.util.Set<? extends K> set) {
     final Set.Transient<K> tmpTransient = this.asTransient();
@@ -326,6 +546,12 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
     return new SetKeyIterator<>(rootNode);
   }
 
+  @Override
+  public Spliterator<K> spliterator() {
+    return new SetKeySpliterator<>(rootNode, cachedSize,
+        Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+  }
+
   @Override
   public Object[] toArray() {
     Object[] array = new Object[cachedSize];
@@ -617,6 +843,17 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       return size;
     }
 
+    /**
+     * Collects the differences between this node and {@code other}. Sub-nodes that are reference
+     * equal on both sides are skipped without being traversed.
+     *
+     * @param added collects keys that are only present in {@code other}
+     * @param removed collects keys that are only present in this node
+     */
+    abstract void diff(final AbstractSetNode<K> other, final int shift,
+        final Set.Transient<K> added, final Set.Transient<K> removed,
+        final EqualityComparator<Object> cmp);
+
     abstract int localPayloadHashCode();
 
     @Override
@@ -639,7 +876,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     @Override
     public Spliterator<K> spliterator() {
-      return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT);
+      return new SetKeySpliterator<>(this, size(), Spliterator.DISTINCT | Spliterator.NONNULL);
     }
 
     public Stream<K> stream() {
@@ -655,6 +892,8 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
     static final int BIT_PARTITION_SIZE = 5;
     static final int BIT_PARTITION_MASK = 0b11111;
 
+    static final int[] EMPTY_KEY_HASHES = new int[0];
+
     static final int mask(final int keyHash, final int shift) {
       return (keyHash >>> shift) & BIT_PARTITION_MASK;
     }
@@ -667,6 +906,32 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     abstract int dataMap();
 
+    /**
+     * @return {@code true} if this node stores the hash codes of its payload, in which case
+     *         {@link #getKeyHash(int)} does not invoke {@link Object#hashCode()}
+     */
+    boolean hasMemoizedKeyHashes() {
+      return false;
+    }
+
+    /**
+     * Cheap pre-check before comparing the key at {@code index} for equality.
+     *
+     * @return {@code false} only if the key at {@code index} has a memoized hash code that differs
+     *         from {@code keyHash}
+     */
+    boolean mayEqualKeyHash(final int index, final int keyHash) {
+      return true;
+    }
+
+    /**
+     * Converts a sub-trie that is adopted from another trie into the layout of the adopting trie.
+     *
+     * @return this node if it already has the requested layout, otherwise a copy of the sub-trie
+     *         that does ({@code memoizeKeyHashes}) or does not store the hash codes of its payload
+     */
+    abstract CompactSetNode<K> withKeyHashLayout(final boolean memoizeKeyHashes);
+
     @Override
     abstract CompactSetNode<K> getNode(final int index);
 
@@ -684,7 +949,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
     }
 
     abstract CompactSetNode<K> copyAndInsertValue(final AtomicReference<Thread> mutator,
-        final int bitpos, final K key);
+        final int bitpos, final K key, final int keyHash);
 
     abstract CompactSetNode<K> copyAndRemoveValue(final AtomicReference<Thread> mutator,
         final int bitpos);
@@ -699,13 +964,14 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
         final int bitpos, final AbstractSetNode<K> node);
 
     static final <K> CompactSetNode<K> mergeTwoKeyValPairs(final K key0, final int keyHash0,
-        final K key1, final int keyHash1, final int shift) {
+        final K key1, final int keyHash1, final int shift, final boolean memoizeKeyHashes) {
       assert !(key0.equals(key1));
 
       if (shift >= HASH_CODE_LENGTH) {
         // throw new
         // IllegalStateException("Hash collision not yet fixed.");
-        return new HashCollisionSetNode<>(keyHash0, (K[]) new Object[]{key0, key1});
+        return new HashCollisionSetNode<>(keyHash0, (K[]) new Object[]{key0, key1},
+            memoizeKeyHashes);
       }
 
       final int mask0 = mask(keyHash0, shift);
@@ -716,23 +982,28 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
         final int dataMap = bitpos(mask0) | bitpos(mask1);
 
         if (mask0 < mask1) {
-          return nodeOf(null, dataMap, key0, keyHash0, key1, keyHash1);
+          return nodeOf(null, dataMap, key0, keyHash0, key1, keyHash1, memoizeKeyHashes);
         } else {
-          return nodeOf(null, dataMap, key1, keyHash1, key0, keyHash0);
+          return nodeOf(null, dataMap, key1, keyHash1, key0, keyHash0, memoizeKeyHashes);
         }
       } else {
-        final CompactSetNode<K> node =
-            mergeTwoKeyValPairs(key0, keyHash0, key1, keyHash1, shift + BIT_PARTITION_SIZE);
+        final CompactSetNode<K> node = mergeTwoKeyValPairs(key0, keyHash0, key1, keyHash1,
+            shift + BIT_PARTITION_SIZE, memoizeKeyHashes);
         // values fit on next level
 
         final int nodeMap = bitpos(mask0);
-        return nodeOf(null, nodeMap, node);
+        return nodeOf(null, nodeMap, node, memoizeKeyHashes);
       }
     }
 
     static final <K> CompactSetNode<K> nodeOf(final AtomicReference<Thread> mutator,
         final int nodeMap, final int dataMap, final Object[] nodes) {
-      return new BitmapIndexedSetNode<>(mutator, nodeMap, dataMap, nodes);
+      return new BitmapIndexedSetNode<>(mutator, nodeMap, dataMap, nodes, null);
+    }
+
+    static final <K> CompactSetNode<K> nodeOf(final AtomicReference<Thread> mutator,
+        final int nodeMap, final int dataMap, final Object[] nodes, final int[] keyHashes) {
+      return new BitmapIndexedSetNode<>(mutator, nodeMap, dataMap, nodes, keyHashes);
     }
 
     static final <K> CompactSetNode<K> nodeOf(AtomicReference<Thread> mutator) {
@@ -740,18 +1011,27 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
     }
 
     static final <K> CompactSetNode<K> nodeOf(AtomicReference<Thread> mutator,
-        final int dataMap, final K key, final int keyHash) {
-      return nodeOf(mutator, 0, dataMap, new Object[]{key});
+        final boolean memoizeKeyHashes) {
+      return memoizeKeyHashes ? EMPTY_MEMOIZED_NODE : EMPTY_NODE;
+    }
+
+    static final <K> CompactSetNode<K> nodeOf(AtomicReference<Thread> mutator,
+        final int dataMap, final K key, final int keyHash, final boolean memoizeKeyHashes) {
+      return nodeOf(mutator, 0, dataMap, new Object[]{key},
+          memoizeKeyHashes ? new int[]{keyHash} : null);
     }
 
     static final <K> CompactSetNode<K> nodeOf(AtomicReference<Thread> mutator, final int dataMap,
-        final K key0, final int keyHash0, final K key1, final int keyHash1) {
-      return nodeOf(mutator, 0, dataMap, new Object[]{key0, key1});
+        final K key0, final int keyHash0, final K key1, final int keyHash1,
+        final boolean memoizeKeyHashes) {
+      return nodeOf(mutator, 0, dataMap, new Object[]{key0, key1},
+          memoizeKeyHashes ? new int[]{keyHash0, keyHash1} : null);
     }
 
     static final <K> CompactSetNode<K> nodeOf(AtomicReference<Thread> mutator,
-        final int nodeMap, final AbstractSetNode<K> node) {
-      return nodeOf(mutator, nodeMap, 0, new Object[]{node});
+        final int nodeMap, final AbstractSetNode<K> node, final boolean memoizeKeyHashes) {
+      return nodeOf(mutator, nodeMap, 0, new Object[]{node},
+          memoizeKeyHashes ? EMPTY_KEY_HASHES : null);
     }
 
     static final int index(final int bitmap, final int bitpos) {
@@ -783,7 +1063,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       final int dataMap = dataMap();
       if ((dataMap & bitpos) != 0) {
         final int index = index(dataMap, mask, bitpos);
-        return cmp.equals(getKey(index), key);
+        return mayEqualKeyHash(index, keyHash) && cmp.equals(getKey(index), key);
       }
 
       final int nodeMap = nodeMap();
@@ -803,7 +1083,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
       if ((dataMap() & bitpos) != 0) { // inplace value
         final int index = dataIndex(bitpos);
-        if (cmp.equals(getKey(index), key)) {
+        if (mayEqualKeyHash(index, keyHash) && cmp.equals(getKey(index), key)) {
           return Optional.of(getKey(index));
         }
 
@@ -819,6 +1099,46 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       return Optional.empty();
     }
 
+    @Override
+    public boolean contains(final Object key, final int keyHash, final int shift) {
+      final int mask = mask(keyHash, shift);
+      final int bitpos = bitpos(mask);
+
+      final int dataMap = dataMap();
+      if ((dataMap & bitpos) != 0) {
+        final int index = index(dataMap, mask, bitpos);
+        final K currentKey = getKey(index);
+        return currentKey == key || mayEqualKeyHash(index, keyHash) && currentKey.equals(key);
+      }
+
+      final int nodeMap = nodeMap();
+      if ((nodeMap & bitpos) != 0) {
+        final int index = index(nodeMap, mask, bitpos);
+        return getNode(index).contains(key, keyHash, shift + BIT_PARTITION_SIZE);
+      }
+
+      return false;
+    }
+
+    @Override
+    public K findByKeyOrNull(final Object key, final int keyHash, final int shift) {
+      final int mask = mask(keyHash, shift);
+      final int bitpos = bitpos(mask);
+
+      if ((dataMap() & bitpos) != 0) { // inplace value
+        final int index = dataIndex(bitpos);
+        final K currentKey = getKey(index);
+        return currentKey == key || mayEqualKeyHash(index, keyHash) && currentKey.equals(key)
+            ? currentKey : null;
+      }
+
+      if ((nodeMap() & bitpos) != 0) { // node (not value)
+        return nodeAt(bitpos).findByKeyOrNull(key, keyHash, shift + BIT_PARTITION_SIZE);
+      }
+
+      return null;
+    }
+
     @Override
     public AbstractSetNode<K> updated(final AtomicReference<Thread> mutator, final K key,
         final int keyHash, final int shift, final SetNodeResult<K> details,
@@ -830,11 +1150,12 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
         final int dataIndex = dataIndex(bitpos);
         final K currentKey = getKey(dataIndex);
 
-        if (cmp.equals(currentKey, key)) {
+        if (mayEqualKeyHash(dataIndex, keyHash) && cmp.equals(currentKey, key)) {
           return this;
         } else {
           final AbstractSetNode<K> subNodeNew = mergeTwoKeyValPairs(currentKey,
-              transformHashCode(currentKey.hashCode()), key, keyHash, shift + BIT_PARTITION_SIZE);
+              transformHashCode(getKeyHash(dataIndex)), key, keyHash, shift + BIT_PARTITION_SIZE,
+              hasMemoizedKeyHashes());
 
           details.modified();
           details.updateDeltaSize(1);
@@ -861,7 +1182,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
         details.modified();
         details.updateDeltaSize(1);
         details.updateDeltaHashCode(keyHash);
-        return copyAndInsertValue(mutator, bitpos, key);
+        return copyAndInsertValue(mutator, bitpos, key, keyHash);
       }
     }
 
@@ -874,7 +1195,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       if ((dataMap() & bitpos) != 0) { // inplace value
         final int dataIndex = dataIndex(bitpos);
 
-        if (cmp.equals(getKey(dataIndex), key)) {
+        if (mayEqualKeyHash(dataIndex, keyHash) && cmp.equals(getKey(dataIndex), key)) {
           details.modified();
           details.updateDeltaSize(-1);
           details.updateDeltaHashCode(-keyHash);
@@ -888,9 +1209,11 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
                 (shift == 0) ? (int) (dataMap() ^ bitpos) : bitpos(mask(keyHash, 0));
 
             if (dataIndex == 0) {
-              return CompactSetNode.<K>nodeOf(mutator, newDataMap, getKey(1), getKeyHash(1));
+              return CompactSetNode.<K>nodeOf(mutator, newDataMap, getKey(1), getKeyHash(1),
+                  hasMemoizedKeyHashes());
             } else {
-              return CompactSetNode.<K>nodeOf(mutator, newDataMap, getKey(0), getKeyHash(0));
+              return CompactSetNode.<K>nodeOf(mutator, newDataMap, getKey(0), getKeyHash(0),
+                  hasMemoizedKeyHashes());
             }
           } else {
             return copyAndRemoveValue(mutator, bitpos);
@@ -920,14 +1243,555 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
               return copyAndMigrateFromNodeToInline(mutator, bitpos, subNodeNew);
             }
           }
-          default: {
-            // modify current node (set replacement node)
-            return copyAndSetNode(mutator, bitpos, subNodeNew);
+          default: {
+            // modify current node (set replacement node)
+            return copyAndSetNode(mutator, bitpos, subNodeNew);
+          }
+        }
+      }
+
+      return this;
+    }
+
+    @Override
+    public AbstractSetNode<K> union(final AtomicReference<Thread> mutator,
+        final AbstractSetNode<K> other, final int shift, final SetNodeResult<K> details,
+        final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return this;
+      }
+
+      final CompactSetNode<K> that = (CompactSetNode<K>) other;
+
+      final int thisDataMap = this.dataMap();
+      final int thisNodeMap = this.nodeMap();
+      final int thatDataMap = that.dataMap();
+      final int thatNodeMap = that.nodeMap();
+
+      final int bitmap = thisDataMap | thisNodeMap | thatDataMap | thatNodeMap;
+
+      /*
+       * Every bit position of the merged node holds either a value or a sub-node, hence the
+       * resulting array has exactly one slot per set bit. Values are filled in from the front and
+       * sub-nodes from the back (in reverse order), mirroring the layout of BitmapIndexedSetNode.
+       */
+      final Object[] dst = new Object[java.lang.Integer.bitCount(bitmap)];
+      final int[] dstKeyHashes = hasMemoizedKeyHashes() ? new int[dst.length] : null;
+
+      int newDataMap = 0;
+      int newNodeMap = 0;
+      int newDataIndex = 0;
+      int newNodeIndex = 0;
+
+      int thisDataIndex = 0;
+      int thisNodeIndex = 0;
+      int thatDataIndex = 0;
+      int thatNodeIndex = 0;
+
+      boolean isModified = false;
+
+      for (int remaining = bitmap; remaining != 0; remaining &= remaining - 1) {
+        final int bitpos = remaining & -remaining;
+
+        if ((thisDataMap & bitpos) != 0) { // inplace value (this)
+          final int thisIndex = thisDataIndex++;
+          final K thisKey = this.getKey(thisIndex);
+
+          if ((thatDataMap & bitpos) != 0) {
+            final int thatIndex = thatDataIndex++;
+            final K thatKey = that.getKey(thatIndex);
+
+            if (mayEqualKeyHashes(this, thisIndex, that, thatIndex)
+                && cmp.equals(thisKey, thatKey)) {
+              newDataMap |= bitpos;
+              if (dstKeyHashes != null) {
+                dstKeyHashes[newDataIndex] = this.getKeyHash(thisIndex);
+              }
+              dst[newDataIndex++] = thisKey;
+            } else {
+              final int thatKeyHash = that.getKeyHash(thatIndex);
+              final AbstractSetNode<K> subNodeNew = mergeTwoKeyValPairs(thisKey,
+                  transformHashCode(this.getKeyHash(thisIndex)), thatKey,
+                  transformHashCode(thatKeyHash), shift + BIT_PARTITION_SIZE,
+                  hasMemoizedKeyHashes());
+
+              details.modified();
+              details.updateDeltaSize(1);
+              details.updateDeltaHashCode(thatKeyHash);
+
+              newNodeMap |= bitpos;
+              dst[dst.length - 1 - newNodeIndex++] = subNodeNew;
+              isModified = true;
+            }
+          } else if ((thatNodeMap & bitpos) != 0) {
+            final AbstractSetNode<K> thatNode =
+                that.getNode(thatNodeIndex++).withKeyHashLayout(hasMemoizedKeyHashes());
+
+            final int thisKeyHash = this.getKeyHash(thisIndex);
+            final AbstractSetNode<K> subNodeNew = thatNode.updated(null, thisKey,
+                transformHashCode(thisKeyHash), shift + BIT_PARTITION_SIZE,
+                SetNodeResult.unchanged(), cmp);
+
+            /*
+             * All elements of the merged sub-node, except for the inlined value of this node, are
+             * new. Since {@code thatNode} contains at least two elements, there is always a change.
+             */
+            details.modified();
+            details.updateDeltaSize(subNodeNew.size() - 1);
+            details.updateDeltaHashCode(subNodeNew.recursivePayloadHashCode() - thisKeyHash);
+
+            newNodeMap |= bitpos;
+            dst[dst.length - 1 - newNodeIndex++] = subNodeNew;
+            isModified = true;
+          } else {
+            newDataMap |= bitpos;
+            if (dstKeyHashes != null) {
+              dstKeyHashes[newDataIndex] = this.getKeyHash(thisIndex);
+            }
+            dst[newDataIndex++] = thisKey;
+          }
+        } else if ((thisNodeMap & bitpos) != 0) { // node (this)
+          final AbstractSetNode<K> thisNode = this.getNode(thisNodeIndex++);
+          final AbstractSetNode<K> subNodeNew;
+
+          if ((thatDataMap & bitpos) != 0) {
+            final int thatIndex = thatDataIndex++;
+            final K thatKey = that.getKey(thatIndex);
+            final SetNodeResult<K> updateDetails = SetNodeResult.unchanged();
+
+            subNodeNew = thisNode.updated(mutator, thatKey,
+                transformHashCode(that.getKeyHash(thatIndex)), shift + BIT_PARTITION_SIZE,
+                updateDetails, cmp);
+
+            if (updateDetails.isModified()) {
+              details.modified();
+              details.updateDeltaSize(updateDetails.getDeltaSize());
+              details.updateDeltaHashCode(updateDetails.getDeltaHashCode());
+            }
+          } else if ((thatNodeMap & bitpos) != 0) {
+            final AbstractSetNode<K> thatNode = that.getNode(thatNodeIndex++);
+            subNodeNew = thisNode.union(mutator, thatNode, shift + BIT_PARTITION_SIZE, details,
+                cmp);
+          } else {
+            subNodeNew = thisNode;
+          }
+
+          newNodeMap |= bitpos;
+          dst[dst.length - 1 - newNodeIndex++] = subNodeNew;
+          isModified |= subNodeNew != thisNode;
+        } else if ((thatDataMap & bitpos) != 0) { // inplace value (only that)
+          final int thatIndex = thatDataIndex++;
+          final int thatKeyHash = that.getKeyHash(thatIndex);
+
+          details.modified();
+          details.updateDeltaSize(1);
+          details.updateDeltaHashCode(thatKeyHash);
+
+          newDataMap |= bitpos;
+          if (dstKeyHashes != null) {
+            dstKeyHashes[newDataIndex] = thatKeyHash;
+          }
+          dst[newDataIndex++] = that.getKey(thatIndex);
+          isModified = true;
+        } else { // node (only that)
+          final AbstractSetNode<K> thatNode =
+              that.getNode(thatNodeIndex++).withKeyHashLayout(hasMemoizedKeyHashes());
+
+          details.modified();
+          details.updateDeltaSize(thatNode.size());
+          details.updateDeltaHashCode(thatNode.recursivePayloadHashCode());
+
+          newNodeMap |= bitpos;
+          dst[dst.length - 1 - newNodeIndex++] = thatNode;
+          isModified = true;
+        }
+      }
+
+      if (!isModified) {
+        return this;
+      }
+
+      return nodeOf(mutator, newNodeMap, newDataMap, dst, compact(dstKeyHashes, newDataIndex));
+    }
+
+    @Override
+    public AbstractSetNode<K> intersect(final AtomicReference<Thread> mutator,
+        final AbstractSetNode<K> other, final int shift, final SetNodeResult<K> details,
+        final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        details.updateDeltaSize(size());
+        details.updateDeltaHashCode(recursivePayloadHashCode());
+        return this;
+      }
+
+      final CompactSetNode<K> that = (CompactSetNode<K>) other;
+
+      final int thisDataMap = this.dataMap();
+      final int thisNodeMap = this.nodeMap();
+      final int thatDataMap = that.dataMap();
+      final int thatNodeMap = that.nodeMap();
+
+      final int thisBitmap = thisDataMap | thisNodeMap;
+      final int bitmap = thisBitmap & (thatDataMap | thatNodeMap);
+
+      final Object[] dst = new Object[java.lang.Integer.bitCount(bitmap)];
+      final int[] dstKeyHashes = hasMemoizedKeyHashes() ? new int[dst.length] : null;
+
+      int newDataMap = 0;
+      int newNodeMap = 0;
+      int newDataIndex = 0;
+      int newNodeIndex = 0;
+
+      boolean isModified = bitmap != thisBitmap;
+
+      for (int remaining = bitmap; remaining != 0; remaining &= remaining - 1) {
+        final int bitpos = remaining & -remaining;
+
+        if ((thisDataMap & bitpos) != 0) { // inplace value (this)
+          final int thisIndex = dataIndex(bitpos);
+          final K thisKey = this.getKey(thisIndex);
+          final int thisKeyHash = this.getKeyHash(thisIndex);
+
+          final boolean isContained;
+
+          if ((thatDataMap & bitpos) != 0) {
+            final int thatIndex = that.dataIndex(bitpos);
+            isContained = that.mayEqualKeyHash(thatIndex, thisKeyHash)
+                && cmp.equals(thisKey, that.getKey(thatIndex));
+          } else {
+            isContained = that.nodeAt(bitpos).contains(thisKey, transformHashCode(thisKeyHash),
+                shift + BIT_PARTITION_SIZE, cmp);
+          }
+
+          if (isContained) {
+            details.updateDeltaSize(1);
+            details.updateDeltaHashCode(thisKeyHash);
+
+            newDataMap |= bitpos;
+            if (dstKeyHashes != null) {
+              dstKeyHashes[newDataIndex] = thisKeyHash;
+            }
+            dst[newDataIndex++] = thisKey;
+          } else {
+            isModified = true;
+          }
+        } else if ((thatDataMap & bitpos) != 0) { // node (this) and inplace value (that)
+          final int thatIndex = that.dataIndex(bitpos);
+          final int thatKeyHash = that.getKeyHash(thatIndex);
+          final Optional<K> thisKey = this.nodeAt(bitpos).findByKey(that.getKey(thatIndex),
+              transformHashCode(thatKeyHash), shift + BIT_PARTITION_SIZE, cmp);
+
+          if (thisKey.isPresent()) {
+            details.updateDeltaSize(1);
+            details.updateDeltaHashCode(thatKeyHash);
+
+            newDataMap |= bitpos;
+            if (dstKeyHashes != null) {
+              dstKeyHashes[newDataIndex] = thatKeyHash;
+            }
+            dst[newDataIndex++] = thisKey.get();
+          }
+
+          // a sub-node with at least two elements shrinks to at most one element
+          isModified = true;
+        } else { // node (this) and node (that)
+          final AbstractSetNode<K> thisNode = this.nodeAt(bitpos);
+          final AbstractSetNode<K> subNodeNew = thisNode.intersect(mutator, that.nodeAt(bitpos),
+              shift + BIT_PARTITION_SIZE, details, cmp);
+
+          switch (subNodeNew.sizePredicate()) {
+            case SIZE_EMPTY: {
+              isModified = true;
+              break;
+            }
+            case SIZE_ONE: {
+              // inline value
+              newDataMap |= bitpos;
+              if (dstKeyHashes != null) {
+                dstKeyHashes[newDataIndex] = subNodeNew.getKeyHash(0);
+              }
+              dst[newDataIndex++] = subNodeNew.getKey(0);
+              isModified = true;
+              break;
+            }
+            default: {
+              newNodeMap |= bitpos;
+              dst[dst.length - 1 - newNodeIndex++] = subNodeNew;
+              isModified |= subNodeNew != thisNode;
+            }
+          }
+        }
+      }
+
+      if (!isModified) {
+        return this;
+      }
+
+      if (newDataMap == 0 && newNodeMap == 0) {
+        return nodeOf(mutator, hasMemoizedKeyHashes());
+      }
+
+      return nodeOf(mutator, newNodeMap, newDataMap, compact(dst, newDataIndex, newNodeIndex),
+          compact(dstKeyHashes, newDataIndex));
+    }
+
+    @Override
+    public AbstractSetNode<K> subtract(final AtomicReference<Thread> mutator,
+        final AbstractSetNode<K> other, final int shift, final SetNodeResult<K> details,
+        final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        details.modified();
+        details.updateDeltaSize(-size());
+        details.updateDeltaHashCode(-recursivePayloadHashCode());
+        return nodeOf(mutator, hasMemoizedKeyHashes());
+      }
+
+      final CompactSetNode<K> that = (CompactSetNode<K>) other;
+
+      final int thisDataMap = this.dataMap();
+      final int thisNodeMap = this.nodeMap();
+      final int thatDataMap = that.dataMap();
+      final int thatNodeMap = that.nodeMap();
+
+      final int thisBitmap = thisDataMap | thisNodeMap;
+      final int thatBitmap = thatDataMap | thatNodeMap;
+
+      if ((thisBitmap & thatBitmap) == 0) {
+        return this;
+      }
+
+      final Object[] dst = new Object[java.lang.Integer.bitCount(thisBitmap)];
+      final int[] dstKeyHashes = hasMemoizedKeyHashes() ? new int[dst.length] : null;
+
+      int newDataMap = 0;
+      int newNodeMap = 0;
+      int newDataIndex = 0;
+      int newNodeIndex = 0;
+
+      int thisDataIndex = 0;
+      int thisNodeIndex = 0;
+
+      boolean isModified = false;
+
+      for (int remaining = thisBitmap; remaining != 0; remaining &= remaining - 1) {
+        final int bitpos = remaining & -remaining;
+
+        if ((thisDataMap & bitpos) != 0) { // inplace value (this)
+          final int thisIndex = thisDataIndex++;
+          final K thisKey = this.getKey(thisIndex);
+          final int thisKeyHash = this.getKeyHash(thisIndex);
+
+          final boolean isContained;
+
+          if ((thatDataMap & bitpos) != 0) {
+            final int thatIndex = that.dataIndex(bitpos);
+            isContained = that.mayEqualKeyHash(thatIndex, thisKeyHash)
+                && cmp.equals(thisKey, that.getKey(thatIndex));
+          } else if ((thatNodeMap & bitpos) != 0) {
+            isContained = that.nodeAt(bitpos).contains(thisKey, transformHashCode(thisKeyHash),
+                shift + BIT_PARTITION_SIZE, cmp);
+          } else {
+            isContained = false;
+          }
+
+          if (isContained) {
+            details.modified();
+            details.updateDeltaSize(-1);
+            details.updateDeltaHashCode(-thisKeyHash);
+            isModified = true;
+          } else {
+            newDataMap |= bitpos;
+            if (dstKeyHashes != null) {
+              dstKeyHashes[newDataIndex] = thisKeyHash;
+            }
+            dst[newDataIndex++] = thisKey;
+          }
+        } else { // node (this)
+          final AbstractSetNode<K> thisNode = this.getNode(thisNodeIndex++);
+          final AbstractSetNode<K> subNodeNew;
+
+          if ((thatDataMap & bitpos) != 0) {
+            final int thatIndex = that.dataIndex(bitpos);
+            final SetNodeResult<K> removeDetails = SetNodeResult.unchanged();
+
+            subNodeNew = thisNode.removed(mutator, that.getKey(thatIndex),
+                transformHashCode(that.getKeyHash(thatIndex)), shift + BIT_PARTITION_SIZE,
+                removeDetails, cmp);
+
+            if (removeDetails.isModified()) {
+              details.modified();
+              details.updateDeltaSize(removeDetails.getDeltaSize());
+              details.updateDeltaHashCode(removeDetails.getDeltaHashCode());
+            }
+          } else if ((thatNodeMap & bitpos) != 0) {
+            subNodeNew = thisNode.subtract(mutator, that.nodeAt(bitpos),
+                shift + BIT_PARTITION_SIZE, details, cmp);
+          } else {
+            subNodeNew = thisNode;
+          }
+
+          switch (subNodeNew.sizePredicate()) {
+            case SIZE_EMPTY: {
+              isModified = true;
+              break;
+            }
+            case SIZE_ONE: {
+              // inline value
+              newDataMap |= bitpos;
+              if (dstKeyHashes != null) {
+                dstKeyHashes[newDataIndex] = subNodeNew.getKeyHash(0);
+              }
+              dst[newDataIndex++] = subNodeNew.getKey(0);
+              isModified = true;
+              break;
+            }
+            default: {
+              newNodeMap |= bitpos;
+              dst[dst.length - 1 - newNodeIndex++] = subNodeNew;
+              isModified |= subNodeNew != thisNode;
+            }
+          }
+        }
+      }
+
+      if (!isModified) {
+        return this;
+      }
+
+      if (newDataMap == 0 && newNodeMap == 0) {
+        return nodeOf(mutator, hasMemoizedKeyHashes());
+      }
+
+      return nodeOf(mutator, newNodeMap, newDataMap, compact(dst, newDataIndex, newNodeIndex),
+          compact(dstKeyHashes, newDataIndex));
+    }
+
+    @Override
+    void diff(final AbstractSetNode<K> other, final int shift, final Set.Transient<K> added,
+        final Set.Transient<K> removed, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return;
+      }
+
+      final CompactSetNode<K> that = (CompactSetNode<K>) other;
+
+      final int thisDataMap = this.dataMap();
+      final int thisNodeMap = this.nodeMap();
+      final int thatDataMap = that.dataMap();
+      final int thatNodeMap = that.nodeMap();
+
+      final int bitmap = thisDataMap | thisNodeMap | thatDataMap | thatNodeMap;
+
+      int thisDataIndex = 0;
+      int thisNodeIndex = 0;
+      int thatDataIndex = 0;
+      int thatNodeIndex = 0;
+
+      for (int remaining = bitmap; remaining != 0; remaining &= remaining - 1) {
+        final int bitpos = remaining & -remaining;
+
+        if ((thisDataMap & bitpos) != 0) { // inplace value (this)
+          final K thisKey = this.getKey(thisDataIndex++);
+
+          if ((thatDataMap & bitpos) != 0) {
+            final K thatKey = that.getKey(thatDataIndex++);
+
+            if (!cmp.equals(thisKey, thatKey)) {
+              removed.__insert(thisKey);
+              added.__insert(thatKey);
+            }
+          } else if ((thatNodeMap & bitpos) != 0) {
+            boolean isFound = false;
+
+            for (K thatKey : that.getNode(thatNodeIndex++)) {
+              if (cmp.equals(thisKey, thatKey)) {
+                isFound = true;
+              } else {
+                added.__insert(thatKey);
+              }
+            }
+
+            if (!isFound) {
+              removed.__insert(thisKey);
+            }
+          } else {
+            removed.__insert(thisKey);
+          }
+        } else if ((thisNodeMap & bitpos) != 0) { // node (this)
+          final CompactSetNode<K> thisNode = this.getNode(thisNodeIndex++);
+
+          if ((thatDataMap & bitpos) != 0) {
+            final K thatKey = that.getKey(thatDataIndex++);
+            boolean isFound = false;
+
+            for (K thisKey : thisNode) {
+              if (cmp.equals(thisKey, thatKey)) {
+                isFound = true;
+              } else {
+                removed.__insert(thisKey);
+              }
+            }
+
+            if (!isFound) {
+              added.__insert(thatKey);
+            }
+          } else if ((thatNodeMap & bitpos) != 0) {
+            thisNode.diff(that.getNode(thatNodeIndex++), shift + BIT_PARTITION_SIZE, added,
+                removed, cmp);
+          } else {
+            for (K thisKey : thisNode) {
+              removed.__insert(thisKey);
+            }
+          }
+        } else if ((thatDataMap & bitpos) != 0) { // inplace value (only that)
+          added.__insert(that.getKey(thatDataIndex++));
+        } else { // node (only that)
+          for (K thatKey : that.getNode(thatNodeIndex++)) {
+            added.__insert(thatKey);
           }
         }
       }
+    }
 
-      return this;
+    /**
+     * Truncates a partially filled array of memoized key hashes to {@code payloadArity}; passes
+     * through {@code null} for nodes that do not memoize key hashes.
+     */
+    static final int[] compact(final int[] src, final int payloadArity) {
+      if (src == null || payloadArity == src.length) {
+        return src;
+      }
+
+      return Arrays.copyOf(src, payloadArity);
+    }
+
+    /**
+     * Cheap pre-check before comparing keys of two nodes for equality.
+     *
+     * @return {@code false} only if both keys have memoized hash codes that differ
+     */
+    static final boolean mayEqualKeyHashes(final CompactSetNode<?> node0, final int index0,
+        final CompactSetNode<?> node1, final int index1) {
+      return !node0.hasMemoizedKeyHashes() || !node1.hasMemoizedKeyHashes()
+          || node0.getKeyHash(index0) == node1.getKeyHash(index1);
+    }
+
+    /**
+     * Removes unused slots between the values (stored at the front) and the sub-nodes (stored at
+     * the back) of a partially filled {@code src} array.
+     */
+    static final Object[] compact(final Object[] src, final int payloadArity,
+        final int nodeArity) {
+      if (payloadArity + nodeArity == src.length) {
+        return src;
+      }
+
+      final Object[] dst = new Object[payloadArity + nodeArity];
+
+      System.arraycopy(src, 0, dst, 0, payloadArity);
+      System.arraycopy(src, src.length - nodeArity, dst, payloadArity, nodeArity);
+
+      return dst;
     }
 
     /**
@@ -1017,16 +1881,24 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
     transient final AtomicReference<Thread> mutator;
     final Object[] nodes;
 
+    /**
+     * Hash codes of the payload in {@code nodes}, or {@code null} if this node does not memoize
+     * key hashes. Never modified in-place and therefore shared between copies.
+     */
+    final int[] keyHashes;
+
     private BitmapIndexedSetNode(final AtomicReference<Thread> mutator, final int nodeMap,
-        final int dataMap, final Object[] nodes) {
+        final int dataMap, final Object[] nodes, final int[] keyHashes) {
       super(mutator, nodeMap, dataMap);
 
       this.mutator = mutator;
       this.nodes = nodes;
+      this.keyHashes = keyHashes;
 
       if (DEBUG) {
         assert (TUPLE_LENGTH * java.lang.Integer.bitCount(dataMap)
             + java.lang.Integer.bitCount(nodeMap) == nodes.length);
+        assert keyHashes == null || keyHashes.length == java.lang.Integer.bitCount(dataMap);
 
         for (int i = 0; i < TUPLE_LENGTH * payloadArity(); i++) {
           assert ((nodes[i] instanceof CompactSetNode) == false);
@@ -1083,7 +1955,41 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     @Override
     public int getKeyHash(int index) {
-      return getKey(index).hashCode();
+      return keyHashes != null ? keyHashes[index] : getKey(index).hashCode();
+    }
+
+    @Override
+    boolean hasMemoizedKeyHashes() {
+      return keyHashes != null;
+    }
+
+    @Override
+    CompactSetNode<K> withKeyHashLayout(final boolean memoizeKeyHashes) {
+      if (hasMemoizedKeyHashes() == memoizeKeyHashes) {
+        return this;
+      }
+
+      final int payloadArity = payloadArity();
+      final Object[] dst = new Object[nodes.length];
+      final int[] dstKeyHashes = memoizeKeyHashes ? new int[payloadArity] : null;
+
+      for (int i = 0; i < payloadArity; i++) {
+        dst[i] = nodes[i];
+        if (dstKeyHashes != null) {
+          dstKeyHashes[i] = getKeyHash(i);
+        }
+      }
+
+      for (int i = payloadArity; i < nodes.length; i++) {
+        dst[i] = ((CompactSetNode<K>) nodes[i]).withKeyHashLayout(memoizeKeyHashes);
+      }
+
+      return nodeOf(null, nodeMap(), dataMap(), dst, dstKeyHashes);
+    }
+
+    @Override
+    boolean mayEqualKeyHash(final int index, final int keyHash) {
+      return keyHashes == null || keyHashes[index] == keyHash;
     }
 
     @Override
@@ -1138,6 +2044,10 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     @Override
     int localPayloadHashCode() {
+      if (keyHashes != null) {
+        return IntStream.of(keyHashes).sum();
+      }
+
       final Stream<K> keyStream =
           StreamSupport.stream(this.<K>dataArray(0, 0).spliterator(), false);
       return keyStream.mapToInt(Object::hashCode).sum();
@@ -1176,6 +2086,10 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       if (dataMap() != that.dataMap()) {
         return false;
       }
+      if (keyHashes != null && that.keyHashes != null
+          && !Arrays.equals(keyHashes, that.keyHashes)) {
+        return false;
+      }
       if (!deepContentEquality(nodes, that.nodes, payloadArity(), slotArity(), cmp)) {
         return false;
       }
@@ -1266,13 +2180,13 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
         System.arraycopy(src, 0, dst, 0, src.length);
         dst[idx + 0] = newNode;
 
-        return nodeOf(mutator, nodeMap(), dataMap(), dst);
+        return nodeOf(mutator, nodeMap(), dataMap(), dst, keyHashes);
       }
     }
 
     @Override
     CompactSetNode<K> copyAndInsertValue(final AtomicReference<Thread> mutator, final int bitpos,
-        final K key) {
+        final K key, final int keyHash) {
       final int idx = TUPLE_LENGTH * dataIndex(bitpos);
 
       final Object[] src = this.nodes;
@@ -1283,7 +2197,8 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       dst[idx + 0] = key;
       System.arraycopy(src, idx, dst, idx + 1, src.length - idx);
 
-      return nodeOf(mutator, nodeMap(), dataMap() | bitpos, dst);
+      return nodeOf(mutator, nodeMap(), dataMap() | bitpos, dst,
+          arraycopyAndInsertKeyHash(keyHashes, idx, keyHash));
     }
 
     @Override
@@ -1297,7 +2212,8 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       System.arraycopy(src, 0, dst, 0, idx);
       System.arraycopy(src, idx + 1, dst, idx, src.length - idx - 1);
 
-      return nodeOf(mutator, nodeMap(), dataMap() ^ bitpos, dst);
+      return nodeOf(mutator, nodeMap(), dataMap() ^ bitpos, dst,
+          arraycopyAndRemoveKeyHash(keyHashes, idx));
     }
 
     @Override
@@ -1318,7 +2234,8 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       dst[idxNew + 0] = node;
       System.arraycopy(src, idxNew + 1, dst, idxNew + 1, src.length - idxNew - 1);
 
-      return nodeOf(mutator, nodeMap() | bitpos, dataMap() ^ bitpos, dst);
+      return nodeOf(mutator, nodeMap() | bitpos, dataMap() ^ bitpos, dst,
+          arraycopyAndRemoveKeyHash(keyHashes, idxOld));
     }
 
     @Override
@@ -1339,7 +2256,39 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       System.arraycopy(src, idxNew, dst, idxNew + 1, idxOld - idxNew);
       System.arraycopy(src, idxOld + 1, dst, idxOld + 1, src.length - idxOld - 1);
 
-      return nodeOf(mutator, nodeMap() ^ bitpos, dataMap() | bitpos, dst);
+      return nodeOf(mutator, nodeMap() ^ bitpos, dataMap() | bitpos, dst,
+          keyHashes == null ? null : arraycopyAndInsertKeyHash(keyHashes, idxNew,
+              node.getKeyHash(0)));
+    }
+
+    private static int[] arraycopyAndInsertKeyHash(final int[] src, final int idx,
+        final int keyHash) {
+      if (src == null) {
+        return null;
+      }
+
+      final int[] dst = new int[src.length + 1];
+
+      // copy 'src' and insert 1 element(s) at position 'idx'
+      System.arraycopy(src, 0, dst, 0, idx);
+      dst[idx] = keyHash;
+      System.arraycopy(src, idx, dst, idx + 1, src.length - idx);
+
+      return dst;
+    }
+
+    private static int[] arraycopyAndRemoveKeyHash(final int[] src, final int idx) {
+      if (src == null) {
+        return null;
+      }
+
+      final int[] dst = new int[src.length - 1];
+
+      // copy 'src' and remove 1 element(s) at position 'idx'
+      System.arraycopy(src, 0, dst, 0, idx);
+      System.arraycopy(src, idx + 1, dst, idx, src.length - idx - 1);
+
+      return dst;
     }
 
   }
@@ -1350,14 +2299,33 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     private final int hash;
 
-    HashCollisionSetNode(final int hash, final K[] keys) {
+    /*
+     * NOTE: layout of the trie this node belongs to, passed on to the single-key node that
+     * replaces it when it shrinks
+     */
+    private final boolean memoizeKeyHashes;
+
+    HashCollisionSetNode(final int hash, final K[] keys, final boolean memoizeKeyHashes) {
       this.keys = keys;
 
       this.hash = hash;
 
+      this.memoizeKeyHashes = memoizeKeyHashes;
+
       assert payloadArity() >= 2;
     }
 
+    @Override
+    boolean hasMemoizedKeyHashes() {
+      return memoizeKeyHashes;
+    }
+
+    @Override
+    CompactSetNode<K> withKeyHashLayout(final boolean memoizeKeyHashes) {
+      return this.memoizeKeyHashes == memoizeKeyHashes ? this
+          : new HashCollisionSetNode<>(hash, keys, memoizeKeyHashes);
+    }
+
     @Override
     public ArrayView<AbstractSetNode<K>> nodeArray() {
       return ArrayView.empty();
@@ -1388,6 +2356,23 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       return Optional.empty();
     }
 
+    @Override
+    public boolean contains(final Object key, final int keyHash, final int shift) {
+      return findByKeyOrNull(key, keyHash, shift) != null;
+    }
+
+    @Override
+    public K findByKeyOrNull(final Object key, final int keyHash, final int shift) {
+      if (this.hash == keyHash) {
+        for (K k : keys) {
+          if (k.equals(key)) {
+            return k;
+          }
+        }
+      }
+      return null;
+    }
+
     @Override
     public AbstractSetNode<K> updated(final AtomicReference<Thread> mutator, final K key,
         final int keyHash, final int shift, final SetNodeResult<K> details,
@@ -1412,7 +2397,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       details.modified();
       details.updateDeltaSize(1);
       details.updateDeltaHashCode(keyHash);
-      return new HashCollisionSetNode<>(keyHash, keysNew);
+      return new HashCollisionSetNode<>(keyHash, keysNew, memoizeKeyHashes);
     }
 
     @Override
@@ -1426,7 +2411,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
           details.updateDeltaHashCode(-keyHash);
 
           if (this.arity() == 1) {
-            return nodeOf(mutator);
+            return nodeOf(mutator, memoizeKeyHashes);
           } else if (this.arity() == 2) {
             /*
              * Create root node with singleton element. This node will be a) either be the new root
@@ -1434,8 +2419,8 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
              */
             final K theOtherKey = (idx == 0) ? keys[1] : keys[0];
 
-            return CompactSetNode.<K>nodeOf(mutator).updated(mutator, theOtherKey, keyHash, 0,
-                SetNodeResult.unchanged(), cmp);
+            return CompactSetNode.<K>nodeOf(mutator, bitpos(mask(hash, 0)), theOtherKey, hash,
+                memoizeKeyHashes);
           } else {
             final K[] keysNew = (K[]) new Object[this.keys.length - 1];
 
@@ -1444,13 +2429,121 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
             System.arraycopy(this.keys, 0, keysNew, 0, idx);
             System.arraycopy(this.keys, idx + 1, keysNew, idx, this.keys.length - idx - 1);
 
-            return new HashCollisionSetNode<>(keyHash, keysNew);
+            return new HashCollisionSetNode<>(keyHash, keysNew, memoizeKeyHashes);
           }
         }
       }
       return this;
     }
 
+    @Override
+    public AbstractSetNode<K> union(final AtomicReference<Thread> mutator,
+        final AbstractSetNode<K> other, final int shift, final SetNodeResult<K> details,
+        final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return this;
+      }
+
+      /*
+       * Both nodes share the same full hash code; collision nodes are small and unordered, hence
+       * elements of {@code other} are inserted one by one.
+       */
+      AbstractSetNode<K> result = this;
+
+      for (int i = 0; i < other.payloadArity(); i++) {
+        result = result.updated(mutator, other.getKey(i), hash, shift, details, cmp);
+      }
+
+      return result;
+    }
+
+    @Override
+    public AbstractSetNode<K> intersect(final AtomicReference<Thread> mutator,
+        final AbstractSetNode<K> other, final int shift, final SetNodeResult<K> details,
+        final EqualityComparator<Object> cmp) {
+      final AbstractSetNode<K> result = retained(mutator, other, shift, true, cmp);
+
+      details.updateDeltaSize(result.payloadArity());
+      details.updateDeltaHashCode(hash * result.payloadArity());
+
+      return result;
+    }
+
+    @Override
+    public AbstractSetNode<K> subtract(final AtomicReference<Thread> mutator,
+        final AbstractSetNode<K> other, final int shift, final SetNodeResult<K> details,
+        final EqualityComparator<Object> cmp) {
+      final AbstractSetNode<K> result = retained(mutator, other, shift, false, cmp);
+
+      if (result != this) {
+        final int removedArity = keys.length - result.payloadArity();
+
+        details.modified();
+        details.updateDeltaSize(-removedArity);
+        details.updateDeltaHashCode(-hash * removedArity);
+      }
+
+      return result;
+    }
+
+    @Override
+    void diff(final AbstractSetNode<K> other, final int shift, final Set.Transient<K> added,
+        final Set.Transient<K> removed, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return;
+      }
+
+      for (K key : keys) {
+        if (!other.contains(key, hash, shift, cmp)) {
+          removed.__insert(key);
+        }
+      }
+
+      for (int i = 0; i < other.payloadArity(); i++) {
+        final K thatKey = other.getKey(i);
+
+        if (!this.contains(thatKey, hash, shift, cmp)) {
+          added.__insert(thatKey);
+        }
+      }
+    }
+
+    /**
+     * Retains the keys of this node whose containment in {@code other} matches
+     * {@code retainContained}.
+     */
+    private AbstractSetNode<K> retained(final AtomicReference<Thread> mutator,
+        final AbstractSetNode<K> other, final int shift, final boolean retainContained,
+        final EqualityComparator<Object> cmp) {
+      final K[] keysNew = (K[]) new Object[keys.length];
+      int arityNew = 0;
+
+      for (K key : keys) {
+        if (other.contains(key, hash, shift, cmp) == retainContained) {
+          keysNew[arityNew++] = key;
+        }
+      }
+
+      switch (arityNew) {
+        case 0:
+          return nodeOf(mutator, memoizeKeyHashes);
+        case 1:
+          /*
+           * Create root node with singleton element. This node will be a) either be the new root
+           * returned, or b) unwrapped and inlined.
+           */
+          return CompactSetNode.<K>nodeOf(mutator, bitpos(mask(hash, 0)), keysNew[0], hash,
+              memoizeKeyHashes);
+        default:
+          if (arityNew == keys.length) {
+            return this;
+          } else {
+            return new HashCollisionSetNode<>(hash, Arrays.copyOf(keysNew, arityNew),
+                memoizeKeyHashes);
+          }
+      }
+    }
+
     @Override
     public boolean hasPayload() {
       return true;
@@ -1488,7 +2581,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     @Override
     public int getKeyHash(int index) {
-      return getKey(index).hashCode();
+      return hash;
     }
 
     @Override
@@ -1580,7 +2673,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     @Override
     CompactSetNode<K> copyAndInsertValue(final AtomicReference<Thread> mutator, final int bitpos,
-        final K key) {
+        final K key, final int keyHash) {
       throw new UnsupportedOperationException();
     }
 
@@ -1727,6 +2820,132 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
   }
 
+  /**
+   * Spliterator that splits at node boundaries. Sub-nodes that were not visited yet are kept in a
+   * deque, of which {@link #trySplit()} hands over half to a new spliterator. Only a spliterator
+   * that covers a whole trie knows its exact size; split off parts report estimates.
+   */
+  protected static class SetKeySpliterator<K> implements Spliterator<K> {
+
+    private final Deque<AbstractSetNode<K>> pendingNodes;
+
+    private AbstractSetNode<K> currentValueNode;
+    private int currentValueCursor;
+    private int currentValueLength;
+
+    private long estimatedSize;
+    private int characteristics;
+
+    SetKeySpliterator(final AbstractSetNode<K> rootNode, final int size,
+        final int characteristics) {
+      this(new ArrayDeque<>(), size, characteristics | Spliterator.SIZED);
+      pendingNodes.push(rootNode);
+    }
+
+    private SetKeySpliterator(final Deque<AbstractSetNode<K>> pendingNodes,
+        final long estimatedSize, final int characteristics) {
+      this.pendingNodes = pendingNodes;
+      this.estimatedSize = estimatedSize;
+      this.characteristics = characteristics;
+    }
+
+    /*
+     * search for next node that contains values, visiting sub-nodes depth-first
+     */
+    private boolean searchNextValueNode() {
+      while (!pendingNodes.isEmpty()) {
+        final AbstractSetNode<K> nextNode = pendingNodes.pop();
+
+        for (int i = nextNode.nodeArity() - 1; i >= 0; i--) {
+          pendingNodes.push(nextNode.getNode(i));
+        }
+
+        if (nextNode.hasPayload()) {
+          currentValueNode = nextNode;
+          currentValueCursor = 0;
+          currentValueLength = nextNode.payloadArity();
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super K> action) {
+      if (currentValueCursor < currentValueLength || searchNextValueNode()) {
+        if (estimatedSize > 0) {
+          estimatedSize--;
+        }
+
+        action.accept(currentValueNode.getKey(currentValueCursor++));
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super K> action) {
+      do {
+        while (currentValueCursor < currentValueLength) {
+          action.accept(currentValueNode.getKey(currentValueCursor++));
+        }
+      } while (searchNextValueNode());
+
+      estimatedSize = 0;
+    }
+
+    @Override
+    public Spliterator<K> trySplit() {
+      /*
+       * descend into a single remaining sub-node, until there is something to hand over
+       */
+      while (pendingNodes.size() == 1 && currentValueCursor == currentValueLength) {
+        final AbstractSetNode<K> nextNode = pendingNodes.pop();
+
+        for (int i = nextNode.nodeArity() - 1; i >= 0; i--) {
+          pendingNodes.push(nextNode.getNode(i));
+        }
+
+        if (nextNode.hasPayload()) {
+          currentValueNode = nextNode;
+          currentValueCursor = 0;
+          currentValueLength = nextNode.payloadArity();
+        }
+      }
+
+      if (pendingNodes.isEmpty()) {
+        return null;
+      }
+
+      final int splitNodeCount = (pendingNodes.size() + 1) / 2;
+      final Deque<AbstractSetNode<K>> splitNodes = new ArrayDeque<>(splitNodeCount);
+
+      for (int i = 0; i < splitNodeCount; i++) {
+        splitNodes.addFirst(pendingNodes.pollLast());
+      }
+
+      final long splitEstimatedSize = estimatedSize >>> 1;
+
+      estimatedSize -= splitEstimatedSize;
+      characteristics &= ~Spliterator.SIZED;
+
+      return new SetKeySpliterator<>(splitNodes, splitEstimatedSize, characteristics);
+    }
+
+    @Override
+    public long estimateSize() {
+      return estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+      return characteristics;
+    }
+
+  }
+
   /**
    * Iterator that first iterates over inlined-values and then continues depth first recursively.
    */
@@ -1782,6 +3001,12 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
     protected int cachedHashCode;
     protected int cachedSize;
 
+    /**
+     * Result object that is reused by single-element updates (which are confined to the mutator
+     * thread), such that in-place updates do not allocate.
+     */
+    private final SetNodeResult<K> updateDetails = SetNodeResult.unchanged();
+
     AbstractTransientTrieSet(PersistentTrieSet<K> trieSet) {
       this.rootNode = trieSet.rootNode;
       this.cachedHashCode = trieSet.cachedHashCode;
@@ -1837,7 +3062,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     @Override
     public boolean contains(final Object o) {
-      return containsEquivalent(o, Object::equals);
+      return rootNode.contains(o, transformHashCode(o.hashCode()), 0);
     }
 
     @Override
@@ -1852,7 +3077,7 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
 
     @Override
     public K get(final Object o) {
-      return getEquivalent(o, Object::equals);
+      return rootNode.findByKeyOrNull(o, transformHashCode(o.hashCode()), 0);
     }
 
     @Override
@@ -1883,7 +3108,8 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       }
 
       final int keyHash = key.hashCode();
-      final SetNodeResult<K> details = SetNodeResult.unchanged();
+      final SetNodeResult<K> details = updateDetails;
+      details.reset();
 
       final AbstractSetNode<K> newRootNode =
           rootNode.updated(mutator, key, transformHashCode(keyHash), 0, details, cmp);
@@ -1924,6 +3150,61 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       return modified;
     }
 
+    /**
+     * Structurally unions the trie of {@code set} into this transient if {@code set} is a
+     * {@link PersistentTrieSet}, otherwise falls back to inserting element by element. Nodes of the
+     * (immutable) argument are shared with, and copied on later modification by, this transient.
+     */
+    protected boolean __insertAllEquivalentWithCapability(AtomicReference<Thread> mutator,
+        final java.util.Set<? extends K> set, final EqualityComparator<Object> cmp) {
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      if (!(set instanceof PersistentTrieSet)) {
+        boolean modified = false;
+
+        for (final K key : set) {
+          modified |= __insertEquivalentWithCapability(mutator, key, cmp);
+        }
+
+        return modified;
+      }
+
+      final PersistentTrieSet<K> that = (PersistentTrieSet<K>) set;
+      final SetNodeResult<K> details = SetNodeResult.unchanged();
+
+      final int newHashCode;
+      final int newSize;
+
+      /*
+       * Union smaller into bigger, unless that would change the node layout of this set; nodes of
+       * `that` are not editable by `mutator` and get copied.
+       */
+      final boolean isSameLayout = ((CompactSetNode<K>) that.rootNode)
+          .hasMemoizedKeyHashes() == ((CompactSetNode<K>) rootNode).hasMemoizedKeyHashes();
+
+      if (that.cachedSize > cachedSize && isSameLayout) {
+        rootNode = that.rootNode.union(mutator, rootNode, 0, details, cmp);
+        newHashCode = that.cachedHashCode + details.getDeltaHashCode();
+        newSize = that.cachedSize + details.getDeltaSize();
+      } else {
+        rootNode = rootNode.union(mutator, that.rootNode, 0, details, cmp);
+        newHashCode = cachedHashCode + details.getDeltaHashCode();
+        newSize = cachedSize + details.getDeltaSize();
+      }
+
+      final boolean modified = newSize != cachedSize;
+
+      cachedHashCode = newHashCode;
+      cachedSize = newSize;
+
+      if (DEBUG) {
+        assert checkHashCodeAndSize(cachedHashCode, cachedSize);
+      }
+      return modified;
+    }
+
     protected boolean __removeWithCapability(AtomicReference<Thread> mutator, final K key) {
       return __removeEquivalentWithCapability(mutator, key, Object::equals);
     }
@@ -1935,7 +3216,8 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       }
 
       final int keyHash = key.hashCode();
-      final SetNodeResult<K> details = SetNodeResult.unchanged();
+      final SetNodeResult<K> details = updateDetails;
+      details.reset();
 
       final AbstractSetNode<K> newRootNode =
           rootNode.removed(mutator, key, transformHashCode(keyHash), 0, details, cmp);
@@ -2151,6 +3433,12 @@ public class PersistentTrieSet<K> implements Set.Immutable<K>, java.io.Serializa
       return __insertEquivalentWithCapability(this.mutator, key, cmp);
     }
 
+    @Override
+    public boolean __insertAllEquivalent(final java.util.Set<? extends K> set,
+        final EqualityComparator<Object> cmp) {
+      return __insertAllEquivalentWithCapability(this.mutator, set, cmp);
+    }
+
     @Override
     public boolean __remove(final K key) {
       return __removeWithCapability(this.mutator, key);
@@ -7,24 +7,25 @@
  */
 package io.usethesource.capsule.core;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
-import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import io.usethesource.capsule.SetMultimap;
 import io.usethesource.capsule.core.PersistentTrieSetMultimap.AbstractSetMultimapNode;
@@ -35,6 +36,7 @@ import io.usethesource.capsule.core.trie.MultimapNode;
 import io.usethesource.capsule.core.trie.MultimapResult;
 import io.usethesource.capsule.util.ArrayUtils;
 import io.usethesource.capsule.util.EqualityComparator;
+import io.usethesource.capsule.util.ForkJoinUtils;
 import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
 import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableSet;
 
@@ -65,7 +67,7 @@ public class PersistentTrieSetMultimap<K, V> extends
   private static final long serialVersionUID = 42L;
 
   private static final PersistentTrieSetMultimap EMPTY_SETMULTIMAP = new PersistentTrieSetMultimap(
-      EqualityComparator.EQUALS, CompactSetMultimapNode.EMPTY_NODE, 0, 0, 0);
+      EqualityComparator.EQUALS, CompactSetMultimapNode.EMPTY_NODE, 0, 0, 0, 0);
 
 //  PersistentTrieSetMultimap(EqualityComparator<Object> cmp,
 //      AbstractSetMultimapNode<K, V> rootNode) {
@@ -85,8 +87,8 @@ public class PersistentTrieSetMultimap<K, V> extends
 //  }
 
   PersistentTrieSetMultimap(EqualityComparator<Object> cmp, AbstractSetMultimapNode<K, V> rootNode,
-      int cachedSize, int keySetHashCode, int keySetSize) {
-    super(cmp, rootNode, cachedSize, keySetHashCode, keySetSize);
+      int cachedHashCode, int cachedSize, int keySetHashCode, int keySetSize) {
+    super(cmp, rootNode, cachedHashCode, cachedSize, keySetHashCode, keySetSize);
   }
 
   @Override
@@ -108,8 +110,10 @@ public class PersistentTrieSetMultimap<K, V> extends
 
   @Override
   protected final PersistentTrieSetMultimap<K, V> wrap(EqualityComparator<Object> cmp,
-      AbstractSetMultimapNode<K, V> rootNode, int cachedSize, int keySetHashCode, int keySetSize) {
-    return new PersistentTrieSetMultimap(cmp, rootNode, cachedSize, keySetHashCode, keySetSize);
+      AbstractSetMultimapNode<K, V> rootNode, int cachedHashCode, int cachedSize,
+      int keySetHashCode, int keySetSize) {
+    return new PersistentTrieSetMultimap(cmp, rootNode, cachedHashCode, cachedSize,
+        keySetHashCode, keySetSize);
   }
 
   public static final <K, V> SetMultimap.Immutable<K, V> of() {
@@ -118,7 +122,7 @@ public class PersistentTrieSetMultimap<K, V> extends
 
   public static final <K, V> SetMultimap.Immutable<K, V> of(EqualityComparator<Object> cmp) {
     // TODO: unify with `of()`
-    return new PersistentTrieSetMultimap(cmp, CompactSetMultimapNode.EMPTY_NODE, 0, 0, 0);
+    return new PersistentTrieSetMultimap(cmp, CompactSetMultimapNode.EMPTY_NODE, 0, 0, 0, 0);
   }
 
   public static final <K, V> SetMultimap.Immutable<K, V> of(K key, V... values) {
@@ -162,18 +166,189 @@ public class PersistentTrieSetMultimap<K, V> extends
   @Override
   public SetMultimap.Immutable<K, V> union(
       final SetMultimap<? extends K, ? extends V> setMultimap) {
-    final SetMultimap.Transient<K, V> tmpTransient = this.asTransient();
-    tmpTransient.union(setMultimap);
-    return tmpTransient.freeze();
+    if (setMultimap == this) {
+      return this;
+    }
+    if (!(setMultimap instanceof PersistentTrieSetMultimap)) {
+      return super.union(setMultimap);
+    }
+
+    final PersistentTrieSetMultimap<K, V> that = (PersistentTrieSetMultimap<K, V>) setMultimap;
+
+    final PersistentTrieSetMultimap<K, V> bigger;
+    final PersistentTrieSetMultimap<K, V> smaller;
+
+    if (that.cachedSize > this.cachedSize) {
+      bigger = that;
+      smaller = this;
+    } else {
+      bigger = this;
+      smaller = that;
+    }
+
+    final SetMultimapNodeResult details = new SetMultimapNodeResult();
+
+    final AbstractSetMultimapNode<K, V> newRootNode =
+        bigger.rootNode.union(null, smaller.rootNode, 0, details, cmp);
+
+    if (newRootNode == bigger.rootNode) {
+      return bigger;
+    }
+
+    return wrap(cmp, newRootNode, bigger.cachedHashCode + details.getDeltaHashCode(),
+        bigger.cachedSize + details.getDeltaSize(),
+        bigger.cachedKeySetHashCode + details.getDeltaKeySetHashCode(),
+        bigger.cachedKeySetSize + details.getDeltaKeySetSize());
+  }
+
+  @Override
+  public SetMultimap.Immutable<K, V> intersect(
+      final SetMultimap<? extends K, ? extends V> setMultimap) {
+    if (setMultimap == this) {
+      return this;
+    }
+    if (!(setMultimap instanceof PersistentTrieSetMultimap)) {
+      return super.intersect(setMultimap);
+    }
+
+    final PersistentTrieSetMultimap<K, V> that = (PersistentTrieSetMultimap<K, V>) setMultimap;
+
+    final PersistentTrieSetMultimap<K, V> bigger;
+    final PersistentTrieSetMultimap<K, V> smaller;
+
+    if (that.cachedSize >= this.cachedSize) {
+      bigger = that;
+      smaller = this;
+    } else {
+      bigger = this;
+      smaller = that;
+    }
+
+    final SetMultimapNodeResult details = new SetMultimapNodeResult();
+
+    final AbstractSetMultimapNode<K, V> newRootNode =
+        smaller.rootNode.intersect(null, bigger.rootNode, 0, details, cmp);
+
+    if (newRootNode == smaller.rootNode) {
+      return smaller;
+    }
+
+    return wrap(cmp, newRootNode, details.getDeltaHashCode(), details.getDeltaSize(),
+        details.getDeltaKeySetHashCode(), details.getDeltaKeySetSize());
   }
 
+  /**
+   * Returns the tuples of {@code setMultimap} that are not contained in this multi-map. If
+   * {@code setMultimap} is a {@link PersistentTrieSetMultimap}, its trie is subtracted node by
+   * node and unchanged sub-tries are shared with the result.
+   */
+  @Override
+  public SetMultimap.Immutable<K, V> complement(
+      final SetMultimap<? extends K, ? extends V> setMultimap) {
+    if (setMultimap == this) {
+      return wrap(cmp, CompactSetMultimapNode.EMPTY_NODE, 0, 0, 0, 0);
+    }
+    if (!(setMultimap instanceof PersistentTrieSetMultimap)) {
+      return super.complement(setMultimap);
+    }
+
+    final PersistentTrieSetMultimap<K, V> that = (PersistentTrieSetMultimap<K, V>) setMultimap;
+    final SetMultimapNodeResult details = new SetMultimapNodeResult();
+
+    final AbstractSetMultimapNode<K, V> newRootNode =
+        that.rootNode.subtract(null, this.rootNode, 0, details, cmp);
+
+    if (newRootNode == that.rootNode) {
+      return that;
+    }
+
+    return wrap(cmp, newRootNode, that.cachedHashCode + details.getDeltaHashCode(),
+        that.cachedSize + details.getDeltaSize(),
+        that.cachedKeySetHashCode + details.getDeltaKeySetHashCode(),
+        that.cachedKeySetSize + details.getDeltaKeySetSize());
+  }
+
+  /**
+   * Inverts this multi-map. The keys of every value are batched into a single insertion, such that
+   * every key of the inverse is looked up only once.
+   */
   @Override
   public SetMultimap.Immutable<V, K> inverseMap() {
     final SetMultimap.Transient<V, K> builder = PersistentTrieSetMultimap.transientOf();
+    insertInverse(builder, entryIterator());
+    return builder.freeze();
+  }
 
-    entryIterator().forEachRemaining(tuple -> builder.__insert(tuple.getValue(), tuple.getKey()));
+  /**
+   * Inverts this multi-map in parallel on {@code pool}. The tuples are partitioned by the hash bits
+   * of their values that index the root node of the inverse, each partition is inverted into a
+   * sub-trie by a separate task, and the disjoint sub-tries are finally assembled under a common
+   * root node. Each value is therefore only ever looked up in the sub-trie of its own partition.
+   */
+  public SetMultimap.Immutable<V, K> inverseMap(final ForkJoinPool pool) {
+    final int partitionCount = 1 << CompactSetMultimapNode.BIT_PARTITION_SIZE;
 
-    return builder.freeze();
+    // collecting splits the tuples along the sub-tries of this multi-map
+    final List<Map.Entry<K, V>> tuples =
+        pool.submit(() -> entrySet().parallelStream().collect(Collectors.toList())).join();
+
+    final List<List<Map.Entry<K, V>>> partitions = ForkJoinUtils.partition(pool, tuples,
+        partitionCount,
+        tuple -> CompactSetMultimapNode.mask(transformHashCode(tuple.getValue().hashCode()), 0));
+
+    final List<PersistentTrieSetMultimap<V, K>> subTries =
+        new ArrayList<>(Collections.nCopies(partitionCount, null));
+
+    ForkJoinUtils.invokeAll(pool, partitionCount, mask -> {
+      final SetMultimap.Transient<V, K> tmp = PersistentTrieSetMultimap.transientOf();
+      insertInverse(tmp, partitions.get(mask).iterator());
+      subTries.set(mask, (PersistentTrieSetMultimap<V, K>) tmp.freeze());
+    });
+
+    final CompactSetMultimapNode.NodeBuilder<V, K> builder =
+        new CompactSetMultimapNode.NodeBuilder<>(partitionCount);
+
+    int cachedHashCode = 0;
+    int cachedSize = 0;
+    int cachedKeySetHashCode = 0;
+    int cachedKeySetSize = 0;
+
+    for (int mask = 0; mask < partitionCount; mask++) {
+      final PersistentTrieSetMultimap<V, K> subTrie = subTries.get(mask);
+
+      // all keys share the same root mask, i.e., the root of a sub-trie with multiple keys has a
+      // single sub-node; a single key is inlined by the builder
+      builder.node(CompactSetMultimapNode.bitpos(mask),
+          subTrie.cachedKeySetSize > 1 ? subTrie.rootNode.getNode(0) : subTrie.rootNode);
+
+      cachedHashCode += subTrie.cachedHashCode;
+      cachedSize += subTrie.cachedSize;
+      cachedKeySetHashCode += subTrie.cachedKeySetHashCode;
+      cachedKeySetSize += subTrie.cachedKeySetSize;
+    }
+
+    if (cachedSize == 0) {
+      return PersistentTrieSetMultimap.of();
+    }
+
+    return new PersistentTrieSetMultimap<V, K>(EqualityComparator.EQUALS, builder.build(null),
+        cachedHashCode, cachedSize, cachedKeySetHashCode, cachedKeySetSize);
+  }
+
+  /*
+   * Inserts the inverse of 'tuples' into 'builder'. Keys are grouped by value first: the keys of
+   * every value are collected in a transient set and inserted at once, avoiding a persistent update
+   * of the nested value set per tuple (a singleton set is inserted as single value).
+   */
+  private static final <K, V> void insertInverse(final SetMultimap.Transient<V, K> builder,
+      final Iterator<Map.Entry<K, V>> tuples) {
+    final Map<V, io.usethesource.capsule.Set.Transient<K>> keysByValue = new HashMap<>();
+
+    tuples.forEachRemaining(tuple -> keysByValue
+        .computeIfAbsent(tuple.getValue(), value -> io.usethesource.capsule.Set.Transient.of())
+        .__insert(tuple.getKey()));
+
+    keysByValue.forEach((value, keys) -> builder.__insert(value, keys.freeze()));
   }
 
   @Override
@@ -191,11 +366,6 @@ public class PersistentTrieSetMultimap<K, V> extends
     return cachedSize == 0;
   }
 
-  @Override
-  public Iterator<V> valueIterator() {
-    return super.valueIterator(io.usethesource.capsule.Set.Immutable::of);
-  }
-
   @Override
   public boolean isTransientSupported() {
     return true;
@@ -206,6 +376,94 @@ public class PersistentTrieSetMultimap<K, V> extends
     return new TransientTrieSetMultimap<K, V>(this);
   }
 
+  /**
+   * Accumulates the changes in hash code, size, key set size and key set hash code of a bulk
+   * operation on (sub-)tries.
+   */
+  static final class SetMultimapNodeResult {
+
+    private int deltaHashCode;
+    private int deltaSize;
+    private int deltaKeySetSize;
+    private int deltaKeySetHashCode;
+
+    int getDeltaHashCode() {
+      return deltaHashCode;
+    }
+
+    int getDeltaSize() {
+      return deltaSize;
+    }
+
+    int getDeltaKeySetSize() {
+      return deltaKeySetSize;
+    }
+
+    int getDeltaKeySetHashCode() {
+      return deltaKeySetHashCode;
+    }
+
+    void updateDelta(final int deltaSize, final int deltaKeySetSize,
+        final int deltaKeySetHashCode, final int deltaHashCode) {
+      this.deltaHashCode += deltaHashCode;
+      this.deltaSize += deltaSize;
+      this.deltaKeySetSize += deltaKeySetSize;
+      this.deltaKeySetHashCode += deltaKeySetHashCode;
+    }
+
+    /*
+     * Adds (sign = 1) or subtracts (sign = -1) a singleton (values == null) or collection payload.
+     */
+    <K, V> void updateDelta(final K key, final V value,
+        final io.usethesource.capsule.Set.Immutable<V> values, final int sign) {
+      final int keyHash = key.hashCode();
+
+      if (values == null) {
+        updateDelta(sign, sign, sign * keyHash, sign * tupleHash(keyHash, value));
+      } else {
+        updateDelta(sign * values.size(), sign, sign * keyHash,
+            sign * tupleHash(keyHash, values));
+      }
+    }
+
+    /*
+     * Replaces the singleton (oldValues == null) or collection values of a retained key.
+     */
+    <K, V> void updateValuesDelta(final K key, final V oldValue,
+        final io.usethesource.capsule.Set.Immutable<V> oldValues,
+        final io.usethesource.capsule.Set.Immutable<V> newValues) {
+      final int keyHash = key.hashCode();
+
+      if (oldValues == null) {
+        updateDelta(newValues.size() - 1, 0, 0,
+            tupleHash(keyHash, newValues) - tupleHash(keyHash, oldValue));
+      } else {
+        updateDelta(newValues.size() - oldValues.size(), 0, 0,
+            tupleHash(keyHash, newValues) - tupleHash(keyHash, oldValues));
+      }
+    }
+
+    /*
+     * Adds (sign = 1) or subtracts (sign = -1) all tuples and keys of a (sub-)trie.
+     */
+    <K, V> void updateDelta(final AbstractSetMultimapNode<K, V> node, final int sign) {
+      final int singletonArity = node.payloadArity(SINGLETON);
+      for (int i = 0; i < singletonArity; i++) {
+        updateDelta(node.getSingletonKey(i), node.getSingletonValue(i), null, sign);
+      }
+
+      final int collectionArity = node.payloadArity(COLLECTION);
+      for (int i = 0; i < collectionArity; i++) {
+        updateDelta(node.getCollectionKey(i), null, node.getCollectionValue(i), sign);
+      }
+
+      final int nodeArity = node.nodeArity();
+      for (int i = 0; i < nodeArity; i++) {
+        updateDelta(node.getNode(i), sign);
+      }
+    }
+  }
+
   protected static abstract class AbstractSetMultimapNode<K, V> implements
       MultimapNode<K, V, io.usethesource.capsule.Set.Immutable<V>, AbstractSetMultimapNode<K, V>>,
       java.io.Serializable {
@@ -395,6 +653,32 @@ public class PersistentTrieSetMultimap<K, V> extends
       return size;
     }
 
+    /***** BULK OPERATIONS *****/
+
+    /**
+     * Structurally adds the tuples of {@code other} to this (sub-)trie. Changes relative to this
+     * node are accumulated in {@code details}.
+     */
+    abstract AbstractSetMultimapNode<K, V> union(AtomicReference<Thread> mutator,
+        AbstractSetMultimapNode<K, V> other, int shift, SetMultimapNodeResult details,
+        EqualityComparator<Object> cmp);
+
+    /**
+     * Structurally retains the tuples of this (sub-)trie that are contained in {@code other}. Size
+     * and key set properties of the resulting node are accumulated in {@code details}.
+     */
+    abstract AbstractSetMultimapNode<K, V> intersect(AtomicReference<Thread> mutator,
+        AbstractSetMultimapNode<K, V> other, int shift, SetMultimapNodeResult details,
+        EqualityComparator<Object> cmp);
+
+    /**
+     * Structurally removes the tuples of {@code other} from this (sub-)trie. Changes relative to
+     * this node are accumulated in {@code details}.
+     */
+    abstract AbstractSetMultimapNode<K, V> subtract(AtomicReference<Thread> mutator,
+        AbstractSetMultimapNode<K, V> other, int shift, SetMultimapNodeResult details,
+        EqualityComparator<Object> cmp);
+
     /***** CONVERISONS *****/
 
 //    abstract PersistentTrieSet.AbstractSetNode<K> toSetNode(AtomicReference<Thread> mutator);
@@ -596,7 +880,7 @@ public class PersistentTrieSetMultimap<K, V> extends
       assert !(cmp.equals(key0, key1));
 
       if (shift >= HASH_CODE_LENGTH) {
-        return AbstractHashCollisionNode.of(keyHash0, key1, valColl1, key0, valColl1);
+        return AbstractHashCollisionNode.of(keyHash0, key1, valColl1, key0, valColl0);
       }
 
       final int mask0 = mask(keyHash0, shift);
@@ -783,6 +1067,104 @@ public class PersistentTrieSetMultimap<K, V> extends
       return Optional.empty();
     }
 
+    @Override
+    public int valueCount(final K key, final int keyHash, final int shift,
+        final EqualityComparator<Object> cmp) {
+      final int mask = mask(keyHash, shift);
+      final int bitpos = bitpos(mask);
+
+      int rawMap1 = this.rawMap1();
+      int rawMap2 = this.rawMap2();
+
+      final int collMap = rawMap1 & rawMap2;
+      final int dataMap = rawMap2 ^ collMap;
+      final int nodeMap = rawMap1 ^ collMap;
+
+      if (isBitInBitmap(dataMap, bitpos)) {
+        final int index = index(dataMap, mask, bitpos);
+        return cmp.equals(getSingletonKey(index), key) ? 1 : 0;
+      }
+
+      if (isBitInBitmap(collMap, bitpos)) {
+        final int index = index(collMap, mask, bitpos);
+        return cmp.equals(getCollectionKey(index), key) ? getCollectionValue(index).size() : 0;
+      }
+
+      if (isBitInBitmap(nodeMap, bitpos)) {
+        final int index = index(nodeMap, mask, bitpos);
+        return getNode(index).valueCount(key, keyHash, shift + BIT_PARTITION_SIZE, cmp);
+      }
+
+      return 0;
+    }
+
+    @Override
+    public V findFirstValue(final K key, final int keyHash, final int shift,
+        final EqualityComparator<Object> cmp) {
+      final int mask = mask(keyHash, shift);
+      final int bitpos = bitpos(mask);
+
+      int rawMap1 = this.rawMap1();
+      int rawMap2 = this.rawMap2();
+
+      final int collMap = rawMap1 & rawMap2;
+      final int dataMap = rawMap2 ^ collMap;
+      final int nodeMap = rawMap1 ^ collMap;
+
+      if (isBitInBitmap(dataMap, bitpos)) {
+        final int index = index(dataMap, mask, bitpos);
+        return cmp.equals(getSingletonKey(index), key) ? getSingletonValue(index) : null;
+      }
+
+      if (isBitInBitmap(collMap, bitpos)) {
+        final int index = index(collMap, mask, bitpos);
+        return cmp.equals(getCollectionKey(index), key)
+            ? getCollectionValue(index).iterator().next() : null;
+      }
+
+      if (isBitInBitmap(nodeMap, bitpos)) {
+        final int index = index(nodeMap, mask, bitpos);
+        return getNode(index).findFirstValue(key, keyHash, shift + BIT_PARTITION_SIZE, cmp);
+      }
+
+      return null;
+    }
+
+    @Override
+    public void forEachValue(final K key, final int keyHash, final int shift,
+        final Consumer<? super V> action, final EqualityComparator<Object> cmp) {
+      final int mask = mask(keyHash, shift);
+      final int bitpos = bitpos(mask);
+
+      int rawMap1 = this.rawMap1();
+      int rawMap2 = this.rawMap2();
+
+      final int collMap = rawMap1 & rawMap2;
+      final int dataMap = rawMap2 ^ collMap;
+      final int nodeMap = rawMap1 ^ collMap;
+
+      if (isBitInBitmap(dataMap, bitpos)) {
+        final int index = index(dataMap, mask, bitpos);
+        if (cmp.equals(getSingletonKey(index), key)) {
+          action.accept(getSingletonValue(index));
+        }
+        return;
+      }
+
+      if (isBitInBitmap(collMap, bitpos)) {
+        final int index = index(collMap, mask, bitpos);
+        if (cmp.equals(getCollectionKey(index), key)) {
+          getCollectionValue(index).forEach(action);
+        }
+        return;
+      }
+
+      if (isBitInBitmap(nodeMap, bitpos)) {
+        final int index = index(nodeMap, mask, bitpos);
+        getNode(index).forEachValue(key, keyHash, shift + BIT_PARTITION_SIZE, action, cmp);
+      }
+    }
+
     @Override
     public AbstractSetMultimapNode<K, V> inserted(final AtomicReference<Thread> mutator,
         final K key, final io.usethesource.capsule.Set.Immutable<V> values, final int keyHash,
@@ -919,9 +1301,13 @@ public class PersistentTrieSetMultimap<K, V> extends
 
           // migrate from singleton to collection
           final io.usethesource.capsule.Set.Immutable<V> mergedValues = values.__insert(currentVal);
-          final int sizeDelta = 2 * values.size() - mergedValues.size();
+          final int sizeDelta = mergedValues.size() - 1;
+          final int hashCodeDelta = mergedValues.size() == values.size()
+              ? tupleHash(keyHash, values) - tupleHash(keyHash, currentVal)
+              : tupleHash(keyHash, values);
 
-          details.modified(INSERTED_PAYLOAD, MultimapResult.Modification.flag(INSERTED_VALUE_COLLECTION), sizeDelta);
+          details.modified(INSERTED_PAYLOAD, MultimapResult.Modification.flag(INSERTED_VALUE_COLLECTION), sizeDelta,
+              hashCodeDelta);
           return copyAndMigrateFromSingletonToCollection(mutator, bitpos, currentKey, mergedValues);
         } else {
           // prefix-collision (case: singleton x collection)
@@ -933,7 +1319,7 @@ public class PersistentTrieSetMultimap<K, V> extends
           final int sizeDelta = values.size();
 
           details.modified(INSERTED_PAYLOAD, MultimapResult.Modification.flag(INSERTED_KEY, INSERTED_VALUE_COLLECTION),
-              sizeDelta);
+              sizeDelta, tupleHash(keyHash, values));
           return copyAndMigrateFromSingletonToNode(mutator, bitpos, subNodeNew);
         }
       }
@@ -954,7 +1340,8 @@ public class PersistentTrieSetMultimap<K, V> extends
           if (sizeDelta == 0) {
             return this;
           } else {
-            details.modified(INSERTED_PAYLOAD, MultimapResult.Modification.flag(INSERTED_VALUE_COLLECTION), sizeDelta);
+            details.modified(INSERTED_PAYLOAD, MultimapResult.Modification.flag(INSERTED_VALUE_COLLECTION), sizeDelta,
+                insertedTupleHash(keyHash, values, currentCollVal));
             return copyAndSetCollectionValue(mutator, bitpos, mergedValues);
           }
         } else {
@@ -967,7 +1354,7 @@ public class PersistentTrieSetMultimap<K, V> extends
           final int sizeDelta = values.size();
 
           details.modified(INSERTED_PAYLOAD, MultimapResult.Modification.flag(INSERTED_KEY, INSERTED_VALUE_COLLECTION),
-              sizeDelta);
+              sizeDelta, tupleHash(keyHash, values));
           return copyAndMigrateFromCollectionToNode(mutator, bitpos, subNodeNew);
         }
       }
@@ -988,7 +1375,7 @@ public class PersistentTrieSetMultimap<K, V> extends
 
       // default
       details.modified(INSERTED_PAYLOAD, MultimapResult.Modification.flag(INSERTED_KEY, INSERTED_VALUE_COLLECTION),
-          values.size());
+          values.size(), tupleHash(keyHash, values));
       return copyAndInsertCollection(mutator, bitpos, key, values);
     }
 
@@ -1029,6 +1416,10 @@ public class PersistentTrieSetMultimap<K, V> extends
         if (cmp.equals(currentKey, key)) {
           final V currentVal = getSingletonValue(dataIndex);
 
+          if (cmp.equals(currentVal, value)) {
+            return this;
+          }
+
           // update singleton value
           details.modified(REPLACED_PAYLOAD, MultimapResult.Modification.flag(REPLACED_VALUE),
               io.usethesource.capsule.Set.Immutable.of(currentVal));
@@ -1136,6 +1527,10 @@ public class PersistentTrieSetMultimap<K, V> extends
           final io.usethesource.capsule.Set.Immutable<V> currentCollVal =
               getCollectionValue(collIndex);
 
+          if (currentCollVal == values) {
+            return this;
+          }
+
           // update collection
           details.modified(REPLACED_PAYLOAD, MultimapResult.Modification.flag(REPLACED_VALUE_COLLECTION), currentCollVal);
           return copyAndSetCollectionValue(mutator, bitpos, values);
@@ -1322,78 +1717,743 @@ public class PersistentTrieSetMultimap<K, V> extends
         }
       }
 
-      if (isBitInBitmap(collMap, bitpos)) {
-        final int collIndex = index(collMap, mask, bitpos);
+      if (isBitInBitmap(collMap, bitpos)) {
+        final int collIndex = index(collMap, mask, bitpos);
+
+        final K currentKey = getCollectionKey(collIndex);
+        if (cmp.equals(currentKey, key)) {
+
+          final io.usethesource.capsule.Set.Immutable<V> currentValColl =
+              getCollectionValue(collIndex);
+          // if (currentValColl.contains(val)) {
+          //
+          // // remove mapping
+          // details.updated(val);
+          //
+          // final Immutable<V> newValColl = currentValColl.__remove(val);
+          //
+          // if (newValColl.size() == 1) {
+          // // TODO: investigate options for unboxing singleton collections
+          // V remainingVal = newValColl.iterator().next();
+          // return copyAndMigrateFromCollectionToSingleton(mutator, bitpos, key, remainingVal);
+          // } else {
+          // return copyAndSetCollectionValue(mutator, bitpos, newValColl);
+          // }
+          // } else {
+          // return this;
+          // }
+
+          details.modified(REMOVED_PAYLOAD, MultimapResult.Modification.flag(REMOVED_KEY, REMOVED_VALUE_COLLECTION),
+              currentValColl);
+          return copyAndRemoveCollection(mutator, bitpos).canonicalize(mutator, keyHash, shift);
+        } else {
+          return this;
+        }
+      }
+
+      if (isBitInBitmap(nodeMap, bitpos)) {
+        final AbstractSetMultimapNode<K, V> subNode = getNode(index(nodeMap, mask, bitpos));
+        final AbstractSetMultimapNode<K, V> subNodeNew =
+            subNode.removed(mutator, key, keyHash, shift + BIT_PARTITION_SIZE, details, cmp);
+
+        if (details.getModificationEffect() == NOTHING) {
+          return this;
+        }
+
+        switch (subNodeNew.sizePredicate()) {
+          case 0: {
+            throw new IllegalStateException("Sub-node must have at least one element.");
+          }
+          case 1: {
+            if (arity(nodeMap) == 1 && arity(dataMap) == 0 && arity(collMap) == 0) {
+              // escalate (singleton or empty) result
+              return subNodeNew;
+            } else {
+              // inline value (move to front)
+              EitherSingletonOrCollection.Type type = subNodeNew.typeOfSingleton();
+
+              if (type == EitherSingletonOrCollection.Type.SINGLETON) {
+                return copyAndMigrateFromNodeToSingleton(mutator, bitpos, subNodeNew);
+              } else {
+                return copyAndMigrateFromNodeToCollection(mutator, bitpos, subNodeNew);
+              }
+
+            }
+          }
+          default: {
+            // modify current node (set replacement node)
+            return copyAndSetNode(mutator, bitpos, subNodeNew);
+          }
+        }
+      }
+
+      // default
+      return this;
+    }
+
+    @Override
+    AbstractSetMultimapNode<K, V> union(final AtomicReference<Thread> mutator,
+        final AbstractSetMultimapNode<K, V> other, final int shift,
+        final SetMultimapNodeResult details, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return this;
+      }
+
+      final CompactSetMultimapNode<K, V> that = (CompactSetMultimapNode<K, V>) other;
+
+      final int thisDataMap = this.dataMap();
+      final int thisCollMap = this.collMap();
+      final int thisNodeMap = this.nodeMap();
+      final int thatDataMap = that.dataMap();
+      final int thatCollMap = that.collMap();
+      final int thatNodeMap = that.nodeMap();
+
+      final int bitmap = this.rawMap1() | this.rawMap2() | that.rawMap1() | that.rawMap2();
+      final NodeBuilder<K, V> builder = new NodeBuilder<>(java.lang.Integer.bitCount(bitmap));
+
+      int thisDataIndex = 0;
+      int thisCollIndex = 0;
+      int thisNodeIndex = 0;
+      int thatDataIndex = 0;
+      int thatCollIndex = 0;
+      int thatNodeIndex = 0;
+
+      boolean isModified = false;
+
+      for (int remaining = bitmap; remaining != 0; remaining &= remaining - 1) {
+        final int bitpos = remaining & -remaining;
+
+        if ((thisNodeMap & bitpos) != 0) { // node (this)
+          final AbstractSetMultimapNode<K, V> thisNode = this.getNode(thisNodeIndex++);
+          final AbstractSetMultimapNode<K, V> subNodeNew;
+
+          if ((thatNodeMap & bitpos) != 0) {
+            subNodeNew = thisNode.union(mutator, that.getNode(thatNodeIndex++),
+                shift + BIT_PARTITION_SIZE, details, cmp);
+          } else if ((thatDataMap & bitpos) != 0) {
+            final int thatIndex = thatDataIndex++;
+            subNodeNew = insertedPayload(mutator, thisNode, that.getSingletonKey(thatIndex),
+                that.getSingletonValue(thatIndex), null, shift + BIT_PARTITION_SIZE, details, cmp);
+          } else if ((thatCollMap & bitpos) != 0) {
+            final int thatIndex = thatCollIndex++;
+            subNodeNew = insertedPayload(mutator, thisNode, that.getCollectionKey(thatIndex), null,
+                that.getCollectionValue(thatIndex), shift + BIT_PARTITION_SIZE, details, cmp);
+          } else {
+            subNodeNew = thisNode;
+          }
+
+          builder.node(bitpos, subNodeNew);
+          isModified |= subNodeNew != thisNode;
+        } else if (((thisDataMap | thisCollMap) & bitpos) != 0) { // payload (this)
+          final K thisKey;
+          final V thisValue;
+          final io.usethesource.capsule.Set.Immutable<V> thisValues;
+
+          if ((thisDataMap & bitpos) != 0) {
+            final int thisIndex = thisDataIndex++;
+            thisKey = this.getSingletonKey(thisIndex);
+            thisValue = this.getSingletonValue(thisIndex);
+            thisValues = null;
+          } else {
+            final int thisIndex = thisCollIndex++;
+            thisKey = this.getCollectionKey(thisIndex);
+            thisValue = null;
+            thisValues = this.getCollectionValue(thisIndex);
+          }
+
+          if ((thatNodeMap & bitpos) != 0) {
+            final AbstractSetMultimapNode<K, V> subNodeNew = insertedPayload(mutator,
+                that.getNode(thatNodeIndex++), thisKey, thisValue, thisValues,
+                shift + BIT_PARTITION_SIZE, new SetMultimapNodeResult(), cmp);
+
+            /*
+             * All tuples of the merged sub-node are new, except for the payload of this node.
+             */
+            details.updateDelta(subNodeNew, 1);
+            details.updateDelta(thisKey, thisValue, thisValues, -1);
+
+            builder.node(bitpos, subNodeNew);
+            isModified = true;
+          } else if (((thatDataMap | thatCollMap) & bitpos) != 0) {
+            final K thatKey;
+            final V thatValue;
+            final io.usethesource.capsule.Set.Immutable<V> thatValues;
+
+            if ((thatDataMap & bitpos) != 0) {
+              final int thatIndex = thatDataIndex++;
+              thatKey = that.getSingletonKey(thatIndex);
+              thatValue = that.getSingletonValue(thatIndex);
+              thatValues = null;
+            } else {
+              final int thatIndex = thatCollIndex++;
+              thatKey = that.getCollectionKey(thatIndex);
+              thatValue = null;
+              thatValues = that.getCollectionValue(thatIndex);
+            }
+
+            if (cmp.equals(thisKey, thatKey)) {
+              final io.usethesource.capsule.Set.Immutable<V> mergedValues;
+              final int sizeDelta;
+
+              if (thisValues == null && thatValues == null) {
+                mergedValues = cmp.equals(thisValue, thatValue) ? null
+                    : io.usethesource.capsule.Set.Immutable.of(thisValue, thatValue);
+                sizeDelta = mergedValues == null ? 0 : 1;
+              } else if (thisValues == null) {
+                mergedValues = thatValues.__insert(thisValue);
+                sizeDelta = mergedValues.size() - 1;
+              } else if (thatValues == null) {
+                mergedValues = thisValues.__insert(thatValue);
+                sizeDelta = mergedValues.size() - thisValues.size();
+              } else {
+                mergedValues = thisValues.union(thatValues);
+                sizeDelta = mergedValues.size() - thisValues.size();
+              }
+
+              if (sizeDelta == 0) {
+                builder.payload(bitpos, thisKey, thisValue, thisValues);
+              } else {
+                details.updateValuesDelta(thisKey, thisValue, thisValues, mergedValues);
+                builder.collection(bitpos, thisKey, mergedValues);
+                isModified = true;
+              }
+            } else {
+              final int thatKeyHash = thatKey.hashCode();
+              final AbstractSetMultimapNode<K, V> subNodeNew = mergeTwoPayloads(thisKey, thisValue,
+                  thisValues, transformHashCode(thisKey.hashCode()), thatKey, thatValue,
+                  thatValues, transformHashCode(thatKeyHash), shift + BIT_PARTITION_SIZE, cmp);
+
+              details.updateDelta(thatKey, thatValue, thatValues, 1);
+
+              builder.node(bitpos, subNodeNew);
+              isModified = true;
+            }
+          } else {
+            builder.payload(bitpos, thisKey, thisValue, thisValues);
+          }
+        } else if ((thatNodeMap & bitpos) != 0) { // node (only that)
+          final AbstractSetMultimapNode<K, V> thatNode = that.getNode(thatNodeIndex++);
+
+          details.updateDelta(thatNode, 1);
+
+          builder.node(bitpos, thatNode);
+          isModified = true;
+        } else if ((thatDataMap & bitpos) != 0) { // singleton (only that)
+          final int thatIndex = thatDataIndex++;
+          final K thatKey = that.getSingletonKey(thatIndex);
+          final V thatValue = that.getSingletonValue(thatIndex);
+
+          details.updateDelta(thatKey, thatValue, null, 1);
+
+          builder.singleton(bitpos, thatKey, thatValue);
+          isModified = true;
+        } else { // collection (only that)
+          final int thatIndex = thatCollIndex++;
+          final K thatKey = that.getCollectionKey(thatIndex);
+          final io.usethesource.capsule.Set.Immutable<V> thatValues =
+              that.getCollectionValue(thatIndex);
+
+          details.updateDelta(thatKey, null, thatValues, 1);
+
+          builder.collection(bitpos, thatKey, thatValues);
+          isModified = true;
+        }
+      }
+
+      if (!isModified) {
+        return this;
+      }
+
+      return builder.build(mutator);
+    }
+
+    @Override
+    AbstractSetMultimapNode<K, V> intersect(final AtomicReference<Thread> mutator,
+        final AbstractSetMultimapNode<K, V> other, final int shift,
+        final SetMultimapNodeResult details, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        details.updateDelta(this, 1);
+        return this;
+      }
+
+      final CompactSetMultimapNode<K, V> that = (CompactSetMultimapNode<K, V>) other;
+
+      final int thisDataMap = this.dataMap();
+      final int thisCollMap = this.collMap();
+      final int thisNodeMap = this.nodeMap();
+      final int thatDataMap = that.dataMap();
+      final int thatCollMap = that.collMap();
+      final int thatNodeMap = that.nodeMap();
+
+      final int thisBitmap = this.rawMap1() | this.rawMap2();
+      final int bitmap = thisBitmap & (that.rawMap1() | that.rawMap2());
+      final NodeBuilder<K, V> builder = new NodeBuilder<>(java.lang.Integer.bitCount(bitmap));
+
+      boolean isModified = bitmap != thisBitmap;
+
+      for (int remaining = bitmap; remaining != 0; remaining &= remaining - 1) {
+        final int bitpos = remaining & -remaining;
+
+        if ((thisNodeMap & bitpos) != 0) { // node (this)
+          final AbstractSetMultimapNode<K, V> thisNode = this.getNode(index(thisNodeMap, bitpos));
+
+          if ((thatNodeMap & bitpos) != 0) {
+            final AbstractSetMultimapNode<K, V> subNodeNew = thisNode.intersect(mutator,
+                that.getNode(index(thatNodeMap, bitpos)), shift + BIT_PARTITION_SIZE, details, cmp);
+
+            builder.node(bitpos, subNodeNew);
+            isModified |= subNodeNew != thisNode;
+          } else {
+            final K thatKey;
+            final io.usethesource.capsule.Set.Immutable<V> retainedValues;
+
+            if ((thatDataMap & bitpos) != 0) {
+              final int thatIndex = index(thatDataMap, bitpos);
+              final V thatValue = that.getSingletonValue(thatIndex);
+              thatKey = that.getSingletonKey(thatIndex);
+
+              retainedValues = thisNode.containsTuple(thatKey, thatValue,
+                  transformHashCode(thatKey.hashCode()), shift + BIT_PARTITION_SIZE, cmp)
+                  ? io.usethesource.capsule.Set.Immutable.of(thatValue)
+                  : io.usethesource.capsule.Set.Immutable.of();
+            } else {
+              final int thatIndex = index(thatCollMap, bitpos);
+              thatKey = that.getCollectionKey(thatIndex);
+
+              retainedValues = thisNode.findByKey(thatKey, transformHashCode(thatKey.hashCode()),
+                  shift + BIT_PARTITION_SIZE, cmp)
+                  .map(thisValues -> thisValues.intersect(that.getCollectionValue(thatIndex)))
+                  .orElse(io.usethesource.capsule.Set.Immutable.of());
+            }
+
+            if (!retainedValues.isEmpty()) {
+              details.updateDelta(thatKey, null, retainedValues, 1);
+              builder.collection(bitpos, thatKey, retainedValues);
+            }
+
+            // a sub-node with at least two keys shrinks to at most one key
+            isModified = true;
+          }
+        } else { // payload (this)
+          final K thisKey;
+          final V thisValue;
+          final io.usethesource.capsule.Set.Immutable<V> thisValues;
+
+          if ((thisDataMap & bitpos) != 0) {
+            final int thisIndex = index(thisDataMap, bitpos);
+            thisKey = this.getSingletonKey(thisIndex);
+            thisValue = this.getSingletonValue(thisIndex);
+            thisValues = null;
+          } else {
+            final int thisIndex = index(thisCollMap, bitpos);
+            thisKey = this.getCollectionKey(thisIndex);
+            thisValue = null;
+            thisValues = this.getCollectionValue(thisIndex);
+          }
+
+          final io.usethesource.capsule.Set.Immutable<V> thatValues;
+
+          if ((thatNodeMap & bitpos) != 0) {
+            final AbstractSetMultimapNode<K, V> thatNode =
+                that.getNode(index(thatNodeMap, bitpos));
+
+            if (thisValues == null) {
+              thatValues = thatNode.containsTuple(thisKey, thisValue,
+                  transformHashCode(thisKey.hashCode()), shift + BIT_PARTITION_SIZE, cmp)
+                  ? io.usethesource.capsule.Set.Immutable.of(thisValue) : null;
+            } else {
+              thatValues = thatNode.findByKey(thisKey, transformHashCode(thisKey.hashCode()),
+                  shift + BIT_PARTITION_SIZE, cmp).orElse(null);
+            }
+          } else if ((thatDataMap & bitpos) != 0) {
+            final int thatIndex = index(thatDataMap, bitpos);
+            thatValues = cmp.equals(thisKey, that.getSingletonKey(thatIndex))
+                ? io.usethesource.capsule.Set.Immutable.of(that.getSingletonValue(thatIndex))
+                : null;
+          } else {
+            final int thatIndex = index(thatCollMap, bitpos);
+            thatValues = cmp.equals(thisKey, that.getCollectionKey(thatIndex))
+                ? that.getCollectionValue(thatIndex) : null;
+          }
+
+          if (thatValues == null) {
+            isModified = true;
+          } else if (thisValues == null) {
+            if (thatValues.contains(thisValue)) {
+              details.updateDelta(thisKey, thisValue, null, 1);
+              builder.singleton(bitpos, thisKey, thisValue);
+            } else {
+              isModified = true;
+            }
+          } else {
+            final io.usethesource.capsule.Set.Immutable<V> retainedValues =
+                thisValues.intersect(thatValues);
+
+            if (!retainedValues.isEmpty()) {
+              details.updateDelta(thisKey, null, retainedValues, 1);
+            }
+
+            if (retainedValues.size() == thisValues.size()) {
+              builder.collection(bitpos, thisKey, thisValues);
+            } else {
+              builder.collection(bitpos, thisKey, retainedValues);
+              isModified = true;
+            }
+          }
+        }
+      }
+
+      if (!isModified) {
+        return this;
+      }
+
+      return builder.build(mutator);
+    }
+
+    @Override
+    AbstractSetMultimapNode<K, V> subtract(final AtomicReference<Thread> mutator,
+        final AbstractSetMultimapNode<K, V> other, final int shift,
+        final SetMultimapNodeResult details, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        details.updateDelta(this, -1);
+        return nodeOf(mutator);
+      }
+
+      final CompactSetMultimapNode<K, V> that = (CompactSetMultimapNode<K, V>) other;
+
+      final int thisDataMap = this.dataMap();
+      final int thisCollMap = this.collMap();
+      final int thisNodeMap = this.nodeMap();
+      final int thatDataMap = that.dataMap();
+      final int thatCollMap = that.collMap();
+      final int thatNodeMap = that.nodeMap();
+
+      final int thisBitmap = this.rawMap1() | this.rawMap2();
+      final int thatBitmap = that.rawMap1() | that.rawMap2();
+
+      if ((thisBitmap & thatBitmap) == 0) {
+        return this;
+      }
+
+      final NodeBuilder<K, V> builder = new NodeBuilder<>(java.lang.Integer.bitCount(thisBitmap));
+
+      int thisDataIndex = 0;
+      int thisCollIndex = 0;
+      int thisNodeIndex = 0;
+
+      boolean isModified = false;
+
+      for (int remaining = thisBitmap; remaining != 0; remaining &= remaining - 1) {
+        final int bitpos = remaining & -remaining;
+
+        if ((thisNodeMap & bitpos) != 0) { // node (this)
+          final AbstractSetMultimapNode<K, V> thisNode = this.getNode(thisNodeIndex++);
+          final AbstractSetMultimapNode<K, V> subNodeNew;
+
+          if ((thatNodeMap & bitpos) != 0) {
+            subNodeNew = thisNode.subtract(mutator, that.getNode(index(thatNodeMap, bitpos)),
+                shift + BIT_PARTITION_SIZE, details, cmp);
+          } else if ((thatDataMap & bitpos) != 0) {
+            final int thatIndex = index(thatDataMap, bitpos);
+            subNodeNew = removedPayload(mutator, thisNode, that.getSingletonKey(thatIndex),
+                that.getSingletonValue(thatIndex), null, shift + BIT_PARTITION_SIZE, details, cmp);
+          } else if ((thatCollMap & bitpos) != 0) {
+            final int thatIndex = index(thatCollMap, bitpos);
+            subNodeNew = removedPayload(mutator, thisNode, that.getCollectionKey(thatIndex), null,
+                that.getCollectionValue(thatIndex), shift + BIT_PARTITION_SIZE, details, cmp);
+          } else {
+            subNodeNew = thisNode;
+          }
+
+          builder.node(bitpos, subNodeNew);
+          isModified |= subNodeNew != thisNode;
+        } else { // payload (this)
+          final K thisKey;
+          final V thisValue;
+          final io.usethesource.capsule.Set.Immutable<V> thisValues;
+
+          if ((thisDataMap & bitpos) != 0) {
+            final int thisIndex = thisDataIndex++;
+            thisKey = this.getSingletonKey(thisIndex);
+            thisValue = this.getSingletonValue(thisIndex);
+            thisValues = null;
+          } else {
+            final int thisIndex = thisCollIndex++;
+            thisKey = this.getCollectionKey(thisIndex);
+            thisValue = null;
+            thisValues = this.getCollectionValue(thisIndex);
+          }
+
+          final io.usethesource.capsule.Set.Immutable<V> thatValues;
+
+          if ((thatNodeMap & bitpos) != 0) {
+            final AbstractSetMultimapNode<K, V> thatNode =
+                that.getNode(index(thatNodeMap, bitpos));
+
+            if (thisValues == null) {
+              thatValues = thatNode.containsTuple(thisKey, thisValue,
+                  transformHashCode(thisKey.hashCode()), shift + BIT_PARTITION_SIZE, cmp)
+                  ? io.usethesource.capsule.Set.Immutable.of(thisValue) : null;
+            } else {
+              thatValues = thatNode.findByKey(thisKey, transformHashCode(thisKey.hashCode()),
+                  shift + BIT_PARTITION_SIZE, cmp).orElse(null);
+            }
+          } else if ((thatDataMap & bitpos) != 0) {
+            final int thatIndex = index(thatDataMap, bitpos);
+            thatValues = cmp.equals(thisKey, that.getSingletonKey(thatIndex))
+                ? io.usethesource.capsule.Set.Immutable.of(that.getSingletonValue(thatIndex))
+                : null;
+          } else if ((thatCollMap & bitpos) != 0) {
+            final int thatIndex = index(thatCollMap, bitpos);
+            thatValues = cmp.equals(thisKey, that.getCollectionKey(thatIndex))
+                ? that.getCollectionValue(thatIndex) : null;
+          } else {
+            thatValues = null;
+          }
+
+          if (thatValues == null) {
+            builder.payload(bitpos, thisKey, thisValue, thisValues);
+          } else if (thisValues == null) {
+            if (thatValues.contains(thisValue)) {
+              details.updateDelta(thisKey, thisValue, null, -1);
+              isModified = true;
+            } else {
+              builder.singleton(bitpos, thisKey, thisValue);
+            }
+          } else {
+            final io.usethesource.capsule.Set.Immutable<V> remainingValues =
+                thisValues.subtract(thatValues);
+
+            if (remainingValues.size() == thisValues.size()) {
+              builder.collection(bitpos, thisKey, thisValues);
+            } else {
+              if (remainingValues.isEmpty()) {
+                details.updateDelta(thisKey, null, thisValues, -1);
+              } else {
+                details.updateValuesDelta(thisKey, null, thisValues, remainingValues);
+              }
+
+              builder.collection(bitpos, thisKey, remainingValues);
+              isModified = true;
+            }
+          }
+        }
+      }
+
+      if (!isModified) {
+        return this;
+      }
+
+      return builder.build(mutator);
+    }
+
+    static final <K, V> AbstractSetMultimapNode<K, V> mergeTwoPayloads(final K key0,
+        final V val0, final io.usethesource.capsule.Set.Immutable<V> valColl0, final int keyHash0,
+        final K key1, final V val1, final io.usethesource.capsule.Set.Immutable<V> valColl1,
+        final int keyHash1, final int shift, EqualityComparator<Object> cmp) {
+      if (valColl0 == null && valColl1 == null) {
+        return mergeTwoSingletonPairs(key0, val0, keyHash0, key1, val1, keyHash1, shift, cmp);
+      } else if (valColl0 == null) {
+        return mergeCollectionAndSingletonPairs(key1, valColl1, keyHash1, key0, val0, keyHash0,
+            shift, cmp);
+      } else if (valColl1 == null) {
+        return mergeCollectionAndSingletonPairs(key0, valColl0, keyHash0, key1, val1, keyHash1,
+            shift, cmp);
+      } else {
+        return mergeTwoCollectionPairs(key0, valColl0, keyHash0, key1, valColl1, keyHash1, shift,
+            cmp);
+      }
+    }
+
+    /*
+     * Inserts a singleton (valColl == null) or collection payload into a sub-node.
+     */
+    static final <K, V> AbstractSetMultimapNode<K, V> insertedPayload(
+        final AtomicReference<Thread> mutator, final AbstractSetMultimapNode<K, V> node,
+        final K key, final V val, final io.usethesource.capsule.Set.Immutable<V> valColl,
+        final int shift, final SetMultimapNodeResult details, EqualityComparator<Object> cmp) {
+      final int keyHash = key.hashCode();
+      final MultimapResult<K, V, io.usethesource.capsule.Set.Immutable<V>> insertDetails =
+          MultimapResult.unchanged();
+
+      final AbstractSetMultimapNode<K, V> nodeNew;
+      final int hashCodeDelta;
+
+      if (valColl == null) {
+        nodeNew = node.insertedSingle(mutator, key, val, transformHashCode(keyHash), shift,
+            insertDetails, cmp);
+        hashCodeDelta = tupleHash(keyHash, val);
+      } else {
+        // values that are already present do not contribute to the hash code
+        nodeNew = node.insertedMultiple(mutator, key, valColl, transformHashCode(keyHash), shift,
+            insertDetails, cmp);
+        hashCodeDelta = insertDetails.hashCodeDelta();
+      }
+
+      if (insertDetails.getModificationEffect() != NOTHING) {
+        if (insertDetails.containsModification(INSERTED_KEY)) {
+          details.updateDelta(insertDetails.sizeDelta().get(), 1, keyHash, hashCodeDelta);
+        } else {
+          details.updateDelta(insertDetails.sizeDelta().get(), 0, 0, hashCodeDelta);
+        }
+      }
+
+      return nodeNew;
+    }
+
+    /*
+     * Removes the values of a singleton (valColl == null) or collection payload from a sub-node.
+     */
+    static final <K, V> AbstractSetMultimapNode<K, V> removedPayload(
+        final AtomicReference<Thread> mutator, final AbstractSetMultimapNode<K, V> node,
+        final K key, final V val, final io.usethesource.capsule.Set.Immutable<V> valColl,
+        final int shift, final SetMultimapNodeResult details, EqualityComparator<Object> cmp) {
+      final int keyHash = key.hashCode();
+      final MultimapResult<K, V, io.usethesource.capsule.Set.Immutable<V>> removeDetails =
+          MultimapResult.unchanged();
+
+      if (valColl == null) {
+        final AbstractSetMultimapNode<K, V> nodeNew =
+            node.removed(mutator, key, val, transformHashCode(keyHash), shift, removeDetails, cmp);
+
+        if (removeDetails.getModificationEffect() != NOTHING) {
+          if (removeDetails.containsModification(REMOVED_KEY)) {
+            details.updateDelta(-1, -1, -keyHash, -tupleHash(keyHash, val));
+          } else {
+            details.updateDelta(-1, 0, 0, -tupleHash(keyHash, val));
+          }
+        }
+
+        return nodeNew;
+      }
+
+      final Optional<io.usethesource.capsule.Set.Immutable<V>> currentValColl =
+          node.findByKey(key, transformHashCode(keyHash), shift, cmp);
+
+      if (!currentValColl.isPresent()) {
+        return node;
+      }
+
+      final io.usethesource.capsule.Set.Immutable<V> remainingValColl =
+          currentValColl.get().subtract(valColl);
+      final int sizeDelta = remainingValColl.size() - currentValColl.get().size();
+
+      if (sizeDelta == 0) {
+        return node;
+      }
+
+      final int hashCodeDelta =
+          tupleHash(keyHash, remainingValColl) - tupleHash(keyHash, currentValColl.get());
+
+      if (remainingValColl.isEmpty()) {
+        details.updateDelta(sizeDelta, -1, -keyHash, hashCodeDelta);
+        return node.removed(mutator, key, transformHashCode(keyHash), shift, removeDetails, cmp);
+      } else {
+        details.updateDelta(sizeDelta, 0, 0, hashCodeDelta);
+        return node.updated(mutator, key, remainingValColl, transformHashCode(keyHash), shift,
+            removeDetails, cmp);
+      }
+    }
+
+    /**
+     * Collects payload and sub-nodes, added in ascending bit position order, and lays them out
+     * like {@link BitmapIndexedSetMultimapNode}. Empty sub-nodes are dropped and sub-nodes with a
+     * single key are inlined, keeping the results of bulk operations canonical.
+     */
+    static final class NodeBuilder<K, V> {
+
+      private final int capacity;
+
+      /*
+       * Singletons are stored from the front, collections from the middle backwards, and sub-nodes
+       * from the middle onwards.
+       */
+      private final Object[] slots;
+
+      private int dataMap = 0;
+      private int collMap = 0;
+      private int nodeMap = 0;
+
+      private int dataArity = 0;
+      private int collArity = 0;
+      private int nodeArity = 0;
+
+      NodeBuilder(final int capacity) {
+        this.capacity = capacity;
+        this.slots = new Object[(TUPLE_LENGTH + 1) * capacity];
+      }
 
-        final K currentKey = getCollectionKey(collIndex);
-        if (cmp.equals(currentKey, key)) {
+      void singleton(final int bitpos, final K key, final V val) {
+        final int idx = TUPLE_LENGTH * dataArity++;
+        slots[idx] = key;
+        slots[idx + 1] = val;
+        dataMap |= bitpos;
+      }
 
-          final io.usethesource.capsule.Set.Immutable<V> currentValColl =
-              getCollectionValue(collIndex);
-          // if (currentValColl.contains(val)) {
-          //
-          // // remove mapping
-          // details.updated(val);
-          //
-          // final Immutable<V> newValColl = currentValColl.__remove(val);
-          //
-          // if (newValColl.size() == 1) {
-          // // TODO: investigate options for unboxing singleton collections
-          // V remainingVal = newValColl.iterator().next();
-          // return copyAndMigrateFromCollectionToSingleton(mutator, bitpos, key, remainingVal);
-          // } else {
-          // return copyAndSetCollectionValue(mutator, bitpos, newValColl);
-          // }
-          // } else {
-          // return this;
-          // }
+      void collection(final int bitpos, final K key,
+          final io.usethesource.capsule.Set.Immutable<V> valColl) {
+        switch (valColl.size()) {
+          case 0:
+            break;
+          case 1:
+            singleton(bitpos, key, valColl.findFirst().get());
+            break;
+          default:
+            final int idx = TUPLE_LENGTH * (capacity - 1 - collArity++);
+            slots[idx] = key;
+            slots[idx + 1] = valColl;
+            collMap |= bitpos;
+        }
+      }
 
-          details.modified(REMOVED_PAYLOAD, MultimapResult.Modification.flag(REMOVED_KEY, REMOVED_VALUE_COLLECTION),
-              currentValColl);
-          return copyAndRemoveCollection(mutator, bitpos).canonicalize(mutator, keyHash, shift);
+      void payload(final int bitpos, final K key, final V val,
+          final io.usethesource.capsule.Set.Immutable<V> valColl) {
+        if (valColl == null) {
+          singleton(bitpos, key, val);
         } else {
-          return this;
+          collection(bitpos, key, valColl);
         }
       }
 
-      if (isBitInBitmap(nodeMap, bitpos)) {
-        final AbstractSetMultimapNode<K, V> subNode = getNode(index(nodeMap, mask, bitpos));
-        final AbstractSetMultimapNode<K, V> subNodeNew =
-            subNode.removed(mutator, key, keyHash, shift + BIT_PARTITION_SIZE, details, cmp);
+      void node(final int bitpos, final AbstractSetMultimapNode<K, V> node) {
+        switch (node.sizePredicate()) {
+          case SIZE_EMPTY:
+            break;
+          case SIZE_ONE:
+            if (node.typeOfSingleton() == SINGLETON) {
+              singleton(bitpos, node.getSingletonKey(0), node.getSingletonValue(0));
+            } else {
+              collection(bitpos, node.getCollectionKey(0), node.getCollectionValue(0));
+            }
+            break;
+          default:
+            slots[TUPLE_LENGTH * capacity + nodeArity++] = node;
+            nodeMap |= bitpos;
+        }
+      }
 
-        if (details.getModificationEffect() == NOTHING) {
-          return this;
+      CompactSetMultimapNode<K, V> build(final AtomicReference<Thread> mutator) {
+        if (dataMap == 0 && collMap == 0 && nodeMap == 0) {
+          return nodeOf(mutator);
         }
 
-        switch (subNodeNew.sizePredicate()) {
-          case 0: {
-            throw new IllegalStateException("Sub-node must have at least one element.");
-          }
-          case 1: {
-            if (arity(nodeMap) == 1 && arity(dataMap) == 0 && arity(collMap) == 0) {
-              // escalate (singleton or empty) result
-              return subNodeNew;
-            } else {
-              // inline value (move to front)
-              EitherSingletonOrCollection.Type type = subNodeNew.typeOfSingleton();
+        final Object[] nodes = new Object[TUPLE_LENGTH * (dataArity + collArity) + nodeArity];
 
-              if (type == EitherSingletonOrCollection.Type.SINGLETON) {
-                return copyAndMigrateFromNodeToSingleton(mutator, bitpos, subNodeNew);
-              } else {
-                return copyAndMigrateFromNodeToCollection(mutator, bitpos, subNodeNew);
-              }
+        System.arraycopy(slots, 0, nodes, 0, TUPLE_LENGTH * dataArity);
 
-            }
-          }
-          default: {
-            // modify current node (set replacement node)
-            return copyAndSetNode(mutator, bitpos, subNodeNew);
-          }
+        for (int i = 0; i < collArity; i++) {
+          final int src = TUPLE_LENGTH * (capacity - 1 - i);
+          final int dst = TUPLE_LENGTH * (dataArity + i);
+          nodes[dst] = slots[src];
+          nodes[dst + 1] = slots[src + 1];
         }
-      }
 
-      // default
-      return this;
+        for (int i = 0; i < nodeArity; i++) {
+          nodes[nodes.length - 1 - i] = slots[TUPLE_LENGTH * capacity + i];
+        }
+
+        return nodeOf(mutator, nodeMap | collMap, dataMap | collMap, nodes);
+      }
     }
 
     abstract CompactSetMultimapNode<K, V> canonicalize(AtomicReference<Thread> mutator,
@@ -2439,27 +3499,62 @@ public class PersistentTrieSetMultimap<K, V> extends
       }
     }
 
+    /*
+     * Returns the values associated with 'key', or null if 'key' is not present.
+     */
+    private io.usethesource.capsule.Set.Immutable<V> findValuesOrNull(final K key,
+        final EqualityComparator<Object> cmp) {
+      for (int i = 0; i < collisionContent.size(); i++) {
+        final Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>> entry =
+            collisionContent.get(i);
+
+        if (cmp.equals(key, entry.getKey())) {
+          return entry.getValue();
+        }
+      }
+
+      return null;
+    }
+
     @Override
     public boolean containsKey(K key, int keyHash, int shift,
         EqualityComparator<Object> cmp) {
-      return collisionContent.stream().filter(entry -> cmp.equals(key, entry.getKey())).findAny()
-          .isPresent();
+      return findValuesOrNull(key, cmp) != null;
     }
 
     @Override
     public boolean containsTuple(K key, V value, int keyHash, int shift,
         EqualityComparator<Object> cmp) {
-      return collisionContent.stream()
-          .filter(entry -> cmp.equals(key, entry.getKey())
-              && entry.getValue().containsEquivalent(value, cmp))
-          .findAny().isPresent();
+      final io.usethesource.capsule.Set.Immutable<V> values = findValuesOrNull(key, cmp);
+      return values != null && values.containsEquivalent(value, cmp);
     }
 
     @Override
     public final Optional<io.usethesource.capsule.Set.Immutable<V>> findByKey(K key, int keyHash,
         int shift, EqualityComparator<Object> cmp) {
-      return collisionContent.stream().filter(entry -> cmp.equals(key, entry.getKey())).findAny()
-          .map(Map.Entry::getValue);
+      return Optional.ofNullable(findValuesOrNull(key, cmp));
+    }
+
+    @Override
+    public int valueCount(K key, int keyHash, int shift, EqualityComparator<Object> cmp) {
+      final io.usethesource.capsule.Set.Immutable<V> values = findValuesOrNull(key, cmp);
+      return values == null ? 0 : values.size();
+    }
+
+    @Override
+    public V findFirstValue(K key, int keyHash, int shift, EqualityComparator<Object> cmp) {
+      final io.usethesource.capsule.Set.Immutable<V> values = findValuesOrNull(key, cmp);
+      return values == null ? null : values.iterator().next();
+    }
+
+    @Override
+    public void forEachValue(K key, int keyHash, int shift, Consumer<? super V> action,
+        EqualityComparator<Object> cmp) {
+      final io.usethesource.capsule.Set.Immutable<V> values = findValuesOrNull(key, cmp);
+
+      if (values != null) {
+        values.forEach(action);
+      }
     }
 
     @Override
@@ -2557,9 +3652,7 @@ public class PersistentTrieSetMultimap<K, V> extends
         Function<Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>, Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>> substitutionMapper =
             (kImmutableSetEntry) -> {
               if (kImmutableSetEntry == optionalTuple.get()) {
-                io.usethesource.capsule.Set.Immutable<V> updatedValues =
-                    values.__insertEquivalent(value, cmp);
-                return entryOf(key, updatedValues);
+                return entryOf(key, io.usethesource.capsule.Set.Immutable.of(value));
               } else {
                 return kImmutableSetEntry;
               }
@@ -2617,7 +3710,7 @@ public class PersistentTrieSetMultimap<K, V> extends
                 .collect(Collectors.toList());
 
             details.modified(REMOVED_PAYLOAD, MultimapResult.Modification.flag(REMOVED_KEY, REMOVED_VALUE));
-            return new HashCollisionNode<K, V>(hash, updatedCollisionContent);
+            return collisionNodeOf(mutator, hash, updatedCollisionContent);
           } else {
             Function<Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>, Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>> substitutionMapper =
                 (kImmutableSetEntry) -> {
@@ -2634,7 +3727,7 @@ public class PersistentTrieSetMultimap<K, V> extends
                 collisionContent.stream().map(substitutionMapper).collect(Collectors.toList());
 
             details.modified(REMOVED_PAYLOAD, MultimapResult.Modification.flag(REMOVED_VALUE));
-            return new HashCollisionNode<K, V>(hash, updatedCollisionContent);
+            return collisionNodeOf(mutator, hash, updatedCollisionContent);
           }
         }
       }
@@ -2665,17 +3758,233 @@ public class PersistentTrieSetMultimap<K, V> extends
 
         if (values.size() == 1) {
           details.modified(REMOVED_PAYLOAD, MultimapResult.Modification.flag(REMOVED_KEY, REMOVED_VALUE), values);
-          return new HashCollisionNode<K, V>(hash, updatedCollisionContent);
+          return collisionNodeOf(mutator, hash, updatedCollisionContent);
         } else {
           details
               .modified(REMOVED_PAYLOAD, MultimapResult.Modification.flag(REMOVED_KEY, REMOVED_VALUE_COLLECTION), values);
-          return new HashCollisionNode<K, V>(hash, updatedCollisionContent);
+          return collisionNodeOf(mutator, hash, updatedCollisionContent);
         }
       }
 
       // details.unchanged();
       return this;
     }
+
+    @Override
+    public AbstractSetMultimapNode<K, V> insertedMultiple(AtomicReference<Thread> mutator, K key,
+        io.usethesource.capsule.Set.Immutable<V> values, int keyHash, int shift,
+        MultimapResult<K, V, io.usethesource.capsule.Set.Immutable<V>> details,
+        EqualityComparator<Object> cmp) {
+      Optional<Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>> optionalTuple =
+          collisionContent.stream().filter(entry -> cmp.equals(key, entry.getKey())).findAny();
+
+      final List<Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>> updatedCollisionContent =
+          new ArrayList<>(collisionContent.size() + 1);
+
+      if (optionalTuple.isPresent()) {
+        // contains key -> merge values
+
+        final io.usethesource.capsule.Set.Immutable<V> currentValues =
+            optionalTuple.get().getValue();
+        final io.usethesource.capsule.Set.Immutable<V> mergedValues =
+            currentValues.union(values);
+        final int sizeDelta = mergedValues.size() - currentValues.size();
+
+        if (sizeDelta == 0) {
+          return this;
+        }
+
+        collisionContent.forEach(entry -> updatedCollisionContent
+            .add(entry == optionalTuple.get() ? entryOf(key, mergedValues) : entry));
+
+        details.modified(INSERTED_PAYLOAD,
+            MultimapResult.Modification.flag(INSERTED_VALUE_COLLECTION), sizeDelta,
+            insertedTupleHash(keyHash, values, currentValues));
+        return new HashCollisionNode<K, V>(hash, updatedCollisionContent);
+      } else {
+        // does not contain key
+
+        updatedCollisionContent.add(entryOf(key, values));
+        updatedCollisionContent.addAll(collisionContent);
+
+        details.modified(INSERTED_PAYLOAD,
+            MultimapResult.Modification.flag(INSERTED_KEY, INSERTED_VALUE_COLLECTION),
+            values.size(), tupleHash(keyHash, values));
+        return new HashCollisionNode<K, V>(hash, updatedCollisionContent);
+      }
+    }
+
+    @Override
+    public AbstractSetMultimapNode<K, V> updatedMultiple(AtomicReference<Thread> mutator, K key,
+        io.usethesource.capsule.Set.Immutable<V> values, int keyHash, int shift,
+        MultimapResult<K, V, io.usethesource.capsule.Set.Immutable<V>> details,
+        EqualityComparator<Object> cmp) {
+      Optional<Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>> optionalTuple =
+          collisionContent.stream().filter(entry -> cmp.equals(key, entry.getKey())).findAny();
+
+      final List<Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>> updatedCollisionContent =
+          new ArrayList<>(collisionContent.size() + 1);
+
+      if (optionalTuple.isPresent()) {
+        // contains key -> replace values
+
+        final io.usethesource.capsule.Set.Immutable<V> currentValues =
+            optionalTuple.get().getValue();
+
+        collisionContent.forEach(entry -> updatedCollisionContent
+            .add(entry == optionalTuple.get() ? entryOf(key, values) : entry));
+
+        if (currentValues.size() == 1) {
+          details.modified(REPLACED_PAYLOAD, MultimapResult.Modification.flag(REPLACED_VALUE),
+              currentValues);
+        } else {
+          details.modified(REPLACED_PAYLOAD,
+              MultimapResult.Modification.flag(REPLACED_VALUE_COLLECTION), currentValues);
+        }
+
+        return new HashCollisionNode<K, V>(hash, updatedCollisionContent);
+      } else {
+        // does not contain key
+
+        updatedCollisionContent.add(entryOf(key, values));
+        updatedCollisionContent.addAll(collisionContent);
+
+        details.modified(INSERTED_PAYLOAD,
+            MultimapResult.Modification.flag(INSERTED_KEY, INSERTED_VALUE_COLLECTION));
+        return new HashCollisionNode<K, V>(hash, updatedCollisionContent);
+      }
+    }
+
+    @Override
+    AbstractSetMultimapNode<K, V> union(final AtomicReference<Thread> mutator,
+        final AbstractSetMultimapNode<K, V> other, final int shift,
+        final SetMultimapNodeResult details, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        return this;
+      }
+
+      final HashCollisionNode<K, V> that = (HashCollisionNode<K, V>) other;
+
+      AbstractSetMultimapNode<K, V> result = this;
+
+      for (Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>> entry : that.collisionContent) {
+        result = insertedPayload(mutator, result, entry.getKey(), null, entry.getValue(), shift,
+            details, cmp);
+      }
+
+      return result;
+    }
+
+    @Override
+    AbstractSetMultimapNode<K, V> intersect(final AtomicReference<Thread> mutator,
+        final AbstractSetMultimapNode<K, V> other, final int shift,
+        final SetMultimapNodeResult details, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        details.updateDelta(this, 1);
+        return this;
+      }
+
+      final List<Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>> retainedCollisionContent =
+          new ArrayList<>(collisionContent.size());
+
+      boolean isModified = false;
+
+      for (Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>> entry : collisionContent) {
+        final K key = entry.getKey();
+        final io.usethesource.capsule.Set.Immutable<V> values = entry.getValue();
+        final io.usethesource.capsule.Set.Immutable<V> retainedValues =
+            other.findByKey(key, hash, shift, cmp).map(values::intersect)
+                .orElse(io.usethesource.capsule.Set.Immutable.of());
+
+        if (!retainedValues.isEmpty()) {
+          details.updateDelta(key, null, retainedValues, 1);
+        }
+
+        if (retainedValues.size() == values.size()) {
+          retainedCollisionContent.add(entry);
+        } else {
+          if (!retainedValues.isEmpty()) {
+            retainedCollisionContent.add(entryOf(key, retainedValues));
+          }
+          isModified = true;
+        }
+      }
+
+      if (!isModified) {
+        return this;
+      }
+
+      return collisionNodeOf(mutator, hash, retainedCollisionContent);
+    }
+
+    @Override
+    AbstractSetMultimapNode<K, V> subtract(final AtomicReference<Thread> mutator,
+        final AbstractSetMultimapNode<K, V> other, final int shift,
+        final SetMultimapNodeResult details, final EqualityComparator<Object> cmp) {
+      if (this == other) {
+        details.updateDelta(this, -1);
+        return nodeOf(mutator);
+      }
+
+      final List<Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>> remainingCollisionContent =
+          new ArrayList<>(collisionContent.size());
+
+      boolean isModified = false;
+
+      for (Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>> entry : collisionContent) {
+        final K key = entry.getKey();
+        final io.usethesource.capsule.Set.Immutable<V> values = entry.getValue();
+        final io.usethesource.capsule.Set.Immutable<V> remainingValues =
+            other.findByKey(key, hash, shift, cmp).map(values::subtract).orElse(values);
+
+        if (remainingValues.size() == values.size()) {
+          remainingCollisionContent.add(entry);
+        } else {
+          if (remainingValues.isEmpty()) {
+            details.updateDelta(key, null, values, -1);
+          } else {
+            details.updateValuesDelta(key, null, values, remainingValues);
+            remainingCollisionContent.add(entryOf(key, remainingValues));
+          }
+          isModified = true;
+        }
+      }
+
+      if (!isModified) {
+        return this;
+      }
+
+      return collisionNodeOf(mutator, hash, remainingCollisionContent);
+    }
+
+    /*
+     * Returns a canonical node for the remaining collision content: collision nodes hold at least
+     * two keys, a single remaining key is returned as payload of a bitmap indexed node such that
+     * the parent node can inline it.
+     */
+    static final <K, V> CompactSetMultimapNode<K, V> collisionNodeOf(
+        final AtomicReference<Thread> mutator, final int hash,
+        final List<Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>>> collisionContent) {
+      switch (collisionContent.size()) {
+        case 0:
+          return nodeOf(mutator);
+        case 1: {
+          final Map.Entry<K, io.usethesource.capsule.Set.Immutable<V>> entry =
+              collisionContent.get(0);
+          final int bitpos = bitpos(mask(hash, 0));
+
+          if (entry.getValue().size() == 1) {
+            return nodeOf(mutator, 0, bitpos,
+                new Object[]{entry.getKey(), entry.getValue().findFirst().get()});
+          } else {
+            return nodeOf(mutator, bitpos, bitpos,
+                new Object[]{entry.getKey(), entry.getValue()});
+          }
+        }
+        default:
+          return new HashCollisionNode<K, V>(hash, collisionContent);
+      }
+    }
   }
 
   static final class TransientTrieSetMultimap<K, V> extends
@@ -2702,14 +4011,108 @@ public class PersistentTrieSetMultimap<K, V> extends
       return values;
     }
 
+    /**
+     * Structurally unions the trie of {@code setMultimap} into this transient if it is a
+     * {@link PersistentTrieSetMultimap}, otherwise falls back to inserting tuple by tuple. Nodes of
+     * the (immutable) argument are shared with, and copied on later modification by, this
+     * transient.
+     */
     @Override
     public boolean union(final SetMultimap<? extends K, ? extends V> setMultimap) {
-      boolean modified = false;
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      if (!(setMultimap instanceof PersistentTrieSetMultimap)) {
+        return super.union(setMultimap);
+      }
+
+      final PersistentTrieSetMultimap<K, V> that = (PersistentTrieSetMultimap<K, V>) setMultimap;
+      final SetMultimapNodeResult details = new SetMultimapNodeResult();
+
+      final int newHashCode;
+      final int newSize;
+      final int newKeySetHashCode;
+      final int newKeySetSize;
+
+      // union smaller into bigger; nodes of `that` are not editable by `mutator` and get copied
+      if (that.cachedSize > cachedSize) {
+        rootNode = that.rootNode.union(mutator, rootNode, 0, details, cmp);
+        newHashCode = that.cachedHashCode + details.getDeltaHashCode();
+        newSize = that.cachedSize + details.getDeltaSize();
+        newKeySetHashCode = that.cachedKeySetHashCode + details.getDeltaKeySetHashCode();
+        newKeySetSize = that.cachedKeySetSize + details.getDeltaKeySetSize();
+      } else {
+        rootNode = rootNode.union(mutator, that.rootNode, 0, details, cmp);
+        newHashCode = cachedHashCode + details.getDeltaHashCode();
+        newSize = cachedSize + details.getDeltaSize();
+        newKeySetHashCode = cachedKeySetHashCode + details.getDeltaKeySetHashCode();
+        newKeySetSize = cachedKeySetSize + details.getDeltaKeySetSize();
+      }
+
+      final boolean modified = newSize != cachedSize;
+
+      cachedHashCode = newHashCode;
+      cachedSize = newSize;
+      cachedKeySetHashCode = newKeySetHashCode;
+      cachedKeySetSize = newKeySetSize;
+
+      return modified;
+    }
+
+    @Override
+    public boolean intersect(final SetMultimap<? extends K, ? extends V> setMultimap) {
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
+
+      if (!(setMultimap instanceof PersistentTrieSetMultimap)) {
+        return super.intersect(setMultimap);
+      }
+
+      final PersistentTrieSetMultimap<K, V> that = (PersistentTrieSetMultimap<K, V>) setMultimap;
+      final SetMultimapNodeResult details = new SetMultimapNodeResult();
+
+      rootNode = rootNode.intersect(mutator, that.rootNode, 0, details, cmp);
+
+      final boolean modified = details.getDeltaSize() != cachedSize;
+
+      cachedHashCode = details.getDeltaHashCode();
+      cachedSize = details.getDeltaSize();
+      cachedKeySetHashCode = details.getDeltaKeySetHashCode();
+      cachedKeySetSize = details.getDeltaKeySetSize();
+
+      return modified;
+    }
+
+    /**
+     * Replaces the content of this transient with the tuples of {@code setMultimap} that are not
+     * contained in it, mirroring {@link SetMultimap.Immutable#complement(SetMultimap)}.
+     */
+    @Override
+    public boolean complement(final SetMultimap<? extends K, ? extends V> setMultimap) {
+      if (mutator.get() == null) {
+        throw new IllegalStateException("Transient already frozen.");
+      }
 
-      for (Map.Entry<? extends K, ? extends V> entry : setMultimap.entrySet()) {
-        modified |= this.__insert(entry.getKey(), entry.getValue());
+      if (!(setMultimap instanceof PersistentTrieSetMultimap)) {
+        return super.complement(setMultimap);
       }
 
+      final PersistentTrieSetMultimap<K, V> that = (PersistentTrieSetMultimap<K, V>) setMultimap;
+      final SetMultimapNodeResult details = new SetMultimapNodeResult();
+
+      final AbstractSetMultimapNode<K, V> newRootNode =
+          that.rootNode.subtract(mutator, rootNode, 0, details, cmp);
+
+      final boolean modified = newRootNode != rootNode;
+
+      rootNode = newRootNode;
+      cachedHashCode = that.cachedHashCode + details.getDeltaHashCode();
+      cachedSize = that.cachedSize + details.getDeltaSize();
+      cachedKeySetHashCode = that.cachedKeySetHashCode + details.getDeltaKeySetHashCode();
+      cachedKeySetSize = that.cachedKeySetSize + details.getDeltaKeySetSize();
+
       return modified;
     }
 
@@ -2728,11 +4131,6 @@ public class PersistentTrieSetMultimap<K, V> extends
       return new TransientSetMultimapKeyIterator<>(this);
     }
 
-    @Override
-    public Iterator<V> valueIterator() {
-      return valueCollectionsStream().flatMap(Set::stream).iterator();
-    }
-
     @Override
     public Iterator<Map.Entry<K, V>> entryIterator() {
       return new TransientSetMultimapTupleIterator<>(this,
@@ -2744,22 +4142,6 @@ public class PersistentTrieSetMultimap<K, V> extends
       return new TransientSetMultimapTupleIterator<>(this, tupleOf);
     }
 
-    private Spliterator<io.usethesource.capsule.Set.Immutable<V>> valueCollectionsSpliterator() {
-      /*
-       * TODO: specialize between mutable / SetMultimap.Immutable<K, V> ({@see
-       * Spliterator.IMMUTABLE})
-       */
-      int characteristics = Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
-      return Spliterators.spliterator(
-          new SetMultimapValueIterator<>(rootNode, io.usethesource.capsule.Set.Immutable::of),
-          size(), characteristics);
-    }
-
-    private Stream<io.usethesource.capsule.Set.Immutable<V>> valueCollectionsStream() {
-      boolean isParallel = false;
-      return StreamSupport.stream(valueCollectionsSpliterator(), isParallel);
-    }
-
     @Override
     public SetMultimap.Immutable<K, V> freeze() {
       if (mutator.get() == null) {
@@ -2767,7 +4149,7 @@ public class PersistentTrieSetMultimap<K, V> extends
       }
 
       mutator.set(null);
-      return new PersistentTrieSetMultimap<K, V>(cmp, rootNode, cachedSize,
+      return new PersistentTrieSetMultimap<K, V>(cmp, rootNode, cachedHashCode, cachedSize,
           cachedKeySetHashCode, cachedKeySetSize);
     }
   }
@@ -9,6 +9,7 @@ package io.usethesource.capsule.core.trie;
 
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
 
 import io.usethesource.capsule.util.EqualityComparator;
 
@@ -20,6 +21,19 @@ public interface MapNode<K, V, R extends MapNode<K, V, R>> extends Node {
   Optional<V> findByKey(final K key, final int keyHash, final int shift,
       final EqualityComparator<Object> cmp);
 
+  /**
+   * Variant of {@link #containsKey(Object, int, int, EqualityComparator)} that compares keys with
+   * {@link Object#equals(Object)} of the stored key.
+   */
+  boolean containsKey(final Object key, final int keyHash, final int shift);
+
+  /**
+   * Allocation-free variant of {@link #findByKey(Object, int, int, EqualityComparator)} that
+   * compares keys with {@link Object#equals(Object)} of the stored key and returns {@code null}
+   * if {@code key} is not present.
+   */
+  V findByKeyOrNull(final Object key, final int keyHash, final int shift);
+
   R updated(final AtomicReference<Thread> mutator, final K key,
       final V val, final int keyHash, final int shift, final MapNodeResult<K, V> details,
       final EqualityComparator<Object> cmp);
@@ -28,6 +42,20 @@ public interface MapNode<K, V, R extends MapNode<K, V, R>> extends Node {
       final int keyHash, final int shift, final MapNodeResult<K, V> details,
       final EqualityComparator<Object> cmp);
   
+  /**
+   * Structurally merges {@code that} into this node. Sub-nodes that are only present on one side,
+   * or that are reference equal, are shared with the result. The {@code resolver} is only consulted
+   * for keys that are present in both nodes but are mapped to different values; it receives the
+   * value of this node as first and the value of {@code that} as second argument.
+   *
+   * @param details tracks the size and hash code deltas of the result relative to this node
+   */
+  default R merge(final AtomicReference<Thread> mutator, final R that, final int shift,
+      final MapNodeResult<K, V> details, final BiFunction<V, V, V> resolver,
+      final EqualityComparator<Object> cmp) {
+    throw new UnsupportedOperationException();
+  }
+
   // TODO: move to {@code Node} interface
   boolean equivalent(final Object other, final EqualityComparator<Object> cmp);
 
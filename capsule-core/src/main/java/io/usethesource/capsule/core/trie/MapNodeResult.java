@@ -13,6 +13,25 @@ public final class MapNodeResult<K, V> {
   private boolean isModified;
   private boolean isReplaced;
 
+  private int deltaSize;
+  private int deltaHashCode;
+
+  public int getDeltaSize() {
+    return deltaSize;
+  }
+
+  public void updateDeltaSize(int deltaSize) {
+    this.deltaSize += deltaSize;
+  }
+
+  public int getDeltaHashCode() {
+    return deltaHashCode;
+  }
+
+  public void updateDeltaHashCode(int deltaHashCode) {
+    this.deltaHashCode += deltaHashCode;
+  }
+
   // update: inserted/removed single element, element count changed
   public void modified() {
     this.isModified = true;
@@ -24,6 +43,15 @@ public final class MapNodeResult<K, V> {
     this.isReplaced = true;
   }
 
+  // reuse: resets this result for another update, e.g., by a transient that owns it
+  public void reset() {
+    this.replacedValue = null;
+    this.isModified = false;
+    this.isReplaced = false;
+    this.deltaSize = 0;
+    this.deltaHashCode = 0;
+  }
+
   // update: neither element, nor element count changed
   public static <K, V> MapNodeResult<K, V> unchanged() {
     return new MapNodeResult<>();
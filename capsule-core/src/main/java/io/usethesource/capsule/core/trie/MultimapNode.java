@@ -9,6 +9,7 @@ package io.usethesource.capsule.core.trie;
 
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import io.usethesource.capsule.util.EqualityComparator;
 
@@ -23,6 +24,26 @@ public interface MultimapNode<K, V, C, R extends MultimapNode<K, V, C, R>> exten
 
   Optional<C> findByKey(K key, int keyHash, int shift, EqualityComparator<Object> cmp);
 
+  /**
+   * Returns the number of values associated with {@code key}, or {@code 0} if {@code key} is not
+   * present, without materializing a value collection.
+   */
+  int valueCount(K key, int keyHash, int shift, EqualityComparator<Object> cmp);
+
+  /**
+   * Allocation-free variant of {@link #findByKey(Object, int, int, EqualityComparator)} that
+   * returns the first value associated with {@code key}, or {@code null} if {@code key} is not
+   * present.
+   */
+  V findFirstValue(K key, int keyHash, int shift, EqualityComparator<Object> cmp);
+
+  /**
+   * Performs {@code action} for each value associated with {@code key}, without boxing a singleton
+   * value into a collection.
+   */
+  void forEachValue(K key, int keyHash, int shift, Consumer<? super V> action,
+      EqualityComparator<Object> cmp);
+
   boolean mustUnbox(C values);
   
   V unbox(C values);
@@ -23,11 +23,24 @@ public interface MultimapResult<K, V, C> {
 
   void modified(Modification modificationEffect, int modificationDetails, int sizeDelta);
 
+  /**
+   * Records an insertion of a value collection, together with the summed tuple hash codes of the
+   * values that were not yet associated with the key.
+   */
+  void modified(Modification modificationEffect, int modificationDetails, int sizeDelta,
+      int hashCodeDelta);
+
   void modified(Modification modificationEffect, int modificationDetails, C evictedPayload);
 
   Optional<C> getEvictedPayload();
 
   Optional<Integer> sizeDelta();
+
+  /**
+   * Returns the hash code delta of an insertion of a value collection, or {@code 0} if none was
+   * recorded.
+   */
+  int hashCodeDelta();
   
   enum Modification {
     NOTHING,
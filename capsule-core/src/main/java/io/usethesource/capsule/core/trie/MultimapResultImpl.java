@@ -21,6 +21,7 @@ final class MultimapResultImpl<K, V, C> implements
 
   private int modificationDetails = 0;
   private Optional<Integer> sizeDelta = Optional.empty();
+  private int hashCodeDelta = 0;
   private Optional<C> evictedPayload = Optional.empty();
 
   @Override
@@ -38,6 +39,11 @@ final class MultimapResultImpl<K, V, C> implements
     return sizeDelta;
   }
 
+  @Override
+  public int hashCodeDelta() {
+    return hashCodeDelta;
+  }
+
   @Override
   public Optional<C> getEvictedPayload() {
     return evictedPayload;
@@ -58,6 +64,15 @@ final class MultimapResultImpl<K, V, C> implements
     this.sizeDelta = Optional.of(sizeDelta);
   }
 
+  @Override
+  public void modified(Modification modificationEffect, int modificationDetails, int sizeDelta,
+      int hashCodeDelta) {
+    this.modificationEffect = modificationEffect;
+    this.modificationDetails = modificationDetails;
+    this.sizeDelta = Optional.of(sizeDelta);
+    this.hashCodeDelta = hashCodeDelta;
+  }
+
   @Override
   public void modified(Modification modificationEffect, int modificationDetails,
       C evictedPayload) {
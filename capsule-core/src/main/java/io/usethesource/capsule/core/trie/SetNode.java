@@ -20,6 +20,19 @@ public interface SetNode<K, R extends SetNode<K, R>> extends Node {
   Optional<K> findByKey(final K key, final int keyHash, final int shift,
       final EqualityComparator<Object> cmp);
 
+  /**
+   * Variant of {@link #contains(Object, int, int, EqualityComparator)} that compares keys with
+   * {@link Object#equals(Object)} of the stored key.
+   */
+  boolean contains(final Object key, final int keyHash, final int shift);
+
+  /**
+   * Allocation-free variant of {@link #findByKey(Object, int, int, EqualityComparator)} that
+   * compares keys with {@link Object#equals(Object)} of the stored key and returns {@code null}
+   * if {@code key} is not present.
+   */
+  K findByKeyOrNull(final Object key, final int keyHash, final int shift);
+
   R updated(final AtomicReference<Thread> mutator, final K key, final int keyHash, final int shift,
       final SetNodeResult<K> details, final EqualityComparator<Object> cmp);
 
@@ -55,18 +68,37 @@ public interface SetNode<K, R extends SetNode<K, R>> extends Node {
 
   int recursivePayloadHashCode();
 
+  /**
+   * Structurally merges {@code that} into this node. Sub-nodes that are only present on one side,
+   * or that are reference equal, are shared with the result.
+   *
+   * @param details tracks the size and hash code of elements that are not yet contained in this
+   *                node
+   */
   default R union(final AtomicReference<Thread> mutator, R that, final int shift,
-      final EqualityComparator<Object> cmp) {
+      final SetNodeResult<K> details, final EqualityComparator<Object> cmp) {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Structurally intersects this node with {@code that}. Sub-trees that are not present on both
+   * sides are pruned without being traversed.
+   *
+   * @param details tracks the size and hash code of the elements retained in the result
+   */
   default R intersect(final AtomicReference<Thread> mutator, R that, final int shift,
-      final EqualityComparator<Object> cmp) {
+      final SetNodeResult<K> details, final EqualityComparator<Object> cmp) {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Structurally removes all elements of {@code that} from this node. Sub-trees that are not
+   * present on both sides are kept without being traversed.
+   *
+   * @param details tracks the size and hash code of the elements removed from this node
+   */
   default R subtract(final AtomicReference<Thread> mutator, R that, final int shift,
-      final EqualityComparator<Object> cmp) {
+      final SetNodeResult<K> details, final EqualityComparator<Object> cmp) {
     throw new UnsupportedOperationException();
   }
 
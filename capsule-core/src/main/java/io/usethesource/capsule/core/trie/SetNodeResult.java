@@ -33,4 +33,7 @@ public interface SetNodeResult<K> {
 
   K getReplacedValue();
 
+  // reuse: resets this result for another update, e.g., by a transient that owns it
+  void reset();
+
 }
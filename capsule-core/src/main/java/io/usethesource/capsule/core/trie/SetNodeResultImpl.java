@@ -58,4 +58,12 @@ public class SetNodeResultImpl<K> implements SetNodeResult<K> {
     return replacedValue;
   }
 
+  public void reset() {
+    this.replacedValue = null;
+    this.isModified = false;
+    this.isReplaced = false;
+    this.deltaSize = 0;
+    this.deltaHashCode = 0;
+  }
+
 }
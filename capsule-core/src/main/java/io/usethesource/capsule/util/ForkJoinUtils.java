@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+public class ForkJoinUtils {
+
+  /**
+   * Minimal number of elements per task when partitioning input in parallel.
+   */
+  private static final int MIN_CHUNK_SIZE = 1 << 12;
+
+  /**
+   * Runs {@code task} for every index in the range {@code [0, count)} as a separate fork-join task
+   * on {@code pool} and waits for all of them to complete.
+   */
+  public static void invokeAll(final ForkJoinPool pool, final int count, final IntConsumer task) {
+    final List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      final int index = i;
+      tasks.add(pool.submit(() -> task.accept(index)));
+    }
+
+    tasks.forEach(ForkJoinTask::join);
+  }
+
+  /**
+   * Distributes the elements of {@code src} into {@code partitionCount} lists, according to
+   * {@code partitionOf}. Classification and distribution are performed in parallel on
+   * {@code pool}, by chunking {@code src} into contiguous ranges.
+   *
+   * @param src elements to distribute, supporting fast random access
+   * @param partitionCount number of partitions, at most 256
+   * @param partitionOf maps an element to its partition index in {@code [0, partitionCount)}
+   * @return a list of {@code partitionCount} (possibly empty) partitions
+   */
+  public static <T> List<List<T>> partition(final ForkJoinPool pool, final List<? extends T> src,
+      final int partitionCount, final ToIntFunction<? super T> partitionOf) {
+    assert 0 < partitionCount && partitionCount <= 256;
+
+    final int length = src.size();
+    final int chunkCount = Math.max(1, Math.min(pool.getParallelism(), length / MIN_CHUNK_SIZE));
+    final int chunkSize = (length + chunkCount - 1) / chunkCount;
+
+    final byte[] partitionIndices = new byte[length];
+    final int[][] offsets = new int[chunkCount][partitionCount];
+
+    // classify elements and count the partition sizes per chunk
+    invokeAll(pool, chunkCount, chunk -> {
+      final int[] counts = offsets[chunk];
+      final int to = Math.min(length, (chunk + 1) * chunkSize);
+
+      for (int i = chunk * chunkSize; i < to; i++) {
+        final int partitionIndex = partitionOf.applyAsInt(src.get(i));
+
+        partitionIndices[i] = (byte) partitionIndex;
+        counts[partitionIndex]++;
+      }
+    });
+
+    // turn counts into offsets where each chunk starts writing into a partition
+    final List<List<T>> partitions = new ArrayList<>(partitionCount);
+
+    for (int partitionIndex = 0; partitionIndex < partitionCount; partitionIndex++) {
+      int partitionSize = 0;
+
+      for (int chunk = 0; chunk < chunkCount; chunk++) {
+        final int count = offsets[chunk][partitionIndex];
+        offsets[chunk][partitionIndex] = partitionSize;
+        partitionSize += count;
+      }
+
+      // pre-sized, such that tasks only write to distinct slots
+      partitions.add(new ArrayList<>(Collections.nCopies(partitionSize, null)));
+    }
+
+    // distribute elements
+    invokeAll(pool, chunkCount, chunk -> {
+      final int[] cursors = offsets[chunk];
+      final int to = Math.min(length, (chunk + 1) * chunkSize);
+
+      for (int i = chunk * chunkSize; i < to; i++) {
+        final int partitionIndex = partitionIndices[i] & 0xFF;
+        partitions.get(partitionIndex).set(cursors[partitionIndex]++, src.get(i));
+      }
+    });
+
+    return partitions;
+  }
+
+}
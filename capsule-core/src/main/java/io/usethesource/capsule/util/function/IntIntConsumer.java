@@ -0,0 +1,20 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.util.function;
+
+@FunctionalInterface
+public interface IntIntConsumer {
+
+  /**
+   * Performs this operation on the given two arguments.
+   *
+   * @param t the first input argument
+   * @param u the second input argument
+   */
+  void accept(int t, int u);
+}
@@ -11,10 +11,12 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collector;
 
+import io.usethesource.capsule.BinaryRelation;
 import io.usethesource.capsule.SetMultimap;
 
 public class CapsuleCollectors {
@@ -22,30 +24,67 @@ public class CapsuleCollectors {
   public static final Set<Collector.Characteristics> UNORDERED =
       Collections.unmodifiableSet(EnumSet.of(Collector.Characteristics.UNORDERED));
 
+  /**
+   * Collects into a {@link io.usethesource.capsule.Set.Immutable}. Partial results of parallel
+   * streams are combined structurally, i.e., by unioning the tries of both partial results.
+   */
   public static <T> Collector<T, ?, io.usethesource.capsule.Set.Immutable<T>> toSet() {
     return new DefaultCollector<>(
         (Supplier<io.usethesource.capsule.Set.Transient<T>>) io.usethesource.capsule.Set.Transient::of,
         io.usethesource.capsule.Set.Transient::__insert, (left, right) -> {
-      left.__insertAll(right);
+      left.__insertAll(right.freeze());
       return left;
     }, io.usethesource.capsule.Set.Transient::freeze, UNORDERED);
   }
 
-//  public static <T, K, V> Collector<T, ?, io.usethesource.capsule.Map.Immutable<K, V>> toMap(
-//      Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper) {
-//
-//    /** extract key/value from type {@code T} and insert into multimap */
-//    final BiConsumer<io.usethesource.capsule.Map.Transient<K, V>, T> accumulator =
-//        (map, element) -> map.__put(keyMapper.apply(element), valueMapper.apply(element));
-//
-//    return new DefaultCollector<>(
-//        io.usethesource.capsule.Map::of,
-//        accumulator,
-//        (left, right) -> {
-//          left.union(right);
-//          return left;
-//        }, io.usethesource.capsule.Map.Transient::freeze, UNORDERED);
-//  }
+  /**
+   * Collects into a {@link io.usethesource.capsule.Map.Immutable}. Partial results of parallel
+   * streams are combined structurally, i.e., by merging the tries of both partial results.
+   *
+   * @throws IllegalStateException if two elements map the same key to different values
+   */
+  public static <T, K, V> Collector<T, ?, io.usethesource.capsule.Map.Immutable<K, V>> toMap(
+      Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper) {
+    return toMap(keyMapper, valueMapper, (thisVal, thatVal) -> {
+      throw new IllegalStateException(
+          String.format("Duplicate key with values %s and %s.", thisVal, thatVal));
+    });
+  }
+
+  /**
+   * Collects into a {@link io.usethesource.capsule.Map.Immutable}. Partial results of parallel
+   * streams are combined structurally, i.e., by merging the tries of both partial results.
+   *
+   * @param resolver consulted if two elements map the same key to different values
+   */
+  public static <T, K, V> Collector<T, ?, io.usethesource.capsule.Map.Immutable<K, V>> toMap(
+      Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper,
+      BiFunction<V, V, V> resolver) {
+
+    /** extract key/value from type {@code T} and insert into map */
+    final BiConsumer<io.usethesource.capsule.Map.Transient<K, V>, T> accumulator =
+        (map, element) -> {
+          final K key = keyMapper.apply(element);
+          final V val = valueMapper.apply(element);
+
+          // NOTE: does only work when map does not support `null` values
+          final V oldVal = map.get(key);
+
+          if (oldVal == null) {
+            map.__put(key, val);
+          } else if (!oldVal.equals(val)) {
+            map.__put(key, resolver.apply(oldVal, val));
+          }
+        };
+
+    return new DefaultCollector<>(
+        (Supplier<io.usethesource.capsule.Map.Transient<K, V>>) io.usethesource.capsule.Map.Transient::of,
+        accumulator,
+        (left, right) -> {
+          left.merge(right.freeze(), resolver);
+          return left;
+        }, io.usethesource.capsule.Map.Transient::freeze, UNORDERED);
+  }
 
   public static <T, K, V> Collector<T, ?, SetMultimap.Immutable<K, V>> toSetMultimap(
       Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper) {
@@ -58,9 +97,26 @@ public class CapsuleCollectors {
         SetMultimap.Transient::of,
         accumulator,
         (left, right) -> {
-          left.union(right);
+          left.union(right.freeze());
           return left;
         }, SetMultimap.Transient::freeze, UNORDERED);
   }
 
+  public static <T, K, V> Collector<T, ?, BinaryRelation.Immutable<K, V>> toBinaryRelation(
+      Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper) {
+
+    /** extract key/value from type {@code T} and insert into relation */
+    final BiConsumer<BinaryRelation.Transient<K, V>, T> accumulator =
+        (relation, element) -> relation.__insert(keyMapper.apply(element),
+            valueMapper.apply(element));
+
+    return new DefaultCollector<>(
+        BinaryRelation.Transient::of,
+        accumulator,
+        (left, right) -> {
+          left.union(right.freeze());
+          return left;
+        }, BinaryRelation.Transient::freeze, UNORDERED);
+  }
+
 }
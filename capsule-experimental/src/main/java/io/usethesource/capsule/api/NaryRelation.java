@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.api;
+
+import io.usethesource.capsule.Set;
+
+/**
+ * Relation of {@link Tuple}s of a fixed arity, indexed on configurable column permutations.
+ */
+public interface NaryRelation<R extends Tuple> extends Set<R> {
+
+  int arity();
+
+  interface Immutable<R extends Tuple> extends NaryRelation<R>, Set.Immutable<R> {
+
+    @Override
+    boolean isTransientSupported();
+
+    @Override
+    NaryRelation.Transient<R> asTransient();
+
+    /**
+     * Returns all tuples that match {@code pattern}, where a {@code null} component acts as
+     * wildcard that matches any value in its column. The lookup uses the index whose bound prefix
+     * is most selective; columns that are not covered by that prefix are checked on its result.
+     *
+     * @param pattern one value or {@code null} per column
+     * @return the matching tuples
+     */
+    Set.Immutable<R> select(Object... pattern);
+
+    /**
+     * Returns all tuples whose leading columns of index {@code index} equal {@code prefix}.
+     *
+     * @param index position of the index in the configuration of this relation
+     * @param prefix values of the leading columns of the index, at most as many as it lists
+     * @return the tuples stored under {@code prefix}
+     */
+    Set.Immutable<R> lookup(int index, Object... prefix);
+
+  }
+
+  interface Transient<R extends Tuple> extends NaryRelation<R>, Set.Transient<R> {
+
+    @Override
+    NaryRelation.Immutable<R> freeze();
+
+  }
+
+}
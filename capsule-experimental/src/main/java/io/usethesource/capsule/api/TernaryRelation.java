@@ -7,6 +7,8 @@
  */
 package io.usethesource.capsule.api;
 
+import java.util.stream.Stream;
+
 import io.usethesource.capsule.Set;
 
 public interface TernaryRelation<T, U, V, R extends Triple<T, U, V>> extends Set<R> {
@@ -24,6 +26,27 @@ public interface TernaryRelation<T, U, V, R extends Triple<T, U, V>> extends Set
     @Override
     TernaryRelation.Transient<T, U, V, R> asTransient();
 
+    /**
+     * Returns all triples that match the pattern {@code <fst, snd, trd>}, where a {@code null}
+     * component acts as wildcard that matches any value in its column.
+     *
+     * The lookup starts from the most selective bound column, i.e., from the column whose index
+     * associates the fewest triples with the bound value; the remaining bound columns are checked
+     * on the triples of that column only.
+     *
+     * @param fst value of the first column, or {@code null}
+     * @param snd value of the second column, or {@code null}
+     * @param trd value of the third column, or {@code null}
+     * @return the matching triples
+     */
+    Set.Immutable<R> select(T fst, U snd, V trd);
+
+    /**
+     * Lazily streams all triples that match the pattern {@code <fst, snd, trd>}, as
+     * {@link #select(Object, Object, Object)} does, without materializing the result.
+     */
+    Stream<R> selectStream(T fst, U snd, V trd);
+
   }
 
   interface Transient<T, U, V, R extends Triple<T, U, V>>
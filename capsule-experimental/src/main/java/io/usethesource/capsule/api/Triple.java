@@ -9,7 +9,7 @@ package io.usethesource.capsule.api;
 
 import java.util.Objects;
 
-public interface Triple<T, U, V> {
+public interface Triple<T, U, V> extends Tuple {
 
   static <T, U, V> Triple<T, U, V> of(final T fst, final U snd, final V trd) {
     return new ImmutableTriple(
@@ -24,6 +24,12 @@ public interface Triple<T, U, V> {
 
   V _2();
 
+  @Override
+  default int arity() {
+    return 3;
+  }
+
+  @Override
   <T> T get(int columnIndex);
 
 }
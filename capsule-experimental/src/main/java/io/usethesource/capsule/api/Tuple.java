@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.api;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Fixed-arity tuple of non-null columns, as stored in an {@link NaryRelation}.
+ */
+public interface Tuple {
+
+  int MIN_ARITY = 2;
+
+  int MAX_ARITY = 6;
+
+  /**
+   * Creates a tuple of arity {@code elements.length}. Tuples of arity three are represented as
+   * {@link Triple}s, such that both compare equal.
+   */
+  static Tuple of(final Object... elements) {
+    if (elements.length < MIN_ARITY || elements.length > MAX_ARITY) {
+      throw new IllegalArgumentException(
+          String.format("Arity must be in [%d, %d].", MIN_ARITY, MAX_ARITY));
+    }
+
+    if (elements.length == 3) {
+      return Triple.of(elements[0], elements[1], elements[2]);
+    }
+
+    final Object[] copy = elements.clone();
+    for (Object element : copy) {
+      Objects.requireNonNull(element);
+    }
+
+    return new ImmutableTuple(copy);
+  }
+
+  int arity();
+
+  <T> T get(int columnIndex);
+
+}
+
+
+class ImmutableTuple implements Tuple {
+
+  final Object[] elements;
+
+  ImmutableTuple(final Object[] elements) {
+    this.elements = elements;
+  }
+
+  @Override
+  public int arity() {
+    return elements.length;
+  }
+
+  @Override
+  public <T> T get(int columnIndex) {
+    return (T) elements[columnIndex];
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(elements);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    ImmutableTuple that = (ImmutableTuple) o;
+
+    return Arrays.equals(elements, that.elements);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.stream(elements).map(String::valueOf)
+        .collect(Collectors.joining(", ", "<", ">"));
+  }
+
+}
@@ -0,0 +1,650 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule.experimental.relation;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import io.usethesource.capsule.Map;
+import io.usethesource.capsule.Set;
+import io.usethesource.capsule.SetMultimap;
+import io.usethesource.capsule.api.NaryRelation;
+import io.usethesource.capsule.api.Tuple;
+import io.usethesource.capsule.util.EqualityComparator;
+import io.usethesource.capsule.util.collection.AbstractImmutableSet;
+
+/**
+ * Relation of arity two to six that stores its tuples in a set and indexes them on a configurable
+ * list of column permutations. An index on a permutation nests the tuples under the values of its
+ * leading columns: a single column is stored as {@link SetMultimap}, two columns as {@link Map} of
+ * {@link SetMultimap}s. Further columns of a permutation are not materialized; lookups on longer
+ * prefixes filter the tuples stored under the two leading columns.
+ * <p>
+ * A {@link #lookup(int, Object...)} that binds only the leading column of a two-level index copies
+ * the tuples of all nested multi-maps under that column into a new set. Selections avoid that
+ * copy: on equal counts they prefer an index whose bound prefix reaches its full nesting depth,
+ * and otherwise filter the nested tuples directly.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class NaryTrieRelation<R extends Tuple> extends AbstractImmutableSet<R>
+    implements NaryRelation.Immutable<R> {
+
+  private static final int MAX_NESTING = 2;
+
+  private final int arity;
+  private final int[][] permutations;
+
+  private final Set.Immutable<R> tuples;
+
+  /*
+   * NOTE: per permutation, either a 'SetMultimap.Immutable<Object, R>' or a
+   * 'Map.Immutable<Object, SetMultimap.Immutable<Object, R>>', depending on its nesting depth
+   */
+  private final Object[] indices;
+
+  private NaryTrieRelation(final int arity, final int[][] permutations,
+      final Set.Immutable<R> tuples, final Object[] indices) {
+    this.arity = arity;
+    this.permutations = permutations;
+    this.tuples = tuples;
+    this.indices = indices;
+  }
+
+  /**
+   * Creates an empty relation of {@code arity}, indexed on {@code permutations}. Each permutation
+   * lists distinct column positions in the order in which lookups bind them.
+   */
+  public static final <R extends Tuple> NaryRelation.Immutable<R> of(final int arity,
+      final int[]... permutations) {
+    final int[][] validatedPermutations = validate(arity, permutations);
+    final Object[] indices = new Object[validatedPermutations.length];
+
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = nesting(validatedPermutations[i]) == 1 ? SetMultimap.Immutable.of()
+          : Map.Immutable.of();
+    }
+
+    return new NaryTrieRelation<>(arity, validatedPermutations, Set.Immutable.of(), indices);
+  }
+
+  /**
+   * Creates an empty transient relation of {@code arity}, indexed on {@code permutations}, e.g.,
+   * for bulk loading.
+   */
+  public static final <R extends Tuple> NaryRelation.Transient<R> transientOf(final int arity,
+      final int[]... permutations) {
+    return NaryTrieRelation.<R>of(arity, permutations).asTransient();
+  }
+
+  private static int[][] validate(final int arity, final int[][] permutations) {
+    if (arity < Tuple.MIN_ARITY || arity > Tuple.MAX_ARITY) {
+      throw new IllegalArgumentException(
+          String.format("Arity must be in [%d, %d].", Tuple.MIN_ARITY, Tuple.MAX_ARITY));
+    }
+
+    final int[][] result = new int[permutations.length][];
+
+    for (int i = 0; i < permutations.length; i++) {
+      final int[] permutation = permutations[i];
+      boolean[] seen = new boolean[arity];
+
+      if (permutation.length == 0 || permutation.length > arity) {
+        throw new IllegalArgumentException("Permutation must list between one and arity columns.");
+      }
+
+      for (int column : permutation) {
+        if (column < 0 || column >= arity || seen[column]) {
+          throw new IllegalArgumentException("Permutation must list distinct columns.");
+        }
+        seen[column] = true;
+      }
+
+      result[i] = permutation.clone();
+    }
+
+    return result;
+  }
+
+  private static int nesting(final int[] permutation) {
+    return Math.min(MAX_NESTING, permutation.length);
+  }
+
+  static final void checkArity(final int arity, final Tuple tuple) {
+    if (tuple.arity() != arity) {
+      throw new IllegalArgumentException(
+          String.format("Expected tuple of arity %d, but got %s.", arity, tuple));
+    }
+  }
+
+  @Override
+  public int arity() {
+    return arity;
+  }
+
+  @Override
+  public int size() {
+    return tuples.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return tuples.isEmpty();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return tuples.contains(o);
+  }
+
+  @Override
+  public R get(Object o) {
+    return tuples.get(o);
+  }
+
+  @Override
+  public Iterator<R> iterator() {
+    return tuples.iterator();
+  }
+
+  @Override
+  public Iterator<R> keyIterator() {
+    return this.iterator();
+  }
+
+  @Override
+  public NaryRelation.Immutable<R> __insert(final R tuple) {
+    checkArity(arity, tuple);
+
+    final Set.Immutable<R> tuplesNew = tuples.__insert(tuple);
+
+    if (tuplesNew == tuples) {
+      return this;
+    }
+
+    final Object[] indicesNew = new Object[indices.length];
+
+    for (int i = 0; i < indices.length; i++) {
+      final int[] permutation = permutations[i];
+      final Object key0 = tuple.get(permutation[0]);
+
+      if (nesting(permutation) == 1) {
+        indicesNew[i] = ((SetMultimap.Immutable<Object, R>) indices[i]).__insert(key0, tuple);
+      } else {
+        final Map.Immutable<Object, SetMultimap.Immutable<Object, R>> index =
+            (Map.Immutable<Object, SetMultimap.Immutable<Object, R>>) indices[i];
+        final SetMultimap.Immutable<Object, R> nested = index.get(key0);
+
+        indicesNew[i] = index.__put(key0,
+            (nested == null ? SetMultimap.Immutable.<Object, R>of() : nested)
+                .__insert(tuple.<Object>get(permutation[1]), tuple));
+      }
+    }
+
+    return new NaryTrieRelation<>(arity, permutations, tuplesNew, indicesNew);
+  }
+
+  @Override
+  public NaryRelation.Immutable<R> __remove(final R tuple) {
+    final Set.Immutable<R> tuplesNew = tuples.__remove(tuple);
+
+    if (tuplesNew == tuples) {
+      return this;
+    }
+
+    final Object[] indicesNew = new Object[indices.length];
+
+    for (int i = 0; i < indices.length; i++) {
+      final int[] permutation = permutations[i];
+      final Object key0 = tuple.get(permutation[0]);
+
+      if (nesting(permutation) == 1) {
+        indicesNew[i] = ((SetMultimap.Immutable<Object, R>) indices[i]).__remove(key0, tuple);
+      } else {
+        final Map.Immutable<Object, SetMultimap.Immutable<Object, R>> index =
+            (Map.Immutable<Object, SetMultimap.Immutable<Object, R>>) indices[i];
+        final SetMultimap.Immutable<Object, R> nested =
+            index.get(key0).__remove(tuple.<Object>get(permutation[1]), tuple);
+
+        indicesNew[i] = nested.isEmpty() ? index.__remove(key0) : index.__put(key0, nested);
+      }
+    }
+
+    return new NaryTrieRelation<>(arity, permutations, tuplesNew, indicesNew);
+  }
+
+  /*
+   * NOTE: all tuples are inserted into transient indices, which are frozen together afterwards
+   */
+  @Override
+  public NaryRelation.Immutable<R> __insertAll(final java.util.Set<? extends R> set) {
+    final NaryRelation.Transient<R> tmp = asTransient();
+    return tmp.__insertAll(set) ? tmp.freeze() : this;
+  }
+
+  @Override
+  public NaryRelation.Immutable<R> __removeAll(final java.util.Set<? extends R> set) {
+    final NaryRelation.Transient<R> tmp = asTransient();
+    return tmp.__removeAll(set) ? tmp.freeze() : this;
+  }
+
+  @Override
+  public NaryRelation.Immutable<R> __retainAll(final java.util.Set<? extends R> set) {
+    final NaryRelation.Transient<R> tmp = asTransient();
+    return tmp.__retainAll(set) ? tmp.freeze() : this;
+  }
+
+  @Override
+  public Set.Immutable<R> lookup(final int index, final Object... prefix) {
+    final int[] permutation = permutations[index];
+
+    if (prefix.length > permutation.length) {
+      throw new IllegalArgumentException("Prefix exceeds the columns of the permutation.");
+    }
+
+    if (prefix.length == 0) {
+      return tuples;
+    }
+
+    final Set.Immutable<R> stored = lookupNested(index, prefix);
+
+    if (prefix.length <= nesting(permutation) || stored.isEmpty()) {
+      return stored;
+    }
+
+    // remaining columns of the prefix are not materialized
+    final Set.Transient<R> matches = Set.Transient.of();
+
+    for (R tuple : stored) {
+      if (matchesPrefix(tuple, permutation, prefix)) {
+        matches.__insert(tuple);
+      }
+    }
+
+    return matches.freeze();
+  }
+
+  /*
+   * Returns the tuples stored under the nested leading columns of 'prefix' in 'index'.
+   */
+  private Set.Immutable<R> lookupNested(final int index, final Object[] prefix) {
+    if (nesting(permutations[index]) == 1) {
+      return ((SetMultimap.Immutable<Object, R>) indices[index]).get(prefix[0]);
+    }
+
+    final SetMultimap.Immutable<Object, R> nested =
+        ((Map.Immutable<Object, SetMultimap.Immutable<Object, R>>) indices[index]).get(prefix[0]);
+
+    if (nested == null) {
+      return Set.Immutable.of();
+    }
+
+    if (prefix.length >= MAX_NESTING) {
+      return nested.get(prefix[1]);
+    }
+
+    // tuples are spread over the nested multi-map, hence they are copied into a single set
+    final Set.Transient<R> result = Set.Transient.of();
+    nested.valueIterator().forEachRemaining(result::__insert);
+    return result.freeze();
+  }
+
+  /*
+   * Iterates the tuples stored under the leading column of the two-level 'index', without copying
+   * them into a single set.
+   */
+  private Iterator<R> lookupNestedIterator(final int index, final Object[] prefix) {
+    final SetMultimap.Immutable<Object, R> nested =
+        ((Map.Immutable<Object, SetMultimap.Immutable<Object, R>>) indices[index]).get(prefix[0]);
+
+    return nested == null ? Set.Immutable.<R>of().iterator() : nested.valueIterator();
+  }
+
+  /*
+   * Returns the number of tuples stored under the nested leading columns of 'prefix' in 'index',
+   * without materializing them.
+   */
+  private int lookupNestedCount(final int index, final Object[] prefix) {
+    if (nesting(permutations[index]) == 1) {
+      return ((SetMultimap.Immutable<Object, R>) indices[index]).valueCount(prefix[0]);
+    }
+
+    final SetMultimap.Immutable<Object, R> nested =
+        ((Map.Immutable<Object, SetMultimap.Immutable<Object, R>>) indices[index]).get(prefix[0]);
+
+    if (nested == null) {
+      return 0;
+    }
+
+    return prefix.length >= MAX_NESTING ? nested.valueCount(prefix[1]) : nested.size();
+  }
+
+  @Override
+  public Set.Immutable<R> select(final Object... pattern) {
+    if (pattern.length != arity) {
+      throw new IllegalArgumentException(
+          String.format("Expected pattern of arity %d.", arity));
+    }
+
+    int boundColumnCount = 0;
+    for (Object value : pattern) {
+      if (value != null) {
+        boundColumnCount++;
+      }
+    }
+
+    if (boundColumnCount == 0) {
+      return tuples;
+    }
+
+    int bestIndex = -1;
+    Object[] bestPrefix = null;
+    int bestCount = Integer.MAX_VALUE;
+    boolean bestIsStored = false;
+
+    for (int i = 0; i < permutations.length; i++) {
+      final Object[] prefix = boundPrefix(permutations[i], pattern);
+
+      if (prefix.length != 0) {
+        final int count = lookupNestedCount(i, prefix);
+        final boolean isStored = prefix.length == nesting(permutations[i]);
+
+        // on equal counts, prefer a prefix whose tuples are stored in a single set
+        if (count < bestCount || count == bestCount && isStored && !bestIsStored) {
+          bestIndex = i;
+          bestPrefix = prefix;
+          bestCount = count;
+          bestIsStored = isStored;
+        }
+      }
+    }
+
+    // 'null' if the candidates are spread over a nested multi-map
+    final Set.Immutable<R> stored;
+    final Iterator<R> candidates;
+
+    if (bestIndex == -1) {
+      stored = tuples;
+      candidates = stored.iterator();
+    } else if (bestCount == 0) {
+      return Set.Immutable.of();
+    } else if (bestPrefix.length == boundColumnCount) {
+      return lookupNested(bestIndex, bestPrefix);
+    } else {
+      stored = bestIsStored ? lookupNested(bestIndex, bestPrefix) : null;
+      candidates = stored != null ? stored.iterator()
+          : lookupNestedIterator(bestIndex, bestPrefix);
+    }
+
+    final Set.Transient<R> matches = Set.Transient.of();
+
+    candidates.forEachRemaining(tuple -> {
+      if (matchesPattern(tuple, pattern)) {
+        matches.__insert(tuple);
+      }
+    });
+
+    return stored != null && matches.size() == stored.size() ? stored : matches.freeze();
+  }
+
+  /*
+   * Returns the values of the leading columns of 'permutation' that are bound in 'pattern', up to
+   * the nesting depth of the permutation.
+   */
+  private static Object[] boundPrefix(final int[] permutation, final Object[] pattern) {
+    int length = 0;
+
+    while (length < nesting(permutation) && pattern[permutation[length]] != null) {
+      length++;
+    }
+
+    final Object[] prefix = new Object[length];
+
+    for (int i = 0; i < length; i++) {
+      prefix[i] = pattern[permutation[i]];
+    }
+
+    return prefix;
+  }
+
+  private static boolean matchesPrefix(final Tuple tuple, final int[] permutation,
+      final Object[] prefix) {
+    for (int i = 0; i < prefix.length; i++) {
+      if (!prefix[i].equals(tuple.get(permutation[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean matchesPattern(final Tuple tuple, final Object[] pattern) {
+    for (int i = 0; i < pattern.length; i++) {
+      if (pattern[i] != null && !pattern[i].equals(tuple.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isTransientSupported() {
+    return true;
+  }
+
+  @Override
+  public NaryRelation.Transient<R> asTransient() {
+    final Object[] transientIndices = new Object[indices.length];
+
+    for (int i = 0; i < indices.length; i++) {
+      transientIndices[i] = nesting(permutations[i]) == 1
+          ? ((SetMultimap.Immutable<Object, R>) indices[i]).asTransient()
+          : ((Map.Immutable<Object, SetMultimap.Immutable<Object, R>>) indices[i]).asTransient();
+    }
+
+    return new TransientNaryTrieRelation<>(arity, permutations, tuples.asTransient(),
+        transientIndices);
+  }
+
+  @Override
+  public boolean equivalent(Object o, EqualityComparator<Object> cmp) {
+    return tuples.equivalent(o instanceof NaryTrieRelation ? ((NaryTrieRelation) o).tuples : o,
+        cmp);
+  }
+
+  static final class TransientNaryTrieRelation<R extends Tuple> extends AbstractSet<R>
+      implements NaryRelation.Transient<R> {
+
+    private final int arity;
+    private final int[][] permutations;
+
+    private final Set.Transient<R> tuples;
+
+    /*
+     * NOTE: per permutation, either a 'SetMultimap.Transient<Object, R>' or a
+     * 'Map.Transient<Object, SetMultimap.Immutable<Object, R>>', depending on its nesting depth
+     */
+    private final Object[] indices;
+
+    /*
+     * NOTE: nested multi-maps of two-level indices that were opened for modification; they are
+     * written back to their enclosing maps on freeze
+     */
+    private final List<java.util.Map<Object, SetMultimap.Transient<Object, R>>> openedIndices;
+
+    TransientNaryTrieRelation(final int arity, final int[][] permutations,
+        final Set.Transient<R> tuples, final Object[] indices) {
+      this.arity = arity;
+      this.permutations = permutations;
+      this.tuples = tuples;
+      this.indices = indices;
+
+      this.openedIndices = new ArrayList<>(indices.length);
+      for (int i = 0; i < indices.length; i++) {
+        openedIndices.add(nesting(permutations[i]) == 1 ? null : new HashMap<>());
+      }
+    }
+
+    @Override
+    public int arity() {
+      return arity;
+    }
+
+    @Override
+    public int size() {
+      return tuples.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return tuples.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return tuples.contains(o);
+    }
+
+    @Override
+    public R get(Object o) {
+      return tuples.get(o);
+    }
+
+    @Override
+    public Iterator<R> iterator() {
+      return tuples.iterator();
+    }
+
+    @Override
+    public Iterator<R> keyIterator() {
+      return this.iterator();
+    }
+
+    private SetMultimap.Transient<Object, R> openNested(final int index, final Object key0) {
+      return openedIndices.get(index).computeIfAbsent(key0, key -> {
+        final SetMultimap.Immutable<Object, R> nested =
+            ((Map.Transient<Object, SetMultimap.Immutable<Object, R>>) indices[index]).get(key);
+        return nested == null ? SetMultimap.Transient.of() : nested.asTransient();
+      });
+    }
+
+    @Override
+    public boolean __insert(final R tuple) {
+      checkArity(arity, tuple);
+
+      if (!tuples.__insert(tuple)) {
+        return false;
+      }
+
+      for (int i = 0; i < indices.length; i++) {
+        final int[] permutation = permutations[i];
+        final Object key0 = tuple.get(permutation[0]);
+
+        if (nesting(permutation) == 1) {
+          ((SetMultimap.Transient<Object, R>) indices[i]).__insert(key0, tuple);
+        } else {
+          openNested(i, key0).__insert(tuple.<Object>get(permutation[1]), tuple);
+        }
+      }
+
+      return true;
+    }
+
+    @Override
+    public boolean __remove(final R tuple) {
+      if (!tuples.__remove(tuple)) {
+        return false;
+      }
+
+      for (int i = 0; i < indices.length; i++) {
+        final int[] permutation = permutations[i];
+        final Object key0 = tuple.get(permutation[0]);
+
+        if (nesting(permutation) == 1) {
+          ((SetMultimap.Transient<Object, R>) indices[i]).__remove(key0, tuple);
+        } else {
+          openNested(i, key0).__remove(tuple.<Object>get(permutation[1]), tuple);
+        }
+      }
+
+      return true;
+    }
+
+    @Override
+    public boolean __insertAll(final java.util.Set<? extends R> set) {
+      boolean modified = false;
+
+      for (R tuple : set) {
+        modified |= __insert(tuple);
+      }
+
+      return modified;
+    }
+
+    @Override
+    public boolean __removeAll(final java.util.Set<? extends R> set) {
+      boolean modified = false;
+
+      for (R tuple : set) {
+        modified |= __remove(tuple);
+      }
+
+      return modified;
+    }
+
+    @Override
+    public boolean __retainAll(final java.util.Set<? extends R> set) {
+      final List<R> tuplesToRemove = new ArrayList<>();
+
+      for (R tuple : this) {
+        if (!set.contains(tuple)) {
+          tuplesToRemove.add(tuple);
+        }
+      }
+
+      tuplesToRemove.forEach(this::__remove);
+
+      return !tuplesToRemove.isEmpty();
+    }
+
+    @Override
+    public boolean equivalent(Object o, EqualityComparator<Object> cmp) {
+      return tuples.equivalent(
+          o instanceof TransientNaryTrieRelation ? ((TransientNaryTrieRelation) o).tuples : o, cmp);
+    }
+
+    @Override
+    public NaryRelation.Immutable<R> freeze() {
+      final Object[] frozenIndices = new Object[indices.length];
+
+      for (int i = 0; i < indices.length; i++) {
+        if (nesting(permutations[i]) == 1) {
+          frozenIndices[i] = ((SetMultimap.Transient<Object, R>) indices[i]).freeze();
+        } else {
+          final Map.Transient<Object, SetMultimap.Immutable<Object, R>> index =
+              (Map.Transient<Object, SetMultimap.Immutable<Object, R>>) indices[i];
+
+          openedIndices.get(i).forEach((key0, nested) -> {
+            if (nested.isEmpty()) {
+              index.__remove(key0);
+            } else {
+              index.__put(key0, nested.freeze());
+            }
+          });
+
+          frozenIndices[i] = index.freeze();
+        }
+      }
+
+      return new NaryTrieRelation<>(arity, permutations, tuples.freeze(), frozenIndices);
+    }
+
+  }
+
+}
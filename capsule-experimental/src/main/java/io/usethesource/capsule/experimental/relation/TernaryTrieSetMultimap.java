@@ -7,8 +7,13 @@
  */
 package io.usethesource.capsule.experimental.relation;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.Iterator;
-import java.util.function.BiFunction;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import io.usethesource.capsule.Set;
 import io.usethesource.capsule.SetMultimap;
@@ -20,10 +25,27 @@ import io.usethesource.capsule.util.collection.AbstractImmutableSet;
 public class TernaryTrieSetMultimap<T, U, V, R extends Triple<T, U, V>>
     extends AbstractImmutableSet<R> implements TernaryRelation.Immutable<T, U, V, R> {
 
+  /**
+   * Secondary indices that can be maintained on demand only, see
+   * {@link TernaryTrieSetMultimap#of(EnumSet)}.
+   */
+  public enum SecondaryIndex {
+    U, V
+  }
+
   private final SetMultimap.Immutable<T, R> indexT;
-  private final SetMultimap.Immutable<U, R> indexU;
-  private final SetMultimap.Immutable<V, R> indexV;
 
+  /*
+   * NOTE: secondary indices are 'null' while not yet built; once built on first use they are
+   * cached (a racy but idempotent initialization) and maintained by all derived relations
+   */
+  private volatile SetMultimap.Immutable<U, R> indexU;
+  private volatile SetMultimap.Immutable<V, R> indexV;
+
+  /**
+   * @param indexU index on the second column, or {@code null} to build it on first use
+   * @param indexV index on the third column, or {@code null} to build it on first use
+   */
   public TernaryTrieSetMultimap(final SetMultimap.Immutable<T, R> indexT,
       final SetMultimap.Immutable<U, R> indexU, final SetMultimap.Immutable<V, R> indexV) {
     this.indexT = indexT;
@@ -32,34 +54,72 @@ public class TernaryTrieSetMultimap<T, U, V, R extends Triple<T, U, V>>
   }
 
   public static final <T, U, V, R extends Triple<T, U, V>> TernaryRelation.Immutable<T, U, V, R> of() {
+    return of(EnumSet.allOf(SecondaryIndex.class));
+  }
+
+  /**
+   * Creates an empty relation that maintains only {@code maintainedIndices} besides the index on
+   * the first column. Omitted secondary indices are built from the first index when a query needs
+   * them, and are maintained incrementally from then on.
+   */
+  public static final <T, U, V, R extends Triple<T, U, V>> TernaryRelation.Immutable<T, U, V, R> of(
+      final EnumSet<SecondaryIndex> maintainedIndices) {
+    /*
+     * NOTE: uses default multi-map to create nested forward and backward maps.
+     *
+     * TODO: make classes of nested multi-maps configurable.
+     */
+    return new TernaryTrieSetMultimap<>(SetMultimap.Immutable.of(),
+        maintainedIndices.contains(SecondaryIndex.U) ? SetMultimap.Immutable.of() : null,
+        maintainedIndices.contains(SecondaryIndex.V) ? SetMultimap.Immutable.of() : null);
+  }
+
+  public static final <T, U, V, R extends Triple<T, U, V>> TernaryRelation.Transient<T, U, V, R> transientOf() {
+    return transientOf(EnumSet.allOf(SecondaryIndex.class));
+  }
+
+  /**
+   * Creates an empty transient relation that maintains only {@code maintainedIndices} besides the
+   * index on the first column (cf. {@link #of(EnumSet)}).
+   */
+  public static final <T, U, V, R extends Triple<T, U, V>> TernaryRelation.Transient<T, U, V, R> transientOf(
+      final EnumSet<SecondaryIndex> maintainedIndices) {
     /*
      * NOTE: uses default multi-map to create nested forward and backward maps.
      *
      * TODO: make classes of nested multi-maps configurable.
      */
-    return new TernaryTrieSetMultimap<>(SetMultimap.Immutable.of(), SetMultimap.Immutable.of(),
-        SetMultimap.Immutable.of());
+    return new TransientTernaryTrieSetMultimap<>(SetMultimap.Transient.of(),
+        maintainedIndices.contains(SecondaryIndex.U) ? SetMultimap.Transient.of() : null,
+        maintainedIndices.contains(SecondaryIndex.V) ? SetMultimap.Transient.of() : null);
   }
 
-  // @SuppressWarnings("unchecked")
-  // public static final <T, U, V, R extends Triple<T, U, V>> TernaryRelation.Transient<T, U, V, R>
-  // of() {
-  // /*
-  // * NOTE: uses default multi-map to create nested forward and backward maps.
-  // *
-  // * TODO: make classes of nested multi-maps configurable.
-  // */
-  // return new TransientTernaryTrieSetMultimap<>(SetMultimap.of(),
-  // SetMultimap.of(), SetMultimap.of());
-  // }
+  private SetMultimap.Immutable<U, R> indexU() {
+    SetMultimap.Immutable<U, R> result = indexU;
 
-  private static <T, U, V, R extends Triple<T, U, V>> TernaryTrieSetMultimap<T, U, V, R> wireTuple(
-      R triple, final BiFunction<T, R, ? extends SetMultimap.Immutable<T, R>> fstMerger,
-      final BiFunction<U, R, ? extends SetMultimap.Immutable<U, R>> sndMerger,
-      final BiFunction<V, R, ? extends SetMultimap.Immutable<V, R>> trdMerger) {
+    if (result == null) {
+      indexU = result = buildIndex(indexT, Triple::_1);
+    }
 
-    return new TernaryTrieSetMultimap(fstMerger.apply(triple._0(), triple),
-        sndMerger.apply(triple._1(), triple), trdMerger.apply(triple._2(), triple));
+    return result;
+  }
+
+  private SetMultimap.Immutable<V, R> indexV() {
+    SetMultimap.Immutable<V, R> result = indexV;
+
+    if (result == null) {
+      indexV = result = buildIndex(indexT, Triple::_2);
+    }
+
+    return result;
+  }
+
+  private static <C, R> SetMultimap.Immutable<C, R> buildIndex(
+      final SetMultimap.Immutable<?, R> primaryIndex, final Function<R, C> column) {
+    final SetMultimap.Transient<C, R> builder = SetMultimap.Transient.of();
+    primaryIndex.valueIterator()
+        .forEachRemaining(triple -> builder.__insert(column.apply(triple), triple));
+    return builder.freeze();
   }
 
   @Override
@@ -102,54 +162,329 @@ public class TernaryTrieSetMultimap<T, U, V, R extends Triple<T, U, V>>
     return this.iterator();
   }
 
+  /*
+   * NOTE: all indices contain the same triples; the secondary indices are only updated if the
+   * first one was modified, and only if they were already built
+   */
   @Override
   public TernaryTrieSetMultimap<T, U, V, R> __insert(R triple) {
-    return wireTuple(triple, indexT::__insert, indexU::__insert, indexV::__insert);
+    final SetMultimap.Immutable<T, R> indexTNew = indexT.__insert(triple._0(), triple);
+
+    if (indexTNew == indexT) {
+      return this;
+    }
+
+    final SetMultimap.Immutable<U, R> indexU = this.indexU;
+    final SetMultimap.Immutable<V, R> indexV = this.indexV;
+
+    return new TernaryTrieSetMultimap<>(indexTNew,
+        indexU == null ? null : indexU.__insert(triple._1(), triple),
+        indexV == null ? null : indexV.__insert(triple._2(), triple));
   }
 
   @Override
   public TernaryTrieSetMultimap<T, U, V, R> __remove(R triple) {
-    return wireTuple(triple, indexT::__remove, indexU::__remove, indexV::__remove);
+    final SetMultimap.Immutable<T, R> indexTNew = indexT.__remove(triple._0(), triple);
+
+    if (indexTNew == indexT) {
+      return this;
+    }
+
+    final SetMultimap.Immutable<U, R> indexU = this.indexU;
+    final SetMultimap.Immutable<V, R> indexV = this.indexV;
+
+    return new TernaryTrieSetMultimap<>(indexTNew,
+        indexU == null ? null : indexU.__remove(triple._1(), triple),
+        indexV == null ? null : indexV.__remove(triple._2(), triple));
   }
 
-  private static final <A, B> B foldLeft(final B start, final Iterable<A> items,
-      final BiFunction<B, A, B> merger) {
-    B result = start;
-    for (A item : items) {
-      result = merger.apply(result, item);
+  @Override
+  public Set.Immutable<R> select(final T fst, final U snd, final V trd) {
+    final Set.Immutable<R> candidates = selectCandidates(fst, snd, trd);
+
+    if (candidates.isEmpty() || boundColumnCount(fst, snd, trd) <= 1) {
+      return candidates;
     }
-    return result;
+
+    final Set.Transient<R> matches = Set.Transient.of();
+
+    for (R triple : candidates) {
+      if (matches(triple, fst, snd, trd)) {
+        matches.__insert(triple);
+      }
+    }
+
+    return matches.size() == candidates.size() ? candidates : matches.freeze();
   }
 
   @Override
-  public TernaryTrieSetMultimap<T, U, V, R> __insertAll(java.util.Set<? extends R> set) {
-    /*
-     * TODO: apply foldLeft to multi-maps before wiring.
-     */
-    return foldLeft(this, set, (xs, y) -> xs.__insert(y));
+  public Stream<R> selectStream(final T fst, final U snd, final V trd) {
+    final Set.Immutable<R> candidates = selectCandidates(fst, snd, trd);
+
+    if (boundColumnCount(fst, snd, trd) <= 1) {
+      return candidates.stream();
+    }
+
+    return candidates.stream().filter(triple -> matches(triple, fst, snd, trd));
+  }
+
+  /*
+   * Returns the nested value collection of the most selective bound column, or all triples if no
+   * column is bound. Sizes are obtained without materializing the nested collections.
+   *
+   * NOTE: a secondary index that is not yet built is only built here if no bound column has a
+   * built index; otherwise the candidates of a built index are filtered instead
+   */
+  private Set.Immutable<R> selectCandidates(final T fst, final U snd, final V trd) {
+    final SetMultimap.Immutable<U, R> builtU = indexU;
+    final SetMultimap.Immutable<V, R> builtV = indexV;
+
+    final SetMultimap.Immutable<U, R> u = snd == null ? null
+        : builtU != null ? builtU
+            : fst == null && (trd == null || builtV == null) ? indexU() : null;
+    final SetMultimap.Immutable<V, R> v = trd == null ? null
+        : builtV != null ? builtV
+            : fst == null && u == null ? indexV() : null;
+
+    final int countT = fst == null ? Integer.MAX_VALUE : indexT.valueCount(fst);
+    final int countU = u == null ? Integer.MAX_VALUE : u.valueCount(snd);
+    final int countV = v == null ? Integer.MAX_VALUE : v.valueCount(trd);
+
+    if (fst == null && u == null && v == null) {
+      return this;
+    }
+
+    if (countT <= countU && countT <= countV && fst != null) {
+      return indexT.get(fst);
+    } else if (countU <= countV && u != null) {
+      return u.get(snd);
+    } else {
+      return v.get(trd);
+    }
+  }
+
+  private static int boundColumnCount(final Object fst, final Object snd, final Object trd) {
+    return (fst == null ? 0 : 1) + (snd == null ? 0 : 1) + (trd == null ? 0 : 1);
   }
 
+  private static boolean matches(final Triple<?, ?, ?> triple, final Object fst,
+      final Object snd, final Object trd) {
+    return (fst == null || fst.equals(triple._0())) && (snd == null || snd.equals(triple._1()))
+        && (trd == null || trd.equals(triple._2()));
+  }
+
+  /*
+   * NOTE: all triples are inserted into transient indices, which are frozen together afterwards
+   */
   @Override
-  public Set.Immutable<R> __removeAll(java.util.Set<? extends R> set) {
-    /*
-     * TODO: apply foldLeft to multi-maps before wiring.
-     */
-    return foldLeft(this, set, (xs, y) -> xs.__remove(y));
+  public TernaryRelation.Immutable<T, U, V, R> __insertAll(java.util.Set<? extends R> set) {
+    final TernaryRelation.Transient<T, U, V, R> tmp = asTransient();
+    return tmp.__insertAll(set) ? tmp.freeze() : this;
+  }
+
+  @Override
+  public TernaryRelation.Immutable<T, U, V, R> __removeAll(java.util.Set<? extends R> set) {
+    final TernaryRelation.Transient<T, U, V, R> tmp = asTransient();
+    return tmp.__removeAll(set) ? tmp.freeze() : this;
+  }
+
+  @Override
+  public TernaryRelation.Immutable<T, U, V, R> __retainAll(java.util.Set<? extends R> set) {
+    final TernaryRelation.Transient<T, U, V, R> tmp = asTransient();
+    return tmp.__retainAll(set) ? tmp.freeze() : this;
   }
 
   @Override
-  public Set.Immutable<R> __retainAll(java.util.Set<? extends R> set) {
-    throw new IllegalStateException("Not yet implemented.");
+  public boolean isTransientSupported() {
+    return true;
   }
 
   @Override
   public TernaryRelation.Transient<T, U, V, R> asTransient() {
-    throw new IllegalStateException("Not yet implemented.");
+    final SetMultimap.Immutable<U, R> indexU = this.indexU;
+    final SetMultimap.Immutable<V, R> indexV = this.indexV;
+
+    return new TransientTernaryTrieSetMultimap<>(indexT.asTransient(),
+        indexU == null ? null : indexU.asTransient(),
+        indexV == null ? null : indexV.asTransient());
+  }
+
+  @Override
+  public boolean equivalent(Object o, EqualityComparator<Object> cmp) {
+    return o == this || equivalent(indexT, o, cmp);
+  }
+
+  /*
+   * Compares the triples stored in 'primaryIndex' element-wise with the elements of 'o'.
+   *
+   * NOTE: 'cmp' only applies within the bucket of a triple's first column; that bucket itself is
+   * located by the 'equals' and 'hashCode' of the first column, as the index is keyed by them
+   */
+  static boolean equivalent(final SetMultimap<?, ?> primaryIndex, final Object o,
+      final EqualityComparator<Object> cmp) {
+    if (!(o instanceof java.util.Set)) {
+      return false;
+    }
+
+    final java.util.Set<?> that = (java.util.Set<?>) o;
+
+    if (primaryIndex.size() != that.size()) {
+      return false;
+    }
+
+    for (Object element : that) {
+      if (!(element instanceof Triple)) {
+        return false;
+      }
+
+      final Triple<?, ?, ?> triple = (Triple) element;
+
+      if (!primaryIndex.get(triple._0()).containsEquivalent(triple, cmp)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+}
+
+
+class TransientTernaryTrieSetMultimap<T, U, V, R extends Triple<T, U, V>> extends AbstractSet<R>
+    implements TernaryRelation.Transient<T, U, V, R> {
+
+  private final SetMultimap.Transient<T, R> indexT;
+  // 'null' if not maintained
+  private final SetMultimap.Transient<U, R> indexU;
+  private final SetMultimap.Transient<V, R> indexV;
+
+  public TransientTernaryTrieSetMultimap(final SetMultimap.Transient<T, R> indexT,
+      final SetMultimap.Transient<U, R> indexU, final SetMultimap.Transient<V, R> indexV) {
+    this.indexT = indexT;
+    this.indexU = indexU;
+    this.indexV = indexV;
+  }
+
+  @Override
+  public int size() {
+    return indexT.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return indexT.isEmpty();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    try {
+      final Triple<?, ?, ?> triple = (Triple) o;
+      return indexT.containsEntry(triple._0(), triple);
+    } catch (ClassCastException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public R get(Object o) {
+    try {
+      final Triple<?, ?, ?> triple = (Triple) o;
+      return indexT.get(triple._0()).get(triple);
+    } catch (ClassCastException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public Iterator<R> iterator() {
+    return indexT.valueIterator();
+  }
+
+  @Override
+  public Iterator<R> keyIterator() {
+    return this.iterator();
+  }
+
+  /*
+   * NOTE: all indices contain the same triples; the secondary indices are only updated if the
+   * first one was modified, and only if they are maintained
+   */
+  @Override
+  public boolean __insert(R triple) {
+    if (!indexT.__insert(triple._0(), triple)) {
+      return false;
+    }
+
+    if (indexU != null) {
+      indexU.__insert(triple._1(), triple);
+    }
+    if (indexV != null) {
+      indexV.__insert(triple._2(), triple);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean __remove(R triple) {
+    if (!indexT.__remove(triple._0(), triple)) {
+      return false;
+    }
+
+    if (indexU != null) {
+      indexU.__remove(triple._1(), triple);
+    }
+    if (indexV != null) {
+      indexV.__remove(triple._2(), triple);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean __insertAll(java.util.Set<? extends R> set) {
+    boolean modified = false;
+
+    for (R triple : set) {
+      modified |= __insert(triple);
+    }
+
+    return modified;
+  }
+
+  @Override
+  public boolean __removeAll(java.util.Set<? extends R> set) {
+    boolean modified = false;
+
+    for (R triple : set) {
+      modified |= __remove(triple);
+    }
+
+    return modified;
+  }
+
+  @Override
+  public boolean __retainAll(java.util.Set<? extends R> set) {
+    final List<R> triplesToRemove = new ArrayList<>();
+
+    for (R triple : this) {
+      if (!set.contains(triple)) {
+        triplesToRemove.add(triple);
+      }
+    }
+
+    triplesToRemove.forEach(this::__remove);
+
+    return !triplesToRemove.isEmpty();
   }
 
   @Override
   public boolean equivalent(Object o, EqualityComparator<Object> cmp) {
-    throw new UnsupportedOperationException("Not yet implemented.");
+    return o == this || TernaryTrieSetMultimap.equivalent(indexT, o, cmp);
+  }
+
+  @Override
+  public TernaryRelation.Immutable<T, U, V, R> freeze() {
+    return new TernaryTrieSetMultimap<>(indexT.freeze(),
+        indexU == null ? null : indexU.freeze(), indexV == null ? null : indexV.freeze());
   }
 
 }
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule;
+
+/**
+ * Integer with a configurable hash code that counts how often its hash code is computed.
+ */
+class HashCountingInteger {
+
+  private static int count = 0;
+
+  private final int value;
+  private final int hash;
+
+  HashCountingInteger(int value, int hash) {
+    this.value = value;
+    this.hash = hash;
+  }
+
+  static int count() {
+    return count;
+  }
+
+  static void resetCount() {
+    count = 0;
+  }
+
+  @Override
+  public int hashCode() {
+    count++;
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other == null) {
+      return false;
+    }
+    if (other == this) {
+      return true;
+    }
+
+    if (other instanceof HashCountingInteger) {
+      int otherValue = ((HashCountingInteger) other).value;
+
+      return value == otherValue;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d [hash = %d]", value, hash);
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IntIntMapSmokeTest {
+
+  @Test
+  public void testPutGetRemove() {
+    IntIntMap.Immutable map = IntIntMap.Immutable.of(1, 10, 33, 330, -1, -10);
+
+    assertEquals(3, map.size());
+    assertEquals(330, map.get(33, 0));
+    assertEquals(-10, map.get(-1, 0));
+    assertEquals(42, map.get(65, 42));
+    assertTrue(map.containsKey(1));
+    assertFalse(map.containsKey(65));
+
+    assertSame(map, map.__put(33, 330));
+    assertSame(map, map.__remove(65));
+
+    IntIntMap.Immutable updated = map.__put(33, 331);
+    assertEquals(3, updated.size());
+    assertEquals(331, updated.get(33, 0));
+    assertEquals(330, map.get(33, 0));
+    assertNotEquals(map, updated);
+
+    IntIntMap.Immutable smaller = map.__remove(33);
+    assertEquals(2, smaller.size());
+    assertFalse(smaller.containsKey(33));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnevenKeyValuePairs() {
+    IntIntMap.Immutable.of(1, 2, 3);
+  }
+
+  @Test
+  public void testTransientMatchesHashMap() {
+    final Random random = new Random(23);
+
+    final Map<Integer, Integer> expected = new HashMap<>();
+    final IntIntMap.Transient transientMap = IntIntMap.Transient.of();
+
+    for (int i = 0; i < 5_000; i++) {
+      final int key = random.nextInt(1_000) - 500;
+      final int val = random.nextInt(8);
+
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key) != null, transientMap.__remove(key));
+      } else {
+        final Integer oldVal = expected.put(key, val);
+        assertEquals(oldVal == null || oldVal != val, transientMap.__put(key, val));
+      }
+    }
+
+    final Map<Integer, Integer> actual = new HashMap<>();
+    transientMap.forEach(actual::put);
+    assertEquals(expected, actual);
+
+    final int expectedHashCode = expected.entrySet().stream()
+        .mapToInt(entry -> entry.getKey() ^ entry.getValue()).sum();
+    assertEquals(expectedHashCode, transientMap.hashCode());
+
+    final IntIntMap.Immutable frozen = transientMap.freeze();
+    assertEquals(expectedHashCode, frozen.hashCode());
+    assertEquals(expected.size(), frozen.keyStream().count());
+    assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(),
+        frozen.valueStream().sum());
+  }
+
+  @Test
+  public void testPersistentEqualsFrozenTransient() {
+    final int[] keys = new Random(29).ints(1_000).toArray();
+
+    IntIntMap.Immutable map = IntIntMap.Immutable.of();
+    IntIntMap.Transient transientMap = IntIntMap.Transient.of();
+
+    for (int key : keys) {
+      map = map.__put(key, key >>> 7);
+      transientMap.__put(key, key >>> 7);
+    }
+
+    for (int i = 0; i < keys.length; i += 2) {
+      map = map.__remove(keys[i]);
+      transientMap.__remove(keys[i]);
+    }
+
+    assertEquals(map, transientMap);
+    assertEquals(map, transientMap.freeze());
+  }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IntSetSmokeTest {
+
+  @Test
+  public void testInsertContainsRemove() {
+    IntSet.Immutable set = IntSet.Immutable.of(1, 33, 65, -1, Integer.MIN_VALUE);
+
+    assertEquals(5, set.size());
+    assertTrue(set.contains(33));
+    assertTrue(set.contains(Integer.MIN_VALUE));
+    assertFalse(set.contains(97));
+
+    assertSame(set, set.__insert(65));
+    assertSame(set, set.__remove(97));
+
+    IntSet.Immutable smaller = set.__remove(33);
+    assertEquals(4, smaller.size());
+    assertFalse(smaller.contains(33));
+    assertTrue(set.contains(33));
+  }
+
+  @Test
+  public void testRemoveAllYieldsCanonicalEmptySet() {
+    final int[] keys = new Random(13).ints(1_000).toArray();
+
+    IntSet.Immutable set = IntSet.Immutable.of(keys);
+
+    for (int key : keys) {
+      set = set.__remove(key);
+    }
+
+    assertTrue(set.isEmpty());
+    assertEquals(IntSet.Immutable.of(), set);
+    assertEquals(0, set.hashCode());
+  }
+
+  @Test
+  public void testTransientEqualsPersistent() {
+    final int[] keys = new Random(17).ints(1_000, -500, 500).toArray();
+
+    IntSet.Immutable set = IntSet.Immutable.of();
+    IntSet.Transient transientSet = IntSet.Transient.of();
+
+    for (int key : keys) {
+      set = set.__insert(key);
+      transientSet.__insert(key);
+    }
+
+    for (int i = 0; i < keys.length; i += 2) {
+      set = set.__remove(keys[i]);
+      transientSet.__remove(keys[i]);
+    }
+
+    assertEquals(set, transientSet);
+    assertEquals(set.hashCode(), transientSet.hashCode());
+
+    IntSet.Immutable frozen = transientSet.freeze();
+    assertEquals(set, frozen);
+    assertEquals(set.hashCode(), frozen.hashCode());
+  }
+
+  @Test
+  public void testStream() {
+    final int[] keys = new Random(19).ints(1_000).toArray();
+
+    Set<Integer> expected = IntStream.of(keys).boxed().collect(Collectors.toSet());
+    Set<Integer> actual = IntSet.Immutable.of(keys).stream().boxed().collect(Collectors.toSet());
+
+    assertEquals(expected, actual);
+    assertEquals(expected.size(), IntSet.Immutable.of(keys).stream().count());
+  }
+
+  @Test
+  public void testStreamSplitsAtNodeBoundaries() {
+    final int size = 10_000;
+
+    IntSet.Immutable xs = IntSet.Immutable.of(IntStream.range(0, size).toArray());
+
+    Spliterator.OfInt spliterator = xs.stream().spliterator();
+    assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.IMMUTABLE));
+    assertEquals(size, spliterator.getExactSizeIfKnown());
+
+    Spliterator.OfInt prefix = spliterator.trySplit();
+    assertNotNull(prefix);
+
+    final Set<Integer> elements = new HashSet<>();
+    prefix.forEachRemaining((int i) -> elements.add(i));
+    spliterator.forEachRemaining((int i) -> elements.add(i));
+
+    assertEquals(size, elements.size());
+    assertEquals(IntStream.range(0, size).sum(), xs.stream().parallel().sum());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFrozenTransientRejectsUpdates() {
+    IntSet.Transient transientSet = IntSet.Transient.of(1, 2, 3);
+    transientSet.freeze();
+    transientSet.__insert(4);
+  }
+
+}
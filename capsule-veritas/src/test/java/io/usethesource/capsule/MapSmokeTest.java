@@ -12,10 +12,12 @@ import java.lang.reflect.Method;
 import java.util.Random;
 
 import io.usethesource.capsule.core.PersistentTrieMap;
+import io.usethesource.capsule.util.stream.CapsuleCollectors;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class MapSmokeTest {
@@ -374,6 +376,152 @@ public class MapSmokeTest {
     assertEquals(mapOf(), res);
   }
 
+  @Test
+  public void testGetAndContainsKeyWithHashCollisions() {
+    Map.Immutable<PureSeparateHashCodeInteger, Integer> xs =
+        mapOf(p(11, 1), 1, p(12, 1), 2, p(13, 33), 3);
+
+    assertEquals(Integer.valueOf(2), xs.get(p(12, 1)));
+    assertEquals(null, xs.get(p(14, 1)));
+    assertEquals(null, xs.get("11"));
+    assertTrue(xs.containsKey(p(13, 33)));
+    assertFalse(xs.containsKey(p(13, 1)));
+
+    final Map.Transient<PureSeparateHashCodeInteger, Integer> tmp = xs.asTransient();
+    assertEquals(Integer.valueOf(1), tmp.__put(p(11, 1), 10));
+    assertEquals(null, tmp.__put(p(14, 1), 4));
+    assertEquals(Integer.valueOf(10), tmp.get(p(11, 1)));
+    assertEquals(Integer.valueOf(4), tmp.__remove(p(14, 1)));
+    assertEquals(null, tmp.__remove(p(14, 1)));
+    assertEquals(mapOf(p(11, 1), 10, p(12, 1), 2, p(13, 33), 3), tmp.freeze());
+  }
+
+  @Test
+  public void testMergeWithHashCollisions() {
+    Map.Immutable<PureSeparateHashCodeInteger, Integer> xs =
+        mapOf(p(11, 1), 1, p(12, 1), 2, p(13, 33), 3);
+    Map.Immutable<PureSeparateHashCodeInteger, Integer> ys =
+        mapOf(p(12, 1), 20, p(14, 1), 4, p(13, 33), 3);
+
+    Map.Immutable<PureSeparateHashCodeInteger, Integer> expected =
+        mapOf(p(11, 1), 1, p(12, 1), 22, p(13, 33), 3, p(14, 1), 4);
+
+    assertEquals(expected, xs.merge(ys, Integer::sum));
+    assertEquals(expected.hashCode(), xs.merge(ys, Integer::sum).hashCode());
+  }
+
+  @Test
+  public void testMergeConsultsResolverOnlyForConflicts() {
+    Map.Immutable<Integer, Integer> xs = mapOf(1, 1, 2, 2, 33, 33, 65, 65);
+    Map.Immutable<Integer, Integer> ys = xs.__put(2, 20).__put(97, 97);
+
+    Map.Immutable<Integer, Integer> res = xs.merge(ys, (thisVal, thatVal) -> {
+      assertEquals(Integer.valueOf(2), thisVal);
+      assertEquals(Integer.valueOf(20), thatVal);
+      return thisVal + thatVal;
+    });
+
+    assertEquals(mapOf(1, 1, 2, 22, 33, 33, 65, 65, 97, 97), res);
+  }
+
+  @Test
+  public void testMergeReturnsUnmodifiedInstance() {
+    Map.Immutable<Integer, Integer> xs = mapOf(1, 1, 2, 2, 33, 33, 65, 65);
+    Map.Immutable<Integer, Integer> ys = xs.__put(97, 97).__put(4, 4);
+
+    assertSame(ys, xs.merge(ys, (thisVal, thatVal) -> thisVal));
+    assertSame(ys, ys.merge(xs, (thisVal, thatVal) -> thisVal));
+    assertSame(xs, xs.merge(mapOf(), (thisVal, thatVal) -> thisVal));
+
+    final Map.Transient<Integer, Integer> tmp = ys.asTransient();
+    assertFalse(tmp.merge(xs, (thisVal, thatVal) -> thisVal));
+    assertTrue(tmp.merge(mapOf(4, 40), (thisVal, thatVal) -> thatVal));
+    assertEquals(ys.__put(4, 40), tmp.freeze());
+  }
+
+  @Test
+  public void testDiff() {
+    Map.Immutable<Integer, Integer> xs = mapOf(1, 1, 2, 2, 33, 33, 65, 65);
+    Map.Immutable<Integer, Integer> ys = xs.__put(2, 20).__put(97, 97).__remove(33);
+
+    Map.Diff<Integer, Integer> diff = xs.diff(ys);
+
+    assertEquals(mapOf(97, 97), diff.added());
+    assertEquals(mapOf(33, 33), diff.removed());
+    assertEquals(mapOf(2, 20), diff.changed());
+
+    assertTrue(xs.diff(xs).isEmpty());
+  }
+
+  @Test
+  public void testDiffWithHashCollisions() {
+    Map.Immutable<PureSeparateHashCodeInteger, Integer> xs =
+        mapOf(p(11, 1), 1, p(12, 1), 2, p(13, 33), 3);
+    Map.Immutable<PureSeparateHashCodeInteger, Integer> ys =
+        mapOf(p(12, 1), 20, p(14, 1), 4, p(13, 33), 3);
+
+    Map.Diff<PureSeparateHashCodeInteger, Integer> diff = xs.diff(ys);
+
+    assertEquals(mapOf(p(14, 1), 4), diff.added());
+    assertEquals(mapOf(p(11, 1), 1), diff.removed());
+    assertEquals(mapOf(p(12, 1), 20), diff.changed());
+  }
+
+  @Test
+  public void testParallelStreamOfViews() {
+    Map.Immutable<Integer, Integer> map = (Map.Immutable) mapOf();
+
+    for (int i = size; i > 0; i--) {
+      map = map.__put(i, -i);
+    }
+
+    final int sum = size * (size + 1) / 2;
+
+    assertEquals(sum, map.keySet().parallelStream().mapToInt(i -> i).sum());
+    assertEquals(-sum, map.values().parallelStream().mapToInt(i -> i).sum());
+    assertEquals(size, map.entrySet().parallelStream().count());
+    assertEquals(size, map.entrySet().spliterator().getExactSizeIfKnown());
+  }
+
+  @Test
+  public void testMemoizedKeyHashesAvoidRehashing() {
+    Map.Immutable<HashCountingInteger, Integer> xs = PersistentTrieMap.ofMemoizedKeyHashes();
+    Map.Immutable<HashCountingInteger, Integer> ys = PersistentTrieMap.ofMemoizedKeyHashes();
+
+    for (int i = 0; i < size; i++) {
+      xs = xs.__put(new HashCountingInteger(i, i % 100 * 33), i);
+      ys = ys.__put(new HashCountingInteger(i + size / 2, (i + size / 2) % 100 * 33), i);
+    }
+
+    HashCountingInteger.resetCount();
+
+    Map.Immutable<HashCountingInteger, Integer> zs = xs.merge(ys, Math::max);
+    assertEquals(size + size / 2, zs.size());
+    assertFalse(xs.equals(ys));
+    assertTrue(zs.equals(ys.merge(xs, Math::max)));
+
+    assertEquals(0, HashCountingInteger.count());
+  }
+
+  @Test
+  public void testParallelConstructionWithHashCollisions() {
+    final java.util.Map<PureSeparateHashCodeInteger, Integer> expected = new java.util.HashMap<>();
+
+    for (int i = 0; i < size; i++) {
+      expected.put(p(i, i % 300 * 33), i);
+    }
+
+    Map.Immutable<PureSeparateHashCodeInteger, Integer> xs =
+        PersistentTrieMap.parallelOf(expected);
+    Map.Immutable<PureSeparateHashCodeInteger, Integer> ys = expected.entrySet().parallelStream()
+        .collect(CapsuleCollectors.toMap(java.util.Map.Entry::getKey, java.util.Map.Entry::getValue));
+
+    assertEquals(expected, xs);
+    assertEquals(expected.hashCode(), xs.hashCode());
+    assertEquals(expected, ys);
+    assertEquals(expected.hashCode(), ys.hashCode());
+  }
+
 }
 
 
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import io.usethesource.capsule.api.NaryRelation;
+import io.usethesource.capsule.api.Triple;
+import io.usethesource.capsule.api.Tuple;
+import io.usethesource.capsule.experimental.relation.NaryTrieRelation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NaryRelationSmokeTest {
+
+  private static java.util.Set<Tuple> randomTuples(final int seed, final int arity,
+      final int count, final int bound) {
+    final Random random = new Random(seed);
+    final java.util.Set<Tuple> tuples = new HashSet<>();
+
+    for (int i = 0; i < count; i++) {
+      final Object[] elements = new Object[arity];
+      for (int j = 0; j < arity; j++) {
+        elements[j] = random.nextInt(bound);
+      }
+      tuples.add(Tuple.of(elements));
+    }
+
+    return tuples;
+  }
+
+  private static java.util.Set<Tuple> filter(final java.util.Set<Tuple> tuples,
+      final Object[] pattern) {
+    return tuples.stream().filter(tuple -> {
+      for (int i = 0; i < pattern.length; i++) {
+        if (pattern[i] != null && !pattern[i].equals(tuple.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }).collect(Collectors.toSet());
+  }
+
+  @Test
+  public void testTupleOfArityThreeIsTriple() {
+    assertEquals(Triple.of(1, 2, 3), Tuple.of(1, 2, 3));
+    assertEquals(Tuple.of(1, 2, 3, 4), Tuple.of(1, 2, 3, 4));
+    assertFalse(Tuple.of(1, 2, 3, 4).equals(Tuple.of(1, 2, 4, 3)));
+  }
+
+  @Test
+  public void testTransientEqualsPersistent() {
+    final java.util.Set<Tuple> tuples = randomTuples(3, 4, 2_000, 8);
+
+    NaryRelation.Immutable<Tuple> persistent =
+        NaryTrieRelation.of(4, new int[]{0, 1}, new int[]{2});
+    final NaryRelation.Transient<Tuple> builder =
+        NaryTrieRelation.transientOf(4, new int[]{0, 1}, new int[]{2});
+
+    for (Tuple tuple : tuples) {
+      persistent = (NaryRelation.Immutable<Tuple>) persistent.__insert(tuple);
+      assertTrue(builder.__insert(tuple));
+      assertFalse(builder.__insert(tuple));
+    }
+
+    assertTrue(builder.equivalent(tuples, Object::equals));
+
+    final NaryRelation.Immutable<Tuple> frozen = builder.freeze();
+
+    assertTrue(persistent.equivalent(frozen, Object::equals));
+    assertEquals(tuples, persistent);
+    assertEquals(tuples, frozen);
+    assertSame(persistent, persistent.__insertAll(tuples));
+
+    for (int i = 0; i < 8; i++) {
+      assertEquals(persistent.lookup(0, i), frozen.lookup(0, i));
+      assertEquals(persistent.lookup(1, i), frozen.lookup(1, i));
+    }
+  }
+
+  @Test
+  public void testSelectAndLookupOnPrefixes() {
+    final java.util.Set<Tuple> tuples = randomTuples(5, 5, 3_000, 6);
+    final java.util.Set<Tuple> removed = randomTuples(7, 5, 1_000, 6);
+
+    final NaryRelation.Immutable<Tuple> empty =
+        NaryTrieRelation.of(5, new int[]{1, 3, 0}, new int[]{4});
+    final NaryRelation.Immutable<Tuple> relation =
+        (NaryRelation.Immutable<Tuple>) empty.__insertAll(tuples).__removeAll(removed);
+
+    final java.util.Set<Tuple> expected = new HashSet<>(tuples);
+    expected.removeAll(removed);
+    assertEquals(expected, relation);
+
+    for (int i = 0; i < 300; i++) {
+      final Object[] pattern = new Object[]{
+          i % 2 == 0 ? null : i % 6,
+          i % 3 == 0 ? null : i % 7,
+          i % 4 == 0 ? null : i % 5,
+          i % 5 == 0 ? null : i % 6,
+          i % 7 == 0 ? null : i % 4};
+
+      assertEquals(filter(expected, pattern), relation.select(pattern));
+    }
+
+    for (int i = 0; i < 6; i++) {
+      for (int j = 0; j < 6; j++) {
+        assertEquals(filter(expected, new Object[]{null, i, null, j, null}),
+            relation.lookup(0, i, j));
+        assertEquals(filter(expected, new Object[]{j, i, null, j, null}),
+            relation.lookup(0, i, j, j));
+      }
+      assertEquals(filter(expected, new Object[]{null, i, null, null, null}),
+          relation.lookup(0, i));
+      assertEquals(filter(expected, new Object[]{null, null, null, null, i}),
+          relation.lookup(1, i));
+    }
+  }
+
+}
@@ -7,17 +7,30 @@
  */
 package io.usethesource.capsule;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import com.pholser.junit.quickcheck.Property;
 import com.pholser.junit.quickcheck.generator.Size;
 import com.pholser.junit.quickcheck.runner.JUnitQuickcheck;
+import io.usethesource.capsule.core.PersistentBidirectionalTrieSetMultimap;
+import io.usethesource.capsule.core.PersistentBidirectionalTrieSetMultimap.InverseIndex;
+import io.usethesource.capsule.core.PersistentTrieSetMultimap;
+import io.usethesource.capsule.util.collection.AbstractSpecialisedImmutableMap;
+import io.usethesource.capsule.util.stream.CapsuleCollectors;
 import org.junit.runner.RunWith;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(JUnitQuickcheck.class)
 public class SetMultimapSmokeTest<K, V, CT extends SetMultimap.Immutable<K, V>> {
@@ -131,4 +144,478 @@ public class SetMultimapSmokeTest<K, V, CT extends SetMultimap.Immutable<K, V>>
     assertNotEquals(map, mapDifferent);
     assertNotEquals(mapDifferent, map);
   }
+
+  @Property
+  public void testParallelStreamOfEntries(final SetMultimap.Immutable<Integer, Integer> map) {
+    assertEquals(map.entrySet().stream().collect(Collectors.toSet()),
+        map.entrySet().parallelStream().collect(Collectors.toSet()));
+    assertEquals(map.size(), map.values().parallelStream().count());
+  }
+
+  @Property
+  public void testParallelCollectIntoSetMultimapAndBinaryRelation(
+      final SetMultimap.Immutable<Integer, Integer> map) {
+    final SetMultimap.Immutable<Integer, Integer> multimap = map.entrySet().parallelStream()
+        .collect(CapsuleCollectors.toSetMultimap(Map.Entry::getKey, Map.Entry::getValue));
+    final BinaryRelation.Immutable<Integer, Integer> relation = map.entrySet().parallelStream()
+        .collect(CapsuleCollectors.toBinaryRelation(Map.Entry::getKey, Map.Entry::getValue));
+
+    assertEquals(map.entrySet().stream().collect(Collectors.toSet()),
+        multimap.entrySet().stream().collect(Collectors.toSet()));
+    assertEquals(map.entrySet().stream().collect(Collectors.toSet()),
+        relation.entrySet().stream().collect(Collectors.toSet()));
+    assertEquals(map.size(), relation.inverse().size());
+  }
+
+  @Property
+  public void testStructuralUnionIntersectAndComplement(
+      final SetMultimap.Immutable<Integer, Integer> map1,
+      final SetMultimap.Immutable<Integer, Integer> map2) {
+    final java.util.Set<Map.Entry<Integer, Integer>> entries1 =
+        map1.entrySet().stream().collect(Collectors.toSet());
+    final java.util.Set<Map.Entry<Integer, Integer>> entries2 =
+        map2.entrySet().stream().collect(Collectors.toSet());
+
+    final java.util.Set<Map.Entry<Integer, Integer>> union = new HashSet<>(entries1);
+    union.addAll(entries2);
+
+    final java.util.Set<Map.Entry<Integer, Integer>> intersection = new HashSet<>(entries1);
+    intersection.retainAll(entries2);
+
+    final java.util.Set<Map.Entry<Integer, Integer>> complement = new HashSet<>(entries2);
+    complement.removeAll(entries1);
+
+    final SetMultimap.Immutable<Integer, Integer> unionMap = map1.union(map2);
+    final SetMultimap.Immutable<Integer, Integer> intersectionMap = map1.intersect(map2);
+    final SetMultimap.Immutable<Integer, Integer> complementMap = map1.complement(map2);
+
+    assertEquals(union, unionMap.entrySet().stream().collect(Collectors.toSet()));
+    assertEquals(union.size(), unionMap.size());
+    assertEquals(union.hashCode(), unionMap.hashCode());
+    assertEquals(intersection, intersectionMap.entrySet().stream().collect(Collectors.toSet()));
+    assertEquals(intersection.size(), intersectionMap.size());
+    assertEquals(intersection.hashCode(), intersectionMap.hashCode());
+    assertEquals(complement, complementMap.entrySet().stream().collect(Collectors.toSet()));
+    assertEquals(complement.size(), complementMap.size());
+    assertEquals(complement.hashCode(), complementMap.hashCode());
+
+    final SetMultimap.Transient<Integer, Integer> transientUnion = map1.asTransient();
+    transientUnion.union(map2);
+    assertEquals(unionMap, transientUnion.freeze());
+
+    final SetMultimap.Transient<Integer, Integer> transientIntersection = map1.asTransient();
+    transientIntersection.intersect(map2);
+    assertEquals(intersectionMap, transientIntersection.freeze());
+
+    final SetMultimap.Transient<Integer, Integer> transientComplement = map1.asTransient();
+    transientComplement.complement(map2);
+    assertEquals(complementMap, transientComplement.freeze());
+  }
+
+  @Property
+  public void testStructuralUnionIntersectAndComplementWithHashCollisions(
+      @Size(min = 0, max = 0) final SetMultimap.Immutable<Object, String> emptyCollection) {
+
+    Object a = new Object() {
+      public int hashCode() {
+        return 0;
+      }
+    };
+
+    Object b = new Object() {
+      public int hashCode() {
+        return 0;
+      }
+    };
+
+    Object c = new Object() {
+      public int hashCode() {
+        return 0;
+      }
+    };
+
+    final SetMultimap.Immutable<Object, String> map1 =
+        emptyCollection.__insert(a, "x").__insert(b, "y").__insert(b, "z");
+
+    final SetMultimap.Immutable<Object, String> map2 =
+        emptyCollection.__insert(b, "y").__insert(c, "z");
+
+    assertEquals(emptyCollection.__insert(a, "x").__insert(b, "y").__insert(b, "z")
+        .__insert(c, "z"), map1.union(map2));
+    assertEquals(emptyCollection.__insert(b, "y"), map1.intersect(map2));
+    assertEquals(emptyCollection.__insert(c, "z"), map1.complement(map2));
+    assertEquals(emptyCollection.__insert(a, "x").__insert(b, "z"), map2.complement(map1));
+
+    assertEquals(1, map1.intersect(map2).sizeDistinct());
+    assertEquals(3, map1.union(map2).sizeDistinct());
+  }
+
+  @Property
+  public void testInverseMap(final SetMultimap.Immutable<Integer, Integer> map) {
+    final SetMultimap.Transient<Integer, Integer> builder = SetMultimap.Transient.of();
+    final SetMultimap.Transient<Integer, Integer> expected = SetMultimap.Transient.of();
+
+    map.entryIterator().forEachRemaining(tuple -> {
+      builder.__insert(tuple.getKey(), tuple.getValue());
+      expected.__insert(tuple.getValue(), tuple.getKey());
+    });
+
+    final PersistentTrieSetMultimap<Integer, Integer> trie =
+        (PersistentTrieSetMultimap<Integer, Integer>) builder.freeze();
+
+    final SetMultimap.Immutable<Integer, Integer> inverse = trie.inverseMap();
+    final SetMultimap.Immutable<Integer, Integer> parallelInverse =
+        trie.inverseMap(ForkJoinPool.commonPool());
+
+    assertEquals(expected.freeze(), inverse);
+    assertEquals(inverse, parallelInverse);
+    assertEquals(inverse.hashCode(), parallelInverse.hashCode());
+    assertEquals(inverse.sizeDistinct(), parallelInverse.sizeDistinct());
+    assertEquals(trie, parallelInverse.inverseMap());
+  }
+
+  @Property
+  public void testKeyLevelPutAndRemove(final SetMultimap.Immutable<Integer, Integer> map) {
+    final SetMultimap.Transient<Integer, Integer> builder = SetMultimap.Transient.of();
+    map.entryIterator()
+        .forEachRemaining(tuple -> builder.__insert(tuple.getKey(), tuple.getValue()));
+    final SetMultimap.Immutable<Integer, Integer> trie = builder.freeze();
+
+    final Set.Immutable<Integer> values = Set.Immutable.of(-1, -2);
+
+    for (Integer key : trie.keySet()) {
+      final SetMultimap.Transient<Integer, Integer> expected = trie.asTransient();
+      trie.get(key).forEach(value -> expected.__remove(key, value));
+      final SetMultimap.Immutable<Integer, Integer> expectedRemoved = expected.freeze();
+
+      final SetMultimap.Immutable<Integer, Integer> removed = trie.__remove(key);
+      assertEquals(expectedRemoved, removed);
+      assertEquals(expectedRemoved.hashCode(), removed.hashCode());
+      assertEquals(trie.size() - trie.get(key).size(), removed.size());
+      assertEquals(trie.sizeDistinct() - 1, removed.sizeDistinct());
+
+      final SetMultimap.Immutable<Integer, Integer> replaced = trie.__put(key, values);
+      assertEquals(removed.size() + values.size(), replaced.size());
+      assertEquals(trie.sizeDistinct(), replaced.sizeDistinct());
+      assertEquals(values, replaced.get(key));
+      assertEquals(removed, replaced.__remove(key));
+      assertTrue(trie.__put(key, trie.get(key)) == trie);
+    }
+  }
+
+  @Property
+  public void testHashCodeAfterUpdates(final SetMultimap.Immutable<Integer, Integer> map) {
+    final java.util.Set<Map.Entry<Integer, Integer>> entries =
+        map.entrySet().stream().collect(Collectors.toSet());
+    assertEquals(entries.hashCode(), map.hashCode());
+
+    final SetMultimap.Transient<Integer, Integer> builder = map.asTransient();
+    SetMultimap.Immutable<Integer, Integer> updated = map;
+
+    for (Integer key : map.keySet()) {
+      final Set.Immutable<Integer> values = map.get(key);
+
+      updated = updated.__insert(key, values.__insert(key));
+      builder.__insert(key, values.__insert(key));
+      entries.add(AbstractSpecialisedImmutableMap.entryOf(key, key));
+
+      assertEquals(entries.hashCode(), updated.hashCode());
+      assertEquals(entries.hashCode(), builder.hashCode());
+
+      updated = updated.__remove(key, values.findFirst().get());
+      builder.__remove(key, values.findFirst().get());
+      entries.remove(AbstractSpecialisedImmutableMap.entryOf(key, values.findFirst().get()));
+
+      assertEquals(entries.hashCode(), updated.hashCode());
+      assertEquals(entries.hashCode(), builder.hashCode());
+    }
+
+    assertEquals(updated, builder.freeze());
+  }
+
+  @Property
+  public void testValueAccessWithoutCollection(final SetMultimap.Immutable<Integer, Integer> map) {
+    final SetMultimap.Transient<Integer, Integer> builder = SetMultimap.Transient.of();
+    map.entryIterator()
+        .forEachRemaining(tuple -> builder.__insert(tuple.getKey(), tuple.getValue()));
+    final SetMultimap.Immutable<Integer, Integer> trie = builder.freeze();
+
+    for (Integer key : trie.keySet()) {
+      final Set.Immutable<Integer> values = trie.get(key);
+      final java.util.Set<Integer> visited = new HashSet<>();
+
+      trie.forEachValue(key, visited::add);
+
+      assertEquals(values, visited);
+      assertEquals(values.size(), trie.valueCount(key));
+      assertTrue(values.contains(trie.findFirstValue(key).get()));
+    }
+
+    int absentKey = 0;
+    while (trie.containsKey(absentKey)) {
+      absentKey++;
+    }
+
+    trie.forEachValue(absentKey, value -> fail());
+    assertEquals(0, trie.valueCount(absentKey));
+    assertFalse(trie.findFirstValue(absentKey).isPresent());
+  }
+
+  @Property
+  public void testValueAccessWithHashCollisions(
+      @Size(min = 0, max = 0) final SetMultimap.Immutable<Object, String> emptyCollection) {
+
+    Object a = new Object() {
+      public int hashCode() {
+        return 0;
+      }
+    };
+
+    Object b = new Object() {
+      public int hashCode() {
+        return 0;
+      }
+    };
+
+    Object c = new Object() {
+      public int hashCode() {
+        return 0;
+      }
+    };
+
+    final SetMultimap.Immutable<Object, String> map =
+        emptyCollection.__insert(a, "x").__insert(b, "y").__insert(b, "z");
+
+    assertEquals(1, map.valueCount(a));
+    assertEquals(2, map.valueCount(b));
+    assertEquals(0, map.valueCount(c));
+
+    assertEquals("x", map.findFirstValue(a).get());
+    assertTrue(map.get(b).contains(map.findFirstValue(b).get()));
+    assertFalse(map.findFirstValue(c).isPresent());
+
+    final java.util.Set<String> visited = new HashSet<>();
+    map.forEachValue(b, visited::add);
+    assertEquals(map.get(b), visited);
+
+    assertTrue(map.containsEntry(b, "z"));
+    assertFalse(map.containsEntry(b, "x"));
+    assertFalse(map.containsEntry(c, "x"));
+  }
+
+  @Property
+  public void testValueIteratorFlattensSingletonsAndCollections(
+      final SetMultimap.Immutable<Integer, Integer> map) {
+    final SetMultimap.Transient<Integer, Integer> builder = SetMultimap.Transient.of();
+    map.entryIterator()
+        .forEachRemaining(tuple -> builder.__insert(tuple.getKey(), tuple.getValue()));
+
+    final List<Integer> expected = new ArrayList<>();
+    builder.entryIterator().forEachRemaining(tuple -> expected.add(tuple.getValue()));
+
+    final List<Integer> transientValues = new ArrayList<>();
+    builder.valueIterator().forEachRemaining(transientValues::add);
+
+    final SetMultimap.Immutable<Integer, Integer> trie = builder.freeze();
+
+    final List<Integer> persistentValues = new ArrayList<>();
+    final Iterator<Integer> it = trie.valueIterator();
+    while (it.hasNext()) {
+      persistentValues.add(it.next());
+    }
+
+    assertEquals(expected, transientValues);
+    assertEquals(expected, persistentValues);
+    assertEquals(trie.size(), persistentValues.size());
+  }
+
+  @Property
+  public void testComposeBinaryRelations(final SetMultimap.Immutable<Integer, Integer> map1,
+      final SetMultimap.Immutable<Integer, Integer> map2) {
+    final BinaryRelation.Transient<Integer, Integer> builder1 = BinaryRelation.Transient.of();
+    map1.entryIterator()
+        .forEachRemaining(tuple -> builder1.__insert(tuple.getKey(), tuple.getValue()));
+    final BinaryRelation.Immutable<Integer, Integer> relation1 = builder1.freeze();
+
+    final BinaryRelation.Transient<Integer, Integer> builder2 = BinaryRelation.Transient.of();
+    map2.entryIterator()
+        .forEachRemaining(tuple -> builder2.__insert(tuple.getKey() % 8, tuple.getValue()));
+    final BinaryRelation.Immutable<Integer, Integer> relation2 = builder2.freeze();
+
+    final java.util.Set<Map.Entry<Integer, Integer>> expected = new HashSet<>();
+    relation1.entryIterator().forEachRemaining(
+        tuple1 -> relation2.get(tuple1.getValue()).forEach(value -> expected
+            .add(AbstractSpecialisedImmutableMap.entryOf(tuple1.getKey(), value))));
+
+    final BinaryRelation.Immutable<Integer, Integer> composed = relation1.compose(relation2);
+
+    assertEquals(expected, composed.entrySet().stream().collect(Collectors.toSet()));
+    assertEquals(expected.size(), composed.size());
+    assertEquals(expected.hashCode(), composed.hashCode());
+    assertEquals(expected.size(), composed.inverse().size());
+    composed.entryIterator().forEachRemaining(tuple -> assertTrue(
+        composed.inverse().containsEntry(tuple.getValue(), tuple.getKey())));
+
+    assertEquals(composed, relation2.inverse().compose(relation1.inverse()).inverse());
+  }
+
+  @Property
+  public void testClosureOfBinaryRelation(final SetMultimap.Immutable<Integer, Integer> map) {
+    final BinaryRelation.Transient<Integer, Integer> builder = BinaryRelation.Transient.of();
+    map.entryIterator().forEachRemaining(
+        tuple -> builder.__insert(tuple.getKey() % 16, tuple.getValue() % 16));
+    final BinaryRelation.Immutable<Integer, Integer> relation = builder.freeze();
+
+    BinaryRelation.Immutable<Integer, Integer> expected = relation;
+    BinaryRelation.Immutable<Integer, Integer> previous;
+    do {
+      previous = expected;
+      expected = (BinaryRelation.Immutable<Integer, Integer>) previous
+          .union(previous.compose(relation));
+    } while (!expected.equals(previous));
+
+    final BinaryRelation.Immutable<Integer, Integer> closure =
+        BinaryRelation.Immutable.closure(relation);
+
+    assertEquals(expected, closure);
+    assertEquals(expected.hashCode(), closure.hashCode());
+    assertEquals(closure.size(), closure.inverse().size());
+    assertEquals(closure,
+        BinaryRelation.Immutable.parallelClosure(ForkJoinPool.commonPool(), relation));
+
+    final SetMultimap.Transient<Integer, Integer> expectedReflexive = expected.asTransient();
+    relation.keySet().forEach(key -> expectedReflexive.__insert(key, key));
+    relation.inverse().keySet().forEach(value -> expectedReflexive.__insert(value, value));
+
+    final BinaryRelation.Immutable<Integer, Integer> reflexiveClosure =
+        BinaryRelation.Immutable.reflexiveClosure(relation);
+
+    assertEquals(expectedReflexive.freeze(), reflexiveClosure);
+    assertEquals(reflexiveClosure, BinaryRelation.Immutable
+        .parallelReflexiveClosure(ForkJoinPool.commonPool(), relation));
+  }
+
+  @Property
+  public void testReachabilityInBinaryRelation(final SetMultimap.Immutable<Integer, Integer> map) {
+    final BinaryRelation.Transient<Integer, Integer> builder = BinaryRelation.Transient.of();
+    map.entryIterator().forEachRemaining(
+        tuple -> builder.__insert(tuple.getKey() % 16, tuple.getValue() % 16));
+    final BinaryRelation.Immutable<Integer, Integer> relation = builder.freeze();
+    final BinaryRelation.Immutable<Integer, Integer> closure =
+        BinaryRelation.Immutable.closure(relation);
+
+    for (int seed = -15; seed < 16; seed++) {
+      final Set.Immutable<Integer> seeds = Set.Immutable.of(seed);
+
+      assertEquals(closure.get(seed), BinaryRelation.reachableFrom(relation, seeds));
+      assertEquals(closure.inverse().get(seed), BinaryRelation.reaching(relation, seeds));
+      assertEquals(relation.get(seed), BinaryRelation.reachableFrom(relation, seeds, 1));
+      assertEquals(relation.inverse().get(seed), BinaryRelation.reaching(relation, seeds, 1));
+      assertTrue(BinaryRelation.reachableFrom(relation, seeds, 0).isEmpty());
+    }
+  }
+
+  @Property
+  public void testImageAndRestrictionOfBinaryRelation(
+      final SetMultimap.Immutable<Integer, Integer> map) {
+    final BinaryRelation.Transient<Integer, Integer> builder = BinaryRelation.Transient.of();
+    final Set.Transient<Integer> selectionBuilder = Set.Transient.of();
+
+    map.entryIterator().forEachRemaining(tuple -> {
+      builder.__insert(tuple.getKey(), tuple.getValue());
+
+      if (tuple.getKey() % 3 == 0) {
+        selectionBuilder.__insert(tuple.getKey());
+      }
+      if (tuple.getValue() % 3 == 0) {
+        selectionBuilder.__insert(tuple.getValue());
+      }
+    });
+
+    final BinaryRelation.Immutable<Integer, Integer> relation = builder.freeze();
+    final Set.Immutable<Integer> selection = selectionBuilder.freeze();
+
+    final Set.Transient<Integer> expectedImage = Set.Transient.of();
+    final Set.Transient<Integer> expectedPreimage = Set.Transient.of();
+    final BinaryRelation.Transient<Integer, Integer> expectedDomainRestriction =
+        BinaryRelation.Transient.of();
+    final BinaryRelation.Transient<Integer, Integer> expectedRangeRestriction =
+        BinaryRelation.Transient.of();
+
+    relation.entryIterator().forEachRemaining(tuple -> {
+      if (selection.contains(tuple.getKey())) {
+        expectedImage.__insert(tuple.getValue());
+        expectedDomainRestriction.__insert(tuple.getKey(), tuple.getValue());
+      }
+      if (selection.contains(tuple.getValue())) {
+        expectedPreimage.__insert(tuple.getKey());
+        expectedRangeRestriction.__insert(tuple.getKey(), tuple.getValue());
+      }
+    });
+
+    assertEquals(expectedImage.freeze(), relation.image(selection));
+    assertEquals(expectedPreimage.freeze(), relation.preimage(selection));
+
+    final BinaryRelation.Immutable<Integer, Integer> domainRestriction =
+        relation.restrictDomain(selection);
+    final BinaryRelation.Immutable<Integer, Integer> rangeRestriction =
+        relation.restrictRange(selection);
+
+    assertEquals(expectedDomainRestriction.freeze(), domainRestriction);
+    assertEquals(expectedRangeRestriction.freeze(), rangeRestriction);
+    assertEquals(domainRestriction.size(), domainRestriction.inverse().size());
+    assertEquals(rangeRestriction.size(), rangeRestriction.inverse().size());
+    domainRestriction.entryIterator().forEachRemaining(tuple -> assertTrue(
+        domainRestriction.inverse().containsEntry(tuple.getValue(), tuple.getKey())));
+    rangeRestriction.entryIterator().forEachRemaining(tuple -> assertTrue(
+        rangeRestriction.inverse().containsEntry(tuple.getValue(), tuple.getKey())));
+  }
+
+  @Property
+  public void testLazilyBuiltInverseOfBinaryRelation(
+      final SetMultimap.Immutable<Integer, Integer> map) {
+    final BinaryRelation.Transient<Integer, Integer> eagerBuilder =
+        PersistentBidirectionalTrieSetMultimap.transientOf(InverseIndex.EAGER);
+    final BinaryRelation.Transient<Integer, Integer> lazyBuilder =
+        PersistentBidirectionalTrieSetMultimap.transientOf(InverseIndex.LAZY);
+
+    map.entryIterator().forEachRemaining(tuple -> {
+      eagerBuilder.__insert(tuple.getKey() % 16, tuple.getValue() % 16);
+      lazyBuilder.__insert(tuple.getKey() % 16, tuple.getValue() % 16);
+    });
+
+    BinaryRelation.Immutable<Integer, Integer> eager = eagerBuilder.freeze();
+    BinaryRelation.Immutable<Integer, Integer> lazy = lazyBuilder.freeze();
+
+    assertEquals(eager, lazy);
+    assertEquals(eager.inverse(), lazy.inverse());
+
+    // updates after the inverse was built are maintained incrementally
+    for (int i = 0; i < 16; i++) {
+      if (lazy.containsEntry(i, 15 - i)) {
+        eager = (BinaryRelation.Immutable<Integer, Integer>) eager.__remove(i, 15 - i);
+        lazy = (BinaryRelation.Immutable<Integer, Integer>) lazy.__remove(i, 15 - i);
+      } else {
+        eager = (BinaryRelation.Immutable<Integer, Integer>) eager.__insert(i, 15 - i);
+        lazy = (BinaryRelation.Immutable<Integer, Integer>) lazy.__insert(i, 15 - i);
+      }
+
+      assertEquals(eager.containsValue(i), lazy.containsValue(i));
+    }
+
+    assertEquals(eager.inverse(), lazy.inverse());
+    assertEquals(eager.inverse().inverse(), lazy.inverse().inverse());
+    assertEquals(BinaryRelation.Immutable.closure(eager), BinaryRelation.Immutable.closure(lazy));
+    assertEquals(eager.compose(eager).inverse(), lazy.compose(lazy).inverse());
+
+    final Set.Transient<Integer> selectionBuilder = Set.Transient.of();
+    for (int i = 0; i < 16; i += 3) {
+      selectionBuilder.__insert(i);
+    }
+    final Set.Immutable<Integer> selection = selectionBuilder.freeze();
+
+    assertEquals(eager.restrictDomain(selection).inverse(),
+        lazy.restrictDomain(selection).inverse());
+    assertEquals(eager.restrictRange(selection), lazy.restrictRange(selection));
+  }
 }
@@ -13,12 +13,17 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
 
 import io.usethesource.capsule.core.PersistentTrieSet;
+import io.usethesource.capsule.util.stream.CapsuleCollectors;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class SetSmokeTest {
@@ -426,4 +431,158 @@ public class SetSmokeTest {
     assertEquals(xs, ys);
   }
 
+  @Test
+  public void CollisionUnion() {
+    DummyValue hash98304_obj1 = new DummyValue(1, 98304);
+    DummyValue hash98304_obj2 = new DummyValue(2, 98304);
+    DummyValue hash98304_obj3 = new DummyValue(3, 98304);
+
+    DummyValue hash8_obj4 = new DummyValue(4, 8);
+
+    io.usethesource.capsule.Set.Immutable<DummyValue> xs =
+        PersistentTrieSet.of(hash98304_obj1, hash98304_obj2, hash8_obj4);
+    io.usethesource.capsule.Set.Immutable<DummyValue> ys =
+        PersistentTrieSet.of(hash98304_obj2, hash98304_obj3);
+    io.usethesource.capsule.Set.Immutable<DummyValue> zs = PersistentTrieSet
+        .of(hash98304_obj1, hash98304_obj2, hash98304_obj3, hash8_obj4);
+
+    assertEquals(zs, xs.union(ys));
+    assertEquals(zs, ys.union(xs));
+    assertEquals(zs.hashCode(), xs.union(ys).hashCode());
+    assertEquals(zs.size(), xs.union(ys).size());
+  }
+
+  @Test
+  public void CollisionIntersectAndSubtract() {
+    DummyValue hash98304_obj1 = new DummyValue(1, 98304);
+    DummyValue hash98304_obj2 = new DummyValue(2, 98304);
+    DummyValue hash98304_obj3 = new DummyValue(3, 98304);
+
+    DummyValue hash8_obj4 = new DummyValue(4, 8);
+
+    io.usethesource.capsule.Set.Immutable<DummyValue> xs =
+        PersistentTrieSet.of(hash98304_obj1, hash98304_obj2, hash8_obj4);
+    io.usethesource.capsule.Set.Immutable<DummyValue> ys =
+        PersistentTrieSet.of(hash98304_obj2, hash98304_obj3, hash8_obj4);
+
+    assertEquals(PersistentTrieSet.of(hash98304_obj2, hash8_obj4), xs.intersect(ys));
+    assertEquals(PersistentTrieSet.of(hash98304_obj1), xs.subtract(ys));
+    assertEquals(PersistentTrieSet.of(hash98304_obj3), ys.subtract(xs));
+  }
+
+  @Test
+  public void SetOperationsReturnUnmodifiedInstance() {
+    io.usethesource.capsule.Set.Immutable<Integer> xs = PersistentTrieSet.of(1, 2, 3, 33, 65);
+    io.usethesource.capsule.Set.Immutable<Integer> ys = xs.__insert(97).__insert(4);
+    io.usethesource.capsule.Set.Immutable<Integer> zs = PersistentTrieSet.of(5, 6, 7);
+
+    assertSame(ys, xs.union(ys));
+    assertSame(ys, ys.union(xs));
+    assertSame(xs, xs.intersect(ys));
+    assertSame(xs, ys.intersect(xs));
+    assertSame(xs, xs.subtract(zs));
+    assertEquals(PersistentTrieSet.of(), xs.subtract(ys));
+    assertEquals(PersistentTrieSet.of(4, 97), ys.subtract(xs));
+  }
+
+  @Test
+  public void Diff() {
+    DummyValue hash98304_obj1 = new DummyValue(1, 98304);
+    DummyValue hash98304_obj2 = new DummyValue(2, 98304);
+    DummyValue hash98304_obj3 = new DummyValue(3, 98304);
+
+    DummyValue hash8_obj4 = new DummyValue(4, 8);
+    DummyValue hash8_obj5 = new DummyValue(5, 8);
+
+    io.usethesource.capsule.Set.Immutable<DummyValue> xs =
+        PersistentTrieSet.of(hash98304_obj1, hash98304_obj2, hash8_obj4);
+    io.usethesource.capsule.Set.Immutable<DummyValue> ys =
+        xs.__remove(hash98304_obj1).__insert(hash98304_obj3).__insert(hash8_obj5);
+
+    io.usethesource.capsule.Set.Diff<DummyValue> diff = xs.diff(ys);
+
+    assertEquals(PersistentTrieSet.of(hash98304_obj3, hash8_obj5), diff.added());
+    assertEquals(PersistentTrieSet.of(hash98304_obj1), diff.removed());
+    assertTrue(xs.diff(xs).isEmpty());
+  }
+
+  @Test
+  public void SpliteratorSplitsAtNodeBoundaries() {
+    final int size = 10_000;
+
+    io.usethesource.capsule.Set.Immutable<Integer> xs =
+        PersistentTrieSet.of(IntStream.range(0, size).boxed().toArray(Integer[]::new));
+
+    Spliterator<Integer> spliterator = xs.spliterator();
+    assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.IMMUTABLE));
+    assertEquals(size, spliterator.getExactSizeIfKnown());
+
+    Spliterator<Integer> prefix = spliterator.trySplit();
+    assertNotNull(prefix);
+
+    final Set<Integer> elements = new HashSet<>();
+    prefix.forEachRemaining(elements::add);
+    spliterator.forEachRemaining(elements::add);
+
+    assertEquals(xs, elements);
+    assertEquals(IntStream.range(0, size).sum(), xs.parallelStream().mapToInt(i -> i).sum());
+  }
+
+  @Test
+  public void ParallelConstructionWithHashCollisions() {
+    final java.util.List<DummyValue> values = new java.util.ArrayList<>();
+
+    for (int i = 0; i < 10_000; i++) {
+      values.add(new DummyValue(i, i % 3_000 * 33));
+    }
+
+    final Set<DummyValue> expected = new HashSet<>(values);
+
+    io.usethesource.capsule.Set.Immutable<DummyValue> xs = PersistentTrieSet.parallelOf(values);
+    io.usethesource.capsule.Set.Immutable<DummyValue> ys =
+        values.parallelStream().collect(CapsuleCollectors.toSet());
+
+    assertEquals(expected, xs);
+    assertEquals(expected.hashCode(), xs.hashCode());
+    assertEquals(expected, ys);
+    assertEquals(expected.hashCode(), ys.hashCode());
+    assertEquals(xs, ys);
+  }
+
+  @Test
+  public void MemoizedKeyHashesAvoidRehashing() {
+    io.usethesource.capsule.Set.Immutable<HashCountingInteger> xs =
+        PersistentTrieSet.ofMemoizedKeyHashes();
+    io.usethesource.capsule.Set.Immutable<HashCountingInteger> ys =
+        PersistentTrieSet.ofMemoizedKeyHashes();
+
+    for (int i = 0; i < 10_000; i++) {
+      xs = xs.__insert(new HashCountingInteger(i, i % 3_000 * 33));
+      ys = ys.__insert(new HashCountingInteger(i + 5_000, (i + 5_000) % 3_000 * 33));
+    }
+
+    HashCountingInteger.resetCount();
+
+    assertEquals(15_000, xs.union(ys).size());
+    assertEquals(5_000, xs.intersect(ys).size());
+    assertEquals(5_000, xs.subtract(ys).size());
+    assertEquals(xs.union(ys), ys.union(xs));
+
+    assertEquals(0, HashCountingInteger.count());
+  }
+
+  @Test
+  public void TransientInsertAllIsStructural() {
+    io.usethesource.capsule.Set.Immutable<Integer> xs = PersistentTrieSet.of(1, 2, 3, 33, 65);
+
+    io.usethesource.capsule.Set.Transient<Integer> tmp = PersistentTrieSet.transientOf(4, 33);
+    assertTrue(tmp.__insertAll(xs));
+    assertEquals(PersistentTrieSet.of(1, 2, 3, 4, 33, 65), tmp);
+    assertEquals(PersistentTrieSet.of(1, 2, 3, 4, 33, 65).hashCode(), tmp.hashCode());
+
+    tmp.__remove(33);
+    tmp.__remove(65);
+    assertEquals(PersistentTrieSet.of(1, 2, 3, 33, 65), xs);
+  }
+
 }
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) Michael Steindorfer <Centrum Wiskunde & Informatica> and Contributors.
+ * All rights reserved.
+ *
+ * This file is licensed under the BSD 2-Clause License, which accompanies this project
+ * and is available under https://opensource.org/licenses/BSD-2-Clause.
+ */
+package io.usethesource.capsule;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import io.usethesource.capsule.api.TernaryRelation;
+import io.usethesource.capsule.api.Triple;
+import io.usethesource.capsule.experimental.relation.TernaryTrieSetMultimap;
+import io.usethesource.capsule.experimental.relation.TernaryTrieSetMultimap.SecondaryIndex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TernaryRelationSmokeTest {
+
+  private static java.util.Set<Triple<Integer, Integer, Integer>> randomTriples(final int seed,
+      final int count, final int bound) {
+    final Random random = new Random(seed);
+    final java.util.Set<Triple<Integer, Integer, Integer>> triples = new HashSet<>();
+
+    for (int i = 0; i < count; i++) {
+      triples.add(
+          Triple.of(random.nextInt(bound), random.nextInt(bound), random.nextInt(bound)));
+    }
+
+    return triples;
+  }
+
+  @Test
+  public void testTransientEqualsPersistent() {
+    final java.util.Set<Triple<Integer, Integer, Integer>> triples = randomTriples(3, 2_000, 50);
+
+    TernaryRelation.Immutable<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> persistent =
+        TernaryTrieSetMultimap.of();
+    final TernaryRelation.Transient<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> builder =
+        TernaryTrieSetMultimap.transientOf();
+
+    for (Triple<Integer, Integer, Integer> triple : triples) {
+      persistent = (TernaryRelation.Immutable) persistent.__insert(triple);
+      assertTrue(builder.__insert(triple));
+      assertFalse(builder.__insert(triple));
+    }
+
+    assertTrue(builder.equivalent(triples, Object::equals));
+    assertTrue(builder.equivalent(persistent, Object::equals));
+    assertTrue(persistent.equivalent(triples, Object::equals));
+    assertFalse(persistent.equivalent(TernaryTrieSetMultimap.of(), Object::equals));
+    assertEquals(triples, persistent);
+    assertEquals(triples, builder.freeze());
+    assertEquals(triples.size(), persistent.size());
+  }
+
+  @Test
+  public void testBulkInsertAndRemove() {
+    final java.util.Set<Triple<Integer, Integer, Integer>> triples = randomTriples(5, 2_000, 50);
+    final java.util.Set<Triple<Integer, Integer, Integer>> removed = randomTriples(7, 1_000, 50);
+
+    final TernaryRelation.Immutable<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> empty =
+        TernaryTrieSetMultimap.of();
+    final Set.Immutable<Triple<Integer, Integer, Integer>> relation = empty.__insertAll(triples);
+
+    assertEquals(triples, relation);
+    assertSame(relation, relation.__insertAll(triples));
+
+    final java.util.Set<Triple<Integer, Integer, Integer>> expected = new HashSet<>(triples);
+    expected.removeAll(removed);
+
+    final Set.Immutable<Triple<Integer, Integer, Integer>> smaller = relation.__removeAll(removed);
+    assertEquals(expected, smaller);
+    assertEquals(expected.size(), smaller.size());
+
+    final java.util.Set<Triple<Integer, Integer, Integer>> retained = new HashSet<>(triples);
+    retained.retainAll(removed);
+    assertEquals(retained, relation.__retainAll(removed));
+
+    for (Triple<Integer, Integer, Integer> triple : removed) {
+      assertEquals(expected.contains(triple), smaller.contains(triple));
+    }
+
+    assertEquals(triples, relation.__removeAll(removed).__insertAll(triples));
+  }
+
+  @Test
+  public void testSelectWithWildcards() {
+    final java.util.Set<Triple<Integer, Integer, Integer>> triples = randomTriples(11, 2_000, 12);
+
+    final TernaryRelation.Immutable<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> empty =
+        TernaryTrieSetMultimap.of();
+    final TernaryRelation.Immutable<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> relation =
+        (TernaryRelation.Immutable) empty.__insertAll(triples);
+
+    assertEquals(triples, relation.select(null, null, null));
+
+    for (int i = 0; i < 200; i++) {
+      final Integer fst = i % 2 == 0 ? null : i % 13;
+      final Integer snd = i % 3 == 0 ? null : i % 14;
+      final Integer trd = i % 5 == 0 ? null : i % 11;
+
+      final java.util.Set<Triple<Integer, Integer, Integer>> expected = triples.stream()
+          .filter(triple -> (fst == null || fst.equals(triple._0()))
+              && (snd == null || snd.equals(triple._1()))
+              && (trd == null || trd.equals(triple._2())))
+          .collect(Collectors.toSet());
+
+      assertEquals(expected, relation.select(fst, snd, trd));
+      assertEquals(expected, relation.selectStream(fst, snd, trd).collect(Collectors.toSet()));
+    }
+  }
+
+  @Test
+  public void testLazilyBuiltSecondaryIndices() {
+    final java.util.Set<Triple<Integer, Integer, Integer>> triples = randomTriples(13, 2_000, 12);
+    final java.util.Set<Triple<Integer, Integer, Integer>> updates = randomTriples(17, 200, 12);
+
+    final TernaryRelation.Immutable<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> empty =
+        TernaryTrieSetMultimap.of();
+    final TernaryRelation.Immutable<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> eager =
+        (TernaryRelation.Immutable) empty.__insertAll(triples);
+
+    final TernaryRelation.Transient<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> builder =
+        TernaryTrieSetMultimap.transientOf(EnumSet.noneOf(SecondaryIndex.class));
+    builder.__insertAll(triples);
+    TernaryRelation.Immutable<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> lazy =
+        builder.freeze();
+
+    assertEquals(eager, lazy);
+
+    for (int i = 0; i < 12; i++) {
+      assertEquals(eager.select(null, i, null), lazy.select(null, i, null));
+      assertEquals(eager.select(null, null, i), lazy.select(null, null, i));
+    }
+
+    TernaryRelation.Immutable<Integer, Integer, Integer, Triple<Integer, Integer, Integer>> eagerUpdated =
+        eager;
+
+    for (Triple<Integer, Integer, Integer> triple : updates) {
+      if (lazy.contains(triple)) {
+        lazy = (TernaryRelation.Immutable) lazy.__remove(triple);
+        eagerUpdated = (TernaryRelation.Immutable) eagerUpdated.__remove(triple);
+      } else {
+        lazy = (TernaryRelation.Immutable) lazy.__insert(triple);
+        eagerUpdated = (TernaryRelation.Immutable) eagerUpdated.__insert(triple);
+      }
+    }
+
+    for (int i = 0; i < 12; i++) {
+      assertEquals(eagerUpdated.select(i, i, null), lazy.select(i, i, null));
+      assertEquals(eagerUpdated.select(null, i, i), lazy.select(null, i, i));
+      assertEquals(eagerUpdated.select(null, i, null), lazy.select(null, i, null));
+    }
+  }
+
+}